@@ -0,0 +1,73 @@
+package com.t2308e.benchmarks;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.entity.User;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Embedded H2 database with the {@code users} table used by the sample {@link User} entity.
+ */
+public final class BenchmarkDatabase {
+
+    private static final int SEED_BATCH = 10_000;
+
+    private BenchmarkDatabase() {
+    }
+
+    /**
+     * Opens a fresh pooled in-memory database named {@code name} and inserts {@code rows} users.
+     */
+    public static DataSourceConfig open(String name, int rows) throws SQLException {
+        DataSourceConfig config = new DataSourceConfig("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "",
+                "org.h2.Driver", new PoolConfig().setMinIdle(1).setMaxSize(4));
+        try (Connection conn = config.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE IF EXISTS users");
+            stmt.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(255), "
+                    + "email VARCHAR(255) UNIQUE, age INT)");
+        }
+        seed(config, rows);
+        return config;
+    }
+
+    public static void seed(DataSourceConfig config, int rows) throws SQLException {
+        try (Connection conn = config.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO users (user_name, email, age) VALUES (?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < rows; i++) {
+                stmt.setString(1, "user" + i);
+                stmt.setString(2, "user" + i + "@example.com");
+                stmt.setInt(3, 18 + i % 60);
+                stmt.addBatch();
+                if ((i + 1) % SEED_BATCH == 0 || i == rows - 1) {
+                    stmt.executeBatch();
+                }
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+    }
+
+    public static void truncate(DataSourceConfig config) throws SQLException {
+        try (Connection conn = config.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("TRUNCATE TABLE users RESTART IDENTITY");
+        }
+    }
+
+    /**
+     * Hand-written mapping of a {@code SELECT id, user_name, email, age} row, the baseline for the ORM's mapper.
+     */
+    public static User mapUser(ResultSet rs) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong(1));
+        user.setUserName(rs.getString(2));
+        user.setEmail(rs.getString(3));
+        user.setAge(rs.getInt(4));
+        return user;
+    }
+}
@@ -0,0 +1,107 @@
+package com.t2308e.benchmarks;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.core.MyRepositoryFactory;
+import com.t2308e.entity.User;
+import com.t2308e.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of going through the repository proxy compared with the same statement issued with plain JDBC on the same
+ * pool, for point lookups and {@code count}. {@code toString} measures dispatch alone, without any SQL.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DispatchBenchmark {
+
+    private static final int ROWS = 10_000;
+
+    private DataSourceConfig dataSource;
+    private UserRepository repository;       // second-level cache disabled
+    private UserRepository cachedRepository; // User is @MyEntity(cacheable = true)
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.open("dispatch", ROWS);
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+        cachedRepository = factory.createRepository(UserRepository.class);
+        factory.getSettings().setCacheProvider(null);
+        repository = factory.createRepository(UserRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    private static long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, ROWS + 1);
+    }
+
+    @Benchmark
+    public Optional<User> findByIdProxy() {
+        return repository.findById(randomId());
+    }
+
+    @Benchmark
+    public Optional<User> findByIdCachedProxy() {
+        return cachedRepository.findById(randomId());
+    }
+
+    @Benchmark
+    public Optional<User> findByIdRawJdbc() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT id, user_name, email, age FROM users WHERE id = ?")) {
+            stmt.setLong(1, randomId());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Optional.of(BenchmarkDatabase.mapUser(rs)) : Optional.empty();
+            }
+        }
+    }
+
+    @Benchmark
+    public Optional<User> findByEmailDerivedProxy() {
+        return repository.findByEmail("user" + randomId() + "@example.com");
+    }
+
+    @Benchmark
+    public long countProxy() {
+        return repository.count();
+    }
+
+    @Benchmark
+    public long countRawJdbc() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM users");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0L;
+        }
+    }
+
+    @Benchmark
+    public String toStringProxy() {
+        return repository.toString();
+    }
+}
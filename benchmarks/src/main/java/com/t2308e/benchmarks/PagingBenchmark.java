@@ -0,0 +1,73 @@
+package com.t2308e.benchmarks;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.core.MyRepositoryFactory;
+import com.t2308e.entity.User;
+import com.t2308e.repository.PageRequest;
+import com.t2308e.repository.Slice;
+import com.t2308e.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetching one page of 50 rows near the start and deep into a 1M-row table, by keyset ({@code id > ?}) and by
+ * {@code OFFSET}. Keyset cost should not depend on {@code page}; offset cost grows with it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PagingBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"1", "10000"})
+    public int page;
+
+    private DataSourceConfig dataSource;
+    private UserRepository repository;
+    private PageRequest keysetRequest;
+    private PageRequest offsetRequest;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.open("paging", ROWS);
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setCacheProvider(null);
+        repository = factory.createRepository(UserRepository.class);
+        // Ids are assigned 1..ROWS in insert order, so the last id before the page is known
+        keysetRequest = PageRequest.ofSize(PAGE_SIZE).after((long) page * PAGE_SIZE);
+        offsetRequest = PageRequest.of(page, PAGE_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Slice<User> keyset() {
+        return repository.findAll(keysetRequest);
+    }
+
+    @Benchmark
+    public Slice<User> offset() {
+        return repository.findAll(offsetRequest);
+    }
+}
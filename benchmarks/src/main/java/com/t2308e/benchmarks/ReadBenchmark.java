@@ -0,0 +1,90 @@
+package com.t2308e.benchmarks;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.core.MyRepositoryFactory;
+import com.t2308e.entity.User;
+import com.t2308e.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Full-table reads at growing table sizes: materialized {@code findAll}, streamed {@code streamAll}, and a plain
+ * JDBC loop with hand-written mapping as the baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ReadBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int rows;
+
+    private DataSourceConfig dataSource;
+    private UserRepository repository;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.open("read" + rows, rows);
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setCacheProvider(null);
+        repository = factory.createRepository(UserRepository.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<User> findAll() {
+        return repository.findAll();
+    }
+
+    @Benchmark
+    public void streamAll(Blackhole blackhole) {
+        try (Stream<User> users = repository.streamAll()) {
+            users.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public List<User> findAllRawJdbc() throws SQLException {
+        List<User> users = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT id, user_name, email, age FROM users");
+             ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                users.add(BenchmarkDatabase.mapUser(rs));
+            }
+        }
+        return users;
+    }
+
+    @Benchmark
+    public long count() {
+        return repository.count();
+    }
+}
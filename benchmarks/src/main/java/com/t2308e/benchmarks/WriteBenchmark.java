@@ -0,0 +1,110 @@
+package com.t2308e.benchmarks;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.core.MyRepositoryFactory;
+import com.t2308e.entity.User;
+import com.t2308e.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts through {@code save} (one statement per entity) and {@code saveAll} (JDBC batches in one transaction),
+ * with a plain JDBC batch as the baseline. The table is emptied before every iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class WriteBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Batch {
+        @Param({"100", "1000"})
+        public int size;
+    }
+
+    private DataSourceConfig dataSource;
+    private UserRepository repository;
+    private long sequence;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.open("write", 0);
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setCacheProvider(null);
+        repository = factory.createRepository(UserRepository.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyTable() throws SQLException {
+        BenchmarkDatabase.truncate(dataSource);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    private User newUser() {
+        long n = sequence++;
+        return new User("user" + n, "user" + n + "@example.com", (int) (18 + n % 60));
+    }
+
+    @Benchmark
+    public User save() {
+        return repository.save(newUser());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<User> saveAll(Batch batch) {
+        List<User> users = new ArrayList<>(batch.size);
+        for (int i = 0; i < batch.size; i++) {
+            users.add(newUser());
+        }
+        return repository.saveAll(users);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int[] batchInsertRawJdbc(Batch batch) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("INSERT INTO users (user_name, email, age) VALUES (?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            try {
+                for (int i = 0; i < batch.size; i++) {
+                    User user = newUser();
+                    stmt.setString(1, user.getUserName());
+                    stmt.setString(2, user.getEmail());
+                    stmt.setInt(3, user.getAge());
+                    stmt.addBatch();
+                }
+                int[] counts = stmt.executeBatch();
+                conn.commit();
+                return counts;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.t2308e.core;
+
+import com.t2308e.benchmarks.BenchmarkDatabase;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Row-to-entity mapping alone (what {@code mapRowToEntity} does per row), over a scrollable result set that is
+ * rewound for every invocation so no query runs inside the measurement. Lives in {@code com.t2308e.core} to reach
+ * the package-private {@link EntityMapper}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HydrationBenchmark {
+
+    private static final int ROWS = 1_000;
+
+    @Param({"METHOD_HANDLE", "GENERATED"})
+    public AccessorMode accessorMode;
+
+    private DataSourceConfig dataSource;
+    private Connection connection;
+    private Statement statement;
+    private ResultSet rows;
+    private EntityMapper<User> mapper;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.open("hydration", ROWS);
+        connection = dataSource.getConnection();
+        statement = connection.createStatement(ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+        rows = statement.executeQuery(EntityMetadata.of(User.class).getSelectAllSql());
+        mapper = EntityMapper.of(User.class, accessorMode);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        rows.close();
+        statement.close();
+        connection.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public void mapRow(Blackhole blackhole) throws SQLException {
+        rows.beforeFirst();
+        while (rows.next()) {
+            blackhole.consume(mapper.mapRow(rows));
+        }
+    }
+
+    @Benchmark
+    public void handWritten(Blackhole blackhole) throws SQLException {
+        rows.beforeFirst();
+        while (rows.next()) {
+            blackhole.consume(BenchmarkDatabase.mapUser(rows));
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.t2308e.core;
+
+import com.t2308e.entity.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One property read and one write per invocation through each {@link AccessorMode}, against {@code Field.get} /
+ * {@code Field.set} as the baseline the accessors replace. The {@code int} writes show whether the value is passed
+ * through unboxed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PropertyAccessBenchmark {
+
+    private User user;
+    private String value;
+    private int age;
+
+    private Field emailField;
+    private Field ageField;
+    private PropertyAccessor methodHandleEmail;
+    private PropertyAccessor methodHandleAge;
+    private PropertyAccessor generatedEmail;
+    private PropertyAccessor generatedAge;
+
+    @Setup
+    public void setUp() throws NoSuchFieldException {
+        user = new User("bench", "bench@example.com", 30);
+        value = "other@example.com";
+        age = 31;
+        emailField = User.class.getDeclaredField("email");
+        ageField = User.class.getDeclaredField("age");
+        emailField.setAccessible(true);
+        ageField.setAccessible(true);
+        methodHandleEmail = PropertyAccessors.forField(emailField, AccessorMode.METHOD_HANDLE);
+        methodHandleAge = PropertyAccessors.forField(ageField, AccessorMode.METHOD_HANDLE);
+        generatedEmail = PropertyAccessors.forField(emailField, AccessorMode.GENERATED);
+        generatedAge = PropertyAccessors.forField(ageField, AccessorMode.GENERATED);
+    }
+
+    @Benchmark
+    public Object reflectionGet() throws IllegalAccessException {
+        return emailField.get(user);
+    }
+
+    @Benchmark
+    public void reflectionSet() throws IllegalAccessException {
+        emailField.set(user, value);
+    }
+
+    @Benchmark
+    public void reflectionSetInt() throws IllegalAccessException {
+        ageField.setInt(user, age);
+    }
+
+    @Benchmark
+    public Object methodHandleGet() {
+        return methodHandleEmail.get(user);
+    }
+
+    @Benchmark
+    public void methodHandleSet() {
+        methodHandleEmail.set(user, value);
+    }
+
+    @Benchmark
+    public void methodHandleSetInt() {
+        methodHandleAge.setInt(user, age);
+    }
+
+    @Benchmark
+    public Object generatedGet() {
+        return generatedEmail.get(user);
+    }
+
+    @Benchmark
+    public void generatedSet() {
+        generatedEmail.set(user, value);
+    }
+
+    @Benchmark
+    public void generatedSetInt() {
+        generatedAge.setInt(user, age);
+    }
+}
@@ -1,13 +1,21 @@
 import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
 import com.t2308e.core.MyRepositoryFactory;
+import com.t2308e.entity.Post;
 import com.t2308e.entity.User;
+import com.t2308e.logging.ParameterRedactor;
+import com.t2308e.logging.SqlLogger;
+import com.t2308e.repository.PostRepository;
 import com.t2308e.repository.UserRepository;
 
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
 
 public class MainApp {
 
@@ -19,13 +27,21 @@ public class MainApp {
 
     public static void main(String[] args) {
         // 1. Cấu hình DataSource
-        DataSourceConfig dataSourceConfig = new DataSourceConfig(H2_URL, H2_USER, H2_PASSWORD, H2_DRIVER);
+        PoolConfig poolConfig = new PoolConfig()
+                .setMinIdle(1)
+                .setMaxSize(5)
+                .setLeakDetectionThresholdMillis(10_000);
+        DataSourceConfig dataSourceConfig = new DataSourceConfig(H2_URL, H2_USER, H2_PASSWORD, H2_DRIVER, poolConfig);
 
         // 2. Khởi tạo bảng (chỉ cho mục đích demo)
         setupDatabase(dataSourceConfig);
 
         // 3. Khởi tạo Repository Factory
         MyRepositoryFactory repositoryFactory = new MyRepositoryFactory(dataSourceConfig);
+        // In SQL ra console kèm tham số (che giá trị email); mặc định không log gì
+        repositoryFactory.getSettings().setSqlLogger(SqlLogger.console()
+                .setLogParameters(true)
+                .setRedactor(ParameterRedactor.columns("email")));
 
         // 4. Lấy UserRepository
         UserRepository userRepository = repositoryFactory.createRepository(UserRepository.class);
@@ -97,6 +113,59 @@ public class MainApp {
             System.out.println("User with ID 999 not found, as expected.");
         }
 
+        // Test async lookups
+        System.out.println("\n[ASYNC] Finding users 1..3 concurrently...");
+        List<CompletableFuture<Optional<User>>> lookups = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            lookups.add(userRepository.findByIdAsync(id));
+        }
+        lookups.forEach(f -> System.out.println("Async result: " + f.join()));
+
+        // Test transaction: cả hai lần save cùng commit hoặc cùng rollback
+        System.out.println("\n[TRANSACTION] Saving two users, then failing...");
+        long before = userRepository.count();
+        try {
+            repositoryFactory.getTransactionManager().inTransaction(tx -> {
+                userRepository.save(new User("Carol Tx", "carol@example.com", 28));
+                userRepository.save(new User("Dave Tx", "dave@example.com", 35));
+                throw new IllegalStateException("simulated failure");
+            });
+        } catch (IllegalStateException e) {
+            System.out.println("Rolled back (" + e.getMessage() + "): users " + before + " -> " + userRepository.count());
+        }
+
+        // Test quan hệ: tác giả của tất cả bài viết được lấy bằng một truy vấn IN, không phải một truy vấn mỗi bài
+        System.out.println("\n[RELATIONS] Loading posts with their authors...");
+        PostRepository postRepository = repositoryFactory.createRepository(PostRepository.class);
+        User author = userRepository.findById(1L).orElseThrow();
+        User coAuthor = userRepository.save(new User("Erin Writer", "erin@example.com", 27));
+        postRepository.saveAll(List.of(
+                new Post("Hello mini-orm", author),
+                new Post("Batch loading", author),
+                new Post("Join fetch", coAuthor)));
+        postRepository.findAll().forEach(p -> System.out.println("Post: " + p));
+        System.out.println("Posts by " + author.getUserName() + ": " + postRepository.findByAuthor(author));
+        System.out.println("Join fetched: " + postRepository.findByTitleContaining("fetch"));
+
+        // Test upsert: MERGE của H2, bài đã có thì cập nhật, bài mới thì thêm, trong một câu lệnh
+        System.out.println("\n[UPSERT] Renaming a post and adding one with a single MERGE...");
+        Post renamed = postRepository.findByTitleContaining("Batch").get(0);
+        renamed.setTitle("Batch loading, revised");
+        postRepository.upsertAll(List.of(renamed, new Post("Dialects", coAuthor)));
+        postRepository.findAll().forEach(p -> System.out.println("Post: " + p));
+
+        // Test bulk load: 20.000 user được nạp qua CSVREAD của H2, theo từng khối 5.000 dòng
+        System.out.println("\n[BULK] Loading users through the bulk path...");
+        repositoryFactory.getSettings().setBulkChunkSize(5_000);
+        UserRepository bulkRepository = repositoryFactory.createRepository(UserRepository.class);
+        long loaded = bulkRepository.bulkInsert(
+                IntStream.range(0, 20_000).mapToObj(i -> new User("Bulk " + i, "bulk" + i + "@example.com", 20 + i % 50)),
+                total -> System.out.println("  loaded " + total + " rows"));
+        System.out.println("Bulk inserted " + loaded + " users, count is now " + bulkRepository.count());
+
+        dataSourceConfig.getPoolStats().ifPresent(stats -> System.out.println("\n[POOL] " + stats));
+        dataSourceConfig.close();
+
         System.out.println("\n--- Mini ORM Test Complete ---");
     }
 
@@ -104,7 +173,9 @@ public class MainApp {
         try (Connection conn = config.getConnection();
              Statement stmt = conn.createStatement()) {
             // Xóa bảng nếu tồn tại (để mỗi lần chạy demo là mới)
+            stmt.execute("DROP TABLE IF EXISTS posts");
             stmt.execute("DROP TABLE IF EXISTS users");
+            stmt.execute("DROP SEQUENCE IF EXISTS posts_seq");
 
             // Tạo bảng users
             // Chú ý: tên cột phải khớp với @MyColumn hoặc tên trường
@@ -117,7 +188,13 @@ public class MainApp {
                     "email VARCHAR(255) UNIQUE, " +
                     "age INT" +
                     ")");
-            System.out.println("Database table 'users' created successfully.");
+            stmt.execute("CREATE SEQUENCE posts_seq"); // Cho @MyId(strategy = SEQUENCE) của Post
+            stmt.execute("CREATE TABLE posts (" +
+                    "id BIGINT PRIMARY KEY, " +
+                    "title VARCHAR(255) NOT NULL, " +
+                    "author_id BIGINT REFERENCES users(id)" +
+                    ")");
+            System.out.println("Database tables 'users' and 'posts' created successfully.");
         } catch (SQLException e) {
             System.err.println("Error setting up database: " + e.getMessage());
             throw new RuntimeException("Database setup failed", e);
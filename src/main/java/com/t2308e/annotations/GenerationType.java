@@ -0,0 +1,9 @@
+package com.t2308e.annotations;
+
+// Cách sinh id cho entity mới, dùng trong @MyId(strategy = ...).
+public enum GenerationType {
+    IDENTITY,  // Cột tự tăng của DB, id được đọc lại sau mỗi INSERT (mặc định)
+    SEQUENCE,  // Hi-lo trên một sequence của DB: mỗi lần gọi sequence cấp allocationSize id
+    UUID,      // UUID phiên bản 7 (tăng dần theo thời gian) sinh ở phía ứng dụng; trường id kiểu UUID hoặc String
+    SNOWFLAKE  // Id 64-bit kiểu Snowflake sinh ở phía ứng dụng; worker id lấy từ DataSourceConfig.setWorkerId
+}
@@ -9,4 +9,9 @@ import java.lang.annotation.Target;
 @Target(ElementType.TYPE)        // Dòng này cần Target và ElementType
 public @interface MyEntity {
     String tableName() default "";
-}
\ No newline at end of file
+
+    // Second-level cache for findById; see com.t2308e.cache.EntityCacheProvider
+    boolean cacheable() default false;
+    int cacheMaxSize() default 10_000;
+    long cacheTtlSeconds() default 300; // 0 = entries never expire
+}
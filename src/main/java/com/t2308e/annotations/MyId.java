@@ -5,7 +5,12 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
 
+// Trường khóa chính. Với SEQUENCE, UUID và SNOWFLAKE id được gán trước khi INSERT,
+// nên saveAll gửi cả lô mà không phải đọc lại generated key từng dòng.
 @Retention(RetentionPolicy.RUNTIME)
 @Target(ElementType.FIELD)
 public @interface MyId {
-}
\ No newline at end of file
+    GenerationType strategy() default GenerationType.IDENTITY;
+    String sequenceName() default ""; // Chỉ dùng với SEQUENCE, nếu rỗng sẽ là <tên bảng>_seq
+    int allocationSize() default 50;  // Chỉ dùng với SEQUENCE: số id cấp cho mỗi lần gọi sequence
+}
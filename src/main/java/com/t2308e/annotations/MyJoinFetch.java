@@ -0,0 +1,14 @@
+package com.t2308e.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Đặt trên phương thức find...By của repository: nạp các trường @MyManyToOne được liệt kê
+// bằng LEFT JOIN ngay trong câu truy vấn, thay vì một câu IN riêng sau đó.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.METHOD)
+public @interface MyJoinFetch {
+    String[] value(); // Tên các trường @MyManyToOne
+}
@@ -0,0 +1,14 @@
+package com.t2308e.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Trường kiểu entity khác, lưu bằng cột khóa ngoại chứa id của entity đó.
+// Khi đọc danh sách, các entity được tham chiếu được nạp gộp bằng một câu WHERE id IN (...), không phải N+1 câu.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface MyManyToOne {
+    String joinColumn() default ""; // Tên cột khóa ngoại, nếu rỗng sẽ là <tên trường>_id
+}
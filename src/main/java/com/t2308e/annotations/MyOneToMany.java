@@ -0,0 +1,14 @@
+package com.t2308e.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Trường List/Collection các entity con, không phải cột. Danh sách được nạp lười khi truy cập lần đầu,
+// gộp cho cả lô entity cha đã đọc cùng nhau (WHERE fk IN (...)). Không tự động lưu các entity con.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface MyOneToMany {
+    String mappedBy(); // Tên trường @MyManyToOne bên entity con trỏ về entity này
+}
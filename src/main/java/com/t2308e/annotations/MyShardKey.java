@@ -0,0 +1,13 @@
+package com.t2308e.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Cột quyết định shard chứa entity khi dùng repository phân mảnh (mặc định là @MyId).
+// Giá trị không được đổi sau khi lưu, vì bản ghi sẽ không được chuyển sang shard khác.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface MyShardKey {
+}
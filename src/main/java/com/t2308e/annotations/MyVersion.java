@@ -0,0 +1,13 @@
+package com.t2308e.annotations;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Cột version cho optimistic locking (int/long/Integer/Long), có thể dùng cùng @MyColumn để đặt tên cột.
+// UPDATE chỉ thành công khi version trong DB chưa đổi, và tăng nó lên 1; ngược lại ném OptimisticLockException.
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface MyVersion {
+}
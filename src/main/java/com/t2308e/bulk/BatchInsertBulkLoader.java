@@ -0,0 +1,51 @@
+package com.t2308e.bulk;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Fallback for databases without a bulk path wired in: a prepared INSERT sent with {@code executeBatch()} every
+ * {@code batchSize} rows. Drivers that rewrite batches into multi-row INSERTs (see {@code DataSourceConfig}) make
+ * this close to a native import.
+ */
+public class BatchInsertBulkLoader implements BulkLoader {
+
+    private final int batchSize;
+
+    public BatchInsertBulkLoader(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be >= 1");
+        }
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public long load(Connection conn, String table, List<String> columns, Iterator<Object[]> rows) throws SQLException {
+        String sql = String.format("INSERT INTO %s (%s) VALUES (%s)", table, String.join(", ", columns),
+                String.join(", ", Collections.nCopies(columns.size(), "?")));
+        long total = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int pending = 0;
+            while (rows.hasNext()) {
+                Object[] values = rows.next();
+                for (int i = 0; i < values.length; i++) {
+                    stmt.setObject(i + 1, values[i]);
+                }
+                stmt.addBatch();
+                total++;
+                if (++pending == batchSize) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        }
+        return total;
+    }
+}
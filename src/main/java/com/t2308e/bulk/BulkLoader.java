@@ -0,0 +1,26 @@
+package com.t2308e.bulk;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes rows into a table through a database's bulk path, for {@code MyCrudRepository.bulkInsert}. The repository
+ * converts entities to rows and calls {@link #load} once per chunk, committing after each; an implementation only
+ * moves the rows, e.g. through PostgreSQL {@code COPY} or a file import.
+ * <p>
+ * Rows are produced lazily as the iterator is advanced, so a loader that streams them keeps memory bounded no matter
+ * how many rows a chunk holds.
+ */
+@FunctionalInterface
+public interface BulkLoader {
+
+    /**
+     * Inserts every row of {@code rows} into {@code table} on {@code conn}, without committing.
+     *
+     * @param columns column names, in the order of the values in each row
+     * @return number of rows inserted
+     */
+    long load(Connection conn, String table, List<String> columns, Iterator<Object[]> rows) throws SQLException;
+}
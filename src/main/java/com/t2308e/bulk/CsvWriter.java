@@ -0,0 +1,67 @@
+package com.t2308e.bulk;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * Writes rows as RFC 4180 CSV in the form bulk import paths read (H2 {@code CSVREAD}, PostgreSQL
+ * {@code COPY ... CSV}): SQL NULL is an empty unquoted field, so every other value that is not a number or boolean
+ * is quoted, which keeps empty strings apart from NULL. Values are written with {@code toString()}, enums by name.
+ * {@code byte[]} is rejected, since every database decodes binary CSV fields differently.
+ */
+public final class CsvWriter {
+
+    private final Writer out;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void writeHeader(List<String> columns) throws IOException {
+        for (int i = 0; i < columns.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeQuoted(columns.get(i));
+        }
+        out.write('\n');
+    }
+
+    public void writeRow(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            writeValue(values[i]);
+        }
+        out.write('\n');
+    }
+
+    private void writeValue(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number || value instanceof Boolean) {
+            out.write(value.toString());
+        } else if (value instanceof byte[]) {
+            throw new IllegalArgumentException("Binary values cannot be written as CSV");
+        } else if (value instanceof Enum) {
+            writeQuoted(((Enum<?>) value).name());
+        } else {
+            writeQuoted(value.toString());
+        }
+    }
+
+    private void writeQuoted(String s) throws IOException {
+        out.write('"');
+        int from = 0;
+        for (int i = s.indexOf('"'); i >= 0; i = s.indexOf('"', i + 1)) {
+            out.write(s, from, i + 1 - from);
+            out.write('"');
+            from = i + 1;
+        }
+        out.write(s, from, s.length() - from);
+        out.write('"');
+    }
+}
@@ -0,0 +1,73 @@
+package com.t2308e.bulk;
+
+import com.t2308e.exception.MiniOrmException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * H2's bulk path: the rows are streamed into a temporary CSV file, which one
+ * {@code INSERT INTO t (...) SELECT * FROM CSVREAD(...)} reads in a single statement; the file is deleted afterwards.
+ * <p>
+ * H2 reads the file itself, so the database must run in this JVM (in-memory or embedded) or on a host that sees the
+ * same temporary directory.
+ */
+public class H2CsvBulkLoader implements BulkLoader {
+
+    private final Path directory; // null: the default temporary directory
+
+    public H2CsvBulkLoader() {
+        this(null);
+    }
+
+    /**
+     * @param directory where the temporary CSV files are written
+     */
+    public H2CsvBulkLoader(Path directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    public long load(Connection conn, String table, List<String> columns, Iterator<Object[]> rows) throws SQLException {
+        Path file = null;
+        try {
+            file = directory != null ? Files.createTempFile(directory, "mini-orm-bulk", ".csv")
+                    : Files.createTempFile("mini-orm-bulk", ".csv");
+            long written = 0;
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                CsvWriter csv = new CsvWriter(out);
+                csv.writeHeader(columns);
+                while (rows.hasNext()) {
+                    csv.writeRow(rows.next());
+                    written++;
+                }
+            }
+            if (written == 0) {
+                return 0;
+            }
+            String sql = String.format("INSERT INTO %s (%s) SELECT * FROM CSVREAD('%s', NULL, 'charset=UTF-8')",
+                    table, String.join(", ", columns), file.toAbsolutePath().toString().replace("'", "''"));
+            try (Statement stmt = conn.createStatement()) {
+                return stmt.executeUpdate(sql);
+            }
+        } catch (IOException e) {
+            throw new MiniOrmException("Failed to write bulk load file for " + table, e);
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // left in the temporary directory
+                }
+            }
+        }
+    }
+}
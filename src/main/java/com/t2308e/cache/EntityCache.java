@@ -0,0 +1,24 @@
+package com.t2308e.cache;
+
+/**
+ * Second-level cache for one entity class, keyed by id.
+ * <p>
+ * Values are the entity's column values in {@code EntityMetadata} column order ({@code Object[]}), never entity
+ * instances, so every read hydrates a fresh object and callers cannot mutate cached state. Implementations must be
+ * thread-safe.
+ */
+public interface EntityCache {
+
+    /**
+     * @return the cached column values, or {@code null} on a miss
+     */
+    Object[] get(Object id);
+
+    void put(Object id, Object[] columnValues);
+
+    void invalidate(Object id);
+
+    void clear();
+
+    CacheStats getStats();
+}
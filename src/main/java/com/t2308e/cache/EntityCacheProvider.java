@@ -0,0 +1,16 @@
+package com.t2308e.cache;
+
+import com.t2308e.annotations.MyEntity;
+
+/**
+ * SPI for plugging in a second-level cache implementation (in-process, off-heap, external...).
+ * Only entities annotated with {@code @MyEntity(cacheable = true)} are asked for.
+ */
+public interface EntityCacheProvider {
+
+    /**
+     * Returns the cache for {@code entityClass}. Must return the same instance for the same class, so that every
+     * repository and session of a factory reads and invalidates one cache.
+     */
+    EntityCache getCache(Class<?> entityClass, MyEntity entityConfig);
+}
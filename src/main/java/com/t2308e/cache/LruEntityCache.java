@@ -0,0 +1,131 @@
+package com.t2308e.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded, concurrent in-process {@link EntityCache} with LRU eviction and an optional time-to-live.
+ * <p>
+ * Entries are spread over independently locked segments, each an access-ordered {@link LinkedHashMap}, so
+ * concurrent lookups of different ids rarely contend. The size limit is split evenly across segments, which makes
+ * eviction approximately (not strictly) least-recently-used across the whole cache.
+ */
+public class LruEntityCache implements EntityCache {
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final Segment[] segments;
+    private final long ttlNanos; // 0 = no expiry
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    /**
+     * @param maxSize  maximum number of entries
+     * @param ttlNanos time after which an entry is discarded, 0 for no expiry
+     */
+    public LruEntityCache(int maxSize, long ttlNanos) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be >= 1");
+        }
+        int segmentCount = Integer.highestOneBit(Math.min(MAX_SEGMENTS, maxSize));
+        int perSegment = (maxSize + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(perSegment);
+        }
+        this.ttlNanos = ttlNanos;
+    }
+
+    @Override
+    public Object[] get(Object id) {
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            Entry entry = segment.get(id);
+            if (entry != null && ttlNanos > 0 && System.nanoTime() - entry.storedAtNanos > ttlNanos) {
+                segment.remove(id);
+                expirations.increment();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.values;
+        }
+    }
+
+    @Override
+    public void put(Object id, Object[] columnValues) {
+        Entry entry = new Entry(columnValues, ttlNanos > 0 ? System.nanoTime() : 0L);
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            segment.put(id, entry);
+        }
+    }
+
+    @Override
+    public void invalidate(Object id) {
+        Segment segment = segmentFor(id);
+        synchronized (segment) {
+            segment.remove(id);
+        }
+    }
+
+    @Override
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    @Override
+    public CacheStats getStats() {
+        long size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), size);
+    }
+
+    private Segment segmentFor(Object id) {
+        int h = id.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    private static final class Entry {
+        final Object[] values;
+        final long storedAtNanos;
+
+        Entry(Object[] values, long storedAtNanos) {
+            this.values = values;
+            this.storedAtNanos = storedAtNanos;
+        }
+    }
+
+    private final class Segment extends LinkedHashMap<Object, Entry> {
+        private final int maxEntries;
+
+        Segment(int maxEntries) {
+            super(16, 0.75f, true);
+            this.maxEntries = maxEntries;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, LruEntityCache.Entry> eldest) {
+            if (size() > maxEntries) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.t2308e.cache;
+
+import com.t2308e.annotations.MyEntity;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Default provider: one in-process {@link LruEntityCache} per entity class, sized from {@link MyEntity}.
+ */
+public class LruEntityCacheProvider implements EntityCacheProvider {
+
+    private final Map<Class<?>, EntityCache> caches = new ConcurrentHashMap<>();
+
+    @Override
+    public EntityCache getCache(Class<?> entityClass, MyEntity entityConfig) {
+        return caches.computeIfAbsent(entityClass, c -> new LruEntityCache(
+                entityConfig.cacheMaxSize(),
+                TimeUnit.SECONDS.toNanos(entityConfig.cacheTtlSeconds())));
+    }
+}
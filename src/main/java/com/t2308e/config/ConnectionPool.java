@@ -0,0 +1,713 @@
+package com.t2308e.config;
+
+import com.t2308e.metrics.Histogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool backing {@link DataSourceConfig} in pooled mode.
+ * <p>
+ * A fair {@link Semaphore} caps the number of borrowed connections and idle connections sit in a
+ * LIFO deque, so the borrow/return path takes no pool-wide lock. Borrowers receive a proxy whose
+ * {@code close()} hands the physical connection back, which keeps
+ * {@code try (Connection conn = config.getConnection())} call sites unchanged.
+ * <p>
+ * Each physical connection keeps an LRU cache of prepared statements keyed by SQL text (see
+ * {@link PoolConfig#setStatementCacheSize}). Closing a cached statement returns it to that cache.
+ * <p>
+ * Suspected leaks and background failures are counted in {@link PoolStats} and logged as warnings through the
+ * {@link System.Logger} named after this class, so they end up wherever the application routes its logging.
+ */
+final class ConnectionPool implements AutoCloseable {
+    // Skip the isValid() round trip for connections that were returned very recently.
+    private static final long VALIDATION_BYPASS_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+    private static final System.Logger LOG = System.getLogger(ConnectionPool.class.getName());
+
+    private final DataSourceConfig dataSourceConfig;
+    private final PoolConfig config;
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final LongAdder acquireCount = new LongAdder();
+    private final LongAdder totalWaitNanos = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private final LongAdder connectionFailureCount = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final Histogram acquireTimeNanos = new Histogram();
+    private final LongAdder statementCacheHits = new LongAdder();
+    private final LongAdder statementCacheMisses = new LongAdder();
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed;
+
+    ConnectionPool(DataSourceConfig dataSourceConfig, PoolConfig poolConfig) {
+        PoolConfig config = new PoolConfig(poolConfig);
+        if (config.getMinIdle() > config.getMaxSize()) {
+            throw new IllegalArgumentException("minIdle (" + config.getMinIdle() + ") must not exceed maxSize (" + config.getMaxSize() + ")");
+        }
+        this.dataSourceConfig = dataSourceConfig;
+        this.config = config;
+        this.permits = new Semaphore(config.getMaxSize(), true);
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "mini-orm-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = config.getHousekeepingIntervalMillis();
+        if (config.getLeakDetectionThresholdMillis() > 0) {
+            period = Math.min(period, Math.max(100, config.getLeakDetectionThresholdMillis() / 2));
+        }
+        housekeeper.scheduleWithFixedDelay(this::housekeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    Connection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed");
+        }
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.getAcquireTimeoutMillis());
+        try {
+            if (!permits.tryAcquire(config.getAcquireTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Timed out after " + config.getAcquireTimeoutMillis()
+                        + "ms waiting for a connection (" + getStats() + ")");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a connection", e);
+        }
+
+        PooledConnection pc;
+        try {
+            pc = takeOrCreate(deadline);
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+
+        long now = System.nanoTime();
+        long waited = now - start;
+        acquireCount.increment();
+        totalWaitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        acquireTimeNanos.record(waited);
+
+        pc.borrowedAtNanos = now;
+        pc.leakReported = false;
+        pc.borrowSite = config.getLeakDetectionThresholdMillis() > 0 ? new Throwable("Connection acquired here") : null;
+        borrowed.add(pc);
+        return pc.newHandle();
+    }
+
+    private PooledConnection takeOrCreate(long deadlineNanos) throws SQLException {
+        while (true) {
+            PooledConnection pc = idle.pollFirst();
+            if (pc != null) {
+                if (isUsable(pc)) {
+                    return pc;
+                }
+                destroy(pc);
+                continue;
+            }
+            int current = totalConnections.get();
+            if (current < config.getMaxSize()) {
+                if (totalConnections.compareAndSet(current, current + 1)) {
+                    try {
+                        return new PooledConnection(dataSourceConfig.openPhysicalConnection());
+                    } catch (SQLException | RuntimeException e) {
+                        totalConnections.decrementAndGet();
+                        throw e;
+                    }
+                }
+                continue;
+            }
+            // Every slot is taken by a connection that is being returned or was just created
+            // by the housekeeper; wait for it to show up in the idle deque.
+            long remaining = deadlineNanos - System.nanoTime();
+            if (remaining <= 0) {
+                timeoutCount.increment();
+                throw new SQLTimeoutException("Timed out waiting for an idle connection (" + getStats() + ")");
+            }
+            try {
+                pc = idle.pollFirst(Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(10)), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for a connection", e);
+            }
+            if (pc != null) {
+                idle.offerFirst(pc);
+            }
+        }
+    }
+
+    private boolean isUsable(PooledConnection pc) {
+        if (!config.isValidateOnBorrow() || System.nanoTime() - pc.lastUsedNanos < VALIDATION_BYPASS_NANOS) {
+            return true;
+        }
+        try {
+            return pc.physical.isValid(config.getValidationTimeoutSeconds());
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void release(PooledConnection pc) {
+        pc.releaseStatements();
+        borrowed.remove(pc);
+        pc.lastUsedNanos = System.nanoTime();
+        pc.borrowSite = null;
+        if (closed || !pc.resetState()) {
+            destroy(pc);
+        } else {
+            idle.offerFirst(pc);
+        }
+        permits.release();
+    }
+
+    private void destroy(PooledConnection pc) {
+        totalConnections.decrementAndGet();
+        try {
+            pc.physical.close();
+        } catch (SQLException ignored) {
+            // Physical connection is being discarded anyway.
+        }
+    }
+
+    private void housekeep() {
+        try {
+            long now = System.nanoTime();
+            evictIdle(now);
+            detectLeaks(now);
+            fillToMinIdle();
+        } catch (RuntimeException e) {
+            LOG.log(System.Logger.Level.WARNING, "Connection pool housekeeping failed", e);
+        }
+    }
+
+    private void evictIdle(long now) {
+        long idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(config.getIdleTimeoutMillis());
+        if (idleTimeoutNanos <= 0) {
+            return;
+        }
+        // Oldest connections sit at the tail of the LIFO deque.
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && totalConnections.get() > config.getMinIdle()) {
+            PooledConnection pc = it.next();
+            if (now - pc.lastUsedNanos > idleTimeoutNanos && idle.removeFirstOccurrence(pc)) {
+                destroy(pc);
+            }
+        }
+    }
+
+    private void detectLeaks(long now) {
+        long thresholdNanos = TimeUnit.MILLISECONDS.toNanos(config.getLeakDetectionThresholdMillis());
+        if (thresholdNanos <= 0) {
+            return;
+        }
+        for (PooledConnection pc : borrowed) {
+            Throwable site = pc.borrowSite;
+            if (!pc.leakReported && site != null && now - pc.borrowedAtNanos > thresholdNanos) {
+                pc.leakReported = true;
+                leakCount.increment();
+                LOG.log(System.Logger.Level.WARNING, "Possible connection leak: connection held for more than "
+                        + config.getLeakDetectionThresholdMillis() + "ms, borrowed at", site);
+            }
+        }
+    }
+
+    private void fillToMinIdle() {
+        while (!closed && idle.size() < config.getMinIdle()) {
+            int current = totalConnections.get();
+            if (current >= config.getMaxSize()) {
+                return;
+            }
+            if (!totalConnections.compareAndSet(current, current + 1)) {
+                continue;
+            }
+            try {
+                PooledConnection pc = new PooledConnection(dataSourceConfig.openPhysicalConnection());
+                idle.offerLast(pc);
+            } catch (SQLException e) {
+                totalConnections.decrementAndGet();
+                connectionFailureCount.increment();
+                LOG.log(System.Logger.Level.WARNING, "Connection pool could not open a connection", e);
+                return;
+            }
+        }
+    }
+
+    int getMaxSize() {
+        return config.getMaxSize();
+    }
+
+    PoolStats getStats() {
+        return new PoolStats(
+                borrowed.size(),
+                idle.size(),
+                permits.getQueueLength(),
+                acquireCount.sum(),
+                totalWaitNanos.sum(),
+                maxWaitNanos.get(),
+                timeoutCount.sum(),
+                leakCount.sum(),
+                connectionFailureCount.sum(),
+                statementCacheHits.sum(),
+                statementCacheMisses.sum(),
+                acquireTimeNanos.snapshot());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pc;
+        while ((pc = idle.pollFirst()) != null) {
+            destroy(pc);
+        }
+    }
+
+    /**
+     * A physical connection plus the bookkeeping the pool needs for it.
+     */
+    private final class PooledConnection {
+        final Connection physical;
+        final boolean defaultAutoCommit;
+        final boolean defaultReadOnly;
+        final int defaultIsolation;
+        final String defaultCatalog;
+        final String defaultSchema;
+        volatile long lastUsedNanos;
+        volatile long borrowedAtNanos;
+        volatile Throwable borrowSite;
+        volatile boolean leakReported;
+        volatile boolean stateDirty;
+        // Only touched by the current borrower, so it needs no synchronization.
+        final StatementCache statementCache;
+
+        PooledConnection(Connection physical) throws SQLException {
+            this.physical = physical;
+            this.statementCache = config.getStatementCacheSize() > 0 ? new StatementCache() : null;
+            this.defaultAutoCommit = physical.getAutoCommit();
+            this.defaultReadOnly = physical.isReadOnly();
+            this.defaultIsolation = physical.getTransactionIsolation();
+            this.defaultCatalog = physical.getCatalog();
+            this.defaultSchema = schemaOf(physical);
+            this.lastUsedNanos = System.nanoTime();
+        }
+
+        /**
+         * Current schema, or null for pre-JDBC 4.1 drivers that cannot report it.
+         */
+        private String schemaOf(Connection connection) {
+            try {
+                return connection.getSchema();
+            } catch (SQLException | AbstractMethodError e) {
+                return null;
+            }
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{Connection.class, StatementCaching.CachingConnection.class},
+                    new ConnectionHandle(this));
+        }
+
+        PreparedStatement prepareCached(Connection handle, String sql, int autoGeneratedKeys, StatementCacheStats stats) throws SQLException {
+            StatementKey key = new StatementKey(sql, autoGeneratedKeys);
+            CachedStatement cached = statementCache.get(key);
+            if (cached != null && cached.evicted) {
+                // Closed after its reset failed on checkin
+                statementCache.remove(key);
+                cached = null;
+            }
+            if (cached != null && !cached.inUse) {
+                statementCacheHits.increment();
+                if (stats != null) {
+                    stats.recordHit();
+                }
+                return cached.checkout(handle);
+            }
+            statementCacheMisses.increment();
+            if (stats != null) {
+                stats.recordMiss();
+            }
+            PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+            if (cached != null) {
+                // Same SQL is already open on this connection (e.g. nested use); hand out an uncached statement.
+                return UncachedStatement.wrap(statement, handle);
+            }
+            cached = new CachedStatement(statement);
+            statementCache.put(key, cached);
+            return cached.checkout(handle);
+        }
+
+        /**
+         * Returns statements the borrower forgot to close to the cache.
+         */
+        void releaseStatements() {
+            if (statementCache == null) {
+                return;
+            }
+            for (CachedStatement cached : statementCache.values()) {
+                if (cached.inUse) {
+                    cached.checkin();
+                }
+            }
+        }
+
+        /**
+         * Restores session state a borrower may have changed. Returns false if the connection
+         * should be discarded instead of going back to the idle deque.
+         */
+        boolean resetState() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (stateDirty) {
+                    if (!physical.getAutoCommit()) {
+                        physical.rollback();
+                    }
+                    physical.setAutoCommit(defaultAutoCommit);
+                    physical.setReadOnly(defaultReadOnly);
+                    physical.setTransactionIsolation(defaultIsolation);
+                    if (defaultCatalog != null) {
+                        physical.setCatalog(defaultCatalog);
+                    }
+                    if (defaultSchema != null) {
+                        physical.setSchema(defaultSchema);
+                    }
+                    stateDirty = false;
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+    }
+
+    private static final class StatementKey {
+        final String sql;
+        final int autoGeneratedKeys;
+
+        StatementKey(String sql, int autoGeneratedKeys) {
+            this.sql = sql;
+            this.autoGeneratedKeys = autoGeneratedKeys;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof StatementKey)) return false;
+            StatementKey that = (StatementKey) o;
+            return autoGeneratedKeys == that.autoGeneratedKeys && sql.equals(that.sql);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sql, autoGeneratedKeys);
+        }
+    }
+
+    /**
+     * Access-ordered map that closes the least recently used statement once the configured size is exceeded.
+     */
+    private final class StatementCache extends LinkedHashMap<StatementKey, CachedStatement> {
+        StatementCache() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<StatementKey, CachedStatement> eldest) {
+            if (size() > config.getStatementCacheSize()) {
+                eldest.getValue().evict();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * A physical prepared statement kept open across borrows. Its proxy is handed out to one user at a time;
+     * closing the proxy clears parameters, closes result sets and makes it available again.
+     */
+    private static final class CachedStatement implements InvocationHandler {
+        final PreparedStatement physical;
+        final PreparedStatement proxy;
+        final int defaultFetchSize;
+        final int defaultMaxRows;
+        final int defaultQueryTimeout;
+        final List<ResultSet> openResults = new ArrayList<>(1);
+        Connection owner;
+        boolean inUse;
+        boolean evicted;
+        boolean settingsDirty;
+        boolean batchPending;
+
+        CachedStatement(PreparedStatement physical) throws SQLException {
+            this.physical = physical;
+            this.defaultFetchSize = physical.getFetchSize();
+            this.defaultMaxRows = physical.getMaxRows();
+            this.defaultQueryTimeout = physical.getQueryTimeout();
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class},
+                    this);
+        }
+
+        PreparedStatement checkout(Connection handle) {
+            owner = handle;
+            inUse = true;
+            return proxy;
+        }
+
+        void checkin() {
+            inUse = false;
+            owner = null;
+            try {
+                for (ResultSet rs : openResults) {
+                    rs.close();
+                }
+                openResults.clear();
+                if (evicted) {
+                    physical.close();
+                    return;
+                }
+                physical.clearParameters();
+                if (batchPending) {
+                    physical.clearBatch();
+                    batchPending = false;
+                }
+                if (settingsDirty) {
+                    // max rows first: drivers such as H2 reject a fetch size above the current max rows
+                    physical.setMaxRows(defaultMaxRows);
+                    physical.setFetchSize(defaultFetchSize);
+                    physical.setQueryTimeout(defaultQueryTimeout);
+                    settingsDirty = false;
+                }
+            } catch (SQLException e) {
+                evicted = true;
+                closeQuietly();
+            }
+        }
+
+        void evict() {
+            evicted = true;
+            if (!inUse) {
+                closeQuietly();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                physical.close();
+            } catch (SQLException ignored) {
+                // Statement is being discarded anyway.
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) {
+                        checkin();
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse || physical.isClosed();
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + physical + "]";
+                case "setFetchSize":
+                case "setMaxRows":
+                case "setQueryTimeout":
+                    settingsDirty = true;
+                    break;
+                case "addBatch":
+                    batchPending = true;
+                    break;
+                default:
+                    break;
+            }
+            if (!inUse) {
+                throw new SQLException("Statement has already been closed");
+            }
+            Object result;
+            try {
+                result = method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof ResultSet) {
+                openResults.add((ResultSet) result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A statement outside the cache. It is closed for real, but reports the borrower's handle from
+     * {@code getConnection()} so the physical connection never escapes the pool.
+     */
+    private static final class UncachedStatement implements InvocationHandler {
+        final Statement physical;
+        final Connection owner;
+
+        private UncachedStatement(Statement physical, Connection owner) {
+            this.physical = physical;
+            this.owner = owner;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <S extends Statement> S wrap(S physical, Connection owner) {
+            Class<?> type = physical instanceof CallableStatement ? CallableStatement.class
+                    : physical instanceof PreparedStatement ? PreparedStatement.class
+                    : Statement.class;
+            return (S) Proxy.newProxyInstance(
+                    ConnectionPool.class.getClassLoader(),
+                    new Class<?>[]{type},
+                    new UncachedStatement(physical, owner));
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "UncachedStatement[" + physical + "]";
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Per-borrow view of a pooled connection. Closing it returns the connection to the pool exactly once.
+     */
+    private final class ConnectionHandle implements InvocationHandler {
+        private final PooledConnection pc;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        ConnectionHandle(PooledConnection pc) {
+            this.pc = pc;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        release(pc);
+                    }
+                    return null;
+                case "isClosed":
+                    return closed.get() || pc.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + pc.physical + "]";
+                case "prepareCached":
+                    if (closed.get()) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    return pc.prepareCached((Connection) proxy, (String) args[0], (Integer) args[1], (StatementCacheStats) args[2]);
+                case "prepareUncached":
+                    if (closed.get()) {
+                        throw new SQLException("Connection has already been returned to the pool");
+                    }
+                    return UncachedStatement.wrap(pc.physical.prepareStatement((String) args[0]), (Connection) proxy);
+                case "prepareStatement":
+                    if (!closed.get() && pc.statementCache != null && isCacheable(method)) {
+                        int keys = args.length == 2 ? (Integer) args[1] : Statement.NO_GENERATED_KEYS;
+                        return pc.prepareCached((Connection) proxy, (String) args[0], keys, null);
+                    }
+                    break;
+                case "unwrap":
+                    if (args[0] == StatementCaching.CachingConnection.class && pc.statementCache != null) {
+                        return proxy;
+                    }
+                    break;
+                case "isWrapperFor":
+                    if (args[0] == StatementCaching.CachingConnection.class) {
+                        return pc.statementCache != null;
+                    }
+                    break;
+                case "setAutoCommit":
+                case "setReadOnly":
+                case "setTransactionIsolation":
+                case "setCatalog":
+                case "setSchema":
+                    pc.stateDirty = true;
+                    break;
+                default:
+                    break;
+            }
+            if (closed.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            Object result;
+            try {
+                result = method.invoke(pc.physical, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                return UncachedStatement.wrap((Statement) result, (Connection) proxy);
+            }
+            return result;
+        }
+
+        // prepareStatement(String) and prepareStatement(String, int autoGeneratedKeys)
+        private boolean isCacheable(Method method) {
+            Class<?>[] params = method.getParameterTypes();
+            return params.length == 1 || (params.length == 2 && params[1] == int.class);
+        }
+    }
+}
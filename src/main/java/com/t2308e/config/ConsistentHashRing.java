@@ -0,0 +1,100 @@
+package com.t2308e.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Maps keys to nodes by consistent hashing: each node is placed on a 64-bit ring at {@code virtualNodes} points
+ * derived from its name, and a key belongs to the first point at or after its own hash. Adding or removing a node
+ * only moves the keys on the arcs it gains or loses; renaming a node moves all of its keys.
+ * <p>
+ * Integral numbers hash by value whatever their boxed type, so {@code 42}, {@code 42L} and a {@code Long} id of 42
+ * route alike. The ring is immutable and safe to share.
+ */
+public final class ConsistentHashRing<N> {
+
+    private final long[] points;  // sorted
+    private final Object[] owners; // owners[i] owns points[i]
+
+    /**
+     * @param nodes        nodes by name, the name being what places them on the ring
+     * @param virtualNodes points per node; more points spread keys more evenly
+     */
+    public ConsistentHashRing(Map<String, N> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("At least one node is required");
+        }
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be >= 1");
+        }
+        int size = nodes.size() * virtualNodes;
+        long[][] placed = new long[size][];
+        List<N> values = List.copyOf(nodes.values());
+        int n = 0;
+        int nodeIndex = 0;
+        for (String name : nodes.keySet()) {
+            for (int v = 0; v < virtualNodes; v++) {
+                placed[n++] = new long[]{hashBytes((name + "#" + v).getBytes(StandardCharsets.UTF_8)), nodeIndex};
+            }
+            nodeIndex++;
+        }
+        Arrays.sort(placed, (a, b) -> Long.compare(a[0], b[0]));
+        this.points = new long[size];
+        this.owners = new Object[size];
+        for (int i = 0; i < size; i++) {
+            points[i] = placed[i][0];
+            owners[i] = values.get((int) placed[i][1]);
+        }
+    }
+
+    /**
+     * The node owning {@code key}.
+     */
+    @SuppressWarnings("unchecked")
+    public N route(Object key) {
+        int i = Arrays.binarySearch(points, hash(key));
+        if (i < 0) {
+            i = -i - 1;
+        }
+        return (N) owners[i == points.length ? 0 : i];
+    }
+
+    /**
+     * 64-bit hash of a shard key, stable across JVMs and runs.
+     */
+    public static long hash(Object key) {
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return mix(((Number) key).longValue());
+        }
+        if (key instanceof UUID) {
+            UUID uuid = (UUID) key;
+            return mix(uuid.getMostSignificantBits() ^ mix(uuid.getLeastSignificantBits()));
+        }
+        if (key instanceof byte[]) {
+            return hashBytes((byte[]) key);
+        }
+        return hashBytes(String.valueOf(key).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static long hashBytes(byte[] bytes) {
+        long h = 0xcbf29ce484222325L; // FNV-1a, then mixed so nearby inputs land far apart
+        for (byte b : bytes) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    // MurmurHash3 fmix64
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
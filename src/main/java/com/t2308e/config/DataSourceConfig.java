@@ -1,16 +1,44 @@
 package com.t2308e.config;
 
+import com.t2308e.dialect.Dialect;
+import com.t2308e.dialect.Dialects;
+import com.t2308e.id.IdGenerator;
+import com.t2308e.id.IdGenerators;
+import com.t2308e.id.SnowflakeIdGenerator;
+import com.t2308e.transaction.TransactionManager;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
-public class DataSourceConfig {
+public class DataSourceConfig implements AutoCloseable {
     private String url;
     private String username;
     private String password;
     private String driverClassName;
+    private final Properties connectionProperties;
+    private final ConnectionPool pool; // null when running unpooled
+    private final TransactionManager transactionManager = new TransactionManager(this::borrowConnection);
+    private volatile ReadReplicas readReplicas; // null: reads use this data source too
+    private volatile Dialect dialect;
+    private final Map<Class<?>, Optional<IdGenerator<?>>> idGenerators = new ConcurrentHashMap<>();
+    private volatile int workerId;
 
     public DataSourceConfig(String url, String username, String password, String driverClassName) {
+        this(url, username, password, driverClassName, null);
+    }
+
+    /**
+     * Creates a config that hands out connections from a built-in pool.
+     * Pass {@code null} as {@code poolConfig} to open a fresh connection on every call.
+     */
+    public DataSourceConfig(String url, String username, String password, String driverClassName, PoolConfig poolConfig) {
         this.url = url;
         this.username = username;
         this.password = password;
@@ -20,10 +48,168 @@ public class DataSourceConfig {
         } catch (ClassNotFoundException e) {
             throw new RuntimeException("Failed to load JDBC driver: " + driverClassName, e);
         }
+        this.connectionProperties = buildConnectionProperties();
+        this.dialect = Dialects.detect(url, driverClassName);
+        this.pool = poolConfig != null ? new ConnectionPool(this, poolConfig) : null;
     }
 
+    /**
+     * Returns a connection. In pooled mode closing it returns it to the pool instead of closing it.
+     * Inside a transaction of {@link #getTransactionManager()} it is the transaction's connection, on which
+     * {@code close()} and {@code commit()} do nothing.
+     */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, username, password);
+        Connection bound = transactionManager.getBoundConnection();
+        return bound != null ? bound : borrowConnection();
+    }
+
+    /**
+     * Returns a connection for statements that only read: one from a {@link #setReadReplicas read replica} if any
+     * are attached, otherwise as {@link #getConnection()}. Inside a transaction it is always the transaction's
+     * connection, so a transaction reads its own writes.
+     */
+    public Connection getReadConnection() throws SQLException {
+        Connection bound = transactionManager.getBoundConnection();
+        if (bound != null) {
+            return bound;
+        }
+        ReadReplicas replicas = readReplicas;
+        return replicas != null ? replicas.getConnection(this::borrowConnection) : borrowConnection();
+    }
+
+    /**
+     * Sends reads to {@code replicas} from now on; writes and transactions stay on this data source, which then
+     * acts as the primary. The replicas are closed with it. Pass null to read from this data source again.
+     */
+    public DataSourceConfig setReadReplicas(ReadReplicas replicas) {
+        this.readReplicas = replicas;
+        return this;
+    }
+
+    public Optional<ReadReplicas> getReadReplicas() {
+        return Optional.ofNullable(readReplicas);
+    }
+
+    /**
+     * Per-replica statistics, or an empty list when no replicas are attached.
+     */
+    public List<ReplicaStats> getReplicaStats() {
+        ReadReplicas replicas = readReplicas;
+        return replicas != null ? replicas.getStats() : List.of();
+    }
+
+    /**
+     * SQL dialect of this database, detected from the URL and driver unless {@link #setDialect set}.
+     */
+    public Dialect getDialect() {
+        return dialect;
+    }
+
+    /**
+     * Overrides the detected dialect. Repositories build their statements when they are created, so set it before
+     * creating any.
+     */
+    public DataSourceConfig setDialect(Dialect dialect) {
+        this.dialect = Objects.requireNonNull(dialect, "dialect");
+        return this;
+    }
+
+    /**
+     * The generator assigning ids to new {@code entityClass} entities stored here, per the strategy of its
+     * {@code @MyId}, or null for {@code IDENTITY}. It is created on first use and shared by every repository and
+     * session of this data source, so each entity has one allocator (and one block of sequence values) here.
+     */
+    public IdGenerator<?> getIdGenerator(Class<?> entityClass) {
+        return idGenerators.computeIfAbsent(entityClass, c -> Optional.ofNullable(
+                IdGenerators.forEntity(c, this::getConnection, dialect, workerId))).orElse(null);
+    }
+
+    /**
+     * Worker id of {@code SNOWFLAKE} ids generated from now on (0 by default); every application instance writing to
+     * the same tables needs its own.
+     */
+    public DataSourceConfig setWorkerId(int workerId) {
+        if (workerId < 0 || workerId > SnowflakeIdGenerator.MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId must be between 0 and " + SnowflakeIdGenerator.MAX_WORKER_ID);
+        }
+        this.workerId = workerId;
+        return this;
+    }
+
+    public int getWorkerId() {
+        return workerId;
+    }
+
+    private Connection borrowConnection() throws SQLException {
+        if (pool != null) {
+            return pool.borrow();
+        }
+        return openPhysicalConnection();
+    }
+
+    Connection openPhysicalConnection() throws SQLException {
+        return DriverManager.getConnection(url, connectionProperties);
+    }
+
+    /**
+     * Credentials plus driver flags that let JDBC batches go out as multi-row statements
+     * (MySQL/MariaDB {@code rewriteBatchedStatements}, PostgreSQL {@code reWriteBatchedInserts}).
+     * A flag already present in the URL wins.
+     */
+    private Properties buildConnectionProperties() {
+        Properties props = new Properties();
+        if (username != null) {
+            props.setProperty("user", username);
+        }
+        if (password != null) {
+            props.setProperty("password", password);
+        }
+        if ((url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")) && !url.contains("rewriteBatchedStatements")) {
+            props.setProperty("rewriteBatchedStatements", "true");
+        } else if (url.startsWith("jdbc:postgresql:") && !url.contains("reWriteBatchedInserts")) {
+            props.setProperty("reWriteBatchedInserts", "true");
+        }
+        return props;
+    }
+
+    /**
+     * Transactions spanning several repository calls on this data source.
+     */
+    public TransactionManager getTransactionManager() {
+        return transactionManager;
+    }
+
+    public boolean isPooled() {
+        return pool != null;
+    }
+
+    /**
+     * Most connections the pool hands out at once, or 0 when unpooled (no limit).
+     */
+    public int getMaxPoolSize() {
+        return pool != null ? pool.getMaxSize() : 0;
+    }
+
+    /**
+     * Pool statistics, or empty when this config is not pooled.
+     */
+    public Optional<PoolStats> getPoolStats() {
+        return pool != null ? Optional.of(pool.getStats()) : Optional.empty();
+    }
+
+    /**
+     * Closes idle pooled connections and stops the pool's housekeeping thread, here and on any read replicas.
+     * No-op when unpooled.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.close();
+        }
+        ReadReplicas replicas = readReplicas;
+        if (replicas != null) {
+            replicas.close();
+        }
     }
 
     // Getters for testing or other purposes
@@ -32,4 +218,3 @@ public class DataSourceConfig {
     public String getPassword() { return password; }
     public String getDriverClassName() { return driverClassName; }
 }
-
@@ -0,0 +1,109 @@
+package com.t2308e.config;
+
+/**
+ * Settings for the built-in connection pool used by {@link DataSourceConfig}.
+ * All durations are in milliseconds. Setters return {@code this} so a config can be built inline.
+ */
+public class PoolConfig {
+    private int minIdle = 2;
+    private int maxSize = 10;
+    private long acquireTimeoutMillis = 30_000;
+    private long idleTimeoutMillis = 600_000;
+    private long housekeepingIntervalMillis = 30_000;
+    private boolean validateOnBorrow = true;
+    private int validationTimeoutSeconds = 5;
+    private long leakDetectionThresholdMillis = 0; // 0 = disabled
+    private int statementCacheSize = 64; // per connection, 0 = disabled
+
+    public PoolConfig() {
+    }
+
+    /**
+     * Copy taken by the pool, so later changes to the caller's config do not reach a running pool.
+     */
+    PoolConfig(PoolConfig other) {
+        this.minIdle = other.minIdle;
+        this.maxSize = other.maxSize;
+        this.acquireTimeoutMillis = other.acquireTimeoutMillis;
+        this.idleTimeoutMillis = other.idleTimeoutMillis;
+        this.housekeepingIntervalMillis = other.housekeepingIntervalMillis;
+        this.validateOnBorrow = other.validateOnBorrow;
+        this.validationTimeoutSeconds = other.validationTimeoutSeconds;
+        this.leakDetectionThresholdMillis = other.leakDetectionThresholdMillis;
+        this.statementCacheSize = other.statementCacheSize;
+    }
+
+    public int getMinIdle() { return minIdle; }
+    public int getMaxSize() { return maxSize; }
+    public long getAcquireTimeoutMillis() { return acquireTimeoutMillis; }
+    public long getIdleTimeoutMillis() { return idleTimeoutMillis; }
+    public long getHousekeepingIntervalMillis() { return housekeepingIntervalMillis; }
+    public boolean isValidateOnBorrow() { return validateOnBorrow; }
+    public int getValidationTimeoutSeconds() { return validationTimeoutSeconds; }
+    public long getLeakDetectionThresholdMillis() { return leakDetectionThresholdMillis; }
+    public int getStatementCacheSize() { return statementCacheSize; }
+
+    public PoolConfig setMinIdle(int minIdle) {
+        if (minIdle < 0) {
+            throw new IllegalArgumentException("minIdle must be >= 0");
+        }
+        this.minIdle = minIdle;
+        return this;
+    }
+
+    public PoolConfig setMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be >= 1");
+        }
+        this.maxSize = maxSize;
+        return this;
+    }
+
+    public PoolConfig setAcquireTimeoutMillis(long acquireTimeoutMillis) {
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        return this;
+    }
+
+    public PoolConfig setIdleTimeoutMillis(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        return this;
+    }
+
+    public PoolConfig setHousekeepingIntervalMillis(long housekeepingIntervalMillis) {
+        if (housekeepingIntervalMillis <= 0) {
+            throw new IllegalArgumentException("housekeepingIntervalMillis must be > 0");
+        }
+        this.housekeepingIntervalMillis = housekeepingIntervalMillis;
+        return this;
+    }
+
+    public PoolConfig setValidateOnBorrow(boolean validateOnBorrow) {
+        this.validateOnBorrow = validateOnBorrow;
+        return this;
+    }
+
+    public PoolConfig setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        return this;
+    }
+
+    /**
+     * Borrow time after which a connection is reported as a possible leak, with the stack that borrowed it,
+     * at WARNING level on the {@code com.t2308e.config.ConnectionPool} logger. 0 disables the check.
+     */
+    public PoolConfig setLeakDetectionThresholdMillis(long leakDetectionThresholdMillis) {
+        this.leakDetectionThresholdMillis = leakDetectionThresholdMillis;
+        return this;
+    }
+
+    /**
+     * Maximum number of prepared statements kept open per pooled connection, evicted least-recently-used first.
+     */
+    public PoolConfig setStatementCacheSize(int statementCacheSize) {
+        if (statementCacheSize < 0) {
+            throw new IllegalArgumentException("statementCacheSize must be >= 0");
+        }
+        this.statementCacheSize = statementCacheSize;
+        return this;
+    }
+}
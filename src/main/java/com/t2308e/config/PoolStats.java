@@ -0,0 +1,83 @@
+package com.t2308e.config;
+
+import com.t2308e.metrics.HistogramSnapshot;
+
+/**
+ * Immutable point-in-time view of a {@link ConnectionPool}.
+ */
+public class PoolStats {
+    private final int active;
+    private final int idle;
+    private final int waiting;
+    private final long acquireCount;
+    private final long totalWaitNanos;
+    private final long maxWaitNanos;
+    private final long timeoutCount;
+    private final long leakCount;
+    private final long connectionFailureCount;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+    private final HistogramSnapshot acquireTimeNanos;
+
+    PoolStats(int active, int idle, int waiting, long acquireCount, long totalWaitNanos,
+              long maxWaitNanos, long timeoutCount, long leakCount, long connectionFailureCount,
+              long statementCacheHits, long statementCacheMisses, HistogramSnapshot acquireTimeNanos) {
+        this.active = active;
+        this.idle = idle;
+        this.waiting = waiting;
+        this.acquireCount = acquireCount;
+        this.totalWaitNanos = totalWaitNanos;
+        this.maxWaitNanos = maxWaitNanos;
+        this.timeoutCount = timeoutCount;
+        this.leakCount = leakCount;
+        this.connectionFailureCount = connectionFailureCount;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+        this.acquireTimeNanos = acquireTimeNanos;
+    }
+
+    public int getActive() { return active; }
+    public int getIdle() { return idle; }
+    public int getTotal() { return active + idle; }
+    public int getWaiting() { return waiting; }
+    public long getAcquireCount() { return acquireCount; }
+    public long getTotalWaitNanos() { return totalWaitNanos; }
+    public long getMaxWaitNanos() { return maxWaitNanos; }
+    public long getTimeoutCount() { return timeoutCount; }
+    public long getLeakCount() { return leakCount; }
+
+    /**
+     * Times the housekeeper failed to open a connection while topping the pool up to {@code minIdle}.
+     */
+    public long getConnectionFailureCount() { return connectionFailureCount; }
+
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+
+    /**
+     * Distribution of the time {@code getConnection()} took, in nanoseconds.
+     */
+    public HistogramSnapshot getAcquireTimeNanos() { return acquireTimeNanos; }
+
+    public double getAverageWaitMillis() {
+        return acquireCount == 0 ? 0.0 : totalWaitNanos / (double) acquireCount / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", waiting=" + waiting +
+                ", acquired=" + acquireCount +
+                ", avgWaitMs=" + String.format("%.3f", getAverageWaitMillis()) +
+                ", maxWaitMs=" + String.format("%.3f", maxWaitNanos / 1_000_000.0) +
+                ", p99WaitMs=" + String.format("%.3f", acquireTimeNanos.getP99() / 1_000_000.0) +
+                ", timeouts=" + timeoutCount +
+                ", leaks=" + leakCount +
+                ", connectionFailures=" + connectionFailureCount +
+                ", stmtCacheHits=" + statementCacheHits +
+                ", stmtCacheMisses=" + statementCacheMisses +
+                '}';
+    }
+}
@@ -0,0 +1,222 @@
+package com.t2308e.config;
+
+import com.t2308e.transaction.ConnectionSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replicas that serve the reads of a primary {@link DataSourceConfig}, attached with
+ * {@link DataSourceConfig#setReadReplicas(ReadReplicas)}. Each replica is a {@code DataSourceConfig} of its own, with
+ * its own pool.
+ * <p>
+ * A replica whose connection cannot be obtained (the pool validates connections it hands out) is ejected for
+ * {@link #setEjectionMillis ejectionMillis} and the read moves on to the next one; after that time the next read tries
+ * it again. With every replica ejected, reads go to the primary.
+ * <p>
+ * Replicas lag behind the primary, so a read right after a write may not see it. Reads inside a transaction always
+ * use the transaction's primary connection. Setters return {@code this} so the set can be built inline.
+ * <p>
+ * Entities in the second-level cache ({@code @MyEntity(cacheable = true)}) are read from the primary on a cache miss.
+ * A write only invalidates the cached row; were the next miss served by a replica that has not applied the write yet,
+ * the old row would be cached again and returned until it expires, long after the replica caught up.
+ */
+public class ReadReplicas implements AutoCloseable {
+
+    private final List<Replica> replicas = new ArrayList<>();
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final AtomicLong primaryFallbacks = new AtomicLong();
+    private volatile ReplicaSelection selection = ReplicaSelection.ROUND_ROBIN;
+    private volatile long ejectionNanos = TimeUnit.SECONDS.toNanos(30);
+
+    public ReadReplicas(List<DataSourceConfig> replicaConfigs) {
+        if (replicaConfigs.isEmpty()) {
+            throw new IllegalArgumentException("At least one replica is required");
+        }
+        for (DataSourceConfig config : replicaConfigs) {
+            replicas.add(new Replica(config));
+        }
+    }
+
+    public ReplicaSelection getSelection() { return selection; }
+    public long getEjectionMillis() { return TimeUnit.NANOSECONDS.toMillis(ejectionNanos); }
+
+    public ReadReplicas setSelection(ReplicaSelection selection) {
+        this.selection = selection;
+        return this;
+    }
+
+    /**
+     * How long a replica that failed to provide a connection is left out before it is tried again.
+     */
+    public ReadReplicas setEjectionMillis(long ejectionMillis) {
+        if (ejectionMillis < 0) {
+            throw new IllegalArgumentException("ejectionMillis must be >= 0");
+        }
+        this.ejectionNanos = TimeUnit.MILLISECONDS.toNanos(ejectionMillis);
+        return this;
+    }
+
+    /**
+     * A connection from a healthy replica, or from {@code primary} if none can provide one.
+     */
+    Connection getConnection(ConnectionSource primary) throws SQLException {
+        int start = Math.floorMod(cursor.getAndIncrement(), replicas.size());
+        boolean[] tried = new boolean[replicas.size()];
+        SQLException failure = null;
+        for (int attempt = 0; attempt < replicas.size(); attempt++) {
+            int index = pick(start, tried, System.nanoTime());
+            if (index < 0) {
+                break;
+            }
+            tried[index] = true;
+            Replica replica = replicas.get(index);
+            try {
+                return replica.borrow();
+            } catch (SQLException e) {
+                replica.eject(System.nanoTime() + ejectionNanos); // the failed attempt may have taken a while
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        primaryFallbacks.incrementAndGet();
+        try {
+            return primary.getConnection();
+        } catch (SQLException e) {
+            if (failure != null) {
+                e.addSuppressed(failure);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Index of the replica to try next, skipping ejected ones and those already tried for this read; -1 if none.
+     */
+    private int pick(int start, boolean[] tried, long now) {
+        int best = -1;
+        for (int i = 0; i < replicas.size(); i++) {
+            int index = (start + i) % replicas.size();
+            if (tried[index] || !replicas.get(index).isAvailable(now)) {
+                continue;
+            }
+            if (selection == ReplicaSelection.ROUND_ROBIN) {
+                return index;
+            }
+            if (best < 0 || replicas.get(index).inFlight.get() < replicas.get(best).inFlight.get()) {
+                best = index;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Reads served by the primary because every replica was ejected or failed.
+     */
+    public long getPrimaryFallbackCount() {
+        return primaryFallbacks.get();
+    }
+
+    public List<ReplicaStats> getStats() {
+        long now = System.nanoTime();
+        List<ReplicaStats> stats = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            stats.add(new ReplicaStats(replica.config.getUrl(), replica.isAvailable(now), replica.inFlight.get(),
+                    replica.borrowCount.get(), replica.ejectionCount.get()));
+        }
+        return stats;
+    }
+
+    /**
+     * Closes every replica's pool.
+     */
+    @Override
+    public void close() {
+        for (Replica replica : replicas) {
+            replica.config.close();
+        }
+    }
+
+    private static final class Replica {
+        final DataSourceConfig config;
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicLong borrowCount = new AtomicLong();
+        final AtomicLong ejectionCount = new AtomicLong();
+        volatile boolean ejected;
+        volatile long ejectedUntilNanos;
+
+        Replica(DataSourceConfig config) {
+            this.config = config;
+        }
+
+        boolean isAvailable(long now) {
+            return !ejected || now - ejectedUntilNanos >= 0;
+        }
+
+        void eject(long untilNanos) {
+            ejectedUntilNanos = untilNanos;
+            ejected = true;
+            ejectionCount.incrementAndGet();
+        }
+
+        Connection borrow() throws SQLException {
+            Connection connection = config.getConnection();
+            ejected = false;
+            inFlight.incrementAndGet();
+            borrowCount.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(ReadReplicas.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new InFlightHandler(connection, inFlight));
+        }
+    }
+
+    /**
+     * Counts the connection as in flight until its first {@code close()}; everything else, including
+     * {@code unwrap} to reach the pool's statement cache, goes to the replica's connection.
+     */
+    private static final class InFlightHandler implements InvocationHandler {
+        private final Connection connection;
+        private final AtomicInteger inFlight;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        InFlightHandler(Connection connection, AtomicInteger inFlight) {
+            this.connection = connection;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (closed.compareAndSet(false, true)) {
+                        inFlight.decrementAndGet();
+                        connection.close();
+                    }
+                    return null;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.t2308e.config;
+
+/**
+ * How {@link ReadReplicas} picks the replica for the next read.
+ */
+public enum ReplicaSelection {
+    /** Each healthy replica in turn. */
+    ROUND_ROBIN,
+    /** The healthy replica with the fewest connections currently handed out; ties go round-robin. */
+    LEAST_IN_FLIGHT
+}
@@ -0,0 +1,45 @@
+package com.t2308e.config;
+
+/**
+ * Immutable point-in-time view of one replica of a {@link ReadReplicas} set.
+ */
+public class ReplicaStats {
+    private final String url;
+    private final boolean available;
+    private final int inFlight;
+    private final long borrowCount;
+    private final long ejectionCount;
+
+    ReplicaStats(String url, boolean available, int inFlight, long borrowCount, long ejectionCount) {
+        this.url = url;
+        this.available = available;
+        this.inFlight = inFlight;
+        this.borrowCount = borrowCount;
+        this.ejectionCount = ejectionCount;
+    }
+
+    public String getUrl() { return url; }
+
+    /**
+     * False while the replica is ejected after a failed connection attempt.
+     */
+    public boolean isAvailable() { return available; }
+
+    /**
+     * Connections handed out for reads and not closed yet.
+     */
+    public int getInFlight() { return inFlight; }
+    public long getBorrowCount() { return borrowCount; }
+    public long getEjectionCount() { return ejectionCount; }
+
+    @Override
+    public String toString() {
+        return "ReplicaStats{" +
+                "url=" + url +
+                ", available=" + available +
+                ", inFlight=" + inFlight +
+                ", borrowed=" + borrowCount +
+                ", ejections=" + ejectionCount +
+                '}';
+    }
+}
@@ -0,0 +1,68 @@
+package com.t2308e.config;
+
+import com.t2308e.id.IdGenerator;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Shards for {@code MyRepositoryFactory.createShardedRepository}: named data sources, each holding part of every
+ * sharded table, plus how keys are placed on them. Setters return {@code this} so a config can be built inline:
+ * <pre>
+ * new ShardingConfig()
+ *         .addShard("s0", shard0)
+ *         .addShard("s1", shard1)
+ *         .setIdGenerator(new SnowflakeIdGenerator(workerId));
+ * </pre>
+ * Shard names place the shards on the {@link ConsistentHashRing}, so they must stay the same for existing data to be
+ * found; adding a shard moves only the keys it takes over, which the application has to migrate itself.
+ */
+public class ShardingConfig {
+    private final Map<String, DataSourceConfig> shards = new LinkedHashMap<>();
+    private int virtualNodes = 160;
+    private IdGenerator<?> idGenerator; // null: see setIdGenerator
+    private Executor executor; // null: a default executor sized to the shard count
+
+    public Map<String, DataSourceConfig> getShards() { return Collections.unmodifiableMap(shards); }
+    public int getVirtualNodes() { return virtualNodes; }
+    public IdGenerator<?> getIdGenerator() { return idGenerator; }
+    public Executor getExecutor() { return executor; }
+
+    public ShardingConfig addShard(String name, DataSourceConfig dataSource) {
+        if (shards.putIfAbsent(name, dataSource) != null) {
+            throw new IllegalArgumentException("Duplicate shard name: " + name);
+        }
+        return this;
+    }
+
+    public ShardingConfig setVirtualNodes(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be >= 1");
+        }
+        this.virtualNodes = virtualNodes;
+        return this;
+    }
+
+    /**
+     * Assigns the id of every new entity before it is routed, since per-shard identity columns would hand out the
+     * same ids on every shard. Defaults to the generator of the entity's {@code @MyId} strategy when that is
+     * {@code UUID} or {@code SNOWFLAKE}, and otherwise to a {@link com.t2308e.id.SnowflakeIdGenerator} with the worker
+     * id of the first shard's {@link DataSourceConfig#setWorkerId data source}.
+     */
+    public ShardingConfig setIdGenerator(IdGenerator<?> idGenerator) {
+        this.idGenerator = idGenerator;
+        return this;
+    }
+
+    /**
+     * Runs the per-shard parts of scatter-gather calls; by default one thread per shard (virtual threads on JDK 21+).
+     * Tasks on it never wait for each other, so it must not be the executor that runs the repository's
+     * {@code CompletableFuture} methods as well.
+     */
+    public ShardingConfig setExecutor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+}
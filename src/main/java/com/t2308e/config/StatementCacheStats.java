@@ -0,0 +1,34 @@
+package com.t2308e.config;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit/miss counters for prepared statement lookups, kept per repository.
+ */
+public class StatementCacheStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss() {
+        misses.increment();
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : h / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        return "StatementCacheStats{hits=" + getHits() + ", misses=" + getMisses()
+                + ", hitRate=" + String.format("%.3f", getHitRate()) + '}';
+    }
+}
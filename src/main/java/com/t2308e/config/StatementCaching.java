@@ -0,0 +1,49 @@
+package com.t2308e.config;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Entry point for preparing statements through the per-connection cache of a pooled connection.
+ */
+public final class StatementCaching {
+
+    /**
+     * Implemented by pooled connections; reached through {@link Connection#unwrap(Class)} so wrapping
+     * connections that delegate {@code unwrap} keep the cache reachable.
+     */
+    interface CachingConnection {
+        PreparedStatement prepareCached(String sql, int autoGeneratedKeys, StatementCacheStats stats) throws SQLException;
+
+        PreparedStatement prepareUncached(String sql) throws SQLException;
+    }
+
+    private StatementCaching() {
+    }
+
+    /**
+     * Prepares {@code sql} on {@code conn}, reusing a cached statement when the connection comes from a pool with
+     * statement caching enabled. Closing the returned statement hands it back to the cache.
+     *
+     * @param autoGeneratedKeys {@link java.sql.Statement#RETURN_GENERATED_KEYS} or {@link java.sql.Statement#NO_GENERATED_KEYS}
+     */
+    public static PreparedStatement prepare(Connection conn, String sql, int autoGeneratedKeys, StatementCacheStats stats) throws SQLException {
+        if (conn.isWrapperFor(CachingConnection.class)) {
+            return conn.unwrap(CachingConnection.class).prepareCached(sql, autoGeneratedKeys, stats);
+        }
+        stats.recordMiss();
+        return conn.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    /**
+     * Prepares {@code sql} on {@code conn} without touching the statement cache, for one-off SQL that would only
+     * push reusable statements out of it. Closing the returned statement closes it for real.
+     */
+    public static PreparedStatement prepareUncached(Connection conn, String sql) throws SQLException {
+        if (conn.isWrapperFor(CachingConnection.class)) {
+            return conn.unwrap(CachingConnection.class).prepareUncached(sql);
+        }
+        return conn.prepareStatement(sql);
+    }
+}
@@ -0,0 +1,20 @@
+package com.t2308e.core;
+
+/**
+ * How entity properties are read and written by repositories. In both modes rows are mapped by a handle compiled per
+ * entity (see {@link EntityMapper}); the mode decides what that handle and the per-property accessors call.
+ */
+public enum AccessorMode {
+    /**
+     * Field getter/setter {@code MethodHandle}s called with {@code invokeExact}, and one for the no-arg constructor.
+     * The handles sit in instance fields where the JIT cannot constant-fold them, so single property reads and writes
+     * are slower than in {@link #GENERATED} mode.
+     */
+    METHOD_HANDLE,
+    /**
+     * Accessor classes spun with {@code LambdaMetafactory} against the entity's getters, setters and constructor
+     * when the repository is created. Properties without a matching getter/setter fall back to {@link #METHOD_HANDLE}.
+     * The default.
+     */
+    GENERATED
+}
@@ -0,0 +1,448 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyManyToOne;
+import com.t2308e.annotations.MyOneToMany;
+import com.t2308e.cache.EntityCache;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.StatementCacheStats;
+import com.t2308e.config.StatementCaching;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.logging.SqlLogger;
+import com.t2308e.repository.CloseableIterator;
+import com.t2308e.transaction.ConnectionSource;
+import com.t2308e.util.ReflectionUtil;
+
+import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the {@code @MyManyToOne} references and {@code @MyOneToMany} collections of entities that were just read,
+ * without a query per entity.
+ * <p>
+ * References are fetched right after the query: one {@code SELECT ... WHERE id IN (...)} per target class and chunk of
+ * {@code batchSize} distinct ids, after checking the target's second-level cache. Every entity pointing at the same
+ * row gets the same instance, and loaded targets have their own references fetched the same way until no new ids turn
+ * up, so cycles end. Entity classes cannot be proxied without generating bytecode, so references are not lazy; use
+ * {@code @MyJoinFetch} on queries that always need them to save the extra round trip.
+ * <p>
+ * Collections are {@link LazyList}s. The first access to any of them loads the children of every owner read in the
+ * same chunk with {@code WHERE fk IN (...)}, and points the children's back-reference at the owner instance.
+ * <p>
+ * IN lists are padded to a power of two by repeating the last id, so a handful of statement shapes stay in the
+ * statement cache instead of one per list length.
+ */
+final class AssociationLoader {
+
+    private final DataSourceConfig dataSourceConfig;
+    private final RepositorySettings settings;
+    private final StatementCacheStats statementCacheStats;
+    private final Map<Field, OneToMany> oneToManyDescriptors = new ConcurrentHashMap<>();
+
+    AssociationLoader(DataSourceConfig dataSourceConfig, RepositorySettings settings, StatementCacheStats statementCacheStats) {
+        this.dataSourceConfig = dataSourceConfig;
+        this.settings = settings;
+        this.statementCacheStats = statementCacheStats;
+    }
+
+    /**
+     * Checks that every {@code @MyOneToMany} of {@code metadata} names a matching {@code @MyManyToOne} on the child.
+     */
+    void validate(EntityMetadata metadata) {
+        for (Field field : metadata.getOneToManyFields()) {
+            oneToMany(field);
+        }
+    }
+
+    /**
+     * Loads the associations of {@code entities}, which were read as {@code metadata}'s entity.
+     */
+    void resolve(List<?> entities, EntityMetadata metadata) throws SQLException {
+        resolve(entities, metadata, new Loaded());
+    }
+
+    /**
+     * As {@link #resolve(List, EntityMetadata)}, reusing entities already in {@code loaded}, e.g. from a join.
+     */
+    void resolve(List<?> entities, EntityMetadata metadata, Loaded loaded) throws SQLException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        EntityMapper<Object> rootMapper = mapper(metadata.getEntityClass());
+        for (Object entity : entities) {
+            loaded.putIfAbsent(metadata.getEntityClass(), rootMapper.getId(entity), entity);
+        }
+        Deque<Work> work = new ArrayDeque<>();
+        work.add(new Work(metadata, entities));
+        for (Map.Entry<Class<?>, List<Object>> joined : loaded.drainJoined().entrySet()) {
+            work.add(new Work(EntityMetadata.of(joined.getKey()), joined.getValue()));
+        }
+        while (!work.isEmpty()) {
+            Work next = work.poll();
+            EntityMapper<Object> mapper = mapper(next.metadata.getEntityClass());
+            for (int index : next.metadata.getManyToOneColumnIndexes()) {
+                Class<?> targetClass = next.metadata.getColumnFields().get(index).getType();
+                Set<Object> missing = new LinkedHashSet<>();
+                for (Object entity : next.entities) {
+                    Object id = mapper.getColumnValue(entity, index);
+                    if (id != null && loaded.get(targetClass, id) == null) {
+                        missing.add(id);
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    List<Object> fetched = fetchByIds(targetClass, new ArrayList<>(missing), loaded);
+                    if (!fetched.isEmpty()) {
+                        work.add(new Work(EntityMetadata.of(targetClass), fetched));
+                    }
+                }
+                for (Object entity : next.entities) {
+                    Object id = mapper.getColumnValue(entity, index);
+                    Object target = id != null ? loaded.get(targetClass, id) : null;
+                    if (target != null) {
+                        mapper.setColumnValue(entity, index, target); // a row that no longer exists keeps the id-only reference
+                    }
+                }
+            }
+            for (Field field : next.metadata.getOneToManyFields()) {
+                attachCollections(oneToMany(field), next.entities, mapper);
+            }
+        }
+    }
+
+    /**
+     * Wraps a cursor so that its entities come out with their associations loaded, one chunk of {@code batchSize}
+     * rows at a time. {@code loaded} is cleared after each chunk so a long stream does not accumulate entities.
+     */
+    <E> CloseableIterator<E> resolving(CloseableIterator<E> source, EntityMetadata metadata, Loaded loaded) {
+        return new ResolvingIterator<>(source, metadata, loaded);
+    }
+
+    private void attachCollections(OneToMany association, List<?> owners, EntityMapper<Object> ownerMapper) {
+        int batchSize = settings.getBatchSize();
+        for (int from = 0; from < owners.size(); from += batchSize) {
+            List<?> chunk = owners.subList(from, Math.min(owners.size(), from + batchSize));
+            ChildBatch batch = new ChildBatch(association);
+            for (Object owner : chunk) {
+                Object id = ownerMapper.getId(owner);
+                if (id != null) {
+                    batch.owners.put(id, owner);
+                    association.accessor.set(owner, new LazyList<>(batch, id));
+                }
+            }
+        }
+    }
+
+    private List<Object> fetchByIds(Class<?> targetClass, List<Object> ids, Loaded loaded) throws SQLException {
+        EntityMetadata metadata = EntityMetadata.of(targetClass);
+        EntityMapper<Object> mapper = mapper(targetClass);
+        List<Object> fetched = new ArrayList<>();
+        EntityCache cache = settings.cacheFor(metadata);
+        List<Object> toQuery = ids;
+        if (cache != null) {
+            toQuery = new ArrayList<>();
+            for (Object id : ids) {
+                Object[] cached = cache.get(id);
+                if (cached != null) {
+                    Object entity = mapper.hydrate(id, cached);
+                    loaded.putIfAbsent(targetClass, id, entity);
+                    fetched.add(entity);
+                } else {
+                    toQuery.add(id);
+                }
+            }
+        }
+        // Rows read inside a transaction may be uncommitted, so keep them out of the shared cache
+        boolean fill = cache != null && !dataSourceConfig.getTransactionManager().isTransactionActive();
+        String prefix = metadata.getSelectAllSql() + " WHERE " + metadata.getIdColumnName() + " IN (";
+        // Rows of cacheable entities come from the primary, never a lagging replica; see ReadReplicas
+        ConnectionSource source = cache != null ? dataSourceConfig::getConnection : dataSourceConfig::getReadConnection;
+        forEachInList(source, toQuery, prefix, ")", metadata.getIdColumnName(), rs -> {
+            Object entity = mapper.mapRow(rs);
+            Object id = mapper.getId(entity);
+            if (loaded.putIfAbsent(targetClass, id, entity) == null) {
+                fetched.add(entity);
+                if (fill) {
+                    cache.put(id, mapper.snapshot(entity));
+                }
+            }
+        });
+        return fetched;
+    }
+
+    /**
+     * Runs {@code prefix ?, ?, ... suffix} for {@code values} in padded chunks of at most {@code batchSize} and
+     * hands every row to {@code rowHandler}.
+     */
+    private void forEachInList(ConnectionSource source, List<Object> values, String prefix, String suffix, String column,
+                               RowHandler rowHandler) throws SQLException {
+        if (values.isEmpty()) {
+            return;
+        }
+        SqlLogger sqlLogger = settings.getSqlLogger();
+        int batchSize = settings.getBatchSize();
+        try (Connection conn = source.getConnection()) {
+            for (int from = 0; from < values.size(); from += batchSize) {
+                List<Object> chunk = values.subList(from, Math.min(values.size(), from + batchSize));
+                int size = paddedSize(chunk.size(), batchSize);
+                StringBuilder sql = new StringBuilder(prefix);
+                for (int i = 0; i < size; i++) {
+                    sql.append(i == 0 ? "?" : ", ?");
+                }
+                sql.append(suffix);
+                Object[] parameters = new Object[size];
+                for (int i = 0; i < size; i++) {
+                    parameters[i] = chunk.get(Math.min(i, chunk.size() - 1));
+                }
+                long start = sqlLogger.start();
+                try (PreparedStatement stmt = StatementCaching.prepare(conn, sql.toString(), Statement.NO_GENERATED_KEYS,
+                        statementCacheStats)) {
+                    for (int i = 0; i < size; i++) {
+                        stmt.setObject(i + 1, parameters[i]);
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        if (sqlLogger.isEnabled()) {
+                            sqlLogger.log(sql.toString(), start, Collections.nCopies(size, column), parameters);
+                        }
+                        while (rs.next()) {
+                            rowHandler.handle(rs);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static int paddedSize(int size, int max) {
+        int padded = Integer.highestOneBit(size);
+        if (padded < size) {
+            padded <<= 1;
+        }
+        return Math.min(padded, max);
+    }
+
+    private OneToMany oneToMany(Field field) {
+        return oneToManyDescriptors.computeIfAbsent(field, this::describe);
+    }
+
+    private OneToMany describe(Field field) {
+        Class<?> ownerClass = field.getDeclaringClass();
+        Class<?> childClass = ReflectionUtil.getElementType(field);
+        String mappedBy = field.getAnnotation(MyOneToMany.class).mappedBy();
+        EntityMetadata child = EntityMetadata.of(childClass);
+        Field backReference = child.getPropertyField(mappedBy);
+        if (backReference == null || !backReference.isAnnotationPresent(MyManyToOne.class)
+                || !backReference.getType().isAssignableFrom(ownerClass)) {
+            throw new MiniOrmException("@MyOneToMany " + ownerClass.getSimpleName() + "." + field.getName()
+                    + ": mappedBy '" + mappedBy + "' must name a @MyManyToOne " + ownerClass.getSimpleName()
+                    + " field of " + childClass.getSimpleName());
+        }
+        String column = child.getPropertyColumn(mappedBy);
+        return new OneToMany(ownerClass, PropertyAccessors.forField(field, settings.getAccessorMode()), child,
+                child.getColumnNames().indexOf(column), column);
+    }
+
+    /**
+     * Mapper of {@code entityClass} with the repository's accessor mode.
+     */
+    @SuppressWarnings("unchecked")
+    EntityMapper<Object> mapper(Class<?> entityClass) {
+        return (EntityMapper<Object>) EntityMapper.of(entityClass, settings.getAccessorMode());
+    }
+
+    /**
+     * Entities loaded for one result, by class and id, plus those a join added that still need their own
+     * associations loaded.
+     */
+    static final class Loaded {
+        private final Map<Class<?>, Map<Object, Object>> byClass = new HashMap<>();
+        private final Map<Class<?>, List<Object>> joined = new LinkedHashMap<>();
+
+        Object get(Class<?> entityClass, Object id) {
+            Map<Object, Object> entities = byClass.get(entityClass);
+            return entities != null ? entities.get(id) : null;
+        }
+
+        /**
+         * Registers {@code entity} unless one with the same id is already known, and returns the known one or null.
+         */
+        Object putIfAbsent(Class<?> entityClass, Object id, Object entity) {
+            return byClass.computeIfAbsent(entityClass, c -> new HashMap<>()).putIfAbsent(id, entity);
+        }
+
+        /**
+         * The instance to use for a row read through a join: the one already known, or {@code entity} after
+         * registering it.
+         */
+        Object join(Class<?> entityClass, Object id, Object entity) {
+            Object known = putIfAbsent(entityClass, id, entity);
+            if (known != null) {
+                return known;
+            }
+            joined.computeIfAbsent(entityClass, c -> new ArrayList<>()).add(entity);
+            return entity;
+        }
+
+        Map<Class<?>, List<Object>> drainJoined() {
+            if (joined.isEmpty()) {
+                return Collections.emptyMap();
+            }
+            Map<Class<?>, List<Object>> drained = new LinkedHashMap<>(joined);
+            joined.clear();
+            return drained;
+        }
+
+        void clear() {
+            byClass.clear();
+            joined.clear();
+        }
+    }
+
+    private static final class Work {
+        final EntityMetadata metadata;
+        final List<?> entities;
+
+        Work(EntityMetadata metadata, List<?> entities) {
+            this.metadata = metadata;
+            this.entities = entities;
+        }
+    }
+
+    private static final class OneToMany {
+        final Class<?> ownerClass;
+        final PropertyAccessor accessor; // the owner's collection field
+        final EntityMetadata child;
+        final int foreignKeyIndex;       // index of the back-reference in the child's columns
+        final String foreignKeyColumn;
+
+        OneToMany(Class<?> ownerClass, PropertyAccessor accessor, EntityMetadata child, int foreignKeyIndex,
+                  String foreignKeyColumn) {
+            this.ownerClass = ownerClass;
+            this.accessor = accessor;
+            this.child = child;
+            this.foreignKeyIndex = foreignKeyIndex;
+            this.foreignKeyColumn = foreignKeyColumn;
+        }
+    }
+
+    /**
+     * Owners whose collections are loaded together on first access to any of them.
+     */
+    final class ChildBatch {
+        private final OneToMany association;
+        private final Map<Object, Object> owners = new LinkedHashMap<>();
+        private Map<Object, List<Object>> children; // by owner id, null until loaded
+
+        ChildBatch(OneToMany association) {
+            this.association = association;
+        }
+
+        synchronized List<Object> childrenOf(Object ownerId) {
+            if (children == null) {
+                try {
+                    children = load();
+                } catch (SQLException e) {
+                    throw new MiniOrmException("Failed to load " + association.child.getEntityClass().getSimpleName()
+                            + " collection: " + e.getMessage(), e);
+                }
+            }
+            List<Object> elements = children.get(ownerId);
+            return elements != null ? new ArrayList<>(elements) : new ArrayList<>();
+        }
+
+        private Map<Object, List<Object>> load() throws SQLException {
+            EntityMetadata child = association.child;
+            EntityMapper<Object> childMapper = mapper(child.getEntityClass());
+            Map<Object, List<Object>> byOwner = new HashMap<>();
+            List<Object> all = new ArrayList<>();
+            Loaded loaded = new Loaded();
+            Class<?> ownerClass = association.ownerClass;
+            for (Map.Entry<Object, Object> owner : owners.entrySet()) {
+                loaded.putIfAbsent(ownerClass, owner.getKey(), owner.getValue());
+            }
+            String prefix = child.getSelectAllSql() + " WHERE " + association.foreignKeyColumn + " IN (";
+            String suffix = ") ORDER BY " + child.getIdColumnName();
+            forEachInList(dataSourceConfig::getReadConnection, new ArrayList<>(owners.keySet()), prefix, suffix, association.foreignKeyColumn, rs -> {
+                Object mapped = childMapper.mapRow(rs);
+                Object known = loaded.putIfAbsent(child.getEntityClass(), childMapper.getId(mapped), mapped);
+                Object entity = known != null ? known : mapped; // self-referencing: the child may be one of the owners
+                Object ownerId = childMapper.getColumnValue(entity, association.foreignKeyIndex);
+                childMapper.setColumnValue(entity, association.foreignKeyIndex, loaded.get(ownerClass, ownerId));
+                byOwner.computeIfAbsent(ownerId, k -> new ArrayList<>()).add(entity);
+                all.add(entity);
+            });
+            resolve(all, child, loaded);
+            return byOwner;
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void handle(ResultSet rs) throws SQLException;
+    }
+
+    private final class ResolvingIterator<E> implements CloseableIterator<E> {
+        private final CloseableIterator<E> source;
+        private final EntityMetadata metadata;
+        private final Loaded loaded;
+        private Iterator<E> buffer = Collections.emptyIterator();
+
+        ResolvingIterator(CloseableIterator<E> source, EntityMetadata metadata, Loaded loaded) {
+            this.source = source;
+            this.metadata = metadata;
+            this.loaded = loaded;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (buffer.hasNext()) {
+                return true;
+            }
+            if (!source.hasNext()) {
+                return false;
+            }
+            List<E> chunk = new ArrayList<>();
+            int batchSize = settings.getBatchSize();
+            while (chunk.size() < batchSize && source.hasNext()) {
+                chunk.add(source.next());
+            }
+            try {
+                resolve(chunk, metadata, loaded);
+            } catch (SQLException e) {
+                close();
+                throw new MiniOrmException("Failed to load associations: " + e.getMessage(), e);
+            }
+            loaded.clear();
+            buffer = chunk.iterator();
+            return true;
+        }
+
+        @Override
+        public E next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return buffer.next();
+        }
+
+        @Override
+        public void close() {
+            source.close();
+        }
+    }
+}
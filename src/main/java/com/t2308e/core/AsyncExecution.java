@@ -0,0 +1,107 @@
+package com.t2308e.core;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the blocking body of a {@code CompletableFuture}-returning repository method on an executor.
+ * <p>
+ * Each task takes a permit from a semaphore shared by every repository of a factory before it touches the database,
+ * so at most that many calls (by default the pool size) compete for connections. Callers beyond that wait for a
+ * permit without a timeout instead of piling up on the pool and failing its acquire timeout; on virtual threads the
+ * waiting costs no platform thread.
+ */
+final class AsyncExecution {
+
+    private static final String ASYNC_SUFFIX = "Async";
+
+    private final Executor executor;
+    private final Semaphore permits; // null: unbounded
+
+    AsyncExecution(Executor executor, Semaphore permits) {
+        this.executor = executor;
+        this.permits = permits;
+    }
+
+    /**
+     * True if {@code method} returns a {@link CompletableFuture} and should be run through an {@code AsyncExecution}.
+     */
+    static boolean isAsync(Method method) {
+        return method.getReturnType() == CompletableFuture.class;
+    }
+
+    /**
+     * Name of the blocking operation an async method stands for: {@code findByEmailAsync} -> {@code findByEmail}.
+     * The suffix is optional.
+     */
+    static String syncName(Method method) {
+        String name = method.getName();
+        if (name.endsWith(ASYNC_SUFFIX) && name.length() > ASYNC_SUFFIX.length()) {
+            return name.substring(0, name.length() - ASYNC_SUFFIX.length());
+        }
+        return name;
+    }
+
+    /**
+     * Executor used when none is configured: one virtual thread per task on JDK 21+, otherwise a pool of
+     * {@code platformThreads} daemon threads that time out when idle.
+     */
+    static Executor defaultExecutor(int platformThreads) {
+        try {
+            // Looked up reflectively so the library still builds and runs on Java 11
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(platformThreads, platformThreads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), r -> {
+                        Thread t = new Thread(r, "mini-orm-async-" + counter.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+            pool.allowCoreThreadTimeOut(true);
+            return pool;
+        }
+    }
+
+    <R> CompletableFuture<R> submit(AsyncTask<R> task) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                try {
+                    if (permits != null) {
+                        permits.acquire();
+                    }
+                    try {
+                        future.complete(task.call());
+                    } finally {
+                        if (permits != null) {
+                            permits.release();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @FunctionalInterface
+    interface AsyncTask<R> {
+        R call() throws Throwable;
+    }
+}
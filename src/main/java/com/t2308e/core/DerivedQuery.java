@@ -0,0 +1,357 @@
+package com.t2308e.core;
+
+import com.t2308e.exception.MiniOrmException;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Precompiled form of a derived query method such as {@code findByEmailAndAgeGreaterThan}, produced once by
+ * {@link QueryMethodParser} when the repository is created.
+ * <p>
+ * The SQL is built up front; only queries with an {@code In}/{@code NotIn} condition rebuild it per call, because
+ * the number of placeholders depends on the size of the collection argument.
+ * <p>
+ * A condition on a {@code @MyManyToOne} property compares its foreign key column; the argument may be the referenced
+ * entity or its id.
+ */
+final class DerivedQuery {
+
+    enum Action { FIND, COUNT, EXISTS, DELETE }
+
+    enum ResultKind { LIST, OPTIONAL, SINGLE, STREAM, ITERATOR, SLICE, PAGE, LONG, INT, BOOLEAN, VOID }
+
+    enum Operator {
+        EQUALS(1), NOT_EQUALS(1),
+        GREATER_THAN(1), GREATER_THAN_EQUAL(1), LESS_THAN(1), LESS_THAN_EQUAL(1), BETWEEN(2),
+        LIKE(1), NOT_LIKE(1), STARTING_WITH(1), ENDING_WITH(1), CONTAINING(1),
+        IN(1), NOT_IN(1),
+        IS_NULL(0), IS_NOT_NULL(0), TRUE(0), FALSE(0);
+
+        final int arity;
+
+        Operator(int arity) {
+            this.arity = arity;
+        }
+    }
+
+    /**
+     * One {@code property operator} condition; {@code argIndex} is the position of its first method argument.
+     */
+    static final class Criterion {
+        // Not a backslash: MySQL reads '\' in a literal as an escaped quote, leaving the string unterminated
+        private static final char LIKE_ESCAPE = '!';
+
+        final String column;
+        final Operator operator;
+        final boolean ignoreCase;
+        final int argIndex;
+        final Field referencedId; // id field of the referenced entity for a @MyManyToOne column, else null
+
+        Criterion(String column, Operator operator, boolean ignoreCase, int argIndex, Field referencedId) {
+            this.column = column;
+            this.operator = operator;
+            this.ignoreCase = ignoreCase;
+            this.argIndex = argIndex;
+            this.referencedId = referencedId;
+        }
+
+        void appendSql(StringBuilder sql, Object[] args) {
+            String lhs = ignoreCase ? "LOWER(" + column + ")" : column;
+            String param = ignoreCase ? "LOWER(?)" : "?";
+            switch (operator) {
+                case EQUALS: sql.append(lhs).append(" = ").append(param); break;
+                case NOT_EQUALS: sql.append(lhs).append(" <> ").append(param); break;
+                case GREATER_THAN: sql.append(column).append(" > ?"); break;
+                case GREATER_THAN_EQUAL: sql.append(column).append(" >= ?"); break;
+                case LESS_THAN: sql.append(column).append(" < ?"); break;
+                case LESS_THAN_EQUAL: sql.append(column).append(" <= ?"); break;
+                case BETWEEN: sql.append(column).append(" BETWEEN ? AND ?"); break;
+                case LIKE: sql.append(lhs).append(" LIKE ").append(param); break;
+                case NOT_LIKE: sql.append(lhs).append(" NOT LIKE ").append(param); break;
+                case STARTING_WITH:
+                case ENDING_WITH:
+                case CONTAINING: sql.append(lhs).append(" LIKE ").append(param).append(" ESCAPE '").append(LIKE_ESCAPE).append('\''); break;
+                case IN:
+                case NOT_IN: appendIn(sql, args); break;
+                case IS_NULL: sql.append(column).append(" IS NULL"); break;
+                case IS_NOT_NULL: sql.append(column).append(" IS NOT NULL"); break;
+                case TRUE: sql.append(column).append(" = TRUE"); break;
+                case FALSE: sql.append(column).append(" = FALSE"); break;
+                default: throw new IllegalStateException(operator.name());
+            }
+        }
+
+        private void appendIn(StringBuilder sql, Object[] args) {
+            int size = collectionArg(args).size();
+            if (size == 0) {
+                // "x IN ()" is not valid SQL; an empty IN matches nothing, an empty NOT IN matches everything
+                sql.append(operator == Operator.IN ? "1 = 0" : "1 = 1");
+                return;
+            }
+            sql.append(column).append(operator == Operator.IN ? " IN (" : " NOT IN (");
+            for (int i = 0; i < size; i++) {
+                sql.append(i == 0 ? "?" : ", ?");
+            }
+            sql.append(')');
+        }
+
+        int bind(PreparedStatement stmt, int position, Object[] args) throws SQLException {
+            switch (operator) {
+                case IS_NULL:
+                case IS_NOT_NULL:
+                case TRUE:
+                case FALSE:
+                    return position;
+                case BETWEEN:
+                    stmt.setObject(position, args[argIndex]);
+                    stmt.setObject(position + 1, args[argIndex + 1]);
+                    return position + 2;
+                case IN:
+                case NOT_IN:
+                    for (Object value : collectionArg(args)) {
+                        stmt.setObject(position++, parameter(value));
+                    }
+                    return position;
+                case STARTING_WITH:
+                    stmt.setString(position, escapeLike(args[argIndex]) + "%");
+                    return position + 1;
+                case ENDING_WITH:
+                    stmt.setString(position, "%" + escapeLike(args[argIndex]));
+                    return position + 1;
+                case CONTAINING:
+                    stmt.setString(position, "%" + escapeLike(args[argIndex]) + "%");
+                    return position + 1;
+                default:
+                    stmt.setObject(position, parameter(args[argIndex]));
+                    return position + 1;
+            }
+        }
+
+        /**
+         * The value bound for this condition's (single) argument.
+         */
+        Object argument(Object[] args) {
+            return parameter(args[argIndex]);
+        }
+
+        private Object parameter(Object value) {
+            if (referencedId == null || !referencedId.getDeclaringClass().isInstance(value)) {
+                return value;
+            }
+            try {
+                return referencedId.get(value);
+            } catch (IllegalAccessException e) {
+                throw new MiniOrmException("Cannot read id of " + value.getClass().getSimpleName(), e);
+            }
+        }
+
+        private Collection<?> collectionArg(Object[] args) {
+            Object value = args[argIndex];
+            if (value instanceof Collection) {
+                return (Collection<?>) value;
+            }
+            if (value instanceof Object[]) {
+                return List.of((Object[]) value);
+            }
+            throw new MiniOrmException("Argument for " + column + " " + operator + " must be a collection or array, got "
+                    + (value == null ? "null" : value.getClass().getName()));
+        }
+
+        private static String escapeLike(Object value) {
+            if (value == null) {
+                throw new MiniOrmException("LIKE argument must not be null");
+            }
+            String escape = String.valueOf(LIKE_ESCAPE);
+            return value.toString().replace(escape, escape + escape).replace("%", escape + "%").replace("_", escape + "_");
+        }
+    }
+
+    /**
+     * A {@code @MyManyToOne} column whose target's columns follow {@code offset} others in each row.
+     */
+    static final class JoinFetch {
+        final int columnIndex; // in the entity's getColumnNames()
+        final Class<?> targetClass;
+        final int offset;
+
+        JoinFetch(int columnIndex, Class<?> targetClass, int offset) {
+            this.columnIndex = columnIndex;
+            this.targetClass = targetClass;
+            this.offset = offset;
+        }
+    }
+
+    private final Method method;
+    private final Action action;
+    private final ResultKind resultKind;
+    private final List<List<Criterion>> predicate; // OR of AND groups
+    private final String head;   // everything before WHERE
+    private final String tail;   // ORDER BY / LIMIT; empty for paged queries, whose last argument is a PageRequest
+    private final String sql;    // null if it depends on IN argument sizes
+    private final boolean unique; // Optional/single result without an explicit limit: fail on a second row
+    private final List<String> argumentColumns; // column each method argument is compared with, for logging
+    private final Projection projection; // null when rows map to entities
+    private final List<JoinFetch> joinFetches;
+    private final boolean entityArguments; // some condition accepts a referenced entity as its argument
+
+    DerivedQuery(Method method, Action action, ResultKind resultKind, List<List<Criterion>> predicate,
+                 String head, String tail, boolean unique, Projection projection, List<JoinFetch> joinFetches) {
+        this.method = method;
+        this.action = action;
+        this.resultKind = resultKind;
+        this.predicate = predicate;
+        this.head = head;
+        this.tail = tail;
+        this.unique = unique;
+        this.projection = projection;
+        this.joinFetches = joinFetches;
+        List<String> columns = new ArrayList<>();
+        for (List<Criterion> group : predicate) {
+            for (Criterion criterion : group) {
+                for (int i = 0; i < criterion.operator.arity; i++) {
+                    columns.add(criterion.column);
+                }
+            }
+        }
+        this.argumentColumns = List.copyOf(columns);
+        this.entityArguments = predicate.stream().flatMap(List::stream).anyMatch(c -> c.referencedId != null);
+        boolean dynamic = predicate.stream().flatMap(List::stream)
+                .anyMatch(c -> c.operator == Operator.IN || c.operator == Operator.NOT_IN);
+        this.sql = dynamic ? null : buildSql(null);
+    }
+
+    Method getMethod() { return method; }
+    Action getAction() { return action; }
+    ResultKind getResultKind() { return resultKind; }
+    boolean isUnique() { return unique; }
+    List<String> getArgumentColumns() { return argumentColumns; }
+
+    /**
+     * Projection the selected columns are mapped to, or null if the query selects and returns whole entities.
+     */
+    Projection getProjection() { return projection; }
+
+    /**
+     * True if the SQL sorts or limits its rows ({@code OrderBy}, {@code Top}/{@code First}).
+     */
+    boolean isOrderedOrLimited() { return !tail.isEmpty(); }
+
+    /**
+     * The case-sensitive equality condition on {@code column} that every matching row satisfies, or null: the query
+     * must be a single AND group for that to hold.
+     */
+    Criterion equalityOn(String column) {
+        if (predicate.size() != 1) {
+            return null;
+        }
+        for (Criterion criterion : predicate.get(0)) {
+            if (criterion.operator == Operator.EQUALS && !criterion.ignoreCase
+                    && (criterion.column.equals(column) || criterion.column.equals("t." + column))) {
+                return criterion;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * References loaded by joins in this query ({@code @MyJoinFetch}); empty for most queries.
+     */
+    List<JoinFetch> getJoinFetches() { return joinFetches; }
+
+    /**
+     * {@code args} as they are logged: referenced entities are replaced by their ids, so the log shows what was bound
+     * rather than the entity's {@code toString()}.
+     */
+    Object[] getLoggedArguments(Object[] args) {
+        if (!entityArguments || args == null) {
+            return args;
+        }
+        Object[] logged = args.clone();
+        for (List<Criterion> group : predicate) {
+            for (Criterion criterion : group) {
+                if (criterion.referencedId == null || criterion.operator.arity != 1) {
+                    continue;
+                }
+                if (criterion.operator == Operator.IN || criterion.operator == Operator.NOT_IN) {
+                    List<Object> ids = new ArrayList<>();
+                    for (Object value : criterion.collectionArg(args)) {
+                        ids.add(criterion.parameter(value));
+                    }
+                    logged[criterion.argIndex] = ids;
+                } else {
+                    logged[criterion.argIndex] = criterion.parameter(args[criterion.argIndex]);
+                }
+            }
+        }
+        return logged;
+    }
+
+    /**
+     * SQL for this invocation; the precompiled string unless the query has an {@code In} condition.
+     */
+    String getSql(Object[] args) {
+        return sql != null ? sql : buildSql(args);
+    }
+
+    /**
+     * The SELECT/DELETE up to, but excluding, the WHERE clause.
+     */
+    String getHead() {
+        return head;
+    }
+
+    /**
+     * The conditions without {@code WHERE}, or an empty string if there are none.
+     */
+    String getWhere(Object[] args) {
+        StringBuilder sb = new StringBuilder();
+        appendWhere(sb, args);
+        return sb.toString();
+    }
+
+    /**
+     * Binds the condition arguments from parameter 1 on and returns the next free parameter position.
+     */
+    int bind(PreparedStatement stmt, Object[] args) throws SQLException {
+        int position = 1;
+        for (List<Criterion> group : predicate) {
+            for (Criterion criterion : group) {
+                position = criterion.bind(stmt, position, args);
+            }
+        }
+        return position;
+    }
+
+    private String buildSql(Object[] args) {
+        StringBuilder sb = new StringBuilder(head);
+        if (!predicate.isEmpty()) {
+            sb.append(" WHERE ");
+            appendWhere(sb, args);
+        }
+        return sb.append(tail).toString();
+    }
+
+    private void appendWhere(StringBuilder sb, Object[] args) {
+        for (int g = 0; g < predicate.size(); g++) {
+            sb.append(g == 0 ? "" : " OR ");
+            List<Criterion> group = predicate.get(g);
+            for (int c = 0; c < group.size(); c++) {
+                if (c > 0) {
+                    sb.append(" AND ");
+                }
+                group.get(c).appendSql(sb, args);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return method.getName() + " -> " + (sql != null ? sql : head + " WHERE ... IN (...)" + tail);
+    }
+}
@@ -0,0 +1,76 @@
+package com.t2308e.core;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Column snapshots of the entities a repository has loaded or saved, so {@code save} can write only the columns
+ * that changed since (see {@link RepositorySettings#setDirtyTracking}).
+ * <p>
+ * Entities are keyed by identity and held weakly: an entity the application drops takes its snapshot with it, and
+ * {@code equals} overrides on entities play no part.
+ */
+final class DirtyTracker<T> {
+
+    private final EntityMapper<T> mapper;
+    private final ConcurrentHashMap<IdentityKey, Object[]> snapshots = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> collected = new ReferenceQueue<>();
+
+    DirtyTracker(EntityMapper<T> mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Records the current column values of {@code entity} as its database state.
+     */
+    void track(T entity) {
+        expungeCollected();
+        snapshots.put(new IdentityKey(entity, collected), mapper.snapshot(entity));
+    }
+
+    /**
+     * Columns of {@code entity} changed since it was tracked; 0 if none, -1 if it is not tracked.
+     */
+    long dirtyMask(T entity) {
+        Object[] snapshot = snapshots.get(new IdentityKey(entity, null));
+        return snapshot != null ? mapper.dirtyMask(entity, snapshot) : -1L;
+    }
+
+    private void expungeCollected() {
+        Object key;
+        while ((key = collected.poll()) != null) {
+            snapshots.remove(key);
+        }
+    }
+
+    /**
+     * Weak reference compared by referent identity. A cleared key only equals itself, which is how the
+     * queued reference removes its own entry.
+     */
+    private static final class IdentityKey extends WeakReference<Object> {
+        private final int hash;
+
+        IdentityKey(Object referent, ReferenceQueue<Object> queue) {
+            super(referent, queue);
+            this.hash = System.identityHashCode(referent);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof IdentityKey)) {
+                return false;
+            }
+            Object referent = get();
+            return referent != null && referent == ((IdentityKey) o).get();
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package com.t2308e.core;
+
+import com.t2308e.exception.MiniOrmException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Per-entity row mapper and property access, built once per entity class and {@link AccessorMode}.
+ * <p>
+ * Rows are mapped by a handle {@link RowMappers compiled} for the entity when the mapper is built. It reads primitive,
+ * boxed and {@code String} columns with the typed {@code ResultSet} getter and passes them straight to the setter, so
+ * hydrating e.g. {@code int age} neither boxes nor goes through {@link #convertToFieldType}.
+ * <p>
+ * The column value of a {@code @MyManyToOne} field is the referenced entity's id: reading the column returns that id,
+ * and writing an id sets the field to a reference holding only the id, which {@link AssociationLoader} replaces with
+ * the loaded entity.
+ */
+final class EntityMapper<T> {
+
+    private static final Map<AccessorMode, Map<Class<?>, EntityMapper<?>>> REGISTRY = new EnumMap<>(AccessorMode.class);
+
+    static {
+        for (AccessorMode mode : AccessorMode.values()) {
+            REGISTRY.put(mode, new ConcurrentHashMap<>());
+        }
+    }
+
+    private final EntityMetadata metadata;
+    private final Supplier<T> instantiator;
+    private final PropertyAccessor idAccessor;
+    private final Class<?> idType;
+    private final PropertyAccessor[] columnAccessors;
+    private final MethodHandle rowMapper; // (ResultSet, int offset)Object
+
+    private EntityMapper(Class<T> entityClass, AccessorMode mode) {
+        this.metadata = EntityMetadata.of(entityClass);
+        this.instantiator = PropertyAccessors.instantiator(entityClass, mode);
+
+        Field idField = metadata.getIdField();
+        this.idType = idField.getType();
+        this.idAccessor = PropertyAccessors.forField(idField, mode);
+
+        List<Field> fields = metadata.getColumnFields();
+        this.columnAccessors = new PropertyAccessor[fields.size()];
+        for (int i = 0; i < fields.size(); i++) {
+            columnAccessors[i] = PropertyAccessors.forField(fields.get(i), mode);
+            if (metadata.getManyToOneColumnIndexes().contains(i)) {
+                columnAccessors[i] = new ReferenceAccessor(columnAccessors[i], fields.get(i).getType(), mode);
+            }
+        }
+        this.rowMapper = RowMappers.compile(metadata, columnAccessors, mode);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> EntityMapper<T> of(Class<T> entityClass, AccessorMode mode) {
+        return (EntityMapper<T>) REGISTRY.get(mode).computeIfAbsent(entityClass, c -> new EntityMapper<>(entityClass, mode));
+    }
+
+    EntityMetadata getMetadata() {
+        return metadata;
+    }
+
+    T newInstance() {
+        return instantiator.get();
+    }
+
+    /**
+     * Maps the current row of a result set produced by one of the metadata SELECTs (id first, then the columns).
+     */
+    T mapRow(ResultSet rs) throws SQLException {
+        return mapRow(rs, 0);
+    }
+
+    /**
+     * Maps this entity's columns from a row where they follow {@code offset} other columns, as in a join.
+     */
+    @SuppressWarnings("unchecked")
+    T mapRow(ResultSet rs, int offset) throws SQLException {
+        try {
+            Object entity = rowMapper.invokeExact(rs, offset);
+            return (T) entity;
+        } catch (SQLException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable e) {
+            throw new MiniOrmException("Failed to map a row to " + metadata.getEntityClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Builds an entity from an id and column values as produced by {@link #snapshot(Object)}.
+     */
+    T hydrate(Object id, Object[] columnValues) {
+        T entity = instantiator.get();
+        idAccessor.set(entity, id);
+        for (int i = 0; i < columnAccessors.length; i++) {
+            Object value = columnValues[i];
+            columnAccessors[i].set(entity, value instanceof byte[] ? ((byte[]) value).clone() : value);
+        }
+        return entity;
+    }
+
+    Object getId(Object entity) {
+        return idAccessor.get(entity);
+    }
+
+    /**
+     * Sets the id from a raw JDBC value such as a generated key, converting it to the id field's type.
+     */
+    void setId(Object entity, Object rawValue) {
+        idAccessor.set(entity, convertToFieldType(rawValue, idType));
+    }
+
+    Class<?> getIdType() {
+        return idType;
+    }
+
+    Object getColumnValue(Object entity, int columnIndex) {
+        return columnAccessors[columnIndex].get(entity);
+    }
+
+    /**
+     * Sets a column's field; for a {@code @MyManyToOne} column {@code value} may be the referenced entity or its id.
+     */
+    void setColumnValue(Object entity, int columnIndex, Object value) {
+        columnAccessors[columnIndex].set(entity, value);
+    }
+
+    /**
+     * Current {@code @MyVersion} value; only valid for versioned entities.
+     */
+    Object getVersion(Object entity) {
+        return columnAccessors[metadata.getVersionColumnIndex()].get(entity);
+    }
+
+    /**
+     * Sets a versioned entity's version, converting {@code version} to the field's type.
+     */
+    void setVersion(Object entity, long version) {
+        int index = metadata.getVersionColumnIndex();
+        columnAccessors[index].set(entity, convertToFieldType(version, metadata.getColumnFields().get(index).getType()));
+    }
+
+    /**
+     * Version a new row starts at: the entity's own value, or 0 if it is null.
+     */
+    long initialVersion(Object entity) {
+        Object version = getVersion(entity);
+        return version != null ? ((Number) version).longValue() : 0L;
+    }
+
+    /**
+     * Mirrors the {@code version = version + 1} of a successful UPDATE on the entity.
+     */
+    void incrementVersion(Object entity) {
+        if (metadata.isVersioned()) {
+            setVersion(entity, initialVersion(entity) + 1);
+        }
+    }
+
+    /**
+     * Current column values of {@code entity}, in metadata column order.
+     */
+    Object[] snapshot(Object entity) {
+        Object[] values = new Object[columnAccessors.length];
+        for (int i = 0; i < values.length; i++) {
+            Object value = columnAccessors[i].get(entity);
+            // byte[] columns can be modified in place, so keep our own copy
+            values[i] = value instanceof byte[] ? ((byte[]) value).clone() : value;
+        }
+        return values;
+    }
+
+    /**
+     * Bits of the columns whose value differs from {@code snapshot}; see {@link EntityMetadata#getAllColumnsMask()}.
+     */
+    long dirtyMask(Object entity, Object[] snapshot) {
+        long mask = 0L;
+        for (int i = 0; i < columnAccessors.length; i++) {
+            if (!sameValue(columnAccessors[i].get(entity), snapshot[i])) {
+                if (columnAccessors.length >= 64) {
+                    return metadata.getAllColumnsMask();
+                }
+                mask |= 1L << i;
+            }
+        }
+        return mask;
+    }
+
+    private static boolean sameValue(Object a, Object b) {
+        if (a == b) {
+            return true;
+        }
+        if (a == null || b == null) {
+            return false;
+        }
+        if (a instanceof byte[] && b instanceof byte[]) {
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        }
+        return a.equals(b);
+    }
+
+    static Object convertToFieldType(Object dbValue, Class<?> fieldType) {
+        if (dbValue == null) {
+            return null;
+        }
+        // Basic conversion, can be expanded
+        if (fieldType == Long.class || fieldType == long.class) {
+            return ((Number) dbValue).longValue();
+        }
+        if (fieldType == Integer.class || fieldType == int.class) {
+            return ((Number) dbValue).intValue();
+        }
+        if (fieldType == Double.class || fieldType == double.class) {
+            return ((Number) dbValue).doubleValue();
+        }
+        if (fieldType == Float.class || fieldType == float.class) {
+            return ((Number) dbValue).floatValue();
+        }
+        if (fieldType == Boolean.class || fieldType == boolean.class) {
+            if (dbValue instanceof Number) {
+                return ((Number) dbValue).intValue() != 0;
+            }
+            return (Boolean) dbValue;
+        }
+        if (fieldType == String.class && dbValue instanceof UUID) {
+            return dbValue.toString();
+        }
+        if (fieldType == UUID.class && dbValue instanceof String) {
+            return UUID.fromString((String) dbValue);
+        }
+        // For String, Date, etc., JDBC driver usually handles it well with getObject()
+        return dbValue;
+    }
+
+    /**
+     * Column access to a {@code @MyManyToOne} field in terms of the referenced entity's id.
+     */
+    private static final class ReferenceAccessor implements PropertyAccessor {
+        private final PropertyAccessor field;
+        private final Class<?> targetClass;
+        private final AccessorMode mode;
+        private volatile EntityMapper<?> target; // resolved on first use; the target may reference this entity
+
+        ReferenceAccessor(PropertyAccessor field, Class<?> targetClass, AccessorMode mode) {
+            this.field = field;
+            this.targetClass = targetClass;
+            this.mode = mode;
+        }
+
+        @Override
+        public Object get(Object entity) {
+            Object reference = field.get(entity);
+            return reference != null ? target().getId(reference) : null;
+        }
+
+        @Override
+        public void set(Object entity, Object value) {
+            if (value == null || targetClass.isInstance(value)) {
+                field.set(entity, value);
+                return;
+            }
+            EntityMapper<?> mapper = target();
+            Object reference = mapper.newInstance();
+            mapper.setId(reference, value);
+            field.set(entity, reference);
+        }
+
+        private EntityMapper<?> target() {
+            EntityMapper<?> mapper = target;
+            if (mapper == null) {
+                mapper = EntityMapper.of(targetClass, mode);
+                target = mapper;
+            }
+            return mapper;
+        }
+    }
+}
@@ -1,4 +1,243 @@
 package com.t2308e.core;
 
-public class EntityMetadata {
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyManyToOne;
+import com.t2308e.util.ReflectionUtil;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable mapping model of an entity class, computed once per class and shared through a global registry.
+ * <p>
+ * All generated SELECTs list columns explicitly in the order id, then {@link #getColumnNames()}, so rows can be
+ * read by position via {@link #getColumnIndex(String)} instead of by name.
+ * <p>
+ * A {@code @MyVersion} field is an ordinary column for reads and inserts, but every generated UPDATE sets it to
+ * {@code version + 1} instead of binding it, and adds {@code AND version = ?} to the WHERE clause.
+ * <p>
+ * A {@code @MyManyToOne} field is the column holding the referenced entity's id; {@code @MyOneToMany} fields are not
+ * columns at all. See {@link AssociationLoader} for how both are loaded.
+ */
+public final class EntityMetadata {
+
+    private static final Map<Class<?>, EntityMetadata> REGISTRY = new ConcurrentHashMap<>();
+
+    private final Class<?> entityClass;
+    private final MyEntity entityConfig;
+    private final String tableName;
+    private final Field idField;
+    private final String idColumnName;
+    private final List<String> columnNames;   // non-id columns, declaration order
+    private final List<Field> columnFields;   // parallel to columnNames
+    private final Map<String, Integer> columnIndexes; // 1-based position in selectColumns, id included
+    private final Map<String, Field> propertyFields;  // Java field name -> field, id included
+    private final Map<String, String> propertyColumns; // Java field name -> column name, id included
+    private final String selectColumns;
+    private final List<String> updateParameterColumns; // columnNames except the version, the id, then the version
+    private final Field versionField;        // null unless @MyVersion
+    private final String versionColumnName;  // null unless @MyVersion
+    private final int versionColumnIndex;    // index in columnNames, or -1
+    private final List<Integer> manyToOneColumnIndexes; // indexes in columnNames of @MyManyToOne fields
+    private final List<Field> oneToManyFields;
+
+    private final String insertSql;
+    private final String insertWithIdSql;
+    private final String updateSql;
+    private final String selectByIdSql;
+    private final String selectAllSql;
+    private final String deleteByIdSql;
+    private final String countSql;
+    private final long allColumnsMask;
+    private final Map<Long, String> partialUpdateSql = new ConcurrentHashMap<>();
+
+    private EntityMetadata(Class<?> entityClass) {
+        this.entityClass = entityClass;
+        this.tableName = ReflectionUtil.getTableName(entityClass);
+        this.entityConfig = entityClass.getAnnotation(MyEntity.class);
+        this.idField = ReflectionUtil.getIdField(entityClass);
+        this.idColumnName = ReflectionUtil.getColumnName(idField);
+
+        Map<String, Field> fields = ReflectionUtil.getColumnFields(entityClass);
+        this.columnNames = List.copyOf(fields.keySet());
+        this.columnFields = List.copyOf(fields.values());
+
+        Map<String, Integer> indexes = new HashMap<>();
+        indexes.put(idColumnName, 1);
+        for (int i = 0; i < columnNames.size(); i++) {
+            indexes.put(columnNames.get(i), i + 2);
+        }
+        this.columnIndexes = Map.copyOf(indexes);
+
+        Map<String, Field> byProperty = new HashMap<>();
+        Map<String, String> columnsByProperty = new HashMap<>();
+        byProperty.put(idField.getName(), idField);
+        columnsByProperty.put(idField.getName(), idColumnName);
+        for (int i = 0; i < columnNames.size(); i++) {
+            byProperty.put(columnFields.get(i).getName(), columnFields.get(i));
+            columnsByProperty.put(columnFields.get(i).getName(), columnNames.get(i));
+        }
+        this.propertyFields = Map.copyOf(byProperty);
+        this.propertyColumns = Map.copyOf(columnsByProperty);
+
+        List<String> selected = new ArrayList<>();
+        selected.add(idColumnName);
+        selected.addAll(columnNames);
+        this.selectColumns = String.join(", ", selected);
+
+        this.versionField = ReflectionUtil.getVersionField(entityClass);
+        this.versionColumnName = versionField != null ? ReflectionUtil.getColumnName(versionField) : null;
+        this.versionColumnIndex = versionField != null ? columnNames.indexOf(versionColumnName) : -1;
+
+        List<Integer> references = new ArrayList<>();
+        for (int i = 0; i < columnFields.size(); i++) {
+            if (columnFields.get(i).isAnnotationPresent(MyManyToOne.class)) {
+                references.add(i);
+            }
+        }
+        this.manyToOneColumnIndexes = List.copyOf(references);
+        this.oneToManyFields = List.copyOf(ReflectionUtil.getOneToManyFields(entityClass));
+
+        List<String> updateParameters = new ArrayList<>(columnNames);
+        updateParameters.remove(versionColumnName);
+        updateParameters.add(idColumnName);
+        if (versionField != null) {
+            updateParameters.add(versionColumnName);
+        }
+        this.updateParameterColumns = List.copyOf(updateParameters);
+
+        String placeholders = columnNames.stream().map(c -> "?").collect(Collectors.joining(", "));
+        this.insertSql = String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, String.join(", ", columnNames), placeholders);
+        this.insertWithIdSql = String.format("INSERT INTO %s (%s, %s) VALUES (?, %s)", tableName, idColumnName,
+                String.join(", ", columnNames), placeholders);
+        this.selectAllSql = String.format("SELECT %s FROM %s", selectColumns, tableName);
+        this.selectByIdSql = String.format("%s WHERE %s = ?", selectAllSql, idColumnName);
+        this.deleteByIdSql = String.format("DELETE FROM %s WHERE %s = ?", tableName, idColumnName);
+        this.countSql = String.format("SELECT COUNT(*) FROM %s", tableName);
+        this.allColumnsMask = columnNames.size() >= 64 ? -1L : (1L << columnNames.size()) - 1;
+        this.updateSql = buildUpdateSql(allColumnsMask);
+    }
+
+    /**
+     * Returns the metadata for {@code entityClass}, building and registering it on first use.
+     */
+    public static EntityMetadata of(Class<?> entityClass) {
+        return REGISTRY.computeIfAbsent(entityClass, EntityMetadata::new);
+    }
+
+    public Class<?> getEntityClass() { return entityClass; }
+    public MyEntity getEntityConfig() { return entityConfig; }
+    public String getTableName() { return tableName; }
+    public Field getIdField() { return idField; }
+    public String getIdColumnName() { return idColumnName; }
+    public List<String> getColumnNames() { return columnNames; }
+    public List<Field> getColumnFields() { return columnFields; }
+    public int getColumnCount() { return columnNames.size(); }
+    public String getSelectColumns() { return selectColumns; }
+
+    /**
+     * 1-based position of {@code columnName} in the generated SELECT lists, or -1 if it is not mapped.
+     */
+    public int getColumnIndex(String columnName) {
+        Integer index = columnIndexes.get(columnName);
+        return index != null ? index : -1;
+    }
+
+    /**
+     * Column mapped by the Java field {@code property} (e.g. {@code "userName"} -> {@code "user_name"}), or null.
+     */
+    public String getPropertyColumn(String property) {
+        return propertyColumns.get(property);
+    }
+
+    /**
+     * Field for the Java property name, or null if it is not a mapped column.
+     */
+    public Field getPropertyField(String property) {
+        return propertyFields.get(property);
+    }
+
+    /**
+     * Whether the entity has a {@code @MyVersion} column.
+     */
+    public boolean isVersioned() { return versionField != null; }
+    public Field getVersionField() { return versionField; }
+    public String getVersionColumnName() { return versionColumnName; }
+
+    /**
+     * Index of the version column in {@link #getColumnNames()}, or -1 if the entity is not versioned.
+     */
+    public int getVersionColumnIndex() { return versionColumnIndex; }
+
+    /**
+     * Indexes in {@link #getColumnNames()} of the {@code @MyManyToOne} columns.
+     */
+    public List<Integer> getManyToOneColumnIndexes() { return manyToOneColumnIndexes; }
+    public List<Field> getOneToManyFields() { return oneToManyFields; }
+
+    /**
+     * Whether loading this entity involves other tables, i.e. it has {@code @MyManyToOne} or {@code @MyOneToMany}
+     * fields.
+     */
+    public boolean hasAssociations() {
+        return !manyToOneColumnIndexes.isEmpty() || !oneToManyFields.isEmpty();
+    }
+
+    public String getInsertSql() { return insertSql; }
+
+    /**
+     * INSERT for an entity whose id was assigned by the application: the id, then the columns.
+     */
+    public String getInsertWithIdSql() { return insertWithIdSql; }
+    public String getUpdateSql() { return updateSql; }
+
+    /**
+     * Column bound to each parameter of {@link #getUpdateSql()}, in order: the columns other than the version, the
+     * id, then the expected version.
+     */
+    public List<String> getUpdateParameterColumns() { return updateParameterColumns; }
+
+    public String getSelectByIdSql() { return selectByIdSql; }
+    public String getSelectAllSql() { return selectAllSql; }
+    public String getDeleteByIdSql() { return deleteByIdSql; }
+    public String getCountSql() { return countSql; }
+
+    /**
+     * Bit mask with one bit per column in {@link #getColumnNames()} order. Entities with 64 or more columns
+     * are always treated as fully dirty.
+     */
+    public long getAllColumnsMask() { return allColumnsMask; }
+
+    /**
+     * UPDATE that sets only the columns whose bits are set in {@code columnMask}, followed by the id parameter and,
+     * for versioned entities, the expected version. Generated once per distinct mask and cached.
+     */
+    public String getUpdateSql(long columnMask) {
+        if (columnMask == allColumnsMask || columnNames.size() >= 64) {
+            return updateSql;
+        }
+        return partialUpdateSql.computeIfAbsent(columnMask, this::buildUpdateSql);
+    }
+
+    private String buildUpdateSql(long mask) {
+        StringBuilder set = new StringBuilder();
+        for (int i = 0; i < columnNames.size(); i++) {
+            if (i != versionColumnIndex && (columnNames.size() >= 64 || (mask & (1L << i)) != 0)) {
+                if (set.length() > 0) {
+                    set.append(", ");
+                }
+                set.append(columnNames.get(i)).append(" = ?");
+            }
+        }
+        if (versionColumnName == null) {
+            return String.format("UPDATE %s SET %s WHERE %s = ?", tableName, set, idColumnName);
+        }
+        set.append(set.length() > 0 ? ", " : "").append(versionColumnName).append(" = ").append(versionColumnName).append(" + 1");
+        return String.format("UPDATE %s SET %s WHERE %s = ? AND %s = ?", tableName, set, idColumnName, versionColumnName);
+    }
 }
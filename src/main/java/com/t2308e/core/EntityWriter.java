@@ -0,0 +1,582 @@
+package com.t2308e.core;
+
+import com.t2308e.config.StatementCacheStats;
+import com.t2308e.config.StatementCaching;
+import com.t2308e.dialect.Dialect;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.exception.OptimisticLockException;
+import com.t2308e.id.IdGenerator;
+import com.t2308e.logging.SqlLogger;
+import com.t2308e.metrics.Histogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Batched INSERT/UPDATE/DELETE for one entity class on a caller-supplied connection.
+ * Transaction boundaries are left to the caller.
+ * <p>
+ * UPDATEs of {@code @MyVersion} entities check each row's update count and throw {@link OptimisticLockException}
+ * for the first one that matched nothing. Versions in memory are not touched: the caller increments them with
+ * {@link EntityMapper#incrementVersion} once its transaction has committed.
+ * <p>
+ * An entity inserted with an id already set (assigned by an id generator rather than the database) is written with
+ * {@link EntityMetadata#getInsertWithIdSql()}; the others with {@link EntityMetadata#getInsertSql()}, reading the
+ * generated key back. With an {@link IdGenerator} (a {@code @MyId} strategy other than {@code IDENTITY}) new entities
+ * get their id from it first, so whole batches go out without generated-key retrieval. When the {@link Dialect} has a
+ * multi-row insert returning ids, entities without one are inserted with that instead, many rows per statement.
+ * <p>
+ * {@link #upsert} writes entities with the dialect's native upsert, one round trip per chunk of rows.
+ */
+final class EntityWriter<T> {
+
+    private final EntityMapper<T> mapper;
+    private final EntityMetadata metadata;
+    private final int batchSize;
+    private final SqlLogger sqlLogger;
+    private final Histogram batchSizes; // rows per executeBatch(), or null
+    private final IdGenerator<?> idGenerator; // null: ids come from the database
+    private final Dialect dialect;
+
+    EntityWriter(EntityMapper<T> mapper, int batchSize, SqlLogger sqlLogger, Histogram batchSizes,
+                 IdGenerator<?> idGenerator, Dialect dialect) {
+        this.mapper = mapper;
+        this.metadata = mapper.getMetadata();
+        this.batchSize = batchSize;
+        this.sqlLogger = sqlLogger;
+        this.batchSizes = batchSizes;
+        this.idGenerator = idGenerator;
+        this.dialect = dialect;
+    }
+
+    private int[] executeBatch(PreparedStatement stmt, int rows) throws SQLException {
+        int[] counts = stmt.executeBatch();
+        if (batchSizes != null) {
+            batchSizes.record(rows);
+        }
+        return counts;
+    }
+
+    /**
+     * Sets the id of a new {@code entity} from the id generator; false if there is none or the id is already set.
+     */
+    boolean assignId(T entity) {
+        if (idGenerator == null || !isNew(mapper.getId(entity))) {
+            return false;
+        }
+        mapper.setId(entity, idGenerator.nextId());
+        return true;
+    }
+
+    /**
+     * Undoes {@link #assignId} after a failed insert, so that saving the entity again inserts it instead of updating.
+     */
+    void clearId(T entity) {
+        mapper.setId(entity, mapper.getIdType().isPrimitive() ? 0L : null);
+    }
+
+    /**
+     * The current ids of {@code entities}, for {@link #restoreIds} once the transaction that inserts them rolls back.
+     */
+    Object[] captureIds(List<? extends T> entities) {
+        Object[] ids = new Object[entities.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = mapper.getId(entities.get(i));
+        }
+        return ids;
+    }
+
+    /**
+     * Puts back the ids {@link #captureIds} saw, undoing ids generated or read back for rows that were rolled back;
+     * otherwise saving those entities again would update rows that do not exist.
+     */
+    void restoreIds(List<? extends T> entities, Object[] ids) {
+        for (int i = 0; i < ids.length; i++) {
+            mapper.setId(entities.get(i), ids[i]);
+        }
+    }
+
+    /**
+     * The INSERT for {@code entity}: with the id column if its id is already set.
+     */
+    String insertSql(T entity) {
+        return isNew(mapper.getId(entity)) ? metadata.getInsertSql() : metadata.getInsertWithIdSql();
+    }
+
+    /**
+     * Binds the parameters of {@link #insertSql(Object)}; a versioned entity with a null version is set to 0 first.
+     */
+    void bindInsert(PreparedStatement stmt, T entity) throws SQLException {
+        if (metadata.isVersioned() && mapper.getVersion(entity) == null) {
+            mapper.setVersion(entity, 0L);
+        }
+        bindRow(stmt, 1, entity, !isNew(mapper.getId(entity)));
+    }
+
+    /**
+     * Binds the id of {@code entity} if {@code withId}, then its columns, from {@code position}; returns the next one.
+     */
+    private int bindRow(PreparedStatement stmt, int position, T entity, boolean withId) throws SQLException {
+        if (withId) {
+            stmt.setObject(position++, mapper.getId(entity));
+        }
+        int columnCount = metadata.getColumnCount();
+        for (int i = 0; i < columnCount; i++) {
+            stmt.setObject(position++, mapper.getColumnValue(entity, i));
+        }
+        return position;
+    }
+
+    /**
+     * Whether new entities get their id from an id generator rather than the database.
+     */
+    boolean hasIdGenerator() {
+        return idGenerator != null;
+    }
+
+    /**
+     * Values of {@code entity} for a bulk insert: the id first if {@code withId} (assigning it from the id generator
+     * when it is not set), then the columns. A versioned entity with a null version is set to 0 first.
+     *
+     * @throws MiniOrmException if {@code withId} is false and the entity already has an id
+     */
+    Object[] bulkRow(T entity, boolean withId) {
+        if (withId) {
+            assignId(entity);
+        } else if (!isNew(mapper.getId(entity))) {
+            throw new MiniOrmException("bulkInsert only inserts new " + metadata.getEntityClass().getSimpleName()
+                    + " entities, but one has id " + mapper.getId(entity));
+        }
+        if (metadata.isVersioned() && mapper.getVersion(entity) == null) {
+            mapper.setVersion(entity, 0L);
+        }
+        int columnCount = metadata.getColumnCount();
+        int offset = withId ? 1 : 0;
+        Object[] row = new Object[columnCount + offset];
+        if (withId) {
+            row[0] = mapper.getId(entity);
+        }
+        for (int i = 0; i < columnCount; i++) {
+            row[offset + i] = mapper.getColumnValue(entity, i);
+        }
+        return row;
+    }
+
+    /**
+     * Binds the parameters of {@link EntityMetadata#getUpdateSql(long)} for {@code columnMask}: the selected
+     * columns except the version, the id, then the expected version.
+     */
+    void bindUpdate(PreparedStatement stmt, T entity, long columnMask) throws SQLException {
+        boolean all = columnMask == metadata.getAllColumnsMask() || metadata.getColumnCount() >= 64;
+        int columnCount = metadata.getColumnCount();
+        int versionIndex = metadata.getVersionColumnIndex();
+        int p = 1;
+        for (int i = 0; i < columnCount; i++) {
+            if (i != versionIndex && (all || (columnMask & (1L << i)) != 0)) {
+                stmt.setObject(p++, mapper.getColumnValue(entity, i));
+            }
+        }
+        stmt.setObject(p++, mapper.getId(entity));
+        if (versionIndex >= 0) {
+            stmt.setObject(p, mapper.getVersion(entity));
+        }
+    }
+
+    /**
+     * Throws {@link OptimisticLockException} if a versioned UPDATE of {@code entity} changed no row.
+     */
+    void checkUpdated(T entity, int updateCount) {
+        if (updateCount == 0 && metadata.isVersioned()) {
+            throw new OptimisticLockException(metadata.getEntityClass(), mapper.getId(entity), mapper.getVersion(entity));
+        }
+    }
+
+    static boolean isNew(Object idValue) {
+        return idValue == null || (idValue instanceof Number && ((Number) idValue).longValue() == 0L); // Assuming 0 means new for numeric IDs
+    }
+
+    /**
+     * Inserts {@code entities} in chunks of {@code batchSize} and writes the generated ids back; entities that already
+     * have an id, or get one from the id generator, are inserted with it. If the inserts fail, every id written here
+     * (by the generator or read back from an earlier chunk) is reset, since the rows are rolled back.
+     */
+    void insert(Connection conn, List<? extends T> entities, StatementCacheStats stats) throws SQLException {
+        Object[] originalIds = captureIds(entities);
+        List<T> generated = new ArrayList<>(entities.size());
+        List<T> assigned = new ArrayList<>();
+        for (T entity : entities) {
+            assignId(entity);
+            (isNew(mapper.getId(entity)) ? generated : assigned).add(entity);
+        }
+        try {
+            if (!generated.isEmpty()) {
+                insertGenerated(conn, generated, stats);
+            }
+            if (!assigned.isEmpty()) {
+                insertAssigned(conn, assigned, stats);
+            }
+        } catch (SQLException | RuntimeException e) {
+            restoreIds(entities, originalIds);
+            throw e;
+        }
+    }
+
+    private void insertAssigned(Connection conn, List<T> entities, StatementCacheStats stats) throws SQLException {
+        String sql = metadata.getInsertWithIdSql();
+        long start = sqlLogger.start();
+
+        try (PreparedStatement stmt = StatementCaching.prepare(conn, sql, Statement.NO_GENERATED_KEYS, stats)) {
+            int pending = 0;
+            for (T entity : entities) {
+                bindInsert(stmt, entity);
+                stmt.addBatch();
+                if (++pending == batchSize) {
+                    executeBatch(stmt, pending);
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                executeBatch(stmt, pending);
+            }
+        }
+        sqlLogger.logBatch(sql, start, entities.size());
+    }
+
+    private void insertGenerated(Connection conn, List<T> entities, StatementCacheStats stats) throws SQLException {
+        if (entities.size() > 1 && dialect.insertReturningSql(metadata.getTableName(), metadata.getIdColumnName(),
+                metadata.getColumnNames(), 1) != null) {
+            insertReturning(conn, entities, stats);
+            return;
+        }
+        insertBatched(conn, entities, stats);
+    }
+
+    /**
+     * Inserts {@code entities} as JDBC batches of single-row INSERTs and reads each batch's generated keys.
+     */
+    private void insertBatched(Connection conn, List<T> entities, StatementCacheStats stats) throws SQLException {
+        String sql = metadata.getInsertSql();
+        long start = sqlLogger.start();
+
+        try (PreparedStatement stmt = StatementCaching.prepare(conn, sql, Statement.RETURN_GENERATED_KEYS, stats)) {
+            int batchStart = 0;
+            for (int n = 0; n < entities.size(); n++) {
+                bindInsert(stmt, entities.get(n));
+                stmt.addBatch();
+                if (n + 1 - batchStart == batchSize || n == entities.size() - 1) {
+                    executeBatch(stmt, n + 1 - batchStart);
+                    // Keys come back in statement order, so they line up with this chunk of entities
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        int k = batchStart;
+                        while (k <= n && keys.next()) {
+                            mapper.setId(entities.get(k++), keys.getObject(1));
+                        }
+                        checkKeyCount(k - batchStart, n + 1 - batchStart);
+                    }
+                    batchStart = n + 1;
+                }
+            }
+        }
+        sqlLogger.logBatch(sql, start, entities.size());
+    }
+
+    /**
+     * Inserts {@code entities} with the dialect's multi-row insert. It returns the ids in no guaranteed order, along
+     * with the inserted columns, so each returned row is matched to its entity by the values that read back exactly
+     * (see {@link #comparedColumns}). A chunk in which those values do not tell every entity apart is inserted with
+     * {@link #insertBatched} instead.
+     *
+     * @throws MiniOrmException if a returned row matches none of the entities left, or fewer rows come back than
+     *                          were inserted
+     */
+    private void insertReturning(Connection conn, List<T> entities, StatementCacheStats stats) throws SQLException {
+        String table = metadata.getTableName();
+        String idColumn = metadata.getIdColumnName();
+        List<String> columns = metadata.getColumnNames();
+        int chunk = Math.min(batchSize, dialect.maxRowsPerStatement(columns.size()));
+        long start = sqlLogger.start();
+        int returned = 0;
+
+        for (int from = 0; from < entities.size(); from += chunk) {
+            int rows = Math.min(chunk, entities.size() - from);
+            List<T> rowEntities = entities.subList(from, from + rows);
+            boolean[] compared = comparedColumns(rowEntities);
+            Map<List<Object>, T> byKey = new HashMap<>();
+            for (T entity : rowEntities) {
+                if (byKey.put(correlationKey(entity, compared), entity) != null) {
+                    byKey = null;
+                    break;
+                }
+            }
+            if (byKey == null) {
+                insertBatched(conn, rowEntities, stats);
+                continue;
+            }
+            String sql = dialect.insertReturningSql(table, idColumn, columns, rows);
+            try (PreparedStatement stmt = prepareRows(conn, sql, rows == chunk, stats)) {
+                int p = 1;
+                for (T entity : rowEntities) {
+                    if (metadata.isVersioned() && mapper.getVersion(entity) == null) {
+                        mapper.setVersion(entity, 0L);
+                    }
+                    p = bindRow(stmt, p, entity, false);
+                }
+                try (ResultSet keys = stmt.executeQuery()) {
+                    int k = 0;
+                    while (keys.next()) {
+                        T entity = byKey.remove(correlationKey(keys, compared));
+                        if (entity == null) {
+                            throw new MiniOrmException("A row inserted into " + table + " read back with values that"
+                                    + " match none of the " + metadata.getEntityClass().getSimpleName()
+                                    + " entities sent, so its id " + keys.getObject(1) + " cannot be assigned");
+                        }
+                        mapper.setId(entity, keys.getObject(1));
+                        k++;
+                    }
+                    checkKeyCount(k, rows);
+                }
+            }
+            if (batchSizes != null) {
+                batchSizes.record(rows);
+            }
+            returned += rows;
+        }
+        if (returned > 0) {
+            sqlLogger.logBatch(dialect.insertReturningSql(table, idColumn, columns, 1), start, returned);
+        }
+    }
+
+    private void checkKeyCount(int keys, int rows) {
+        if (keys != rows) {
+            throw new MiniOrmException("Inserted " + rows + " rows into " + metadata.getTableName() + " but got "
+                    + keys + " generated ids back");
+        }
+    }
+
+    /**
+     * Columns whose values read back exactly in every one of {@code entities}: strings, integers, booleans, UUIDs and
+     * nulls. Temporal and fractional values are left out, since a column may store them with less precision.
+     */
+    private boolean[] comparedColumns(List<T> entities) {
+        boolean[] compared = new boolean[metadata.getColumnCount()];
+        for (int i = 0; i < compared.length; i++) {
+            compared[i] = true;
+            for (T entity : entities) {
+                Object value = mapper.getColumnValue(entity, i);
+                if (!(value == null || value instanceof String || value instanceof Character || value instanceof Integer
+                        || value instanceof Long || value instanceof Short || value instanceof Byte
+                        || value instanceof Boolean || value instanceof UUID)) {
+                    compared[i] = false;
+                    break;
+                }
+            }
+        }
+        return compared;
+    }
+
+    private List<Object> correlationKey(T entity, boolean[] compared) {
+        List<Object> key = new ArrayList<>(compared.length);
+        for (int i = 0; i < compared.length; i++) {
+            if (compared[i]) {
+                key.add(normalize(mapper.getColumnValue(entity, i)));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * The key of a row returned by {@link Dialect#insertReturningSql}: the id, then the columns.
+     */
+    private static List<Object> correlationKey(ResultSet row, boolean[] compared) throws SQLException {
+        List<Object> key = new ArrayList<>(compared.length);
+        for (int i = 0; i < compared.length; i++) {
+            if (compared[i]) {
+                key.add(normalize(row.getObject(i + 2)));
+            }
+        }
+        return key;
+    }
+
+    /**
+     * Maps a bound value and the value a driver reads back for it to the same object: a boolean column may read back
+     * as a number, an integer as another {@code Number} type, a UUID as a string, and a {@code CHAR} padded with blanks.
+     */
+    private static Object normalize(Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 1L : 0L;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof String || value instanceof Character) {
+            String text = value.toString();
+            int end = text.length();
+            while (end > 0 && text.charAt(end - 1) == ' ') {
+                end--;
+            }
+            return text.substring(0, end);
+        }
+        return value instanceof UUID ? value.toString() : value;
+    }
+
+    /**
+     * Inserts or updates {@code entities} with the dialect's upsert, {@link Dialect#maxRowsPerStatement} rows (at
+     * most {@code batchSize}) per statement. New entities get an id from the id generator first; without one they
+     * are inserted like {@link #insert} does. Ids written here are reset again if the statements fail.
+     *
+     * @throws MiniOrmException for {@code @MyVersion} entities, whose version an upsert cannot check
+     */
+    void upsert(Connection conn, List<? extends T> entities, StatementCacheStats stats) throws SQLException {
+        if (metadata.isVersioned()) {
+            throw new MiniOrmException("upsert cannot check the @MyVersion of "
+                    + metadata.getEntityClass().getSimpleName() + "; use save instead");
+        }
+        Object[] originalIds = captureIds(entities);
+        List<T> generated = new ArrayList<>();
+        List<T> withId = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            assignId(entity);
+            (isNew(mapper.getId(entity)) ? generated : withId).add(entity);
+        }
+        try {
+            if (!generated.isEmpty()) {
+                insertGenerated(conn, generated, stats);
+            }
+            if (!withId.isEmpty()) {
+                upsertRows(conn, withId, stats);
+            }
+        } catch (SQLException | RuntimeException e) {
+            restoreIds(entities, originalIds);
+            throw e;
+        }
+    }
+
+    private void upsertRows(Connection conn, List<T> entities, StatementCacheStats stats) throws SQLException {
+        String table = metadata.getTableName();
+        String idColumn = metadata.getIdColumnName();
+        List<String> columns = metadata.getColumnNames();
+        int chunk = Math.min(batchSize, dialect.maxRowsPerStatement(columns.size() + 1));
+        long start = sqlLogger.start();
+
+        for (int from = 0; from < entities.size(); from += chunk) {
+            int rows = Math.min(chunk, entities.size() - from);
+            String sql = dialect.upsertSql(table, idColumn, columns, rows);
+            try (PreparedStatement stmt = prepareRows(conn, sql, rows == chunk, stats)) {
+                int p = 1;
+                for (int n = from; n < from + rows; n++) {
+                    p = bindRow(stmt, p, entities.get(n), true);
+                }
+                stmt.executeUpdate();
+            }
+            if (batchSizes != null) {
+                batchSizes.record(rows);
+            }
+        }
+        sqlLogger.logBatch(dialect.upsertSql(table, idColumn, columns, 1), start, entities.size());
+    }
+
+    /**
+     * Prepares a multi-row statement. Only full chunks go through the statement cache: the last, shorter chunk of
+     * each call has its own row count, and caching every such size would push out statements that are reused.
+     */
+    private static PreparedStatement prepareRows(Connection conn, String sql, boolean fullChunk,
+                                                 StatementCacheStats stats) throws SQLException {
+        if (fullChunk) {
+            return StatementCaching.prepare(conn, sql, Statement.NO_GENERATED_KEYS, stats);
+        }
+        return StatementCaching.prepareUncached(conn, sql);
+    }
+
+    /**
+     * Updates every mapped column of {@code entities}.
+     */
+    void update(Connection conn, List<? extends T> entities, StatementCacheStats stats) throws SQLException {
+        updateColumns(conn, metadata.getAllColumnsMask(), entities, stats);
+    }
+
+    /**
+     * Updates only the columns selected by {@code columnMask} (see {@link EntityMetadata#getUpdateSql(long)}).
+     */
+    void updateColumns(Connection conn, long columnMask, List<? extends T> entities, StatementCacheStats stats) throws SQLException {
+        String sql = metadata.getUpdateSql(columnMask);
+        long start = sqlLogger.start();
+        List<T> pending = new ArrayList<>(Math.min(batchSize, entities.size()));
+
+        try (PreparedStatement stmt = StatementCaching.prepare(conn, sql, Statement.NO_GENERATED_KEYS, stats)) {
+            for (T entity : entities) {
+                bindUpdate(stmt, entity, columnMask);
+                stmt.addBatch();
+                pending.add(entity);
+                if (pending.size() == batchSize) {
+                    executeUpdateBatch(stmt, pending);
+                }
+            }
+            if (!pending.isEmpty()) {
+                executeUpdateBatch(stmt, pending);
+            }
+        }
+        sqlLogger.logBatch(sql, start, entities.size());
+    }
+
+    private void executeUpdateBatch(PreparedStatement stmt, List<T> pending) throws SQLException {
+        int[] counts = executeBatch(stmt, pending.size());
+        if (metadata.isVersioned()) {
+            // SUCCESS_NO_INFO (-2) cannot be checked and is taken as success
+            for (int i = 0; i < counts.length && i < pending.size(); i++) {
+                checkUpdated(pending.get(i), counts[i]);
+            }
+        }
+        pending.clear();
+    }
+
+    /**
+     * Deletes the rows with the given ids and returns how many rows the database reported deleted.
+     */
+    int deleteByIds(Connection conn, Iterable<?> ids, StatementCacheStats stats) throws SQLException {
+        String sql = metadata.getDeleteByIdSql();
+        long start = sqlLogger.start();
+        int total = 0;
+        int deleted = 0;
+
+        try (PreparedStatement stmt = StatementCaching.prepare(conn, sql, Statement.NO_GENERATED_KEYS, stats)) {
+            int pending = 0;
+            for (Object id : ids) {
+                stmt.setObject(1, id);
+                stmt.addBatch();
+                total++;
+                if (++pending == batchSize) {
+                    deleted += updateCount(executeBatch(stmt, pending));
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                deleted += updateCount(executeBatch(stmt, pending));
+            }
+        }
+        sqlLogger.logBatch(sql, start, total);
+        return deleted;
+    }
+
+    /**
+     * Sums batch update counts, taking {@code SUCCESS_NO_INFO} as one row.
+     */
+    private static int updateCount(int[] counts) {
+        int sum = 0;
+        for (int count : counts) {
+            if (count == Statement.SUCCESS_NO_INFO) {
+                sum++;
+            } else if (count > 0) {
+                sum += count;
+            }
+        }
+        return sum;
+    }
+}
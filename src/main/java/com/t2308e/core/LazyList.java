@@ -0,0 +1,66 @@
+package com.t2308e.core;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Value of a {@code @MyOneToMany} field: a list whose elements are loaded on first access, together with those of
+ * the other owners read in the same batch (see {@link AssociationLoader}). Once loaded it is a plain mutable list;
+ * changes to it are not written back.
+ */
+final class LazyList<E> extends AbstractList<E> {
+
+    private final AssociationLoader.ChildBatch batch;
+    private final Object ownerId;
+    private List<E> elements; // null until loaded
+
+    LazyList(AssociationLoader.ChildBatch batch, Object ownerId) {
+        this.batch = batch;
+        this.ownerId = ownerId;
+    }
+
+    boolean isLoaded() {
+        return elements != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<E> elements() {
+        if (elements == null) {
+            elements = (List<E>) batch.childrenOf(ownerId);
+        }
+        return elements;
+    }
+
+    @Override
+    public E get(int index) {
+        return elements().get(index);
+    }
+
+    @Override
+    public int size() {
+        return elements().size();
+    }
+
+    @Override
+    public E set(int index, E element) {
+        return elements().set(index, element);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        elements().add(index, element);
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        E removed = elements().remove(index);
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public String toString() {
+        return elements == null ? "[not loaded]" : elements.toString();
+    }
+}
@@ -1,16 +1,72 @@
 package com.t2308e.core;
 
+import com.t2308e.annotations.GenerationType;
+import com.t2308e.annotations.MyId;
+import com.t2308e.cache.CacheStats;
+import com.t2308e.cache.EntityCache;
 import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.ShardingConfig;
+import com.t2308e.config.StatementCacheStats;
 import com.t2308e.exception.MiniOrmException;
+import com.t2308e.id.IdGenerator;
+import com.t2308e.id.IdGenerators;
+import com.t2308e.metrics.MetricsRegistry;
 import com.t2308e.repository.MyCrudRepository;
+import com.t2308e.transaction.TransactionManager;
 
+import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 public class MyRepositoryFactory {
     private final DataSourceConfig dataSourceConfig;
+    private final RepositorySettings settings = new RepositorySettings();
+    private final MetricsRegistry metrics;
+    private final Semaphore asyncPermits; // shared by all repositories; null when unpooled
+    private final Executor defaultAsyncExecutor;
 
     public MyRepositoryFactory(DataSourceConfig dataSourceConfig) {
         this.dataSourceConfig = dataSourceConfig;
+        this.metrics = new MetricsRegistry(dataSourceConfig);
+        int poolSize = dataSourceConfig.getMaxPoolSize();
+        this.asyncPermits = poolSize > 0 ? new Semaphore(poolSize, true) : null;
+        this.defaultAsyncExecutor = AsyncExecution.defaultExecutor(
+                poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    /**
+     * Settings applied to repositories created afterwards, e.g. {@code factory.getSettings().setBatchSize(1000)}.
+     * Accessors and row mappers are built when {@link #createRepository} runs, not on first use.
+     */
+    public RepositorySettings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Per-repository, per-method call counts, latency histograms, rows read/written and batch sizes of every
+     * repository created by this factory, plus its pool. Call {@link MetricsRegistry#registerMBeans()} to expose
+     * them over JMX.
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Transactions spanning several calls to repositories of this factory; see {@link TransactionManager}.
+     */
+    public TransactionManager getTransactionManager() {
+        return dataSourceConfig.getTransactionManager();
+    }
+
+    /**
+     * Opens a unit-of-work session with an identity map and dirty checking; see {@link Session}.
+     */
+    public Session openSession() {
+        return new Session(dataSourceConfig, new RepositorySettings(settings));
     }
 
     @SuppressWarnings("unchecked")
@@ -49,11 +105,84 @@ public class MyRepositoryFactory {
         }
 
 
+        RepositorySettings repositorySettings = new RepositorySettings(settings);
+        Executor executor = repositorySettings.getAsyncExecutor();
+        AsyncExecution async = new AsyncExecution(executor != null ? executor : defaultAsyncExecutor, asyncPermits);
         return (R) Proxy.newProxyInstance(
                 repositoryInterface.getClassLoader(),
                 new Class<?>[]{repositoryInterface},
-                new RepositoryInvocationHandler<>(dataSourceConfig, repositoryInterface)
+                new RepositoryInvocationHandler<>(dataSourceConfig, repositoryInterface, repositorySettings, metrics, async)
         );
     }
-}
 
+    /**
+     * Creates a repository whose table is split across the shards of {@code sharding}; see
+     * {@link ShardedRepositoryHandler} for how calls are routed. Each shard is accessed with this factory's settings,
+     * and metrics of all shards are recorded together under the repository interface.
+     *
+     * @throws MiniOrmException if {@code sharding} has no shards, or no id generator while the default Snowflake ids
+     *                          do not fit the entity's id field
+     */
+    @SuppressWarnings("unchecked")
+    public <T, ID, R extends MyCrudRepository<T, ID>> R createShardedRepository(Class<R> repositoryInterface,
+                                                                               ShardingConfig sharding) {
+        if (!repositoryInterface.isInterface() || !MyCrudRepository.class.isAssignableFrom(repositoryInterface)) {
+            throw new MiniOrmException(repositoryInterface.getName() + " must be an interface extending MyCrudRepository.");
+        }
+        if (sharding.getShards().isEmpty()) {
+            throw new MiniOrmException("ShardingConfig has no shards");
+        }
+        RepositorySettings repositorySettings = new RepositorySettings(settings);
+        Executor executor = repositorySettings.getAsyncExecutor();
+        AsyncExecution async = new AsyncExecution(executor != null ? executor : defaultAsyncExecutor, asyncPermits);
+        Map<String, RepositoryInvocationHandler<T, ID>> shards = new LinkedHashMap<>();
+        sharding.getShards().forEach((name, dataSource) -> shards.put(name,
+                new RepositoryInvocationHandler<>(dataSource, repositoryInterface, repositorySettings, metrics, async)));
+        Executor scatterExecutor = sharding.getExecutor() != null ? sharding.getExecutor()
+                : AsyncExecution.defaultExecutor(shards.size());
+        IdGenerator<?> idGenerator = sharding.getIdGenerator() != null ? sharding.getIdGenerator()
+                : defaultShardIdGenerator(shards.values().iterator().next().getEntityClass(),
+                        sharding.getShards().values().iterator().next());
+        return (R) Proxy.newProxyInstance(
+                repositoryInterface.getClassLoader(),
+                new Class<?>[]{repositoryInterface},
+                new ShardedRepositoryHandler<>(repositoryInterface, shards, sharding.getVirtualNodes(),
+                        idGenerator, repositorySettings.getAccessorMode(), scatterExecutor, async)
+        );
+    }
+
+    /**
+     * The entity's own generator when its ids are unique without the database ({@code UUID}, {@code SNOWFLAKE}),
+     * otherwise Snowflake ids: per-shard identity columns or sequences would repeat ids across shards.
+     *
+     * @throws MiniOrmException if Snowflake ids are chosen but the id field is not a {@code Long}
+     */
+    private static IdGenerator<?> defaultShardIdGenerator(Class<?> entityClass, DataSourceConfig firstShard) {
+        GenerationType strategy = EntityMetadata.of(entityClass).getIdField().getAnnotation(MyId.class).strategy();
+        if (strategy == GenerationType.UUID || strategy == GenerationType.SNOWFLAKE) {
+            return firstShard.getIdGenerator(entityClass);
+        }
+        return IdGenerators.snowflake(entityClass, firstShard.getWorkerId());
+    }
+
+    /**
+     * Hit/miss/eviction counters of the second-level cache for {@code entityClass}, or empty if it is not cacheable.
+     */
+    public Optional<CacheStats> getCacheStats(Class<?> entityClass) {
+        EntityCache cache = settings.cacheFor(EntityMetadata.of(entityClass));
+        return cache != null ? Optional.of(cache.getStats()) : Optional.empty();
+    }
+
+    /**
+     * Statement cache hit/miss counters of a repository created by a {@code MyRepositoryFactory}.
+     */
+    public static StatementCacheStats getStatementCacheStats(Object repository) {
+        if (Proxy.isProxyClass(repository.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(repository);
+            if (handler instanceof RepositoryInvocationHandler) {
+                return ((RepositoryInvocationHandler<?, ?>) handler).getStatementCacheStats();
+            }
+        }
+        throw new MiniOrmException(repository.getClass().getName() + " is not a mini-orm repository");
+    }
+}
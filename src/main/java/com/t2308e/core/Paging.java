@@ -0,0 +1,143 @@
+package com.t2308e.core;
+
+import com.t2308e.dialect.Dialect;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.PageRequest;
+import com.t2308e.repository.Sort;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQL for one page of a query: the keyset condition, {@code ORDER BY} and the dialect's limit/offset clause.
+ * <p>
+ * The sort is resolved to columns with the id appended as a tie-breaker, which makes the order total, so a keyset
+ * can name a row exactly. For sort columns {@code a, b, id} the keyset condition is
+ * {@code a >= ? AND (a > ? OR (a = ? AND b > ?) OR (a = ? AND b = ? AND id > ?))}, with {@code <} for descending
+ * columns. It is written out instead of as a row value comparison because directions may be mixed. The leading
+ * {@code a >= ?} gives the database an index range to seek to; sorting by the id alone is just {@code id > ?}. One row more than the page size is fetched to tell
+ * whether a next page exists.
+ */
+final class Paging {
+
+    private final PageRequest request;
+    private final Dialect dialect;
+    private final String[] columns;
+    private final boolean[] ascending;
+    private final int[] columnIndexes; // 1-based position in the entity SELECT list, to read keys back from a row
+
+    Paging(EntityMetadata metadata, PageRequest request, Dialect dialect) {
+        this.request = request;
+        this.dialect = dialect;
+        List<String> resolved = new ArrayList<>();
+        List<Boolean> directions = new ArrayList<>();
+        for (Sort.Order order : request.getSort().getOrders()) {
+            String column = metadata.getPropertyColumn(order.getProperty());
+            if (column == null) {
+                throw new MiniOrmException("Unknown sort property '" + order.getProperty() + "' on "
+                        + metadata.getEntityClass().getSimpleName());
+            }
+            resolved.add(column);
+            directions.add(order.isAscending());
+            if (column.equals(metadata.getIdColumnName())) {
+                break; // the id is unique, nothing after it changes the order
+            }
+        }
+        if (!resolved.contains(metadata.getIdColumnName())) {
+            resolved.add(metadata.getIdColumnName());
+            directions.add(true);
+        }
+        this.columns = resolved.toArray(new String[0]);
+        this.ascending = new boolean[columns.length];
+        this.columnIndexes = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            ascending[i] = directions.get(i);
+            columnIndexes[i] = metadata.getColumnIndex(columns[i]);
+        }
+        if (!request.getKeysetValues().isEmpty() && request.getKeysetValues().size() != columns.length) {
+            throw new MiniOrmException("Keyset has " + request.getKeysetValues().size() + " values but sort "
+                    + request.getSort() + " needs " + columns.length + " (the sort properties, then the id)");
+        }
+    }
+
+    /**
+     * {@code select} restricted by {@code where} (a condition without {@code WHERE}, or empty) and the keyset,
+     * ordered and limited to this page.
+     */
+    String sql(String select, String where) {
+        StringBuilder sql = new StringBuilder(select);
+        boolean seek = !request.getKeysetValues().isEmpty();
+        if (!where.isEmpty()) {
+            sql.append(" WHERE ").append(seek ? "(" + where + ") AND " : where);
+        } else if (seek) {
+            sql.append(" WHERE ");
+        }
+        if (seek) {
+            appendKeysetCondition(sql);
+        }
+        sql.append(" ORDER BY ");
+        for (int i = 0; i < columns.length; i++) {
+            sql.append(i == 0 ? "" : ", ").append(columns[i]).append(ascending[i] ? " ASC" : " DESC");
+        }
+        return sql.append(dialect.pageClause(!request.isKeyset())).toString();
+    }
+
+    private void appendKeysetCondition(StringBuilder sql) {
+        if (columns.length == 1) {
+            sql.append(columns[0]).append(ascending[0] ? " > ?" : " < ?");
+            return;
+        }
+        sql.append(columns[0]).append(ascending[0] ? " >= ?" : " <= ?").append(" AND (");
+        for (int k = 0; k < columns.length; k++) {
+            sql.append(k == 0 ? "" : " OR ");
+            if (k > 0) {
+                sql.append('(');
+                for (int j = 0; j < k; j++) {
+                    sql.append(columns[j]).append(" = ? AND ");
+                }
+            }
+            sql.append(columns[k]).append(ascending[k] ? " > ?" : " < ?");
+            if (k > 0) {
+                sql.append(')');
+            }
+        }
+        sql.append(')');
+    }
+
+    /**
+     * Binds the keyset values and the limit/offset, in the order {@link #sql} placed them, from {@code position}.
+     */
+    void bind(PreparedStatement stmt, int position) throws SQLException {
+        List<Object> keys = request.getKeysetValues();
+        if (!keys.isEmpty()) {
+            if (columns.length > 1) {
+                stmt.setObject(position++, keys.get(0));
+            }
+            for (int k = 0; k < columns.length; k++) {
+                for (int j = 0; j <= k; j++) {
+                    stmt.setObject(position++, keys.get(j));
+                }
+            }
+        }
+        dialect.bindPage(stmt, position, request.getPageSize() + 1, request.getOffset(), !request.isKeyset());
+    }
+
+    /**
+     * Request for the page after one whose last entity is {@code last}, or null if {@code hasMore} is false.
+     */
+    PageRequest next(Object last, EntityMapper<?> mapper, boolean hasMore) {
+        if (!hasMore) {
+            return null;
+        }
+        if (!request.isKeyset()) {
+            return request.next();
+        }
+        Object[] keys = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            keys[i] = columnIndexes[i] == 1 ? mapper.getId(last) : mapper.getColumnValue(last, columnIndexes[i] - 2);
+        }
+        return request.next().after(keys);
+    }
+}
@@ -0,0 +1,301 @@
+package com.t2308e.core;
+
+import com.t2308e.exception.MiniOrmException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps rows of a query that selects only some columns of an entity to a projection type instead of the entity.
+ * <p>
+ * A projection is either an interface whose getters ({@code getEmail()}, {@code isActive()} or {@code email()}) name
+ * entity properties, backed by a proxy over the row's values, or a record whose component names are entity
+ * properties, built through its canonical constructor. Default methods of an interface projection work as usual.
+ * Built once per (projection, entity) pair and shared.
+ */
+final class Projection {
+
+    private static final Map<Class<?>, Map<Class<?>, Projection>> REGISTRY = new ConcurrentHashMap<>();
+
+    private final Class<?> type;
+    private final String selectColumns;
+    private final String[] properties;
+    private final Class<?>[] valueTypes;
+    private final MethodHandle constructor;             // records: canonical constructor spreading Object[]
+    private final Map<Method, Integer> getterIndexes;   // interfaces: getter -> position in the values
+    private final Map<Method, MethodHandle> defaultMethods;
+
+    private Projection(Class<?> type, EntityMetadata metadata) {
+        this.type = type;
+        List<String> propertyNames = new ArrayList<>();
+        List<Class<?>> types = new ArrayList<>();
+        if (type.isInterface()) {
+            this.getterIndexes = new HashMap<>();
+            this.defaultMethods = new HashMap<>();
+            for (Method method : type.getMethods()) {
+                if (Modifier.isStatic(method.getModifiers()) || isObjectMethod(method)) {
+                    continue;
+                }
+                if (method.isDefault()) {
+                    defaultMethods.put(method, defaultMethodHandle(method));
+                    continue;
+                }
+                if (method.getParameterCount() != 0 || method.getReturnType() == void.class) {
+                    throw invalid(type, method.getName() + " is not a getter");
+                }
+                String property = propertyName(method.getName());
+                int index = propertyNames.indexOf(property);
+                if (index < 0) {
+                    index = propertyNames.size();
+                    propertyNames.add(property);
+                    types.add(method.getReturnType());
+                }
+                getterIndexes.put(method, index);
+            }
+            this.constructor = null;
+        } else if (RecordSupport.isRecord(type)) {
+            for (Object component : RecordSupport.components(type)) {
+                propertyNames.add(RecordSupport.name(component));
+                types.add(RecordSupport.type(component));
+            }
+            this.getterIndexes = null;
+            this.defaultMethods = null;
+            try {
+                Constructor<?> canonical = type.getDeclaredConstructor(types.toArray(new Class<?>[0]));
+                canonical.setAccessible(true);
+                this.constructor = MethodHandles.lookup().unreflectConstructor(canonical)
+                        .asSpreader(Object[].class, types.size());
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                throw new MiniOrmException("Cannot access the canonical constructor of " + type.getName(), e);
+            }
+        } else {
+            throw invalid(type, "only interfaces and records can be projections");
+        }
+        if (propertyNames.isEmpty()) {
+            throw invalid(type, "it exposes no properties");
+        }
+
+        List<String> columns = new ArrayList<>();
+        for (String property : propertyNames) {
+            String column = metadata.getPropertyColumn(property);
+            if (column == null) {
+                throw invalid(type, "no mapped property '" + property + "' on " + metadata.getEntityClass().getSimpleName());
+            }
+            columns.add(column);
+        }
+        this.properties = propertyNames.toArray(new String[0]);
+        this.valueTypes = types.toArray(new Class<?>[0]);
+        this.selectColumns = String.join(", ", columns);
+    }
+
+    /**
+     * The projection of {@code metadata}'s entity onto {@code type}; throws {@link MiniOrmException} if {@code type}
+     * is not an interface or record, or names a property the entity does not map.
+     */
+    static Projection of(Class<?> type, EntityMetadata metadata) {
+        return REGISTRY.computeIfAbsent(type, t -> new ConcurrentHashMap<>())
+                .computeIfAbsent(metadata.getEntityClass(), e -> new Projection(type, metadata));
+    }
+
+    /**
+     * True for interfaces and records outside the JDK.
+     */
+    static boolean isProjectionType(Class<?> type) {
+        return (type.isInterface() || RecordSupport.isRecord(type)) && !type.getName().startsWith("java.");
+    }
+
+    Class<?> getType() {
+        return type;
+    }
+
+    /**
+     * Comma separated columns to SELECT, in the order {@link #mapRow} reads them.
+     */
+    String getSelectColumns() {
+        return selectColumns;
+    }
+
+    Object mapRow(ResultSet rs) throws SQLException {
+        Object[] values = new Object[valueTypes.length];
+        for (int i = 0; i < values.length; i++) {
+            Object value = EntityMapper.convertToFieldType(rs.getObject(i + 1), valueTypes[i]);
+            values[i] = value == null && valueTypes[i].isPrimitive() ? defaultValue(valueTypes[i]) : value;
+        }
+        if (constructor != null) {
+            try {
+                return constructor.invoke(values);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new MiniOrmException("Failed to create " + type.getName(), t);
+            }
+        }
+        return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, new Values(values));
+    }
+
+    /**
+     * Backs one interface projection instance.
+     */
+    private final class Values implements InvocationHandler {
+        private final Object[] values;
+
+        Values(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Integer index = getterIndexes.get(method);
+            if (index != null) {
+                return values[index];
+            }
+            MethodHandle defaultMethod = defaultMethods.get(method);
+            if (defaultMethod != null) {
+                Object[] actualArgs = args != null ? args : new Object[0];
+                return (Object) defaultMethod.invokeExact(proxy, actualArgs);
+            }
+            switch (method.getName()) {
+                case "equals":
+                    Object other = args[0];
+                    if (other == null || !Proxy.isProxyClass(other.getClass())) {
+                        return false;
+                    }
+                    InvocationHandler handler = Proxy.getInvocationHandler(other);
+                    return handler instanceof Values && ((Values) handler).projection() == Projection.this
+                            && Arrays.equals(values, ((Values) handler).values);
+                case "hashCode":
+                    return Arrays.hashCode(values);
+                case "toString":
+                    StringBuilder sb = new StringBuilder(type.getSimpleName()).append('{');
+                    for (int i = 0; i < properties.length; i++) {
+                        sb.append(i == 0 ? "" : ", ").append(properties[i]).append('=').append(values[i]);
+                    }
+                    return sb.append('}').toString();
+                default:
+                    throw new MiniOrmException("Unsupported projection method: " + method);
+            }
+        }
+
+        private Projection projection() {
+            return Projection.this;
+        }
+    }
+
+    private static MethodHandle defaultMethodHandle(Method method) {
+        Class<?> declaringInterface = method.getDeclaringClass();
+        try {
+            return MethodHandles.privateLookupIn(declaringInterface, MethodHandles.lookup())
+                    .unreflectSpecial(method, declaringInterface)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new MiniOrmException("Cannot access default method " + method, e);
+        }
+    }
+
+    private static boolean isObjectMethod(Method method) {
+        try {
+            Object.class.getMethod(method.getName(), method.getParameterTypes());
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    /**
+     * {@code getUserName} / {@code isActive} / {@code userName} -> {@code userName} / {@code active} / {@code userName}.
+     */
+    private static String propertyName(String getter) {
+        for (String prefix : new String[]{"get", "is"}) {
+            if (getter.length() > prefix.length() && getter.startsWith(prefix)
+                    && Character.isUpperCase(getter.charAt(prefix.length()))) {
+                return Character.toLowerCase(getter.charAt(prefix.length())) + getter.substring(prefix.length() + 1);
+            }
+        }
+        return getter;
+    }
+
+    private static Object defaultValue(Class<?> primitive) {
+        if (primitive == boolean.class) return false;
+        if (primitive == char.class) return '\0';
+        if (primitive == long.class) return 0L;
+        if (primitive == double.class) return 0d;
+        if (primitive == float.class) return 0f;
+        if (primitive == short.class) return (short) 0;
+        if (primitive == byte.class) return (byte) 0;
+        return 0;
+    }
+
+    private static MiniOrmException invalid(Class<?> type, String reason) {
+        return new MiniOrmException("Cannot use " + type.getName() + " as a projection: " + reason);
+    }
+
+    /**
+     * Record reflection through {@link Method} lookups, since this code compiles for Java 11 where
+     * {@code Class.isRecord()} and {@code RecordComponent} do not exist.
+     */
+    private static final class RecordSupport {
+        private static final Method IS_RECORD;
+        private static final Method GET_RECORD_COMPONENTS;
+        private static final Method COMPONENT_NAME;
+        private static final Method COMPONENT_TYPE;
+
+        static {
+            Method isRecord = null;
+            Method components = null;
+            Method name = null;
+            Method componentType = null;
+            try {
+                isRecord = Class.class.getMethod("isRecord");
+                components = Class.class.getMethod("getRecordComponents");
+                Class<?> recordComponent = Class.forName("java.lang.reflect.RecordComponent");
+                name = recordComponent.getMethod("getName");
+                componentType = recordComponent.getMethod("getType");
+            } catch (ReflectiveOperationException e) {
+                // Java < 16: no records
+            }
+            IS_RECORD = isRecord;
+            GET_RECORD_COMPONENTS = components;
+            COMPONENT_NAME = name;
+            COMPONENT_TYPE = componentType;
+        }
+
+        static boolean isRecord(Class<?> type) {
+            return IS_RECORD != null && (Boolean) call(IS_RECORD, type);
+        }
+
+        static Object[] components(Class<?> type) {
+            return (Object[]) call(GET_RECORD_COMPONENTS, type);
+        }
+
+        static String name(Object component) {
+            return (String) call(COMPONENT_NAME, component);
+        }
+
+        static Class<?> type(Object component) {
+            return (Class<?>) call(COMPONENT_TYPE, component);
+        }
+
+        private static Object call(Method method, Object target) {
+            try {
+                return method.invoke(target);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.t2308e.core;
+
+/**
+ * Reads and writes one persistent property of an entity.
+ * <p>
+ * The primitive setters let callers holding a primitive, e.g. from {@code ResultSet.getInt(...)}, write it to a
+ * primitive field without boxing. Implementations that cannot avoid boxing fall back to {@link #set}.
+ */
+public interface PropertyAccessor {
+
+    Object get(Object target);
+
+    void set(Object target, Object value);
+
+    default void setInt(Object target, int value) { set(target, value); }
+
+    default void setLong(Object target, long value) { set(target, value); }
+
+    default void setDouble(Object target, double value) { set(target, value); }
+
+    default void setFloat(Object target, float value) { set(target, value); }
+
+    default void setBoolean(Object target, boolean value) { set(target, value); }
+
+    default void setShort(Object target, short value) { set(target, value); }
+
+    default void setByte(Object target, byte value) { set(target, value); }
+}
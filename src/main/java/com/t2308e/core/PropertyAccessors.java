@@ -0,0 +1,360 @@
+package com.t2308e.core;
+
+import com.t2308e.exception.MiniOrmException;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Builds {@link PropertyAccessor}s and instantiators for entity classes in a given {@link AccessorMode}.
+ */
+final class PropertyAccessors {
+
+    private PropertyAccessors() {
+    }
+
+    static PropertyAccessor forField(Field field, AccessorMode mode) {
+        MethodHandles.Lookup lookup = lookupFor(field.getDeclaringClass());
+        if (mode == AccessorMode.GENERATED) {
+            Method getter = findGetter(field);
+            Method setter = findSetter(field);
+            if (getter != null && setter != null) {
+                return new GeneratedAccessor(lookup, field, getter, setter);
+            }
+        }
+        try {
+            return new MethodHandleAccessor(lookup, field);
+        } catch (IllegalAccessException e) {
+            throw new MiniOrmException("Cannot access field " + field.getDeclaringClass().getSimpleName() + "." + field.getName(), e);
+        }
+    }
+
+    /**
+     * Direct {@code (owner, fieldType)void} handle that writes {@code field}: the entity's setter in
+     * {@link AccessorMode#GENERATED} mode when {@link #forField} would use it, otherwise the field itself.
+     */
+    static MethodHandle setterHandle(Field field, AccessorMode mode) {
+        MethodHandles.Lookup lookup = lookupFor(field.getDeclaringClass());
+        try {
+            if (mode == AccessorMode.GENERATED) {
+                Method setter = findSetter(field);
+                if (setter != null && findGetter(field) != null) {
+                    return lookup.unreflect(setter);
+                }
+            }
+            return lookup.unreflectSetter(field);
+        } catch (IllegalAccessException e) {
+            throw new MiniOrmException("Cannot access field " + field.getDeclaringClass().getSimpleName() + "." + field.getName(), e);
+        }
+    }
+
+    /**
+     * The no-arg constructor as a {@code ()entityClass} handle.
+     */
+    static MethodHandle constructor(Class<?> entityClass) {
+        try {
+            return lookupFor(entityClass).findConstructor(entityClass, MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new MiniOrmException("Entity " + entityClass.getSimpleName() + " needs an accessible no-arg constructor", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Supplier<T> instantiator(Class<T> entityClass, AccessorMode mode) {
+        MethodHandles.Lookup lookup = lookupFor(entityClass);
+        MethodHandle constructor = constructor(entityClass);
+        if (mode == AccessorMode.GENERATED) {
+            try {
+                CallSite site = LambdaMetafactory.metafactory(lookup, "get",
+                        MethodType.methodType(Supplier.class),
+                        MethodType.methodType(Object.class),
+                        constructor,
+                        MethodType.methodType(entityClass));
+                return (Supplier<T>) site.getTarget().invoke();
+            } catch (Throwable e) {
+                throw new MiniOrmException("Failed to generate instantiator for " + entityClass.getSimpleName(), e);
+            }
+        }
+        MethodHandle erased = constructor.asType(MethodType.methodType(Object.class));
+        return () -> {
+            try {
+                return (T) erased.invokeExact();
+            } catch (Throwable e) {
+                throw new MiniOrmException("Failed to instantiate entity " + entityClass.getSimpleName(), e);
+            }
+        };
+    }
+
+    private static MethodHandles.Lookup lookupFor(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new MiniOrmException("Cannot obtain private access to " + type.getName(), e);
+        }
+    }
+
+    private static Method findGetter(Field field) {
+        String suffix = Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        for (String name : new String[]{"get" + suffix, "is" + suffix}) {
+            try {
+                Method m = field.getDeclaringClass().getDeclaredMethod(name);
+                if (m.getReturnType() == field.getType()) {
+                    return m;
+                }
+            } catch (NoSuchMethodException ignored) {
+                // try the next naming convention
+            }
+        }
+        return null;
+    }
+
+    private static Method findSetter(Field field) {
+        String name = "set" + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+        try {
+            return field.getDeclaringClass().getDeclaredMethod(name, field.getType());
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Field access through getter and setter {@code MethodHandle}s adapted once to erased types, so every call is an
+     * {@code invokeExact} with no per-call type adaptation. A primitive field also gets a setter taking the unboxed
+     * value; the primitive setters fall back to {@link #set} when called for a different type.
+     */
+    private static final class MethodHandleAccessor implements PropertyAccessor {
+        private static final MethodType GETTER = MethodType.methodType(Object.class, Object.class);
+        private static final MethodType SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+        private final String name;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+        private final Class<?> primitiveType; // null unless the field is primitive
+        private final MethodHandle primitiveSetter; // (Object, primitiveType)void
+
+        MethodHandleAccessor(MethodHandles.Lookup lookup, Field field) throws IllegalAccessException {
+            this.name = field.getDeclaringClass().getSimpleName() + "." + field.getName();
+            MethodHandle getterHandle = lookup.unreflectGetter(field);
+            MethodHandle setterHandle = lookup.unreflectSetter(field);
+            this.getter = getterHandle.asType(GETTER);
+            this.setter = setterHandle.asType(SETTER);
+            Class<?> type = field.getType();
+            this.primitiveType = type.isPrimitive() ? type : null;
+            this.primitiveSetter = type.isPrimitive()
+                    ? setterHandle.asType(MethodType.methodType(void.class, Object.class, type)) : null;
+        }
+
+        @Override
+        public Object get(Object target) {
+            try {
+                return (Object) getter.invokeExact(target);
+            } catch (Throwable e) {
+                throw failure("read", e);
+            }
+        }
+
+        @Override
+        public void set(Object target, Object value) {
+            try {
+                setter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw failure("write", e);
+            }
+        }
+
+        @Override
+        public void setInt(Object target, int value) {
+            if (primitiveType != int.class) {
+                set(target, value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw failure("write", e);
+            }
+        }
+
+        @Override
+        public void setLong(Object target, long value) {
+            if (primitiveType != long.class) {
+                set(target, value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw failure("write", e);
+            }
+        }
+
+        @Override
+        public void setDouble(Object target, double value) {
+            if (primitiveType != double.class) {
+                set(target, value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw failure("write", e);
+            }
+        }
+
+        @Override
+        public void setFloat(Object target, float value) {
+            if (primitiveType != float.class) {
+                set(target, value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw failure("write", e);
+            }
+        }
+
+        @Override
+        public void setBoolean(Object target, boolean value) {
+            if (primitiveType != boolean.class) {
+                set(target, value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw failure("write", e);
+            }
+        }
+
+        @Override
+        public void setShort(Object target, short value) {
+            if (primitiveType != short.class) {
+                set(target, value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw failure("write", e);
+            }
+        }
+
+        @Override
+        public void setByte(Object target, byte value) {
+            if (primitiveType != byte.class) {
+                set(target, value);
+                return;
+            }
+            try {
+                primitiveSetter.invokeExact(target, value);
+            } catch (Throwable e) {
+                throw failure("write", e);
+            }
+        }
+
+        private RuntimeException failure(String action, Throwable e) {
+            if (e instanceof RuntimeException) {
+                return (RuntimeException) e; // e.g. ClassCastException for a value of the wrong type
+            }
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+            return new MiniOrmException("Failed to " + action + " field " + name, e);
+        }
+    }
+
+    /**
+     * Accessor backed by lambda classes that call the entity's getter and setter directly.
+     * int, long and double setters are bound to the matching primitive functional interfaces; other
+     * primitive types go through the boxed {@link BiConsumer}.
+     */
+    private static final class GeneratedAccessor implements PropertyAccessor {
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+        private final ObjIntConsumer<Object> intSetter;
+        private final ObjLongConsumer<Object> longSetter;
+        private final ObjDoubleConsumer<Object> doubleSetter;
+
+        @SuppressWarnings("unchecked")
+        GeneratedAccessor(MethodHandles.Lookup lookup, Field field, Method getterMethod, Method setterMethod) {
+            Class<?> owner = field.getDeclaringClass();
+            Class<?> type = field.getType();
+            try {
+                MethodHandle getterHandle = lookup.unreflect(getterMethod);
+                MethodHandle setterHandle = lookup.unreflect(setterMethod);
+                this.getter = (Function<Object, Object>) LambdaMetafactory.metafactory(lookup, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        getterHandle,
+                        getterHandle.type().wrap()).getTarget().invoke();
+                this.setter = (BiConsumer<Object, Object>) LambdaMetafactory.metafactory(lookup, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        setterHandle,
+                        MethodType.methodType(void.class, owner, MethodType.methodType(type).wrap().returnType())).getTarget().invoke();
+                this.intSetter = type == int.class
+                        ? (ObjIntConsumer<Object>) primitiveSetter(lookup, setterHandle, ObjIntConsumer.class, owner, int.class) : null;
+                this.longSetter = type == long.class
+                        ? (ObjLongConsumer<Object>) primitiveSetter(lookup, setterHandle, ObjLongConsumer.class, owner, long.class) : null;
+                this.doubleSetter = type == double.class
+                        ? (ObjDoubleConsumer<Object>) primitiveSetter(lookup, setterHandle, ObjDoubleConsumer.class, owner, double.class) : null;
+            } catch (Throwable e) {
+                throw new MiniOrmException("Failed to generate accessor for " + owner.getSimpleName() + "." + field.getName(), e);
+            }
+        }
+
+        private static Object primitiveSetter(MethodHandles.Lookup lookup, MethodHandle setterHandle,
+                                              Class<?> functionalInterface, Class<?> owner, Class<?> primitive) throws Throwable {
+            return LambdaMetafactory.metafactory(lookup, "accept",
+                    MethodType.methodType(functionalInterface),
+                    MethodType.methodType(void.class, Object.class, primitive),
+                    setterHandle,
+                    MethodType.methodType(void.class, owner, primitive)).getTarget().invoke();
+        }
+
+        @Override
+        public Object get(Object target) { return getter.apply(target); }
+
+        @Override
+        public void set(Object target, Object value) { setter.accept(target, value); }
+
+        @Override
+        public void setInt(Object target, int value) {
+            if (intSetter != null) {
+                intSetter.accept(target, value);
+            } else {
+                setter.accept(target, value);
+            }
+        }
+
+        @Override
+        public void setLong(Object target, long value) {
+            if (longSetter != null) {
+                longSetter.accept(target, value);
+            } else {
+                setter.accept(target, value);
+            }
+        }
+
+        @Override
+        public void setDouble(Object target, double value) {
+            if (doubleSetter != null) {
+                doubleSetter.accept(target, value);
+            } else {
+                setter.accept(target, value);
+            }
+        }
+    }
+}
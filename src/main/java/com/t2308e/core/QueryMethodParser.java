@@ -0,0 +1,376 @@
+package com.t2308e.core;
+
+import com.t2308e.core.DerivedQuery.Action;
+import com.t2308e.core.DerivedQuery.Criterion;
+import com.t2308e.core.DerivedQuery.JoinFetch;
+import com.t2308e.core.DerivedQuery.Operator;
+import com.t2308e.core.DerivedQuery.ResultKind;
+import com.t2308e.annotations.MyJoinFetch;
+import com.t2308e.annotations.MyManyToOne;
+import com.t2308e.dialect.Dialect;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.CloseableIterator;
+import com.t2308e.repository.Page;
+import com.t2308e.repository.PageRequest;
+import com.t2308e.repository.Slice;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Turns repository method names into {@link DerivedQuery} instances.
+ * <p>
+ * Grammar: {@code <prefix><subject>By<conditions>[OrderBy<property>[Asc|Desc]...]}, where the prefix is one of
+ * {@code find/read/get/query/stream} (rows), {@code count}, {@code exists} or {@code delete/remove}; the subject may
+ * contain {@code Distinct} and {@code First}/{@code TopN}; and conditions are properties joined by {@code And}/{@code Or},
+ * each optionally followed by an operator keyword ({@code GreaterThan}, {@code Between}, {@code In}, {@code IsNull},
+ * {@code Containing}, ...) and {@code IgnoreCase}. Property names are Java field names, not column names.
+ * <p>
+ * A find query whose last parameter is a {@link PageRequest} returns a {@link Slice} or {@link Page} of entities,
+ * ordered by the request's sort instead of an {@code OrderBy} in the name.
+ * <p>
+ * Find queries whose result (or element) type is an interface or record other than the entity select only the
+ * columns that type exposes and map rows to it; see {@link Projection}.
+ * <p>
+ * A method returning {@code CompletableFuture<X>} is parsed as if it returned {@code X}, with an {@code Async} suffix
+ * dropped from its name; it cannot stream.
+ * <p>
+ * {@code @MyJoinFetch("author")} on a find query loads the listed {@code @MyManyToOne} references with
+ * {@code LEFT JOIN}s in the same statement; the query's own columns are then qualified with the alias {@code t}.
+ */
+final class QueryMethodParser {
+
+    private static final Pattern METHOD_PATTERN =
+            Pattern.compile("^(find|read|get|query|stream|count|exists|delete|remove)(\\p{Alnum}*?)By(.*)$");
+    private static final Pattern LIMIT_PATTERN = Pattern.compile("(First|Top)(\\d*)");
+    private static final Pattern OR_SPLIT = Pattern.compile("Or(?=\\p{Lu})");
+    private static final Pattern AND_SPLIT = Pattern.compile("And(?=\\p{Lu})");
+    private static final Pattern ORDER_SPLIT = Pattern.compile("(?<=Asc|Desc)(?=\\p{Lu})");
+
+    // Longest keywords first so e.g. "GreaterThanEqual" wins over "GreaterThan" and "NotIn" over "In"
+    private static final String[][] KEYWORDS = {
+            {"GreaterThanEqual", "GREATER_THAN_EQUAL"}, {"LessThanEqual", "LESS_THAN_EQUAL"},
+            {"GreaterThan", "GREATER_THAN"}, {"LessThan", "LESS_THAN"}, {"After", "GREATER_THAN"}, {"Before", "LESS_THAN"},
+            {"IsNotNull", "IS_NOT_NULL"}, {"NotNull", "IS_NOT_NULL"}, {"IsNull", "IS_NULL"}, {"Null", "IS_NULL"},
+            {"StartingWith", "STARTING_WITH"}, {"StartsWith", "STARTING_WITH"},
+            {"EndingWith", "ENDING_WITH"}, {"EndsWith", "ENDING_WITH"},
+            {"Containing", "CONTAINING"}, {"Contains", "CONTAINING"},
+            {"NotLike", "NOT_LIKE"}, {"Like", "LIKE"}, {"Between", "BETWEEN"},
+            {"IsNotIn", "NOT_IN"}, {"NotIn", "NOT_IN"}, {"IsIn", "IN"}, {"In", "IN"},
+            {"IsTrue", "TRUE"}, {"True", "TRUE"}, {"IsFalse", "FALSE"}, {"False", "FALSE"},
+            {"IsNot", "NOT_EQUALS"}, {"Not", "NOT_EQUALS"}, {"Equals", "EQUALS"}, {"Is", "EQUALS"},
+    };
+
+    private QueryMethodParser() {
+    }
+
+    static DerivedQuery parse(Method method, EntityMetadata metadata, Dialect dialect) {
+        boolean async = AsyncExecution.isAsync(method);
+        Matcher matcher = METHOD_PATTERN.matcher(async ? AsyncExecution.syncName(method) : method.getName());
+        if (!matcher.matches()) {
+            throw invalid(method, "name does not start with find/read/get/query/stream/count/exists/delete/remove...By");
+        }
+        Action action = actionFor(matcher.group(1));
+        String subject = matcher.group(2);
+        String rest = matcher.group(3);
+
+        int limit = 0;
+        Matcher limitMatcher = LIMIT_PATTERN.matcher(subject);
+        if (limitMatcher.find()) {
+            limit = limitMatcher.group(2).isEmpty() ? 1 : Integer.parseInt(limitMatcher.group(2));
+            if (limit < 1 || action != Action.FIND) {
+                throw invalid(method, "First/Top needs a positive limit and is only supported on find queries");
+            }
+        }
+        boolean distinct = subject.contains("Distinct");
+        MyJoinFetch joinFetch = method.getAnnotation(MyJoinFetch.class);
+        String alias = joinFetch != null ? "t." : "";
+
+        String conditions = rest;
+        String orderBy = "";
+        int orderIndex = rest.indexOf("OrderBy");
+        if (orderIndex >= 0) {
+            conditions = rest.substring(0, orderIndex);
+            orderBy = rest.substring(orderIndex + "OrderBy".length());
+            if (orderBy.isEmpty()) {
+                throw invalid(method, "OrderBy without a property");
+            }
+            if (action != Action.FIND) {
+                throw invalid(method, "OrderBy is only supported on find queries");
+            }
+        }
+
+        List<List<Criterion>> predicate = new ArrayList<>();
+        int argIndex = 0;
+        if (!conditions.isEmpty()) {
+            for (String orPart : OR_SPLIT.split(conditions)) {
+                List<Criterion> group = new ArrayList<>();
+                for (String part : AND_SPLIT.split(orPart)) {
+                    Criterion criterion = parseCriterion(method, metadata, part, argIndex, alias);
+                    argIndex += criterion.operator.arity;
+                    group.add(criterion);
+                }
+                predicate.add(List.copyOf(group));
+            }
+        }
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        boolean paged = parameterTypes.length > 0 && parameterTypes[parameterTypes.length - 1] == PageRequest.class;
+        int conditionArguments = parameterTypes.length - (paged ? 1 : 0);
+        if (argIndex != conditionArguments) {
+            throw invalid(method, "conditions take " + argIndex + " argument(s) but the method declares "
+                    + conditionArguments);
+        }
+
+        Type result = resultType(method, async);
+        ResultKind resultKind = resultKindFor(method, action, metadata.getEntityClass(), result, async);
+        Projection projection = action == Action.FIND ? projectionFor(method, metadata, result, resultKind) : null;
+        boolean pageResult = resultKind == ResultKind.SLICE || resultKind == ResultKind.PAGE;
+        if (paged != pageResult) {
+            throw invalid(method, "a PageRequest parameter goes with a Slice or Page result, and vice versa");
+        }
+        if (paged && (limit > 0 || !orderBy.isEmpty() || projection != null)) {
+            throw invalid(method, "paged queries return entities and take their order from the PageRequest, "
+                    + "not from First/Top/OrderBy");
+        }
+        if (joinFetch != null && (action != Action.FIND || projection != null || paged)) {
+            throw invalid(method, "@MyJoinFetch only applies to find queries returning entities without a PageRequest");
+        }
+        String table = metadata.getTableName();
+        String head;
+        StringBuilder tail = new StringBuilder();
+        List<JoinFetch> joins = new ArrayList<>();
+        switch (action) {
+            case COUNT:
+                head = "SELECT COUNT(*) FROM " + table;
+                break;
+            case EXISTS:
+                head = "SELECT 1 FROM " + table;
+                tail.append(dialect.limit(1, false));
+                break;
+            case DELETE:
+                head = "DELETE FROM " + table;
+                break;
+            default:
+                head = "SELECT " + (distinct ? "DISTINCT " : "")
+                        + (projection != null ? projection.getSelectColumns() : metadata.getSelectColumns()) + " FROM " + table;
+                if (joinFetch != null) {
+                    head = joinHead(method, metadata, joinFetch, distinct, joins);
+                }
+                if (!orderBy.isEmpty()) {
+                    appendOrderBy(method, metadata, orderBy, tail, alias);
+                }
+                if (limit > 0) {
+                    tail.append(dialect.limit(limit, !orderBy.isEmpty()));
+                }
+        }
+        boolean unique = limit == 0 && (resultKind == ResultKind.OPTIONAL || resultKind == ResultKind.SINGLE);
+        return new DerivedQuery(method, action, resultKind, List.copyOf(predicate), head, tail.toString(), unique,
+                projection, List.copyOf(joins));
+    }
+
+    /**
+     * {@code SELECT t.<columns>, j1.<columns>, ... FROM table t LEFT JOIN target j1 ON j1.id = t.fk ...}, adding a
+     * {@link JoinFetch} per joined reference to {@code joins}.
+     */
+    private static String joinHead(Method method, EntityMetadata metadata, MyJoinFetch joinFetch, boolean distinct,
+                                   List<JoinFetch> joins) {
+        StringBuilder select = new StringBuilder("SELECT ").append(distinct ? "DISTINCT " : "");
+        appendQualified(select, "t", metadata);
+        StringBuilder from = new StringBuilder(" FROM ").append(metadata.getTableName()).append(" t");
+        int offset = 1 + metadata.getColumnCount();
+        for (String property : joinFetch.value()) {
+            Field field = metadata.getPropertyField(property);
+            if (field == null || !field.isAnnotationPresent(MyManyToOne.class)) {
+                throw invalid(method, "@MyJoinFetch property '" + property + "' is not a @MyManyToOne of "
+                        + metadata.getEntityClass().getSimpleName());
+            }
+            EntityMetadata target = EntityMetadata.of(field.getType());
+            String alias = "j" + (joins.size() + 1);
+            select.append(", ");
+            appendQualified(select, alias, target);
+            from.append(" LEFT JOIN ").append(target.getTableName()).append(' ').append(alias)
+                    .append(" ON ").append(alias).append('.').append(target.getIdColumnName())
+                    .append(" = t.").append(metadata.getPropertyColumn(property));
+            joins.add(new JoinFetch(metadata.getColumnFields().indexOf(field), field.getType(), offset));
+            offset += 1 + target.getColumnCount();
+        }
+        return select.append(from).toString();
+    }
+
+    private static void appendQualified(StringBuilder select, String alias, EntityMetadata metadata) {
+        select.append(alias).append('.').append(metadata.getIdColumnName());
+        for (String column : metadata.getColumnNames()) {
+            select.append(", ").append(alias).append('.').append(column);
+        }
+    }
+
+    private static Criterion parseCriterion(Method method, EntityMetadata metadata, String part, int argIndex,
+                                            String alias) {
+        boolean ignoreCase = false;
+        if (part.endsWith("IgnoreCase")) {
+            part = part.substring(0, part.length() - "IgnoreCase".length());
+            ignoreCase = true;
+        } else if (part.endsWith("IgnoringCase")) {
+            part = part.substring(0, part.length() - "IgnoringCase".length());
+            ignoreCase = true;
+        }
+
+        // A property whose name happens to end in a keyword (e.g. "createdBefore") is taken as-is
+        String column = metadata.getPropertyColumn(toProperty(part));
+        Operator operator = Operator.EQUALS;
+        if (column == null) {
+            for (String[] keyword : KEYWORDS) {
+                if (part.endsWith(keyword[0]) && part.length() > keyword[0].length()) {
+                    column = metadata.getPropertyColumn(toProperty(part.substring(0, part.length() - keyword[0].length())));
+                    if (column != null) {
+                        operator = Operator.valueOf(keyword[1]);
+                        break;
+                    }
+                }
+            }
+        }
+        if (column == null) {
+            throw invalid(method, "no mapped property for '" + part + "' on " + metadata.getEntityClass().getSimpleName());
+        }
+        int index = metadata.getColumnIndex(column) - 2;
+        Field referencedId = null;
+        if (index >= 0 && metadata.getColumnFields().get(index).isAnnotationPresent(MyManyToOne.class)) {
+            referencedId = EntityMetadata.of(metadata.getColumnFields().get(index).getType()).getIdField();
+        }
+        return new Criterion(alias + column, operator, ignoreCase, argIndex, referencedId);
+    }
+
+    private static void appendOrderBy(Method method, EntityMetadata metadata, String orderBy, StringBuilder tail,
+                                      String alias) {
+        tail.append(" ORDER BY ");
+        String[] parts = ORDER_SPLIT.split(orderBy);
+        for (int i = 0; i < parts.length; i++) {
+            String part = parts[i];
+            String direction = "ASC";
+            if (part.endsWith("Desc")) {
+                part = part.substring(0, part.length() - 4);
+                direction = "DESC";
+            } else if (part.endsWith("Asc")) {
+                part = part.substring(0, part.length() - 3);
+            }
+            String column = metadata.getPropertyColumn(toProperty(part));
+            if (column == null) {
+                throw invalid(method, "no mapped property for OrderBy '" + part + "'");
+            }
+            tail.append(i == 0 ? "" : ", ").append(alias).append(column).append(' ').append(direction);
+        }
+    }
+
+    private static Action actionFor(String prefix) {
+        switch (prefix) {
+            case "count": return Action.COUNT;
+            case "exists": return Action.EXISTS;
+            case "delete":
+            case "remove": return Action.DELETE;
+            default: return Action.FIND;
+        }
+    }
+
+    /**
+     * The declared result type, or for a {@code CompletableFuture<X>} method, {@code X}.
+     */
+    private static Type resultType(Method method, boolean async) {
+        Type generic = method.getGenericReturnType();
+        if (!async) {
+            return generic;
+        }
+        Type result = generic instanceof ParameterizedType ? ((ParameterizedType) generic).getActualTypeArguments()[0] : null;
+        if (!(result instanceof Class) && !(result instanceof ParameterizedType)) {
+            throw invalid(method, "CompletableFuture needs a concrete result type");
+        }
+        return result;
+    }
+
+    private static ResultKind resultKindFor(Method method, Action action, Class<?> entityClass, Type result, boolean async) {
+        Class<?> type = result instanceof ParameterizedType ? (Class<?>) ((ParameterizedType) result).getRawType()
+                : result instanceof Class ? (Class<?>) result : method.getReturnType();
+        switch (action) {
+            case COUNT:
+                if (type == long.class || type == Long.class) return ResultKind.LONG;
+                if (type == int.class || type == Integer.class) return ResultKind.INT;
+                throw invalid(method, "count queries must return long or int");
+            case EXISTS:
+                if (type == boolean.class || type == Boolean.class) return ResultKind.BOOLEAN;
+                throw invalid(method, "exists queries must return boolean");
+            case DELETE:
+                if (type == void.class || type == Void.class) return ResultKind.VOID;
+                if (type == long.class || type == Long.class) return ResultKind.LONG;
+                if (type == int.class || type == Integer.class) return ResultKind.INT;
+                throw invalid(method, "delete queries must return void, long or int");
+            default:
+                break;
+        }
+
+        ResultKind kind;
+        if (type == entityClass) {
+            return ResultKind.SINGLE;
+        } else if (type == Optional.class) {
+            kind = ResultKind.OPTIONAL;
+        } else if (type == Slice.class) {
+            kind = ResultKind.SLICE;
+        } else if (type == Page.class) {
+            kind = ResultKind.PAGE;
+        } else if (type == Stream.class) {
+            kind = ResultKind.STREAM;
+        } else if (type == CloseableIterator.class) {
+            kind = ResultKind.ITERATOR;
+        } else if (type.isAssignableFrom(ArrayList.class) && Collection.class.isAssignableFrom(type) || type == Iterable.class) {
+            kind = ResultKind.LIST;
+        } else if (Projection.isProjectionType(type)) {
+            return ResultKind.SINGLE;
+        } else {
+            throw invalid(method, "unsupported return type " + type.getName());
+        }
+        if (async && (kind == ResultKind.STREAM || kind == ResultKind.ITERATOR)) {
+            throw invalid(method, "streaming results cannot be returned asynchronously");
+        }
+        return kind;
+    }
+
+    /**
+     * The projection a find query maps rows to, or null when it returns entities (or an unchecked element type).
+     */
+    private static Projection projectionFor(Method method, EntityMetadata metadata, Type result, ResultKind kind) {
+        Type element = kind == ResultKind.SINGLE ? result
+                : result instanceof ParameterizedType ? ((ParameterizedType) result).getActualTypeArguments()[0] : null;
+        if (!(element instanceof Class) || element == metadata.getEntityClass()) {
+            return null;
+        }
+        Class<?> type = (Class<?>) element;
+        if (!Projection.isProjectionType(type)) {
+            throw invalid(method, "element type " + type.getName() + " is neither " + metadata.getEntityClass().getName()
+                    + " nor an interface or record projection");
+        }
+        try {
+            return Projection.of(type, metadata);
+        } catch (MiniOrmException e) {
+            throw invalid(method, e.getMessage());
+        }
+    }
+
+    private static String toProperty(String name) {
+        if (name.isEmpty()) {
+            return name;
+        }
+        return Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    }
+
+    private static MiniOrmException invalid(Method method, String reason) {
+        return new MiniOrmException("Cannot derive a query from " + method.getDeclaringClass().getSimpleName() + "."
+                + method.getName() + ": " + reason);
+    }
+}
@@ -1,225 +1,1039 @@
 package com.t2308e.core;
 
-import com.t2308e.annotations.MyColumn;
+import com.t2308e.bulk.BatchInsertBulkLoader;
+import com.t2308e.bulk.BulkLoader;
+import com.t2308e.cache.EntityCache;
 import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.StatementCacheStats;
+import com.t2308e.config.StatementCaching;
+import com.t2308e.dialect.Dialect;
 import com.t2308e.exception.MiniOrmException;
-import com.t2308e.util.ReflectionUtil;
+import com.t2308e.exception.OptimisticLockException;
+import com.t2308e.logging.SqlLogger;
+import com.t2308e.metrics.MethodMetrics;
+import com.t2308e.metrics.MetricsRegistry;
+import com.t2308e.metrics.RepositoryMetrics;
+import com.t2308e.repository.CloseableIterator;
+import com.t2308e.repository.MyCrudRepository;
+import com.t2308e.repository.Page;
+import com.t2308e.repository.PageRequest;
+import com.t2308e.repository.Slice;
 
-import java.lang.reflect.Field;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+/**
+ * Backs a repository proxy. Every method the proxy can receive is resolved to a {@link MethodExecutor} when the
+ * handler is built, so a call costs one map lookup: CRUD methods go to the matching operation, derived query methods
+ * to their precompiled {@link DerivedQuery}, default methods to a bound {@link MethodHandle}, and
+ * {@code equals}/{@code hashCode}/{@code toString} are answered for the proxy itself.
+ * <p>
+ * CRUD and derived query executors are wrapped to record calls, errors and latency in a {@link MethodMetrics}
+ * captured at build time, and pass it down so the operation can count the rows it read or wrote.
+ * <p>
+ * A method returning {@link CompletableFuture} runs the operation it names, minus an optional {@code Async} suffix
+ * ({@code findByIdAsync}, {@code findByEmailAsync}), through an {@link AsyncExecution}; its metrics time the
+ * operation itself, not the wait for a thread or permit.
+ * <p>
+ * Statements that only read run on {@link DataSourceConfig#getReadConnection()}, so they go to read replicas when
+ * the data source has any; writes and derived deletes use the primary. So do lookups by id of cacheable entities, since
+ * their rows fill the shared cache.
+ */
 public class RepositoryInvocationHandler<T, ID> implements InvocationHandler {
 
+    private static final Object[] NO_ARGS = new Object[0];
+
     private final DataSourceConfig dataSourceConfig;
     private final Class<T> entityClass;
     private final Class<ID> idClass; // Not directly used in SQL but good for type safety
-    private final String tableName;
-    private final Field idField;
-    private final String idColumnName;
+    private final EntityMetadata metadata;
+    private final EntityMapper<T> mapper;
+    private final RepositoryMetrics metrics;
+    private final StatementCacheStats statementCacheStats;
+    private final EntityWriter<T> writer;
+    private final int fetchSize;
+    private final EntityCache cache; // null unless the entity is @MyEntity(cacheable = true)
+    private final DirtyTracker<T> dirtyTracker; // null unless RepositorySettings.setDirtyTracking(true)
+    private final AssociationLoader associations; // null unless the entity has @MyManyToOne/@MyOneToMany fields
+    private final SqlLogger sqlLogger;
+    private final Dialect dialect;
+    private final BulkLoader bulkLoader;
+    private final int bulkChunkSize;
+    private final String repositoryName;
+    private final Map<Method, MethodExecutor> executors;
 
-    @SuppressWarnings("unchecked")
     public RepositoryInvocationHandler(DataSourceConfig dataSourceConfig, Class<?> repositoryInterface) {
+        this(dataSourceConfig, repositoryInterface, new RepositorySettings());
+    }
+
+    public RepositoryInvocationHandler(DataSourceConfig dataSourceConfig, Class<?> repositoryInterface, RepositorySettings settings) {
+        this(dataSourceConfig, repositoryInterface, settings, null, null);
+    }
+
+    /**
+     * @param registry registry holding the metrics shared by all proxies of this interface, or null for private metrics
+     * @param async    runs {@code CompletableFuture} methods; null to build one from {@code settings} if needed
+     */
+    @SuppressWarnings("unchecked")
+    RepositoryInvocationHandler(DataSourceConfig dataSourceConfig, Class<?> repositoryInterface, RepositorySettings settings,
+                                MetricsRegistry registry, AsyncExecution async) {
         this.dataSourceConfig = dataSourceConfig;
+        this.fetchSize = settings.getFetchSize();
 
         ParameterizedType genericInterface = (ParameterizedType) repositoryInterface.getGenericInterfaces()[0];
         this.entityClass = (Class<T>) genericInterface.getActualTypeArguments()[0];
         this.idClass = (Class<ID>) genericInterface.getActualTypeArguments()[1];
 
-        this.tableName = ReflectionUtil.getTableName(entityClass);
-        this.idField = ReflectionUtil.getIdField(entityClass);
-        this.idColumnName = ReflectionUtil.getColumnName(this.idField);
+        this.mapper = EntityMapper.of(entityClass, settings.getAccessorMode());
+        this.metadata = mapper.getMetadata();
+        this.repositoryName = repositoryInterface.getSimpleName();
+        this.metrics = registry != null ? registry.repository(repositoryInterface, entityClass)
+                : new RepositoryMetrics(repositoryName, entityClass.getSimpleName());
+        this.statementCacheStats = this.metrics.getStatementCacheStats();
+        this.sqlLogger = settings.getSqlLogger();
+        this.dialect = dataSourceConfig.getDialect();
+        this.writer = new EntityWriter<>(mapper, settings.getBatchSize(), sqlLogger, this.metrics.getBatchSizeHistogram(),
+                dataSourceConfig.getIdGenerator(entityClass), dialect);
+        this.bulkLoader = settings.getBulkLoader() != null ? settings.getBulkLoader()
+                : defaultBulkLoader(dialect, metadata, settings.getBatchSize());
+        this.bulkChunkSize = settings.getBulkChunkSize();
+        this.cache = settings.cacheFor(metadata);
+        this.dirtyTracker = settings.isDirtyTracking() ? new DirtyTracker<>(mapper) : null;
+        this.associations = metadata.hasAssociations()
+                ? new AssociationLoader(dataSourceConfig, settings, statementCacheStats) : null;
+        if (associations != null) {
+            associations.validate(metadata);
+        }
+        this.executors = buildExecutors(repositoryInterface, async, settings);
     }
 
-    @Override
-    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
-        String methodName = method.getName();
+    /**
+     * Resolves every method of the repository interface, plus the {@link Object} methods a proxy receives. Methods
+     * outside {@link MyCrudRepository} are parsed as derived queries here, so a malformed method name fails when the
+     * repository is created rather than on first call.
+     */
+    private Map<Method, MethodExecutor> buildExecutors(Class<?> repositoryInterface, AsyncExecution async,
+                                                       RepositorySettings settings) {
+        Map<Method, MethodExecutor> table = new HashMap<>();
+        try {
+            table.put(Object.class.getMethod("equals", Object.class), (proxy, args) -> proxy == args[0]);
+            table.put(Object.class.getMethod("hashCode"), (proxy, args) -> System.identityHashCode(proxy));
+            table.put(Object.class.getMethod("toString"),
+                    (proxy, args) -> repositoryName + " proxy for " + entityClass.getSimpleName());
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
 
-        if ("save".equals(methodName)) {
-            return save((T) args[0]);
-        } else if ("findById".equals(methodName)) {
-            return findById((ID) args[0]);
-        } else if ("findAll".equals(methodName)) {
-            return findAll();
-        } else if ("deleteById".equals(methodName)) {
-            deleteById((ID) args[0]);
-            return null; // void method
-        } else if ("count".equals(methodName)) {
-            return count();
+        Map<String, Integer> overloads = new HashMap<>();
+        for (Method method : repositoryInterface.getMethods()) {
+            overloads.merge(method.getName(), 1, Integer::sum);
         }
-        // Handle Object methods like toString, hashCode, equals
-        if (method.getDeclaringClass().equals(Object.class)) {
-            return method.invoke(this, args);
+        for (Method method : repositoryInterface.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (method.isDefault()) {
+                table.put(method, defaultMethodExecutor(method));
+                continue;
+            }
+            MethodMetrics methodMetrics = metrics.method(metricName(method, overloads.get(method.getName()) > 1));
+            boolean isAsync = AsyncExecution.isAsync(method);
+            String name = isAsync ? AsyncExecution.syncName(method) : method.getName();
+            Method crud = crudMethod(name, method.getParameterTypes());
+            MethodExecutor executor;
+            if (crud != null) {
+                if (isAsync) {
+                    checkAsyncCrudMethod(method, crud);
+                }
+                executor = crudExecutor(crud, methodMetrics);
+            } else {
+                DerivedQuery query = QueryMethodParser.parse(method, metadata, dialect);
+                executor = (proxy, args) -> executeDerived(query, args, methodMetrics);
+            }
+            executor = instrumented(executor, methodMetrics);
+            if (isAsync) {
+                if (async == null) {
+                    int poolSize = dataSourceConfig.getMaxPoolSize();
+                    Executor configured = settings.getAsyncExecutor();
+                    async = new AsyncExecution(configured != null ? configured
+                            : AsyncExecution.defaultExecutor(poolSize > 0 ? poolSize : Runtime.getRuntime().availableProcessors() * 2),
+                            poolSize > 0 ? new Semaphore(poolSize, true) : null);
+                }
+                executor = asyncExecutor(method, executor, async);
+            }
+            table.put(method, executor);
         }
+        return Map.copyOf(table);
+    }
 
-        throw new MiniOrmException("Unsupported method: " + methodName);
+    private MethodExecutor asyncExecutor(Method method, MethodExecutor executor, AsyncExecution async) {
+        return (proxy, args) -> async.submit(() -> {
+            try {
+                return executor.execute(proxy, args);
+            } catch (SQLException e) {
+                throw failure(method, e);
+            }
+        });
     }
 
-    private T save(T entity) throws SQLException, IllegalAccessException {
-        ID idValue = (ID) idField.get(entity);
-        Map<String, Field> columnFields = ReflectionUtil.getColumnFields(entityClass);
+    /**
+     * Rejects {@code CompletableFuture<X> fooAsync(...)} when {@code X} cannot hold what {@code foo} returns, and
+     * cursor-based methods, whose connection would be held open by whichever thread completes the future.
+     */
+    private static void checkAsyncCrudMethod(Method method, Method crud) {
+        Class<?> result = crud.getReturnType();
+        if (result == Stream.class || result == CloseableIterator.class) {
+            throw new MiniOrmException(method.getDeclaringClass().getSimpleName() + "." + method.getName()
+                    + ": streaming results cannot be returned asynchronously");
+        }
+        if (crud.getGenericReturnType() instanceof TypeVariable) {
+            return; // save(T): the entity type
+        }
+        Type type = ((ParameterizedType) method.getGenericReturnType()).getActualTypeArguments()[0];
+        Class<?> raw = type instanceof ParameterizedType ? (Class<?>) ((ParameterizedType) type).getRawType()
+                : type instanceof Class ? (Class<?>) type : Object.class;
+        Class<?> boxed = result == void.class ? Void.class : result == long.class ? Long.class : result;
+        if (!raw.isAssignableFrom(boxed)) {
+            throw new MiniOrmException(method.getDeclaringClass().getSimpleName() + "." + method.getName()
+                    + " must return CompletableFuture<" + boxed.getSimpleName() + "> to match " + crud.getName());
+        }
+    }
 
-        if (idValue == null || (idValue instanceof Number && ((Number) idValue).longValue() == 0L)) { // Assuming 0 means new for numeric IDs
-            // INSERT
-            String columns = String.join(", ", columnFields.keySet());
-            String placeholders = columnFields.keySet().stream().map(c -> "?").collect(Collectors.joining(", "));
-            String sql = String.format("INSERT INTO %s (%s) VALUES (%s)", tableName, columns, placeholders);
+    private static String metricName(Method method, boolean overloaded) {
+        if (!overloaded) {
+            return method.getName();
+        }
+        StringBuilder name = new StringBuilder(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            name.append(i == 0 ? "" : ",").append(parameterTypes[i].getSimpleName());
+        }
+        return name.append(')').toString();
+    }
 
-            System.out.println("Executing SQL: " + sql);
+    private static MethodExecutor instrumented(MethodExecutor executor, MethodMetrics methodMetrics) {
+        return (proxy, args) -> {
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Object result = executor.execute(proxy, args);
+                failed = false;
+                return result;
+            } finally {
+                methodMetrics.recordCall(System.nanoTime() - start, failed);
+            }
+        };
+    }
 
-            try (Connection conn = dataSourceConfig.getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-                int i = 1;
-                for (Field field : columnFields.values()) {
-                    stmt.setObject(i++, field.get(entity));
-                }
-                stmt.executeUpdate();
-
-                ResultSet generatedKeys = stmt.getGeneratedKeys();
-                if (generatedKeys.next()) {
-                    // Set the generated ID back to the entity object
-                    Object generatedId = generatedKeys.getObject(1);
-                    // Convert to appropriate type if necessary, e.g., Long for auto-increment
-                    if (idField.getType() == Long.class || idField.getType() == long.class) {
-                        idField.set(entity, ((Number)generatedId).longValue());
-                    } else if (idField.getType() == Integer.class || idField.getType() == int.class) {
-                        idField.set(entity, ((Number)generatedId).intValue());
-                    } else {
-                        idField.set(entity, generatedId);
-                    }
+    /**
+     * The {@link MyCrudRepository} method called {@code name} whose parameters accept {@code parameterTypes}, so a
+     * redeclaration such as {@code findByIdAsync(Long id)} matches {@code findById(ID id)}; null if there is none.
+     */
+    static Method crudMethod(String name, Class<?>[] parameterTypes) {
+        for (Method crud : MyCrudRepository.class.getMethods()) {
+            if (crud.getName().equals(name) && crud.getParameterCount() == parameterTypes.length) {
+                Class<?>[] crudTypes = crud.getParameterTypes();
+                boolean accepts = true;
+                for (int i = 0; i < crudTypes.length && accepts; i++) {
+                    accepts = crudTypes[i].isAssignableFrom(parameterTypes[i]);
+                }
+                if (accepts) {
+                    return crud;
                 }
-                return entity;
             }
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private MethodExecutor crudExecutor(Method crud, MethodMetrics m) {
+        switch (crud.getName()) {
+            case "save": return (proxy, args) -> save((T) args[0], m);
+            case "saveAll": return (proxy, args) -> saveAll((Iterable<T>) args[0], m);
+            case "findById": return (proxy, args) -> findById((ID) args[0], m);
+            case "findAll":
+                if (crud.getParameterCount() == 1) {
+                    return (proxy, args) -> findAll((PageRequest) args[0], false, m);
+                }
+                return (proxy, args) -> findAll(m);
+            case "findPage": return (proxy, args) -> findAll((PageRequest) args[0], true, m);
+            case "streamAll": return (proxy, args) -> streamAll(m);
+            case "iterateAll": return (proxy, args) -> iterateAll(m);
+            case "deleteById": return (proxy, args) -> {
+                deleteById((ID) args[0], m);
+                return null;
+            };
+            case "deleteAllById": return (proxy, args) -> {
+                deleteAllById((Iterable<? extends ID>) args[0], m);
+                return null;
+            };
+            case "count": return (proxy, args) -> count(m);
+            case "upsert": return (proxy, args) -> {
+                upsertAll(List.of((T) args[0]), m);
+                return args[0];
+            };
+            case "upsertAll": return (proxy, args) -> {
+                List<T> all = new ArrayList<>();
+                ((Iterable<T>) args[0]).forEach(all::add);
+                upsertAll(all, m);
+                return all;
+            };
+            case "bulkInsert":
+                if (crud.getParameterCount() == 2) {
+                    return (proxy, args) -> bulkInsert((Stream<T>) args[0], (LongConsumer) args[1], m);
+                }
+                return (proxy, args) -> bulkInsert((Stream<T>) args[0], null, m);
+            default: throw new MiniOrmException("Unsupported method: " + crud.getName());
+        }
+    }
+
+    /**
+     * Calls the interface's own implementation of a default method on the proxy, via a handle that spreads the
+     * argument array, instead of looping back into this handler.
+     */
+    static MethodExecutor defaultMethodExecutor(Method method) {
+        Class<?> declaringInterface = method.getDeclaringClass();
+        MethodHandle handle;
+        try {
+            handle = MethodHandles.privateLookupIn(declaringInterface, MethodHandles.lookup())
+                    .unreflectSpecial(method, declaringInterface)
+                    .asSpreader(Object[].class, method.getParameterCount())
+                    .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
+        } catch (IllegalAccessException e) {
+            throw new MiniOrmException("Cannot access default method " + method, e);
+        }
+        return (proxy, args) -> {
+            Object[] actualArgs = args != null ? args : NO_ARGS;
+            return (Object) handle.invokeExact(proxy, actualArgs);
+        };
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        MethodExecutor executor = executors.get(method);
+        if (executor == null) {
+            throw new MiniOrmException("Unsupported method: " + method.getName());
+        }
+        try {
+            return executor.execute(proxy, args);
+        } catch (SQLException e) {
+            throw failure(method, e);
+        }
+    }
+
+    private MiniOrmException failure(Method method, SQLException e) {
+        return new MiniOrmException(repositoryName + "." + method.getName() + " failed: " + e.getMessage(), e);
+    }
+
+    private T save(T entity, MethodMetrics m) throws SQLException {
+        Object idValue = mapper.getId(entity);
+
+        if (EntityWriter.isNew(idValue)) {
+            return insert(entity, m);
         } else {
-            // UPDATE
-            String setClauses = columnFields.keySet().stream()
-                    .map(colName -> colName + " = ?")
-                    .collect(Collectors.joining(", "));
-            String sql = String.format("UPDATE %s SET %s WHERE %s = ?", tableName, setClauses, idColumnName);
-            System.out.println("Executing SQL: " + sql);
+            // UPDATE, of every column unless dirty tracking knows which ones changed
+            long mask = updateMask(entity);
+            if (mask == 0L) {
+                return entity;
+            }
+            String sql = metadata.getUpdateSql(mask);
+            long start = sqlLogger.start();
 
             try (Connection conn = dataSourceConfig.getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(sql)) {
-                int i = 1;
-                for (Field field : columnFields.values()) {
-                    stmt.setObject(i++, field.get(entity));
+                 PreparedStatement stmt = prepare(conn, sql)) {
+                writer.bindUpdate(stmt, entity, mask);
+                int updated = stmt.executeUpdate();
+                m.addRowsWritten(updated);
+                if (sqlLogger.isEnabled()) {
+                    logUpdate(sql, start, entity, idValue, mask);
                 }
-                stmt.setObject(i, idValue); // Set ID for WHERE clause
-                stmt.executeUpdate();
-                return entity;
+                invalidate(idValue);
+                writer.checkUpdated(entity, updated);
+            }
+            mapper.incrementVersion(entity);
+            track(entity);
+            return entity;
+        }
+    }
+
+    /**
+     * INSERTs {@code entity}. An entity whose id is already set, as {@link ShardedRepositoryHandler} does with
+     * generated ids, or that gets one from its {@code @MyId} strategy is inserted with it; otherwise the generated key
+     * is read back.
+     */
+    T insert(T entity, MethodMetrics m) throws SQLException {
+        boolean assigned = writer.assignId(entity);
+        try {
+            return insertRow(entity, m);
+        } catch (SQLException | RuntimeException e) {
+            if (assigned) {
+                writer.clearId(entity);
             }
+            throw e;
         }
     }
 
-    private Optional<T> findById(ID id) throws SQLException {
-        String sql = String.format("SELECT * FROM %s WHERE %s = ?", tableName, idColumnName);
-        System.out.println("Executing SQL: " + sql);
+    private T insertRow(T entity, MethodMetrics m) throws SQLException {
+        String sql = writer.insertSql(entity);
+        boolean generatedKey = EntityWriter.isNew(mapper.getId(entity));
+        long start = sqlLogger.start();
 
         try (Connection conn = dataSourceConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = prepare(conn, sql, generatedKey ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS)) {
+
+            writer.bindInsert(stmt, entity);
+            m.addRowsWritten(stmt.executeUpdate());
+            if (sqlLogger.isEnabled() && generatedKey) {
+                sqlLogger.log(sql, start, metadata.getColumnNames(), mapper.snapshot(entity));
+            } else if (sqlLogger.isEnabled()) {
+                List<String> columns = new ArrayList<>(metadata.getColumnNames());
+                columns.add(0, metadata.getIdColumnName());
+                List<Object> values = new ArrayList<>(Arrays.asList(mapper.snapshot(entity)));
+                values.add(0, mapper.getId(entity));
+                sqlLogger.log(sql, start, columns, values.toArray());
+            }
+
+            if (generatedKey) {
+                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        // Set the generated ID back to the entity object
+                        mapper.setId(entity, generatedKeys.getObject(1));
+                    }
+                }
+            }
+        }
+        track(entity);
+        return entity;
+    }
+
+    private List<T> saveAll(Iterable<T> entities, MethodMetrics m) throws SQLException {
+        List<T> inserts = new ArrayList<>();
+        List<T> existing = new ArrayList<>();
+        List<T> all = new ArrayList<>();
+        for (T entity : entities) {
+            all.add(entity);
+            (EntityWriter.isNew(mapper.getId(entity)) ? inserts : existing).add(entity);
+        }
+        write(inserts, existing, m);
+        return all;
+    }
+
+    /**
+     * Inserts or updates {@code entities} in one transaction with the dialect's native upsert; see
+     * {@link EntityWriter#upsert}.
+     */
+    void upsertAll(List<T> entities, MethodMetrics m) throws SQLException {
+        if (entities.isEmpty()) {
+            return;
+        }
+        Object[] originalIds = writer.captureIds(entities);
+        try (Connection conn = dataSourceConfig.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                writer.upsert(conn, entities, statementCacheStats);
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                writer.restoreIds(entities, originalIds);
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        m.addRowsWritten(entities.size());
+        for (T entity : entities) {
+            invalidate(mapper.getId(entity));
+            track(entity);
+        }
+    }
+
+    /**
+     * Loads {@code entities} through the bulk loader in chunks of {@code bulkChunkSize}, each committed on its own
+     * (unless a transaction is bound), so a failure keeps the chunks loaded before it. Entities are converted to rows
+     * one at a time as the loader consumes them. Ids from the database are not read back, and loaded entities are
+     * neither cached nor tracked.
+     */
+    private long bulkInsert(Stream<T> entities, LongConsumer progress, MethodMetrics m) throws SQLException {
+        boolean withId = writer.hasIdGenerator();
+        List<String> columns = new ArrayList<>(metadata.getColumnNames());
+        if (withId) {
+            columns.add(0, metadata.getIdColumnName());
+        }
+        Iterator<T> source = entities.iterator();
+        long total = 0;
+
+        try (Connection conn = dataSourceConfig.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                while (source.hasNext()) {
+                    Iterator<Object[]> chunk = new Iterator<>() {
+                        private int remaining = bulkChunkSize;
+
+                        @Override
+                        public boolean hasNext() {
+                            return remaining > 0 && source.hasNext();
+                        }
+
+                        @Override
+                        public Object[] next() {
+                            remaining--;
+                            return writer.bulkRow(source.next(), withId);
+                        }
+                    };
+                    long start = sqlLogger.start();
+                    long loaded = bulkLoader.load(conn, metadata.getTableName(), columns, chunk);
+                    conn.commit();
+                    if (sqlLogger.isEnabled()) {
+                        sqlLogger.logBatch("INSERT INTO " + metadata.getTableName() + " (" + String.join(", ", columns)
+                                + ") -- bulk load via " + bulkLoader.getClass().getSimpleName(), start, (int) loaded);
+                    }
+                    total += loaded;
+                    m.addRowsWritten(loaded);
+                    if (progress != null) {
+                        progress.accept(total);
+                    }
+                }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        return total;
+    }
+
+    private static BulkLoader defaultBulkLoader(Dialect dialect, EntityMetadata metadata, int batchSize) {
+        // CSV files carry no binary values
+        boolean binary = metadata.getColumnFields().stream().anyMatch(f -> f.getType() == byte[].class);
+        return binary ? new BatchInsertBulkLoader(batchSize) : dialect.bulkLoader(batchSize);
+    }
+
+    /**
+     * Inserts {@code inserts} and updates the changed columns of {@code existing} in one transaction. If it rolls
+     * back, the ids of {@code inserts} are put back as they were, so saving them again inserts them.
+     */
+    void write(List<T> inserts, List<T> existing, MethodMetrics m) throws SQLException {
+        List<T> updates = new ArrayList<>();
+        // Updates grouped by changed-column set, so each group is one batched statement
+        Map<Long, List<T>> updateGroups = new LinkedHashMap<>();
+        for (T entity : existing) {
+            long mask = updateMask(entity);
+            if (mask != 0L) {
+                updateGroups.computeIfAbsent(mask, k -> new ArrayList<>()).add(entity);
+                updates.add(entity);
+            }
+        }
+        if (inserts.isEmpty() && updates.isEmpty()) {
+            return;
+        }
+
+        // Ids written by the inserts belong to rows a rollback removes again
+        Object[] originalIds = writer.captureIds(inserts);
+        try (Connection conn = dataSourceConfig.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                if (!inserts.isEmpty()) {
+                    writer.insert(conn, inserts, statementCacheStats);
+                }
+                for (Map.Entry<Long, List<T>> group : updateGroups.entrySet()) {
+                    writer.updateColumns(conn, group.getKey(), group.getValue(), statementCacheStats);
+                }
+                conn.commit();
+            } catch (OptimisticLockException e) {
+                conn.rollback();
+                writer.restoreIds(inserts, originalIds);
+                invalidate(e.getId());
+                throw e;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                writer.restoreIds(inserts, originalIds);
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        m.addRowsWritten(inserts.size() + updates.size());
+        for (T entity : updates) {
+            invalidate(mapper.getId(entity));
+            mapper.incrementVersion(entity);
+            track(entity);
+        }
+        for (T entity : inserts) {
+            track(entity);
+        }
+    }
+
+    /**
+     * Columns an UPDATE of {@code entity} has to write: the changed ones if it is tracked, otherwise all.
+     */
+    private long updateMask(T entity) {
+        long mask = dirtyTracker != null ? dirtyTracker.dirtyMask(entity) : -1L;
+        return mask == -1L ? metadata.getAllColumnsMask() : mask;
+    }
+
+    private void track(T entity) {
+        if (dirtyTracker != null) {
+            dirtyTracker.track(entity);
+        }
+    }
+
+    /**
+     * Logs an UPDATE with the parameters {@link EntityWriter#bindUpdate} bound for {@code columnMask}.
+     */
+    private void logUpdate(String sql, long start, T entity, Object idValue, long columnMask) {
+        Object[] snapshot = mapper.snapshot(entity);
+        boolean all = columnMask == metadata.getAllColumnsMask() || snapshot.length >= 64;
+        int versionIndex = metadata.getVersionColumnIndex();
+        List<String> columns = new ArrayList<>(snapshot.length + 2);
+        List<Object> values = new ArrayList<>(snapshot.length + 2);
+        for (int i = 0; i < snapshot.length; i++) {
+            if (i != versionIndex && (all || (columnMask & (1L << i)) != 0)) {
+                columns.add(metadata.getColumnNames().get(i));
+                values.add(snapshot[i]);
+            }
+        }
+        columns.add(metadata.getIdColumnName());
+        values.add(idValue);
+        if (versionIndex >= 0) {
+            columns.add(metadata.getVersionColumnName());
+            values.add(snapshot[versionIndex]);
+        }
+        sqlLogger.log(sql, start, columns, values.toArray());
+    }
+
+    private Optional<T> findById(ID id, MethodMetrics m) throws SQLException {
+        T cached = findCached(id);
+        return cached != null ? Optional.of(cached) : loadById(id, m);
+    }
+
+    /**
+     * The entity with {@code id} from the second-level cache, or null if it is not cached (or not cacheable).
+     */
+    T findCached(ID id) throws SQLException {
+        if (cache == null) {
+            return null;
+        }
+        Object cacheKey = EntityMapper.convertToFieldType(id, mapper.getIdType());
+        Object[] cached = cache.get(cacheKey);
+        if (cached == null) {
+            return null;
+        }
+        T entity = mapper.hydrate(cacheKey, cached);
+        track(entity);
+        resolve(List.of(entity), null);
+        return entity;
+    }
+
+    /**
+     * Reads the entity with {@code id} from the database without consulting the cache, and caches what it finds.
+     */
+    Optional<T> loadById(ID id, MethodMetrics m) throws SQLException {
+        Object cacheKey = cache != null ? EntityMapper.convertToFieldType(id, mapper.getIdType()) : null;
+        String sql = metadata.getSelectByIdSql();
+        long start = sqlLogger.start();
+
+        // A row cached from a lagging replica would outlive the invalidation of a later write, so fill from the primary
+        try (Connection conn = cache != null ? dataSourceConfig.getConnection() : dataSourceConfig.getReadConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
             stmt.setObject(1, id);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRowToEntity(rs));
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (sqlLogger.isEnabled()) {
+                    sqlLogger.log(sql, start, List.of(metadata.getIdColumnName()), new Object[]{id});
+                }
+                if (rs.next()) {
+                    T entity = mapRowToEntity(rs);
+                    m.addRowsRead(1);
+                    // Rows read inside a transaction may be uncommitted, so keep them out of the shared cache
+                    if (cache != null && !dataSourceConfig.getTransactionManager().isTransactionActive()) {
+                        cache.put(cacheKey, mapper.snapshot(entity));
+                    }
+                    resolve(List.of(entity), null);
+                    return Optional.of(entity);
+                }
             }
         }
         return Optional.empty();
     }
 
-    private List<T> findAll() throws SQLException {
+    private List<T> findAll(MethodMetrics m) throws SQLException {
         List<T> results = new ArrayList<>();
-        String sql = String.format("SELECT * FROM %s", tableName);
-        System.out.println("Executing SQL: " + sql);
+        String sql = metadata.getSelectAllSql();
+        long start = sqlLogger.start();
 
-        try (Connection conn = dataSourceConfig.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = dataSourceConfig.getReadConnection();
+             PreparedStatement stmt = prepare(conn, sql);
+             ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
                 results.add(mapRowToEntity(rs));
             }
         }
+        sqlLogger.log(sql, start, null, null);
+        m.addRowsRead(results.size());
+        resolve(results, null);
         return results;
     }
 
-    private void deleteById(ID id) throws SQLException {
-        String sql = String.format("DELETE FROM %s WHERE %s = ?", tableName, idColumnName);
-        System.out.println("Executing SQL: " + sql);
+    private Slice<T> findAll(PageRequest request, boolean withCount, MethodMetrics m) throws SQLException {
+        return fetchPage(metadata.getSelectAllSql(), "", stmt -> 1, request, withCount, null, null, m);
+    }
+
+    /**
+     * Runs one page of {@code select}, optionally followed by a {@code COUNT(*)} over the same condition on the same
+     * connection. The count is skipped when the page itself shows where the results end.
+     *
+     * @param where       condition without {@code WHERE}, or empty
+     * @param whereBinder binds the condition's parameters and returns the next free position
+     */
+    private Slice<T> fetchPage(String select, String where, PositionalBinder whereBinder, PageRequest request,
+                               boolean withCount, List<String> parameterColumns, Object[] parameters, MethodMetrics m)
+            throws SQLException {
+        if (request == null) {
+            throw new MiniOrmException("PageRequest must not be null");
+        }
+        Paging paging = new Paging(metadata, request, dialect);
+        String sql = paging.sql(select, where);
+        int pageSize = request.getPageSize();
+        List<T> rows = new ArrayList<>(Math.min(pageSize + 1, 1024));
+        long total = -1;
+        boolean hasMore;
+        try (Connection conn = dataSourceConfig.getReadConnection()) {
+            long start = sqlLogger.start();
+            try (PreparedStatement stmt = prepare(conn, sql)) {
+                paging.bind(stmt, whereBinder.bind(stmt));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    sqlLogger.log(sql, start, parameterColumns, parameters);
+                    while (rows.size() <= pageSize && rs.next()) {
+                        rows.add(mapRowToEntity(rs));
+                    }
+                }
+            }
+            hasMore = rows.size() > pageSize;
+            // On the last page of an offset query, or a keyset query's first page, the total is already known
+            boolean knownEnd = !hasMore && (request.isKeyset() ? request.getKeysetValues().isEmpty()
+                    : !rows.isEmpty() || request.getPageNumber() == 0);
+            if (withCount && knownEnd) {
+                total = (request.isKeyset() ? 0 : request.getOffset()) + rows.size();
+            } else if (withCount) {
+                String countSql = metadata.getCountSql() + (where.isEmpty() ? "" : " WHERE " + where);
+                start = sqlLogger.start();
+                try (PreparedStatement stmt = prepare(conn, countSql)) {
+                    whereBinder.bind(stmt);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        sqlLogger.log(countSql, start, parameterColumns, parameters);
+                        total = rs.next() ? rs.getLong(1) : 0;
+                    }
+                }
+            }
+        }
+        if (hasMore) {
+            rows.remove(pageSize);
+        }
+        m.addRowsRead(rows.size());
+        resolve(rows, null);
+        PageRequest next = paging.next(hasMore ? rows.get(pageSize - 1) : null, mapper, hasMore);
+        return withCount ? new Page<>(rows, request, next, total) : new Slice<>(rows, request, next);
+    }
+
+    private Stream<T> streamAll(MethodMetrics m) throws SQLException {
+        return toStream(iterateAll(m));
+    }
+
+    private CloseableIterator<T> iterateAll(MethodMetrics m) throws SQLException {
+        return resolving(openCursor(metadata.getSelectAllSql(), stmt -> { }, this::mapRowToEntity, null, null, m),
+                new AssociationLoader.Loaded());
+    }
+
+    private static <R> Stream<R> toStream(CloseableIterator<R> iterator) {
+        return StreamSupport.stream(
+                        Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(iterator::close);
+    }
+
+    /**
+     * @param parameterColumns/parameters only used for logging
+     */
+    private <R> CloseableIterator<R> openCursor(String sql, StatementBinder binder, ResultSetIterator.RowMapper<R> rowMapper,
+                                                List<String> parameterColumns, Object[] parameters, MethodMetrics m)
+            throws SQLException {
+        long start = sqlLogger.start();
+
+        Connection conn = dataSourceConfig.getReadConnection();
+        PreparedStatement stmt = null;
+        boolean autoCommitChanged = false;
+        try {
+            // Some drivers (e.g. PostgreSQL) only honour the fetch size inside a transaction
+            if (conn.getAutoCommit()) {
+                conn.setAutoCommit(false);
+                autoCommitChanged = true;
+            }
+            stmt = prepare(conn, sql);
+            binder.bind(stmt);
+            stmt.setFetchSize(fetchSize);
+            ResultSet rs = stmt.executeQuery();
+            sqlLogger.log(sql, start, parameterColumns, parameters); // time to first row
+            return new ResultSetIterator<>(conn, stmt, rs, rowMapper, autoCommitChanged, m);
+        } catch (SQLException | RuntimeException e) {
+            if (stmt != null) {
+                stmt.close();
+            }
+            if (autoCommitChanged) {
+                conn.rollback();
+                conn.setAutoCommit(true);
+            }
+            conn.close();
+            throw e;
+        }
+    }
+
+    private void deleteById(ID id, MethodMetrics m) throws SQLException {
+        String sql = metadata.getDeleteByIdSql();
+        long start = sqlLogger.start();
 
         try (Connection conn = dataSourceConfig.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+             PreparedStatement stmt = prepare(conn, sql)) {
             stmt.setObject(1, id);
-            stmt.executeUpdate();
+            m.addRowsWritten(stmt.executeUpdate());
+        }
+        if (sqlLogger.isEnabled()) {
+            sqlLogger.log(sql, start, List.of(metadata.getIdColumnName()), new Object[]{id});
+        }
+        invalidate(id);
+    }
+
+    private void deleteAllById(Iterable<? extends ID> ids, MethodMetrics m) throws SQLException {
+        if (cache != null) {
+            List<ID> idList = new ArrayList<>();
+            ids.forEach(idList::add);
+            ids = idList; // iterated twice: once to delete, once to invalidate
+        }
+        try (Connection conn = dataSourceConfig.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                m.addRowsWritten(writer.deleteByIds(conn, ids, statementCacheStats));
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        }
+        if (cache != null) {
+            for (ID id : ids) {
+                invalidate(id);
+            }
         }
     }
 
-    private long count() throws SQLException {
-        String sql = String.format("SELECT COUNT(*) FROM %s", tableName);
-        System.out.println("Executing SQL: " + sql);
+    private long count(MethodMetrics m) throws SQLException {
+        String sql = metadata.getCountSql();
+        long start = sqlLogger.start();
 
-        try (Connection conn = dataSourceConfig.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+        try (Connection conn = dataSourceConfig.getReadConnection();
+             PreparedStatement stmt = prepare(conn, sql);
+             ResultSet rs = stmt.executeQuery()) {
+            sqlLogger.log(sql, start, null, null);
             if (rs.next()) {
+                m.addRowsRead(1);
                 return rs.getLong(1);
             }
         }
         return 0;
     }
 
-    private T mapRowToEntity(ResultSet rs) throws SQLException {
-        try {
-            T entity = entityClass.getDeclaredConstructor().newInstance();
-            // Map ID field
-            Object idValue = rs.getObject(idColumnName);
-            idField.set(entity, convertToFieldType(idValue, idField.getType()));
-
+    private Object executeDerived(DerivedQuery query, Object[] args, MethodMetrics m) throws SQLException {
+        String sql = query.getSql(args);
+        Object[] logged = sqlLogger.isEnabled() ? query.getLoggedArguments(args) : null;
+        Projection projection = query.getProjection();
+        // Entities a join fetched, shared by every row of this call so each joined row becomes one instance
+        AssociationLoader.Loaded loaded = projection == null && associations != null ? new AssociationLoader.Loaded() : null;
+        ResultSetIterator.RowMapper<Object> rowMapper = projection != null ? projection::mapRow
+                : query.getJoinFetches().isEmpty() ? this::mapRowToEntity : rs -> mapJoinedRow(rs, query, loaded);
+        switch (query.getResultKind()) {
+            case SLICE:
+            case PAGE:
+                return fetchPage(query.getHead(), query.getWhere(args), stmt -> query.bind(stmt, args),
+                        (PageRequest) args[args.length - 1], query.getResultKind() == DerivedQuery.ResultKind.PAGE,
+                        query.getArgumentColumns(), logged, m);
+            case STREAM:
+                return toStream(resolving(openCursor(sql, stmt -> query.bind(stmt, args), rowMapper,
+                        query.getArgumentColumns(), logged, m), loaded));
+            case ITERATOR:
+                return resolving(openCursor(sql, stmt -> query.bind(stmt, args), rowMapper,
+                        query.getArgumentColumns(), logged, m), loaded);
+            default:
+                break;
+        }
+        long start = sqlLogger.start();
 
-            // Map other column fields
-            Map<String, Field> columnFields = ReflectionUtil.getColumnFields(entityClass);
-            for (Map.Entry<String, Field> entry : columnFields.entrySet()) {
-                String columnName = entry.getKey();
-                Field field = entry.getValue();
-                Object value = rs.getObject(columnName);
-                field.set(entity, convertToFieldType(value, field.getType()));
+        try (Connection conn = query.getAction() == DerivedQuery.Action.DELETE
+                ? dataSourceConfig.getConnection() : dataSourceConfig.getReadConnection();
+             PreparedStatement stmt = prepare(conn, sql)) {
+            query.bind(stmt, args);
+            if (query.getAction() == DerivedQuery.Action.DELETE) {
+                int deleted = stmt.executeUpdate();
+                sqlLogger.log(sql, start, query.getArgumentColumns(), logged);
+                m.addRowsWritten(deleted);
+                if (cache != null && deleted > 0) {
+                    cache.clear(); // the deleted ids are not known here
+                }
+                return query.getResultKind() == DerivedQuery.ResultKind.INT ? Integer.valueOf(deleted)
+                        : query.getResultKind() == DerivedQuery.ResultKind.LONG ? Long.valueOf(deleted) : null;
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                sqlLogger.log(sql, start, query.getArgumentColumns(), logged);
+                switch (query.getResultKind()) {
+                    case LONG:
+                        return rs.next() ? rs.getLong(1) : 0L;
+                    case INT:
+                        return rs.next() ? Math.toIntExact(rs.getLong(1)) : 0;
+                    case BOOLEAN:
+                        return rs.next();
+                    case LIST:
+                        List<Object> results = new ArrayList<>();
+                        while (rs.next()) {
+                            results.add(rowMapper.map(rs));
+                        }
+                        m.addRowsRead(results.size());
+                        resolve(results, loaded);
+                        return results;
+                    default: // OPTIONAL, SINGLE
+                        Object row = rs.next() ? rowMapper.map(rs) : null;
+                        m.addRowsRead(row != null ? 1 : 0);
+                        if (row != null && query.isUnique() && rs.next()) {
+                            throw new MiniOrmException(query.getMethod().getName() + " expected at most one row but found more");
+                        }
+                        if (row != null) {
+                            resolve(List.of(row), loaded);
+                        }
+                        return query.getResultKind() == DerivedQuery.ResultKind.OPTIONAL ? Optional.ofNullable(row) : row;
+                }
             }
-            return entity;
-        } catch (ReflectiveOperationException e) {
-            throw new MiniOrmException("Failed to instantiate or map entity " + entityClass.getSimpleName(), e);
         }
     }
 
-    private Object convertToFieldType(Object dbValue, Class<?> fieldType) {
-        if (dbValue == null) {
-            return null;
-        }
-        // Basic conversion, can be expanded
-        if (fieldType == Long.class || fieldType == long.class) {
-            return ((Number) dbValue).longValue();
-        }
-        if (fieldType == Integer.class || fieldType == int.class) {
-            return ((Number) dbValue).intValue();
+    private void invalidate(Object id) {
+        if (cache != null && id != null) {
+            Object key = EntityMapper.convertToFieldType(id, mapper.getIdType());
+            cache.invalidate(key);
+            dataSourceConfig.getTransactionManager().currentTransaction()
+                    .ifPresent(tx -> tx.afterCompletion(() -> cache.invalidate(key)));
         }
-        if (fieldType == Double.class || fieldType == double.class) {
-            return ((Number) dbValue).doubleValue();
-        }
-        if (fieldType == Float.class || fieldType == float.class) {
-            return ((Number) dbValue).floatValue();
-        }
-        if (fieldType == Boolean.class || fieldType == boolean.class) {
-            if (dbValue instanceof Number) {
-                return ((Number) dbValue).intValue() != 0;
+    }
+
+    /**
+     * The second-level cache of this repository's entity, or {@code null} if it is not cacheable.
+     */
+    public EntityCache getEntityCache() {
+        return cache;
+    }
+
+    public StatementCacheStats getStatementCacheStats() {
+        return statementCacheStats;
+    }
+
+    public RepositoryMetrics getMetrics() {
+        return metrics;
+    }
+
+    Class<T> getEntityClass() {
+        return entityClass;
+    }
+
+    Dialect getDialect() {
+        return dialect;
+    }
+
+    private PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+        return StatementCaching.prepare(conn, sql, Statement.NO_GENERATED_KEYS, statementCacheStats);
+    }
+
+    private PreparedStatement prepare(Connection conn, String sql, int autoGeneratedKeys) throws SQLException {
+        return StatementCaching.prepare(conn, sql, autoGeneratedKeys, statementCacheStats);
+    }
+
+    private T mapRowToEntity(ResultSet rs) throws SQLException {
+        T entity = mapper.mapRow(rs);
+        track(entity);
+        return entity;
+    }
+
+    /**
+     * Maps a row of a {@code @MyJoinFetch} query: the entity's columns, then each joined reference's, which replace
+     * the id-only reference unless the join found no row.
+     */
+    private T mapJoinedRow(ResultSet rs, DerivedQuery query, AssociationLoader.Loaded loaded) throws SQLException {
+        T entity = mapper.mapRow(rs);
+        for (DerivedQuery.JoinFetch join : query.getJoinFetches()) {
+            EntityMapper<Object> targetMapper = associations.mapper(join.targetClass);
+            Object target = targetMapper.mapRow(rs, join.offset);
+            Object targetId = targetMapper.getId(target);
+            if (targetId != null) {
+                mapper.setColumnValue(entity, join.columnIndex, loaded.join(join.targetClass, targetId, target));
             }
-            return (Boolean) dbValue;
         }
-        // For String, Date, etc., JDBC driver usually handles it well with getObject()
-        return dbValue;
+        track(entity);
+        return entity;
+    }
+
+    /**
+     * Loads the associations of entities this repository just read; {@code loaded} carries joined rows, or is null.
+     */
+    private void resolve(List<?> entities, AssociationLoader.Loaded loaded) throws SQLException {
+        if (associations != null && !entities.isEmpty()) {
+            associations.resolve(entities, metadata, loaded != null ? loaded : new AssociationLoader.Loaded());
+        }
+    }
+
+    /**
+     * Entity cursors come out with their associations loaded chunk by chunk; projection cursors pass {@code loaded}
+     * as null and are returned as is.
+     */
+    private <R> CloseableIterator<R> resolving(CloseableIterator<R> cursor, AssociationLoader.Loaded loaded) {
+        return associations != null && loaded != null ? associations.resolving(cursor, metadata, loaded) : cursor;
+    }
+
+    @FunctionalInterface
+    interface MethodExecutor {
+        Object execute(Object proxy, Object[] args) throws Throwable;
+    }
+
+    @FunctionalInterface
+    private interface StatementBinder {
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface PositionalBinder {
+        int bind(PreparedStatement stmt) throws SQLException;
     }
 }
@@ -0,0 +1,152 @@
+package com.t2308e.core;
+
+import com.t2308e.bulk.BulkLoader;
+import com.t2308e.cache.EntityCache;
+import com.t2308e.cache.EntityCacheProvider;
+import com.t2308e.cache.LruEntityCacheProvider;
+import com.t2308e.logging.SqlLogger;
+
+import java.util.Objects;
+import java.util.concurrent.Executor;
+
+/**
+ * Tunables applied to repositories created by {@link MyRepositoryFactory}.
+ * Each repository takes a copy when it is created, so later changes only affect new repositories.
+ */
+public class RepositorySettings {
+    private AccessorMode accessorMode = AccessorMode.GENERATED;
+    private int batchSize = 500;
+    private int fetchSize = 1000;
+    private EntityCacheProvider cacheProvider = new LruEntityCacheProvider();
+    private SqlLogger sqlLogger = SqlLogger.disabled();
+    private Executor asyncExecutor; // null: the factory default
+    private boolean dirtyTracking;
+    private BulkLoader bulkLoader; // null: chosen from the data source URL
+    private int bulkChunkSize = 100_000;
+
+    public RepositorySettings() {
+    }
+
+    RepositorySettings(RepositorySettings other) {
+        this.accessorMode = other.accessorMode;
+        this.batchSize = other.batchSize;
+        this.fetchSize = other.fetchSize;
+        this.cacheProvider = other.cacheProvider; // shared so all repositories see the same caches
+        this.sqlLogger = other.sqlLogger;
+        this.asyncExecutor = other.asyncExecutor;
+        this.dirtyTracking = other.dirtyTracking;
+        this.bulkLoader = other.bulkLoader;
+        this.bulkChunkSize = other.bulkChunkSize;
+    }
+
+    public AccessorMode getAccessorMode() { return accessorMode; }
+    public int getBatchSize() { return batchSize; }
+    public int getFetchSize() { return fetchSize; }
+    public EntityCacheProvider getCacheProvider() { return cacheProvider; }
+    public SqlLogger getSqlLogger() { return sqlLogger; }
+    public Executor getAsyncExecutor() { return asyncExecutor; }
+    public boolean isDirtyTracking() { return dirtyTracking; }
+    public BulkLoader getBulkLoader() { return bulkLoader; }
+    public int getBulkChunkSize() { return bulkChunkSize; }
+
+    /**
+     * How entity properties are read and written; {@link AccessorMode#GENERATED} by default.
+     */
+    public RepositorySettings setAccessorMode(AccessorMode accessorMode) {
+        this.accessorMode = accessorMode;
+        return this;
+    }
+
+    /**
+     * Number of rows sent per {@code executeBatch()} by {@code saveAll} and {@code deleteAllById}.
+     */
+    public RepositorySettings setBatchSize(int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("batchSize must be >= 1");
+        }
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * JDBC fetch size hint for streaming reads ({@code streamAll}, {@code iterateAll}); 0 leaves the driver default.
+     */
+    public RepositorySettings setFetchSize(int fetchSize) {
+        if (fetchSize < 0) {
+            throw new IllegalArgumentException("fetchSize must be >= 0");
+        }
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * Second-level cache used for entities annotated with {@code @MyEntity(cacheable = true)};
+     * {@code null} disables caching altogether.
+     */
+    public RepositorySettings setCacheProvider(EntityCacheProvider cacheProvider) {
+        this.cacheProvider = cacheProvider;
+        return this;
+    }
+
+    /**
+     * Where executed SQL is reported; {@link SqlLogger#disabled()} (the default) logs nothing at no cost.
+     */
+    public RepositorySettings setSqlLogger(SqlLogger sqlLogger) {
+        this.sqlLogger = Objects.requireNonNull(sqlLogger, "sqlLogger");
+        return this;
+    }
+
+    /**
+     * Executor for repository methods returning {@code CompletableFuture}. {@code null} (the default) uses virtual
+     * threads on JDK 21+ and a small daemon pool sized to the connection pool on older JVMs. Either way the number of
+     * calls running at once is capped at the connection pool size.
+     */
+    public RepositorySettings setAsyncExecutor(Executor asyncExecutor) {
+        this.asyncExecutor = asyncExecutor;
+        return this;
+    }
+
+    /**
+     * When enabled, repositories keep a snapshot of every entity they load or save, and {@code save}/{@code saveAll}
+     * of such an entity update only the columns changed since, or nothing at all if none did. Entities not seen by
+     * the repository are still written in full. Off by default: each tracked entity holds a copy of its values until
+     * it is garbage collected.
+     */
+    public RepositorySettings setDirtyTracking(boolean dirtyTracking) {
+        this.dirtyTracking = dirtyTracking;
+        return this;
+    }
+
+    /**
+     * How {@code bulkInsert} moves rows into the database. {@code null} (the default) uses the dialect's
+     * {@link com.t2308e.dialect.Dialect#bulkLoader loader} (for embedded and in-memory H2,
+     * {@link com.t2308e.bulk.H2CsvBulkLoader}), or {@link com.t2308e.bulk.BatchInsertBulkLoader} with
+     * {@link #setBatchSize the batch size} if the entity has binary columns.
+     */
+    public RepositorySettings setBulkLoader(BulkLoader bulkLoader) {
+        this.bulkLoader = bulkLoader;
+        return this;
+    }
+
+    /**
+     * Rows per {@code bulkInsert} chunk: each chunk is one call to the bulk loader, one commit and one progress
+     * callback.
+     */
+    public RepositorySettings setBulkChunkSize(int bulkChunkSize) {
+        if (bulkChunkSize < 1) {
+            throw new IllegalArgumentException("bulkChunkSize must be >= 1");
+        }
+        this.bulkChunkSize = bulkChunkSize;
+        return this;
+    }
+
+    /**
+     * The cache for the given entity, or {@code null} if it is not cacheable or caching is disabled.
+     */
+    EntityCache cacheFor(EntityMetadata metadata) {
+        if (cacheProvider == null || !metadata.getEntityConfig().cacheable()) {
+            return null;
+        }
+        return cacheProvider.getCache(metadata.getEntityClass(), metadata.getEntityConfig());
+    }
+}
@@ -0,0 +1,118 @@
+package com.t2308e.core;
+
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.metrics.MethodMetrics;
+import com.t2308e.repository.CloseableIterator;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.NoSuchElementException;
+
+/**
+ * Lazily maps rows of an open {@link ResultSet}. Owns the connection, statement and result set and releases
+ * them on {@link #close()} or when the cursor is exhausted.
+ */
+final class ResultSetIterator<T> implements CloseableIterator<T> {
+
+    @FunctionalInterface
+    interface RowMapper<T> {
+        T map(ResultSet rs) throws SQLException;
+    }
+
+    private final Connection conn;
+    private final PreparedStatement stmt;
+    private final ResultSet rs;
+    private final RowMapper<T> rowMapper;
+    private final boolean restoreAutoCommit;
+    private final MethodMetrics metrics; // rows are added on close, or null
+    private long rowsRead;
+    private boolean hasRow;
+    private boolean advanced;
+    private boolean closed;
+
+    ResultSetIterator(Connection conn, PreparedStatement stmt, ResultSet rs, RowMapper<T> rowMapper,
+                      boolean restoreAutoCommit, MethodMetrics metrics) {
+        this.conn = conn;
+        this.stmt = stmt;
+        this.rs = rs;
+        this.rowMapper = rowMapper;
+        this.restoreAutoCommit = restoreAutoCommit;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (closed) {
+            return false;
+        }
+        if (!advanced) {
+            try {
+                hasRow = rs.next();
+            } catch (SQLException e) {
+                close();
+                throw new MiniOrmException("Failed to read next row", e);
+            }
+            advanced = true;
+            if (!hasRow) {
+                close();
+            }
+        }
+        return hasRow;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        advanced = false;
+        rowsRead++;
+        try {
+            return rowMapper.map(rs);
+        } catch (SQLException e) {
+            close();
+            throw new MiniOrmException("Failed to map row", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        hasRow = false;
+        if (metrics != null) {
+            metrics.addRowsRead(rowsRead);
+        }
+        SQLException failure = null;
+        try {
+            rs.close();
+        } catch (SQLException e) {
+            failure = e;
+        }
+        try {
+            stmt.close();
+        } catch (SQLException e) {
+            failure = failure == null ? e : failure;
+        }
+        try {
+            if (restoreAutoCommit) {
+                conn.commit();
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            failure = failure == null ? e : failure;
+        }
+        try {
+            conn.close();
+        } catch (SQLException e) {
+            failure = failure == null ? e : failure;
+        }
+        if (failure != null) {
+            throw new MiniOrmException("Failed to release streaming cursor", failure);
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.t2308e.core;
+
+import com.t2308e.exception.MiniOrmException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compiles the row mapping of an entity class into one {@code (ResultSet, int offset)Object} {@link MethodHandle}:
+ * the no-arg constructor, then for every column a typed {@code ResultSet} getter feeding a setter handle.
+ * <p>
+ * The handle is a tree of constants, so once the JVM customizes it the JIT compiles each entity's mapping as one
+ * unit, without going through per-type readers and {@link PropertyAccessor} call sites shared by every entity.
+ * Primitive, boxed and {@code String} columns are read with the typed getter; other types go through
+ * {@code getObject} and {@link EntityMapper#convertToFieldType}. Steps are combined as a balanced tree so wide
+ * entities do not nest deeper than the JIT inlines.
+ */
+final class RowMappers {
+
+    private static final MethodType STEP = MethodType.methodType(void.class, Object.class, ResultSet.class, int.class);
+    private static final MethodHandle PLUS;
+    private static final MethodHandle GET_CONVERTED;
+    private static final MethodHandle GET_LONG;
+    private static final MethodHandle GET_INTEGER;
+    private static final MethodHandle GET_DOUBLE;
+    private static final MethodHandle GET_FLOAT;
+    private static final MethodHandle GET_BOOLEAN;
+    private static final MethodHandle SET_PROPERTY;
+
+    static {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        try {
+            PLUS = lookup.findStatic(RowMappers.class, "plus", MethodType.methodType(int.class, int.class, int.class));
+            GET_CONVERTED = lookup.findStatic(RowMappers.class, "getConverted",
+                    MethodType.methodType(Object.class, ResultSet.class, int.class, Class.class));
+            GET_LONG = boxedGetter(lookup, "getLong", Long.class);
+            GET_INTEGER = boxedGetter(lookup, "getInteger", Integer.class);
+            GET_DOUBLE = boxedGetter(lookup, "getDouble", Double.class);
+            GET_FLOAT = boxedGetter(lookup, "getFloat", Float.class);
+            GET_BOOLEAN = boxedGetter(lookup, "getBoolean", Boolean.class);
+            SET_PROPERTY = lookup.findVirtual(PropertyAccessor.class, "set",
+                    MethodType.methodType(void.class, Object.class, Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private RowMappers() {
+    }
+
+    /**
+     * Row mapper for a result set with the id first and then the columns, starting after {@code offset} columns.
+     *
+     * @param columnAccessors accessors in metadata column order; only used for {@code @MyManyToOne} columns, whose
+     *                        value is the referenced id
+     */
+    static MethodHandle compile(EntityMetadata metadata, PropertyAccessor[] columnAccessors, AccessorMode mode) {
+        List<MethodHandle> steps = new ArrayList<>(columnAccessors.length + 1);
+        Field idField = metadata.getIdField();
+        steps.add(step(reader(idField.getType(), 1), PropertyAccessors.setterHandle(idField, mode)));
+        List<Field> fields = metadata.getColumnFields();
+        for (int i = 0; i < fields.size(); i++) {
+            if (metadata.getManyToOneColumnIndexes().contains(i)) {
+                steps.add(step(reader(Object.class, i + 2), SET_PROPERTY.bindTo(columnAccessors[i])));
+            } else {
+                Field field = fields.get(i);
+                steps.add(step(reader(field.getType(), i + 2), PropertyAccessors.setterHandle(field, mode)));
+            }
+        }
+        MethodHandle returnEntity = MethodHandles.dropArguments(MethodHandles.identity(Object.class), 1,
+                ResultSet.class, int.class);
+        MethodHandle body = MethodHandles.foldArguments(returnEntity, sequence(steps, 0, steps.size()));
+        MethodHandle constructor = PropertyAccessors.constructor(metadata.getEntityClass())
+                .asType(MethodType.methodType(Object.class));
+        return MethodHandles.foldArguments(body, constructor);
+    }
+
+    /**
+     * {@code (ResultSet, int offset)type} reading the {@code column}-th column after {@code offset}.
+     */
+    private static MethodHandle reader(Class<?> type, int column) {
+        MethodHandle getter;
+        try {
+            getter = typedGetter(type);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new MiniOrmException("No ResultSet getter for " + type.getName(), e);
+        }
+        if (getter == null) {
+            getter = MethodHandles.insertArguments(GET_CONVERTED, 2, type)
+                    .asType(MethodType.methodType(type, ResultSet.class, int.class));
+        }
+        return MethodHandles.filterArguments(getter, 1, MethodHandles.insertArguments(PLUS, 1, column));
+    }
+
+    private static MethodHandle typedGetter(Class<?> type) throws NoSuchMethodException, IllegalAccessException {
+        if (type.isPrimitive() && type != char.class) {
+            // SQL NULL reads as 0/false, which is what the typed getters return.
+            String name = "get" + Character.toUpperCase(type.getName().charAt(0)) + type.getName().substring(1);
+            return MethodHandles.publicLookup().findVirtual(ResultSet.class, name, MethodType.methodType(type, int.class));
+        }
+        if (type == String.class) {
+            return MethodHandles.publicLookup().findVirtual(ResultSet.class, "getString",
+                    MethodType.methodType(String.class, int.class));
+        }
+        if (type == Long.class) {
+            return GET_LONG;
+        }
+        if (type == Integer.class) {
+            return GET_INTEGER;
+        }
+        if (type == Double.class) {
+            return GET_DOUBLE;
+        }
+        if (type == Float.class) {
+            return GET_FLOAT;
+        }
+        if (type == Boolean.class) {
+            return GET_BOOLEAN;
+        }
+        return null;
+    }
+
+    /**
+     * {@code (Object entity, ResultSet, int offset)void} that reads with {@code reader} and writes with {@code setter}.
+     */
+    private static MethodHandle step(MethodHandle reader, MethodHandle setter) {
+        MethodHandle adapted = setter.asType(MethodType.methodType(void.class, setter.type().parameterType(0),
+                reader.type().returnType()));
+        return MethodHandles.collectArguments(adapted, 1, reader).asType(STEP);
+    }
+
+    /**
+     * Runs {@code steps[from, to)} in order, split in halves so the nesting depth grows with the log of the count.
+     */
+    private static MethodHandle sequence(List<MethodHandle> steps, int from, int to) {
+        if (to - from == 1) {
+            return steps.get(from);
+        }
+        int mid = (from + to) >>> 1;
+        return MethodHandles.foldArguments(sequence(steps, mid, to), sequence(steps, from, mid));
+    }
+
+    private static MethodHandle boxedGetter(MethodHandles.Lookup lookup, String name, Class<?> type)
+            throws NoSuchMethodException, IllegalAccessException {
+        return lookup.findStatic(RowMappers.class, name, MethodType.methodType(type, ResultSet.class, int.class));
+    }
+
+    private static int plus(int offset, int column) {
+        return offset + column;
+    }
+
+    private static Object getConverted(ResultSet rs, int index, Class<?> type) throws SQLException {
+        return EntityMapper.convertToFieldType(rs.getObject(index), type);
+    }
+
+    private static Long getLong(ResultSet rs, int index) throws SQLException {
+        long value = rs.getLong(index);
+        return value == 0L && rs.wasNull() ? null : value;
+    }
+
+    private static Integer getInteger(ResultSet rs, int index) throws SQLException {
+        int value = rs.getInt(index);
+        return value == 0 && rs.wasNull() ? null : value;
+    }
+
+    private static Double getDouble(ResultSet rs, int index) throws SQLException {
+        double value = rs.getDouble(index);
+        return value == 0.0 && rs.wasNull() ? null : value;
+    }
+
+    private static Float getFloat(ResultSet rs, int index) throws SQLException {
+        float value = rs.getFloat(index);
+        return value == 0.0f && rs.wasNull() ? null : value;
+    }
+
+    private static Boolean getBoolean(ResultSet rs, int index) throws SQLException {
+        boolean value = rs.getBoolean(index);
+        return !value && rs.wasNull() ? null : value;
+    }
+}
@@ -0,0 +1,381 @@
+package com.t2308e.core;
+
+import com.t2308e.cache.EntityCache;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.StatementCacheStats;
+import com.t2308e.config.StatementCaching;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.exception.OptimisticLockException;
+import com.t2308e.logging.SqlLogger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Unit of work with a first-level cache, obtained from {@link MyRepositoryFactory#openSession()}.
+ * <p>
+ * Entities loaded through a session are kept in an identity map, so loading the same id again returns the same
+ * instance without a query. A snapshot of each loaded entity's columns is taken, and {@link #flush()} writes only
+ * the entities and columns that changed since then, batched per entity class and changed-column set, inside one
+ * transaction. Changes that are not flushed are discarded when the session is closed.
+ * <p>
+ * {@code @MyManyToOne} references and {@code @MyOneToMany} collections of loaded entities are fetched in batches as
+ * by repositories; the entities they reach are not managed by the session unless loaded through it.
+ * <p>
+ * A session is meant for a single request on a single thread and is not thread-safe.
+ */
+public class Session implements AutoCloseable {
+
+    private final DataSourceConfig dataSourceConfig;
+    private final RepositorySettings settings;
+    private final StatementCacheStats statementCacheStats = new StatementCacheStats();
+    private final AssociationLoader associations;
+    private final Map<EntityKey, ManagedEntity> identityMap = new LinkedHashMap<>();
+    private final List<Object> pendingInserts = new ArrayList<>(); // persist order
+    private final Set<Object> pendingInsertSet = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<EntityKey, Object> pendingDeletes = new LinkedHashMap<>();
+    private boolean closed;
+
+    Session(DataSourceConfig dataSourceConfig, RepositorySettings settings) {
+        this.dataSourceConfig = dataSourceConfig;
+        this.settings = settings;
+        this.associations = new AssociationLoader(dataSourceConfig, settings, statementCacheStats);
+    }
+
+    /**
+     * Returns the managed instance for {@code id}, querying the database only if it is not in the identity map yet.
+     */
+    public <T> Optional<T> find(Class<T> entityClass, Object id) {
+        checkOpen();
+        EntityMapper<T> mapper = mapper(entityClass);
+        EntityKey key = new EntityKey(entityClass, EntityMapper.convertToFieldType(id, mapper.getIdType()));
+        if (pendingDeletes.containsKey(key)) {
+            return Optional.empty();
+        }
+        ManagedEntity managed = identityMap.get(key);
+        if (managed != null) {
+            return Optional.of(entityClass.cast(managed.entity));
+        }
+        EntityCache cache = settings.cacheFor(mapper.getMetadata());
+        if (cache != null) {
+            Object[] cached = cache.get(key.id);
+            if (cached != null) {
+                T entity = mapper.hydrate(key.id, cached);
+                identityMap.put(key, new ManagedEntity(entity, mapper.snapshot(entity)));
+                resolveAssociations(List.of(entity), mapper.getMetadata());
+                return Optional.of(entity);
+            }
+        }
+
+        String sql = mapper.getMetadata().getSelectByIdSql();
+        SqlLogger sqlLogger = settings.getSqlLogger();
+        long start = sqlLogger.start();
+        // The row may go into the shared cache, so it is read from the primary (see ReadReplicas)
+        try (Connection conn = cache != null ? dataSourceConfig.getConnection() : dataSourceConfig.getReadConnection();
+             PreparedStatement stmt = StatementCaching.prepare(conn, sql, Statement.NO_GENERATED_KEYS, statementCacheStats)) {
+            stmt.setObject(1, key.id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (sqlLogger.isEnabled()) {
+                    sqlLogger.log(sql, start, List.of(mapper.getMetadata().getIdColumnName()), new Object[]{key.id});
+                }
+                if (!rs.next()) {
+                    return Optional.empty();
+                }
+                T entity = mapper.mapRow(rs);
+                Object[] snapshot = mapper.snapshot(entity);
+                identityMap.put(key, new ManagedEntity(entity, snapshot));
+                // Rows read inside a transaction may be uncommitted, so keep them out of the shared cache
+                if (cache != null && !dataSourceConfig.getTransactionManager().isTransactionActive()) {
+                    cache.put(key.id, snapshot.clone());
+                }
+                resolveAssociations(List.of(entity), mapper.getMetadata());
+                return Optional.of(entity);
+            }
+        } catch (SQLException e) {
+            throw new MiniOrmException("Failed to load " + entityClass.getSimpleName() + " with id " + id, e);
+        }
+    }
+
+    /**
+     * Loads every row of the entity's table. Rows whose id is already managed resolve to the managed instance,
+     * so unflushed changes to it are kept.
+     */
+    public <T> List<T> findAll(Class<T> entityClass) {
+        checkOpen();
+        EntityMapper<T> mapper = mapper(entityClass);
+        String sql = mapper.getMetadata().getSelectAllSql();
+        long start = settings.getSqlLogger().start();
+        List<T> results = new ArrayList<>();
+        List<T> newlyManaged = new ArrayList<>();
+        try (Connection conn = dataSourceConfig.getReadConnection();
+             PreparedStatement stmt = StatementCaching.prepare(conn, sql, Statement.NO_GENERATED_KEYS, statementCacheStats);
+             ResultSet rs = stmt.executeQuery()) {
+            settings.getSqlLogger().log(sql, start, null, null);
+            while (rs.next()) {
+                T loaded = mapper.mapRow(rs);
+                EntityKey key = new EntityKey(entityClass, mapper.getId(loaded));
+                if (pendingDeletes.containsKey(key)) {
+                    continue;
+                }
+                ManagedEntity managed = identityMap.get(key);
+                if (managed == null) {
+                    managed = new ManagedEntity(loaded, mapper.snapshot(loaded));
+                    identityMap.put(key, managed);
+                    newlyManaged.add(loaded);
+                }
+                results.add(entityClass.cast(managed.entity));
+            }
+        } catch (SQLException e) {
+            throw new MiniOrmException("Failed to load " + entityClass.getSimpleName() + " rows", e);
+        }
+        resolveAssociations(newlyManaged, mapper.getMetadata());
+        return results;
+    }
+
+    private void resolveAssociations(List<?> entities, EntityMetadata metadata) {
+        if (!metadata.hasAssociations() || entities.isEmpty()) {
+            return;
+        }
+        try {
+            associations.resolve(entities, metadata);
+        } catch (SQLException e) {
+            throw new MiniOrmException("Failed to load associations of " + metadata.getEntityClass().getSimpleName(), e);
+        }
+    }
+
+    /**
+     * Makes {@code entity} managed. New entities (null or 0 id) are inserted on the next flush; entities with an id
+     * that were not loaded through this session are written in full on the next flush.
+     */
+    public void persist(Object entity) {
+        checkOpen();
+        EntityMapper<?> mapper = mapper(entity.getClass());
+        Object id = mapper.getId(entity);
+        if (EntityWriter.isNew(id)) {
+            if (pendingInsertSet.add(entity)) {
+                pendingInserts.add(entity);
+            }
+            return;
+        }
+        EntityKey key = new EntityKey(entity.getClass(), id);
+        pendingDeletes.remove(key);
+        ManagedEntity managed = identityMap.get(key);
+        if (managed == null) {
+            identityMap.put(key, new ManagedEntity(entity, null));
+        } else if (managed.entity != entity) {
+            throw new MiniOrmException("Another instance of " + entity.getClass().getSimpleName() + " with id " + id
+                    + " is already managed by this session");
+        }
+    }
+
+    /**
+     * Schedules {@code entity} for deletion on the next flush.
+     */
+    public void remove(Object entity) {
+        checkOpen();
+        if (pendingInsertSet.remove(entity)) {
+            pendingInserts.removeIf(e -> e == entity);
+            return;
+        }
+        EntityMapper<?> mapper = mapper(entity.getClass());
+        EntityKey key = new EntityKey(entity.getClass(), mapper.getId(entity));
+        identityMap.remove(key);
+        pendingDeletes.put(key, entity);
+    }
+
+    public boolean contains(Object entity) {
+        if (pendingInsertSet.contains(entity)) {
+            return true;
+        }
+        Object id = mapper(entity.getClass()).getId(entity);
+        ManagedEntity managed = identityMap.get(new EntityKey(entity.getClass(), id));
+        return managed != null && managed.entity == entity;
+    }
+
+    /**
+     * Writes pending inserts, changed columns of managed entities and pending deletes in one transaction.
+     * The session's state is only updated once the transaction has committed. A versioned entity changed by
+     * someone else since it was loaded fails the flush with {@link OptimisticLockException}; nothing is written.
+     */
+    public void flush() {
+        checkOpen();
+        Map<Class<?>, List<Object>> inserts = new LinkedHashMap<>();
+        for (Object entity : pendingInserts) {
+            inserts.computeIfAbsent(entity.getClass(), c -> new ArrayList<>()).add(entity);
+        }
+
+        // Group dirty entities by class and changed-column set so each group is one batched UPDATE
+        Map<Class<?>, Map<Long, List<Object>>> updates = new LinkedHashMap<>();
+        List<ManagedEntity> dirty = new ArrayList<>();
+        for (ManagedEntity managed : identityMap.values()) {
+            EntityMapper<?> mapper = mapper(managed.entity.getClass());
+            long mask = managed.snapshot == null
+                    ? mapper.getMetadata().getAllColumnsMask()
+                    : mapper.dirtyMask(managed.entity, managed.snapshot);
+            if (mask != 0L) {
+                updates.computeIfAbsent(managed.entity.getClass(), c -> new LinkedHashMap<>())
+                        .computeIfAbsent(mask, m -> new ArrayList<>())
+                        .add(managed.entity);
+                dirty.add(managed);
+            }
+        }
+
+        Map<Class<?>, List<Object>> deletes = new LinkedHashMap<>();
+        for (Map.Entry<EntityKey, Object> entry : pendingDeletes.entrySet()) {
+            deletes.computeIfAbsent(entry.getKey().entityClass, c -> new ArrayList<>()).add(entry.getKey().id);
+        }
+
+        if (inserts.isEmpty() && updates.isEmpty() && deletes.isEmpty()) {
+            return;
+        }
+
+        // Ids written by the inserts belong to rows a rollback removes again
+        Map<Class<?>, Object[]> originalIds = new LinkedHashMap<>();
+        for (Map.Entry<Class<?>, List<Object>> entry : inserts.entrySet()) {
+            originalIds.put(entry.getKey(), writer(entry.getKey()).captureIds(entry.getValue()));
+        }
+        try (Connection conn = dataSourceConfig.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            try {
+                for (Map.Entry<Class<?>, List<Object>> entry : inserts.entrySet()) {
+                    writer(entry.getKey()).insert(conn, entry.getValue(), statementCacheStats);
+                }
+                for (Map.Entry<Class<?>, Map<Long, List<Object>>> entry : updates.entrySet()) {
+                    EntityWriter<Object> writer = writer(entry.getKey());
+                    for (Map.Entry<Long, List<Object>> group : entry.getValue().entrySet()) {
+                        writer.updateColumns(conn, group.getKey(), group.getValue(), statementCacheStats);
+                    }
+                }
+                for (Map.Entry<Class<?>, List<Object>> entry : deletes.entrySet()) {
+                    writer(entry.getKey()).deleteByIds(conn, entry.getValue(), statementCacheStats);
+                }
+                conn.commit();
+            } catch (OptimisticLockException e) {
+                conn.rollback();
+                restoreIds(inserts, originalIds);
+                invalidateCached(mapper(e.getEntityClass()), e.getId());
+                throw e;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                restoreIds(inserts, originalIds);
+                throw e;
+            } finally {
+                conn.setAutoCommit(autoCommit);
+            }
+        } catch (SQLException e) {
+            throw new MiniOrmException("Session flush failed", e);
+        }
+
+        for (ManagedEntity managed : dirty) {
+            EntityMapper<?> mapper = mapper(managed.entity.getClass());
+            mapper.incrementVersion(managed.entity);
+            managed.snapshot = mapper.snapshot(managed.entity);
+            invalidateCached(mapper, mapper.getId(managed.entity));
+        }
+        for (EntityKey key : pendingDeletes.keySet()) {
+            invalidateCached(mapper(key.entityClass), key.id);
+        }
+        for (Object entity : pendingInserts) {
+            EntityMapper<?> mapper = mapper(entity.getClass());
+            identityMap.put(new EntityKey(entity.getClass(), mapper.getId(entity)), new ManagedEntity(entity, mapper.snapshot(entity)));
+        }
+        pendingInserts.clear();
+        pendingInsertSet.clear();
+        pendingDeletes.clear();
+    }
+
+    private void restoreIds(Map<Class<?>, List<Object>> inserts, Map<Class<?>, Object[]> originalIds) {
+        inserts.forEach((entityClass, entities) -> writer(entityClass).restoreIds(entities, originalIds.get(entityClass)));
+    }
+
+    private void invalidateCached(EntityMapper<?> mapper, Object id) {
+        EntityCache cache = settings.cacheFor(mapper.getMetadata());
+        if (cache != null) {
+            cache.invalidate(id);
+            dataSourceConfig.getTransactionManager().currentTransaction()
+                    .ifPresent(tx -> tx.afterCompletion(() -> cache.invalidate(id)));
+        }
+    }
+
+    /**
+     * Detaches all managed entities and drops unflushed changes.
+     */
+    public void clear() {
+        identityMap.clear();
+        pendingInserts.clear();
+        pendingInsertSet.clear();
+        pendingDeletes.clear();
+    }
+
+    public StatementCacheStats getStatementCacheStats() {
+        return statementCacheStats;
+    }
+
+    @Override
+    public void close() {
+        clear();
+        closed = true;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new MiniOrmException("Session is closed");
+        }
+    }
+
+    private <T> EntityMapper<T> mapper(Class<T> entityClass) {
+        return EntityMapper.of(entityClass, settings.getAccessorMode());
+    }
+
+    @SuppressWarnings("unchecked")
+    private EntityWriter<Object> writer(Class<?> entityClass) {
+        return new EntityWriter<>((EntityMapper<Object>) mapper(entityClass), settings.getBatchSize(), settings.getSqlLogger(), null,
+                dataSourceConfig.getIdGenerator(entityClass), dataSourceConfig.getDialect());
+    }
+
+    private static final class EntityKey {
+        final Class<?> entityClass;
+        final Object id;
+
+        EntityKey(Class<?> entityClass, Object id) {
+            this.entityClass = entityClass;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof EntityKey)) return false;
+            EntityKey that = (EntityKey) o;
+            return entityClass == that.entityClass && Objects.equals(id, that.id);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * entityClass.hashCode() + Objects.hashCode(id);
+        }
+    }
+
+    private static final class ManagedEntity {
+        final Object entity;
+        Object[] snapshot; // null = state unknown, write every column on flush
+
+        ManagedEntity(Object entity, Object[] snapshot) {
+            this.entity = entity;
+            this.snapshot = snapshot;
+        }
+    }
+}
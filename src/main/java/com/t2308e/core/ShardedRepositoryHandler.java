@@ -0,0 +1,530 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyManyToOne;
+import com.t2308e.annotations.MyShardKey;
+import com.t2308e.config.ConsistentHashRing;
+import com.t2308e.core.RepositoryInvocationHandler.MethodExecutor;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.id.IdGenerator;
+import com.t2308e.repository.CloseableIterator;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+
+/**
+ * Backs a repository proxy whose table is split across several databases, one {@link RepositoryInvocationHandler}
+ * per shard (see {@link MyRepositoryFactory#createShardedRepository}).
+ * <p>
+ * An entity lives on the shard its shard key hashes to on a {@link ConsistentHashRing}: the {@code @MyShardKey}
+ * column, or the id. New entities get their id from the configured {@link IdGenerator} before they are routed. Calls
+ * that name the key go to one shard on the calling thread: {@code save}, {@code findById}/{@code deleteById} when the
+ * id is the key, and derived queries with an equality condition on the key. Everything else is sent to every shard in
+ * parallel and the results merged: lists are concatenated, counts summed, streams and iterators read shard after
+ * shard, and an {@code Optional} or single result may come from one shard only.
+ * <p>
+ * Paged queries, and queries that sort or limit without naming the key, are rejected when called, since per-shard
+ * order and limits do not add up to a global one. Writes that span shards are not atomic: each shard commits its own
+ * part of a {@code saveAll}, {@code upsertAll} or {@code deleteAllById}.
+ */
+final class ShardedRepositoryHandler<T, ID> implements InvocationHandler {
+
+    private final Class<T> entityClass;
+    private final String repositoryName;
+    private final EntityMapper<T> mapper;
+    private final List<RepositoryInvocationHandler<T, ID>> shards;
+    private final ConsistentHashRing<RepositoryInvocationHandler<T, ID>> ring;
+    private final IdGenerator<?> idGenerator;
+    private final int shardKeyIndex; // column index of the @MyShardKey field; -1 when the id is the key
+    private final Class<?> shardKeyType;
+    private final Executor executor;
+    private final AsyncExecution async;
+    private final Map<Method, MethodExecutor> executors;
+
+    @SuppressWarnings("unchecked")
+    ShardedRepositoryHandler(Class<?> repositoryInterface, Map<String, RepositoryInvocationHandler<T, ID>> shardsByName,
+                             int virtualNodes, IdGenerator<?> idGenerator, AccessorMode accessorMode, Executor executor,
+                             AsyncExecution async) {
+        ParameterizedType genericInterface = (ParameterizedType) repositoryInterface.getGenericInterfaces()[0];
+        this.entityClass = (Class<T>) genericInterface.getActualTypeArguments()[0];
+        this.repositoryName = repositoryInterface.getSimpleName();
+        this.mapper = EntityMapper.of(entityClass, accessorMode);
+        this.shards = List.copyOf(shardsByName.values());
+        this.ring = new ConsistentHashRing<>(shardsByName, virtualNodes);
+        this.idGenerator = idGenerator;
+        this.executor = executor;
+        this.async = async;
+
+        EntityMetadata metadata = mapper.getMetadata();
+        int keyIndex = -1;
+        List<Field> columnFields = metadata.getColumnFields();
+        for (int i = 0; i < columnFields.size(); i++) {
+            if (columnFields.get(i).isAnnotationPresent(MyShardKey.class)) {
+                if (keyIndex >= 0) {
+                    throw new MiniOrmException(entityClass.getSimpleName() + " has more than one @MyShardKey field");
+                }
+                keyIndex = i;
+            }
+        }
+        this.shardKeyIndex = keyIndex;
+        if (keyIndex < 0) {
+            this.shardKeyType = mapper.getIdType();
+        } else if (columnFields.get(keyIndex).isAnnotationPresent(MyManyToOne.class)) {
+            this.shardKeyType = EntityMetadata.of(columnFields.get(keyIndex).getType()).getIdField().getType();
+        } else {
+            this.shardKeyType = columnFields.get(keyIndex).getType();
+        }
+        this.executors = buildExecutors(repositoryInterface, metadata);
+    }
+
+    private Map<Method, MethodExecutor> buildExecutors(Class<?> repositoryInterface, EntityMetadata metadata) {
+        Map<Method, MethodExecutor> table = new HashMap<>();
+        try {
+            table.put(Object.class.getMethod("equals", Object.class), (proxy, args) -> proxy == args[0]);
+            table.put(Object.class.getMethod("hashCode"), (proxy, args) -> System.identityHashCode(proxy));
+            table.put(Object.class.getMethod("toString"),
+                    (proxy, args) -> repositoryName + " proxy for " + entityClass.getSimpleName() + " on " + shards.size() + " shards");
+        } catch (NoSuchMethodException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Method method : repositoryInterface.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            if (method.isDefault()) {
+                table.put(method, RepositoryInvocationHandler.defaultMethodExecutor(method));
+                continue;
+            }
+            boolean isAsync = AsyncExecution.isAsync(method);
+            String name = isAsync ? AsyncExecution.syncName(method) : method.getName();
+            Method crud = RepositoryInvocationHandler.crudMethod(name, method.getParameterTypes());
+            table.put(method, crud != null ? crudExecutor(method, crud, isAsync)
+                    : derivedExecutor(method, QueryMethodParser.parse(method, metadata, shards.get(0).getDialect()), isAsync));
+        }
+        return Map.copyOf(table);
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        MethodExecutor executor = executors.get(method);
+        if (executor == null) {
+            throw new MiniOrmException("Unsupported method: " + method.getName());
+        }
+        try {
+            return executor.execute(proxy, args);
+        } catch (SQLException e) {
+            throw new MiniOrmException(repositoryName + "." + method.getName() + " failed: " + e.getMessage(), e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private MethodExecutor crudExecutor(Method method, Method crud, boolean isAsync) {
+        boolean keyedById = shardKeyIndex < 0;
+        switch (crud.getName()) {
+            case "save":
+                return writer(method, isAsync, (proxy, args) -> save(proxy, crud, (T) args[0]));
+            case "saveAll":
+                return writer(method, isAsync, (proxy, args) -> saveAll((Iterable<T>) args[0]));
+            case "upsert":
+                return writer(method, isAsync, (proxy, args) -> upsertAll(List.of((T) args[0]), crud).get(0));
+            case "upsertAll":
+                return writer(method, isAsync, (proxy, args) -> upsertAll((Iterable<T>) args[0], crud));
+            case "deleteAllById":
+                return writer(method, isAsync, (proxy, args) -> {
+                    deleteAllById(proxy, crud, (Iterable<?>) args[0]);
+                    return null;
+                });
+            case "findById":
+                return keyedById ? routed(method, args -> args[0])
+                        : writer(method, isAsync, (proxy, args) -> findByIdOnEveryShard((ID) args[0], crud));
+            case "deleteById":
+                return keyedById ? routed(method, args -> args[0]) : scattered(method, isAsync, results -> null);
+            case "findAll":
+                if (crud.getParameterCount() == 1) {
+                    return unsupported(method, "paged queries cannot be merged across shards");
+                }
+                return scattered(method, isAsync, ShardedRepositoryHandler::concatLists);
+            case "findPage":
+                return unsupported(method, "paged queries cannot be merged across shards");
+            case "bulkInsert":
+                return unsupported(method, "bulk loads target one database; load each shard through its own repository");
+            case "streamAll":
+                return scattered(method, isAsync, ShardedRepositoryHandler::concatStreams);
+            case "iterateAll":
+                return scattered(method, isAsync, ConcatenatedIterator::new);
+            case "count":
+                return scattered(method, isAsync, results -> results.stream().mapToLong(r -> (Long) r).sum());
+            default:
+                throw new MiniOrmException("Unsupported method: " + crud.getName());
+        }
+    }
+
+    private MethodExecutor derivedExecutor(Method method, DerivedQuery query, boolean isAsync) {
+        String keyColumn = shardKeyIndex < 0 ? mapper.getMetadata().getIdColumnName()
+                : mapper.getMetadata().getColumnNames().get(shardKeyIndex);
+        DerivedQuery.Criterion key = query.equalityOn(keyColumn);
+        if (key != null) {
+            return routed(method, key::argument);
+        }
+        if (query.getAction() == DerivedQuery.Action.FIND && query.isOrderedOrLimited()) {
+            return unsupported(method, "it sorts or limits without an equality condition on the shard key "
+                    + keyColumn);
+        }
+        switch (query.getResultKind()) {
+            case LIST:
+                return scattered(method, isAsync, ShardedRepositoryHandler::concatLists);
+            case OPTIONAL:
+                return scattered(method, isAsync, this::firstPresent);
+            case SINGLE:
+                return scattered(method, isAsync, results -> firstPresent(results).orElse(null));
+            case STREAM:
+                return scattered(method, isAsync, ShardedRepositoryHandler::concatStreams);
+            case ITERATOR:
+                return scattered(method, isAsync, ConcatenatedIterator::new);
+            case LONG:
+                return scattered(method, isAsync, results -> results.stream().mapToLong(r -> (Long) r).sum());
+            case INT:
+                return scattered(method, isAsync, results -> results.stream().mapToInt(r -> (Integer) r).sum());
+            case BOOLEAN:
+                return scattered(method, isAsync, results -> results.contains(Boolean.TRUE));
+            case VOID:
+                return scattered(method, isAsync, results -> null);
+            default: // SLICE, PAGE
+                return unsupported(method, "paged queries cannot be merged across shards");
+        }
+    }
+
+    /**
+     * Sends the call to the shard owning the key {@code keyOf} extracts from the arguments.
+     */
+    private MethodExecutor routed(Method method, KeyExtractor keyOf) {
+        return (proxy, args) -> shardFor(keyOf.key(args)).invoke(proxy, method, args);
+    }
+
+    /**
+     * Sends the call to every shard and merges the results; an async method's futures are merged once all complete.
+     */
+    private MethodExecutor scattered(Method method, boolean isAsync, Merger merger) {
+        if (isAsync) {
+            return (proxy, args) -> {
+                List<CompletableFuture<?>> futures = new ArrayList<>(shards.size());
+                for (RepositoryInvocationHandler<T, ID> shard : shards) {
+                    futures.add((CompletableFuture<?>) shard.invoke(proxy, method, args));
+                }
+                return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+                    List<Object> results = new ArrayList<>(futures.size());
+                    futures.forEach(f -> results.add(f.join()));
+                    return merger.merge(results);
+                });
+            };
+        }
+        return (proxy, args) -> merger.merge(inParallel(shard -> shard.invoke(proxy, method, args), shards));
+    }
+
+    private MethodExecutor unsupported(Method method, String reason) {
+        return (proxy, args) -> {
+            throw new MiniOrmException(repositoryName + "." + method.getName() + " is not supported on a sharded repository: " + reason);
+        };
+    }
+
+    /**
+     * Runs an operation this handler implements itself (writes, {@code findById} on every shard) through the shards'
+     * {@link AsyncExecution} for a {@code CompletableFuture} method. Not on the scatter executor: the operation waits
+     * for the per-shard work it queues there, and with a bounded pool every thread could end up waiting.
+     */
+    private MethodExecutor writer(Method method, boolean isAsync, MethodExecutor write) {
+        if (!isAsync) {
+            return write;
+        }
+        return (proxy, args) -> async.submit(() -> {
+            try {
+                return write.execute(proxy, args);
+            } catch (SQLException e) {
+                throw new MiniOrmException(repositoryName + "." + method.getName() + " failed: " + e.getMessage(), e);
+            }
+        });
+    }
+
+    private Object save(Object proxy, Method crud, T entity) throws Throwable {
+        Object id = mapper.getId(entity);
+        if (!EntityWriter.isNew(id)) {
+            return shardFor(keyOf(entity)).invoke(proxy, crud, new Object[]{entity});
+        }
+        mapper.setId(entity, idGenerator.nextId());
+        try {
+            RepositoryInvocationHandler<T, ID> shard = shardFor(keyOf(entity));
+            return shard.insert(entity, shard.getMetrics().method(crud.getName()));
+        } catch (Throwable e) {
+            mapper.setId(entity, id); // not inserted: it is still new
+            throw e;
+        }
+    }
+
+    private List<T> saveAll(Iterable<T> entities) throws Throwable {
+        List<T> all = new ArrayList<>();
+        Map<RepositoryInvocationHandler<T, ID>, List<T>> inserts = new LinkedHashMap<>();
+        Map<RepositoryInvocationHandler<T, ID>, List<T>> existing = new LinkedHashMap<>();
+        Map<T, Object> originalIds = new IdentityHashMap<>();
+        for (T entity : entities) {
+            all.add(entity);
+            boolean isNew = EntityWriter.isNew(mapper.getId(entity));
+            if (isNew) {
+                originalIds.put(entity, mapper.getId(entity));
+                mapper.setId(entity, idGenerator.nextId());
+            }
+            RepositoryInvocationHandler<T, ID> shard = shardFor(keyOf(entity));
+            (isNew ? inserts : existing).computeIfAbsent(shard, s -> new ArrayList<>()).add(entity);
+        }
+        List<RepositoryInvocationHandler<T, ID>> targets = new ArrayList<>(inserts.keySet());
+        existing.keySet().stream().filter(s -> !inserts.containsKey(s)).forEach(targets::add);
+        inParallel(shard -> {
+            List<T> shardInserts = inserts.getOrDefault(shard, List.of());
+            try {
+                shard.write(shardInserts, existing.getOrDefault(shard, List.of()), shard.getMetrics().method("saveAll"));
+            } catch (Throwable e) {
+                // this shard rolled back: its new entities are still new, the other shards' may have committed
+                shardInserts.forEach(entity -> mapper.setId(entity, originalIds.get(entity)));
+                throw e;
+            }
+            return null;
+        }, targets);
+        return all;
+    }
+
+    /**
+     * Upserts each shard's entities in parallel, giving new ones an id from the id generator first so they can be
+     * routed.
+     */
+    private List<T> upsertAll(Iterable<T> entities, Method crud) throws Throwable {
+        List<T> all = new ArrayList<>();
+        Map<RepositoryInvocationHandler<T, ID>, List<T>> byShard = new LinkedHashMap<>();
+        for (T entity : entities) {
+            all.add(entity);
+            if (EntityWriter.isNew(mapper.getId(entity))) {
+                mapper.setId(entity, idGenerator.nextId());
+            }
+            byShard.computeIfAbsent(shardFor(keyOf(entity)), s -> new ArrayList<>()).add(entity);
+        }
+        inParallel(shard -> {
+            shard.upsertAll(byShard.get(shard), shard.getMetrics().method(crud.getName()));
+            return null;
+        }, new ArrayList<>(byShard.keySet()));
+        return all;
+    }
+
+    /**
+     * Looks up an id on every shard, for entities sharded by a {@code @MyShardKey}. All shards share the entity's
+     * second-level cache, so it is asked once here; were each shard to answer from it, a cached entity would be
+     * found on every shard.
+     */
+    private Optional<Object> findByIdOnEveryShard(ID id, Method crud) throws Throwable {
+        Object cached = shards.get(0).findCached(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return firstPresent(inParallel(shard -> shard.loadById(id, shard.getMetrics().method(crud.getName())), shards));
+    }
+
+    private void deleteAllById(Object proxy, Method crud, Iterable<?> ids) throws Throwable {
+        if (shardKeyIndex >= 0) {
+            inParallel(shard -> shard.invoke(proxy, crud, new Object[]{ids}), shards);
+            return;
+        }
+        Map<RepositoryInvocationHandler<T, ID>, List<Object>> byShard = new LinkedHashMap<>();
+        for (Object id : ids) {
+            byShard.computeIfAbsent(shardFor(id), s -> new ArrayList<>()).add(id);
+        }
+        inParallel(shard -> shard.invoke(proxy, crud, new Object[]{byShard.get(shard)}), new ArrayList<>(byShard.keySet()));
+    }
+
+    private Object keyOf(T entity) {
+        Object key = shardKeyIndex < 0 ? mapper.getId(entity) : mapper.getColumnValue(entity, shardKeyIndex);
+        if (key == null) {
+            throw new MiniOrmException("Shard key " + (shardKeyIndex < 0 ? "id"
+                    : mapper.getMetadata().getColumnNames().get(shardKeyIndex)) + " of " + entityClass.getSimpleName() + " is null");
+        }
+        return key;
+    }
+
+    private RepositoryInvocationHandler<T, ID> shardFor(Object key) {
+        if (key == null) {
+            throw new MiniOrmException("Shard key of " + entityClass.getSimpleName() + " must not be null");
+        }
+        return ring.route(EntityMapper.convertToFieldType(key, shardKeyType));
+    }
+
+    /**
+     * Runs {@code call} for each of {@code targets}, the first on the calling thread and the rest on the executor,
+     * and returns the results in order. If any fails, cursors the others opened are closed and the first failure is
+     * thrown with the rest suppressed.
+     */
+    private List<Object> inParallel(ShardCall<RepositoryInvocationHandler<T, ID>> call, List<RepositoryInvocationHandler<T, ID>> targets) throws Throwable {
+        List<CompletableFuture<Object>> futures = new ArrayList<>(targets.size());
+        for (int i = 1; i < targets.size(); i++) {
+            RepositoryInvocationHandler<T, ID> shard = targets.get(i);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return call.apply(shard);
+                } catch (Throwable e) {
+                    throw new CompletionException(e);
+                }
+            }, executor));
+        }
+        List<Object> results = new ArrayList<>(targets.size());
+        Throwable failure = null;
+        if (!targets.isEmpty()) {
+            try {
+                results.add(call.apply(targets.get(0)));
+            } catch (Throwable e) {
+                failure = e;
+            }
+        }
+        for (CompletableFuture<Object> future : futures) {
+            try {
+                results.add(future.join());
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                if (failure == null) {
+                    failure = cause;
+                } else {
+                    failure.addSuppressed(cause);
+                }
+            }
+        }
+        if (failure != null) {
+            for (Object result : results) {
+                if (result instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) result).close();
+                    } catch (Exception e) {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            throw failure;
+        }
+        return results;
+    }
+
+    /**
+     * The one present result among the shards' {@code Optional}s (or nullable values); more than one is an error,
+     * since the query is meant to match at most one row.
+     */
+    private Optional<Object> firstPresent(List<Object> results) {
+        Object found = null;
+        for (Object result : results) {
+            Object value = result instanceof Optional ? ((Optional<?>) result).orElse(null) : result;
+            if (value != null) {
+                if (found != null) {
+                    throw new MiniOrmException(repositoryName + " expected at most one row but found more on different shards");
+                }
+                found = value;
+            }
+        }
+        return Optional.ofNullable(found);
+    }
+
+    private static List<Object> concatLists(List<Object> results) {
+        List<Object> merged = new ArrayList<>();
+        for (Object result : results) {
+            merged.addAll((Collection<?>) result);
+        }
+        return merged;
+    }
+
+    /**
+     * One stream reading the shards' streams in turn; closing it closes all of them.
+     */
+    private static Stream<Object> concatStreams(List<Object> results) {
+        Stream<Object> merged = Stream.empty();
+        for (Object result : results) {
+            @SuppressWarnings("unchecked")
+            Stream<Object> stream = (Stream<Object>) result;
+            merged = Stream.concat(merged, stream);
+        }
+        return merged;
+    }
+
+    @FunctionalInterface
+    private interface KeyExtractor {
+        Object key(Object[] args);
+    }
+
+    @FunctionalInterface
+    private interface Merger {
+        Object merge(List<Object> results);
+    }
+
+    @FunctionalInterface
+    private interface ShardCall<S> {
+        Object apply(S shard) throws Throwable;
+    }
+
+    /**
+     * Iterates the shards' cursors one after another and closes them all on {@link #close()}.
+     */
+    private static final class ConcatenatedIterator implements CloseableIterator<Object> {
+        private final List<CloseableIterator<?>> cursors = new ArrayList<>();
+        private int current;
+
+        ConcatenatedIterator(List<Object> results) {
+            for (Object result : results) {
+                cursors.add((CloseableIterator<?>) result);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (current < cursors.size()) {
+                if (cursors.get(current).hasNext()) {
+                    return true;
+                }
+                cursors.get(current++).close(); // release the shard's connection as soon as it is drained
+            }
+            return false;
+        }
+
+        @Override
+        public Object next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return cursors.get(current).next();
+        }
+
+        @Override
+        public void close() {
+            RuntimeException failure = null;
+            for (CloseableIterator<?> cursor : cursors) {
+                try {
+                    cursor.close();
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
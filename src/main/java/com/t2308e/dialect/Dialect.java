@@ -0,0 +1,70 @@
+package com.t2308e.dialect;
+
+import com.t2308e.bulk.BulkLoader;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * The SQL that differs between databases: row limits and paging, sequences, native upserts, multi-row inserts that
+ * return generated keys, and the bulk load path.
+ * <p>
+ * {@link com.t2308e.config.DataSourceConfig#getDialect()} picks one from the JDBC URL and driver; set another with
+ * {@link com.t2308e.config.DataSourceConfig#setDialect} before creating repositories, which build their statements
+ * once. {@link StandardDialect} implements the SQL standard forms and is the base for the built-in dialects.
+ */
+public interface Dialect {
+
+    /**
+     * Clause appended to a query, after its {@code ORDER BY} if {@code ordered}, that returns at most {@code limit}
+     * rows.
+     */
+    String limit(int limit, boolean ordered);
+
+    /**
+     * Clause appended after the {@code ORDER BY} of a page query, with the row limit and, if {@code withOffset}, the
+     * offset as parameters; {@link #bindPage} binds them.
+     */
+    String pageClause(boolean withOffset);
+
+    /**
+     * Binds the parameters of {@link #pageClause} starting at {@code position}; {@code offset} is ignored unless the
+     * clause has one.
+     *
+     * @return the next parameter position
+     */
+    int bindPage(PreparedStatement stmt, int position, int limit, long offset, boolean withOffset) throws SQLException;
+
+    /**
+     * Query returning the next value of {@code sequence}.
+     */
+    String sequenceNextValueSql(String sequence);
+
+    /**
+     * A statement writing {@code rows} rows of {@code idColumn} followed by {@code columns} (the parameters, row by
+     * row), inserting rows whose id is new and updating the others, in one round trip. {@code columns} may be empty,
+     * in which case rows that exist are left as they are.
+     */
+    String upsertSql(String table, String idColumn, List<String> columns, int rows);
+
+    /**
+     * A query inserting {@code rows} rows of {@code columns} (the parameters, row by row) with one multi-row VALUES
+     * list and returning, for each inserted row, the generated {@code idColumn} followed by {@code columns}; or null
+     * if the database has no such form, in which case inserts go out as JDBC batches and read
+     * {@code getGeneratedKeys()}. The rows may come back in any order: the caller matches them to what it inserted by
+     * their column values.
+     */
+    String insertReturningSql(String table, String idColumn, List<String> columns, int rows);
+
+    /**
+     * Most rows that {@link #upsertSql} or {@link #insertReturningSql} should carry in one statement when each row
+     * binds {@code parametersPerRow} parameters; at least 1.
+     */
+    int maxRowsPerStatement(int parametersPerRow);
+
+    /**
+     * How {@code bulkInsert} loads rows when no {@link BulkLoader} is configured.
+     */
+    BulkLoader bulkLoader(int batchSize);
+}
@@ -0,0 +1,37 @@
+package com.t2308e.dialect;
+
+/**
+ * Picks the built-in {@link Dialect} for a data source.
+ */
+public final class Dialects {
+
+    private Dialects() {
+    }
+
+    /**
+     * The dialect for the database at {@code url} (or, failing that, behind {@code driverClassName}); databases
+     * without a dedicated dialect get {@link StandardDialect}. An H2 URL keeps {@link H2Dialect} whatever its
+     * {@code MODE} setting, since H2 accepts its own syntax in every compatibility mode.
+     */
+    public static Dialect detect(String url, String driverClassName) {
+        String driver = driverClassName != null ? driverClassName : "";
+        if (url.startsWith("jdbc:h2:") || driver.startsWith("org.h2.")) {
+            return new H2Dialect(!url.startsWith("jdbc:h2:tcp:") && !url.startsWith("jdbc:h2:ssl:"));
+        }
+        if (url.startsWith("jdbc:postgresql:") || driver.startsWith("org.postgresql.")) {
+            return new PostgreSqlDialect();
+        }
+        if (url.startsWith("jdbc:mysql:") || url.startsWith("jdbc:mariadb:")
+                || driver.startsWith("com.mysql.") || driver.startsWith("org.mariadb.")) {
+            return new MySqlDialect();
+        }
+        if (url.startsWith("jdbc:oracle:") || driver.startsWith("oracle.")) {
+            return new OracleDialect();
+        }
+        if (url.startsWith("jdbc:sqlserver:") || url.startsWith("jdbc:jtds:sqlserver:")
+                || driver.startsWith("com.microsoft.sqlserver.") || driver.startsWith("net.sourceforge.jtds.")) {
+            return new SqlServerDialect();
+        }
+        return new StandardDialect();
+    }
+}
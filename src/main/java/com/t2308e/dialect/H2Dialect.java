@@ -0,0 +1,45 @@
+package com.t2308e.dialect;
+
+import com.t2308e.bulk.BulkLoader;
+import com.t2308e.bulk.H2CsvBulkLoader;
+
+import java.util.List;
+
+/**
+ * H2, the reference dialect: {@code LIMIT}/{@code OFFSET}, {@code MERGE INTO ... KEY (id) VALUES} upserts,
+ * {@code SELECT id, ... FROM FINAL TABLE (INSERT ...)} for multi-row inserts with their generated ids, and
+ * {@link H2CsvBulkLoader} when the database runs in this JVM or on this host.
+ */
+public class H2Dialect extends LimitOffsetDialect {
+
+    private final boolean local;
+
+    /**
+     * @param local whether H2 can read files this JVM writes, i.e. the URL is not {@code tcp:} or {@code ssl:}
+     */
+    public H2Dialect(boolean local) {
+        this.local = local;
+    }
+
+    @Override
+    public String upsertSql(String table, String idColumn, List<String> columns, int rows) {
+        return "MERGE INTO " + table + " (" + String.join(", ", withId(idColumn, columns)) + ") KEY (" + idColumn
+                + ") VALUES " + valueRows(columns.size() + 1, rows);
+    }
+
+    @Override
+    public String insertReturningSql(String table, String idColumn, List<String> columns, int rows) {
+        return "SELECT " + String.join(", ", withId(idColumn, columns)) + " FROM FINAL TABLE ("
+                + multiRowInsertSql(table, columns, rows) + ")";
+    }
+
+    @Override
+    public int maxRowsPerStatement(int parametersPerRow) {
+        return Math.max(1, 32767 / parametersPerRow);
+    }
+
+    @Override
+    public BulkLoader bulkLoader(int batchSize) {
+        return local ? new H2CsvBulkLoader() : super.bulkLoader(batchSize);
+    }
+}
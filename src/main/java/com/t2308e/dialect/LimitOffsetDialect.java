@@ -0,0 +1,30 @@
+package com.t2308e.dialect;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Base for databases that page with {@code LIMIT ? OFFSET ?} instead of the standard {@code OFFSET/FETCH} clauses.
+ */
+public abstract class LimitOffsetDialect extends StandardDialect {
+
+    @Override
+    public String limit(int limit, boolean ordered) {
+        return " LIMIT " + limit;
+    }
+
+    @Override
+    public String pageClause(boolean withOffset) {
+        return withOffset ? " LIMIT ? OFFSET ?" : " LIMIT ?";
+    }
+
+    @Override
+    public int bindPage(PreparedStatement stmt, int position, int limit, long offset, boolean withOffset)
+            throws SQLException {
+        stmt.setInt(position++, limit);
+        if (withOffset) {
+            stmt.setLong(position++, offset);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,28 @@
+package com.t2308e.dialect;
+
+import java.util.List;
+
+/**
+ * MySQL and MariaDB: {@code LIMIT}/{@code OFFSET}, {@code INSERT ... ON DUPLICATE KEY UPDATE} upserts and MariaDB's
+ * {@code NEXTVAL} for sequences. Generated keys of batched inserts come from {@code getGeneratedKeys()}, which the
+ * driver answers from the rewritten multi-row INSERT.
+ */
+public class MySqlDialect extends LimitOffsetDialect {
+
+    @Override
+    public String sequenceNextValueSql(String sequence) {
+        return "SELECT NEXTVAL(" + sequence + ")";
+    }
+
+    @Override
+    public String upsertSql(String table, String idColumn, List<String> columns, int rows) {
+        // The clause needs an assignment; with no column to update, setting the id to itself leaves the row alone
+        String update = columns.isEmpty() ? idColumn + " = " + idColumn : assignments(columns, "VALUES(%s)");
+        return multiRowInsertSql(table, withId(idColumn, columns), rows) + " ON DUPLICATE KEY UPDATE " + update;
+    }
+
+    @Override
+    public int maxRowsPerStatement(int parametersPerRow) {
+        return Math.max(1, 65535 / parametersPerRow);
+    }
+}
@@ -0,0 +1,31 @@
+package com.t2308e.dialect;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Oracle 12c and later: the standard {@code FETCH FIRST}/{@code OFFSET} clauses, {@code seq.NEXTVAL FROM DUAL},
+ * and {@code MERGE} upserts whose source rows are {@code SELECT ... FROM DUAL UNION ALL ...}, since Oracle has no
+ * multi-row {@code VALUES}.
+ */
+public class OracleDialect extends StandardDialect {
+
+    @Override
+    public String sequenceNextValueSql(String sequence) {
+        return "SELECT " + sequence + ".NEXTVAL FROM DUAL";
+    }
+
+    @Override
+    public String upsertSql(String table, String idColumn, List<String> columns, int rows) {
+        List<String> all = withId(idColumn, columns);
+        StringBuilder source = new StringBuilder("SELECT ")
+                .append(all.stream().map(c -> "? AS " + c).collect(Collectors.joining(", "))).append(" FROM DUAL");
+        String nextRow = " UNION ALL SELECT " + String.join(", ", Collections.nCopies(all.size(), "?")) + " FROM DUAL";
+        for (int i = 1; i < rows; i++) {
+            source.append(nextRow);
+        }
+        return "MERGE INTO " + table + " USING (" + source + ") src ON (" + table + "." + idColumn + " = src." + idColumn
+                + ")" + mergeActions(all, columns);
+    }
+}
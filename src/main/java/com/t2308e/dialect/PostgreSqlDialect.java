@@ -0,0 +1,31 @@
+package com.t2308e.dialect;
+
+import java.util.List;
+
+/**
+ * PostgreSQL: {@code LIMIT}/{@code OFFSET}, {@code nextval}, {@code INSERT ... ON CONFLICT (id) DO UPDATE} upserts
+ * and {@code INSERT ... RETURNING id, ...} for multi-row inserts.
+ */
+public class PostgreSqlDialect extends LimitOffsetDialect {
+
+    @Override
+    public String sequenceNextValueSql(String sequence) {
+        return "SELECT nextval('" + sequence + "')";
+    }
+
+    @Override
+    public String upsertSql(String table, String idColumn, List<String> columns, int rows) {
+        return multiRowInsertSql(table, withId(idColumn, columns), rows) + " ON CONFLICT (" + idColumn + ") "
+                + (columns.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + assignments(columns, "EXCLUDED.%s"));
+    }
+
+    @Override
+    public String insertReturningSql(String table, String idColumn, List<String> columns, int rows) {
+        return multiRowInsertSql(table, columns, rows) + " RETURNING " + String.join(", ", withId(idColumn, columns));
+    }
+
+    @Override
+    public int maxRowsPerStatement(int parametersPerRow) {
+        return Math.max(1, 32767 / parametersPerRow);
+    }
+}
@@ -0,0 +1,32 @@
+package com.t2308e.dialect;
+
+import java.util.List;
+
+/**
+ * SQL Server 2012 and later. Rows are limited with {@code OFFSET ... ROWS FETCH NEXT ... ROWS ONLY}, which T-SQL only
+ * accepts after an {@code ORDER BY}: an unordered query gets {@code ORDER BY (SELECT NULL)}, and a page without an
+ * offset starts at {@code OFFSET 0 ROWS}. Upserts are {@code MERGE} statements, which SQL Server requires to end with
+ * {@code ;}. A statement takes at most 2100 parameters and 1000 {@code VALUES} rows.
+ */
+public class SqlServerDialect extends StandardDialect {
+
+    @Override
+    public String limit(int limit, boolean ordered) {
+        return (ordered ? "" : " ORDER BY (SELECT NULL)") + " OFFSET 0 ROWS FETCH NEXT " + limit + " ROWS ONLY";
+    }
+
+    @Override
+    public String pageClause(boolean withOffset) {
+        return withOffset ? " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY" : " OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY";
+    }
+
+    @Override
+    public String upsertSql(String table, String idColumn, List<String> columns, int rows) {
+        return super.upsertSql(table, idColumn, columns, rows) + ";";
+    }
+
+    @Override
+    public int maxRowsPerStatement(int parametersPerRow) {
+        return Math.max(1, Math.min(1000, 2000 / parametersPerRow));
+    }
+}
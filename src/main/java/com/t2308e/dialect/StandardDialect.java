@@ -0,0 +1,111 @@
+package com.t2308e.dialect;
+
+import com.t2308e.bulk.BatchInsertBulkLoader;
+import com.t2308e.bulk.BulkLoader;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * SQL standard forms, used for databases without a dedicated dialect: {@code FETCH FIRST n ROWS ONLY},
+ * {@code OFFSET ? ROWS FETCH NEXT ? ROWS ONLY}, {@code NEXT VALUE FOR} and {@code MERGE ... USING (VALUES ...)}.
+ * Generated keys are read with {@code getGeneratedKeys()}. Subclasses override what their database does differently.
+ */
+public class StandardDialect implements Dialect {
+
+    @Override
+    public String limit(int limit, boolean ordered) {
+        return " FETCH FIRST " + limit + " ROWS ONLY";
+    }
+
+    @Override
+    public String pageClause(boolean withOffset) {
+        return withOffset ? " OFFSET ? ROWS FETCH NEXT ? ROWS ONLY" : " FETCH FIRST ? ROWS ONLY";
+    }
+
+    @Override
+    public int bindPage(PreparedStatement stmt, int position, int limit, long offset, boolean withOffset)
+            throws SQLException {
+        if (withOffset) {
+            stmt.setLong(position++, offset);
+        }
+        stmt.setInt(position++, limit);
+        return position;
+    }
+
+    @Override
+    public String sequenceNextValueSql(String sequence) {
+        return "SELECT NEXT VALUE FOR " + sequence;
+    }
+
+    @Override
+    public String upsertSql(String table, String idColumn, List<String> columns, int rows) {
+        List<String> all = withId(idColumn, columns);
+        return "MERGE INTO " + table + " USING (VALUES " + valueRows(all.size(), rows) + ") AS src ("
+                + String.join(", ", all) + ") ON " + table + "." + idColumn + " = src." + idColumn
+                + mergeActions(all, columns);
+    }
+
+    @Override
+    public String insertReturningSql(String table, String idColumn, List<String> columns, int rows) {
+        return null;
+    }
+
+    @Override
+    public int maxRowsPerStatement(int parametersPerRow) {
+        // Conservative, as the database is unknown: fits SQL Server's 2100 parameters and 1000 VALUES rows
+        return Math.max(1, Math.min(1000, 2000 / parametersPerRow));
+    }
+
+    @Override
+    public BulkLoader bulkLoader(int batchSize) {
+        return new BatchInsertBulkLoader(batchSize);
+    }
+
+    /**
+     * {@code INSERT INTO table (columns) VALUES (?, ...), (?, ...)} with {@code rows} rows.
+     */
+    protected static String multiRowInsertSql(String table, List<String> columns, int rows) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES " + valueRows(columns.size(), rows);
+    }
+
+    /**
+     * {@code idColumn} followed by {@code columns}.
+     */
+    protected static List<String> withId(String idColumn, List<String> columns) {
+        List<String> all = new ArrayList<>(columns.size() + 1);
+        all.add(idColumn);
+        all.addAll(columns);
+        return all;
+    }
+
+    /**
+     * The {@code WHEN MATCHED} and {@code WHEN NOT MATCHED} clauses of a {@code MERGE} whose source {@code src} has
+     * the columns {@code all}, the id followed by {@code columns}. Without columns to update, matched rows are left
+     * alone.
+     */
+    protected static String mergeActions(List<String> all, List<String> columns) {
+        return (columns.isEmpty() ? "" : " WHEN MATCHED THEN UPDATE SET " + assignments(columns, "src.%s"))
+                + " WHEN NOT MATCHED THEN INSERT (" + String.join(", ", all) + ") VALUES ("
+                + all.stream().map(c -> "src." + c).collect(Collectors.joining(", ")) + ")";
+    }
+
+    /**
+     * {@code (?, ?), (?, ?)}: {@code rows} groups of {@code width} placeholders.
+     */
+    protected static String valueRows(int width, int rows) {
+        String row = "(" + String.join(", ", Collections.nCopies(width, "?")) + ")";
+        return String.join(", ", Collections.nCopies(rows, row));
+    }
+
+    /**
+     * {@code a = <source of a>, b = <source of b>}, with {@code sourceFormat} applied to each column name.
+     */
+    protected static String assignments(List<String> columns, String sourceFormat) {
+        return columns.stream().map(c -> c + " = " + String.format(sourceFormat, c)).collect(Collectors.joining(", "));
+    }
+}
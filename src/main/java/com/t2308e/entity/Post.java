@@ -0,0 +1,59 @@
+package com.t2308e.entity;
+
+import com.t2308e.annotations.GenerationType;
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import com.t2308e.annotations.MyManyToOne;
+
+@MyEntity(tableName = "posts")
+public class Post {
+
+    @MyId(strategy = GenerationType.SEQUENCE) // Id lấy theo khối 50 từ sequence posts_seq, saveAll gửi cả lô
+    private Long id;
+
+    private String title;
+
+    @MyManyToOne(joinColumn = "author_id") // Cột khóa ngoại author_id trỏ tới users.id
+    private User author;
+
+    public Post() { // Cần constructor không tham số
+    }
+
+    public Post(String title, User author) {
+        this.title = title;
+        this.author = author;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public User getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(User author) {
+        this.author = author;
+    }
+
+    @Override
+    public String toString() {
+        return "Post{" +
+                "id=" + id +
+                ", title='" + title + '\'' +
+                ", author=" + (author != null ? author.getUserName() : null) +
+                '}';
+    }
+}
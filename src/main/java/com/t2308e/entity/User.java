@@ -5,7 +5,7 @@ import com.t2308e.annotations.MyEntity;
 import com.t2308e.annotations.MyId;
 import com.t2308e.annotations.MyTransient;
 
-@MyEntity(tableName = "users") // Hoặc @MyEntity, lúc đó tên bảng sẽ là "user" hoặc "users"
+@MyEntity(tableName = "users", cacheable = true) // Hoặc @MyEntity, lúc đó tên bảng sẽ là "user" hoặc "users"
 public class User {
 
     @MyId
@@ -0,0 +1,7 @@
+package com.t2308e.entity;
+
+// Projection của User: chỉ các cột user_name và email được SELECT
+public interface UserSummary {
+    String getUserName();
+    String getEmail();
+}
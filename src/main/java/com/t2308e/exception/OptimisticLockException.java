@@ -0,0 +1,23 @@
+package com.t2308e.exception;
+
+/**
+ * An UPDATE of a {@code @MyVersion} entity matched no row: another writer changed (or deleted) the row since the
+ * entity was read. Reload the entity and retry, or report the conflict.
+ */
+public class OptimisticLockException extends MiniOrmException {
+    private final Class<?> entityClass;
+    private final Object id;
+    private final Object expectedVersion;
+
+    public OptimisticLockException(Class<?> entityClass, Object id, Object expectedVersion) {
+        super(entityClass.getSimpleName() + " with id " + id + " was updated or deleted concurrently (expected version "
+                + expectedVersion + ")");
+        this.entityClass = entityClass;
+        this.id = id;
+        this.expectedVersion = expectedVersion;
+    }
+
+    public Class<?> getEntityClass() { return entityClass; }
+    public Object getId() { return id; }
+    public Object getExpectedVersion() { return expectedVersion; }
+}
@@ -0,0 +1,12 @@
+package com.t2308e.id;
+
+/**
+ * Produces ids for new entities in the application instead of the database, e.g. so that rows written to different
+ * shards never get the same id. Implementations must be thread-safe.
+ *
+ * @param <ID> id type; the value is converted to the entity's id field type when it is set
+ */
+@FunctionalInterface
+public interface IdGenerator<ID> {
+    ID nextId();
+}
@@ -0,0 +1,74 @@
+package com.t2308e.id;
+
+import com.t2308e.annotations.GenerationType;
+import com.t2308e.annotations.MyId;
+import com.t2308e.dialect.Dialect;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.transaction.ConnectionSource;
+import com.t2308e.util.ReflectionUtil;
+
+import java.lang.reflect.Field;
+import java.util.UUID;
+
+/**
+ * Builds the generator for the {@code strategy} of an entity's {@link MyId}.
+ */
+public final class IdGenerators {
+
+    private IdGenerators() {
+    }
+
+    /**
+     * The generator for new {@code entityClass} entities, or null for {@code IDENTITY}, where the database assigns the
+     * id on insert.
+     *
+     * @param connections where {@code SEQUENCE} reads its sequence
+     * @param dialect     how the next sequence value is queried
+     * @param workerId    worker id of {@code SNOWFLAKE} ids
+     * @throws MiniOrmException if the id field's type does not fit the strategy
+     */
+    public static IdGenerator<?> forEntity(Class<?> entityClass, ConnectionSource connections, Dialect dialect,
+                                           int workerId) {
+        Field idField = ReflectionUtil.getIdField(entityClass);
+        MyId id = idField.getAnnotation(MyId.class);
+        Class<?> type = idField.getType();
+        switch (id.strategy()) {
+            case SEQUENCE:
+                requireType(entityClass, id, type == Long.class || type == long.class);
+                String sequence = id.sequenceName().isEmpty()
+                        ? ReflectionUtil.getTableName(entityClass) + "_seq" : id.sequenceName();
+                return new SequenceIdGenerator(connections, dialect.sequenceNextValueSql(sequence), id.allocationSize());
+            case UUID:
+                requireType(entityClass, id, type == UUID.class || type == String.class);
+                return new UuidV7Generator();
+            case SNOWFLAKE:
+                requireType(entityClass, id, type == Long.class || type == long.class);
+                return new SnowflakeIdGenerator(workerId);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * A {@code SNOWFLAKE} generator for {@code entityClass} whatever its own strategy, as sharded repositories use by
+     * default so that ids are unique across shards.
+     *
+     * @throws MiniOrmException if the id field is not a {@code Long}, which would truncate or reject 64-bit ids
+     */
+    public static SnowflakeIdGenerator snowflake(Class<?> entityClass, int workerId) {
+        Class<?> type = ReflectionUtil.getIdField(entityClass).getType();
+        if (type != Long.class && type != long.class) {
+            throw new MiniOrmException("Snowflake ids of " + entityClass.getSimpleName() + " need a Long id field, not "
+                    + type.getSimpleName() + "; set another one with ShardingConfig.setIdGenerator");
+        }
+        return new SnowflakeIdGenerator(workerId);
+    }
+
+    private static void requireType(Class<?> entityClass, MyId id, boolean fits) {
+        if (!fits) {
+            throw new MiniOrmException("@MyId(strategy = " + id.strategy() + ") of " + entityClass.getSimpleName()
+                    + " needs a " + (id.strategy() == GenerationType.UUID ? "UUID or String" : "Long")
+                    + " id field");
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.t2308e.id;
+
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.transaction.ConnectionSource;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hi-lo ids from a database sequence: each value {@code hi} read from the sequence reserves the block
+ * {@code [hi * allocationSize, (hi + 1) * allocationSize)}, so one sequence call covers {@code allocationSize} inserts.
+ * The sequence must be incremented by 1; every process using it gets disjoint blocks.
+ * <p>
+ * Handing out an id from the current block is lock-free. Only fetching the next block is serialized, so that threads
+ * running out at the same time make one sequence call between them. Ids left in a block when the generator is
+ * discarded are never used, which leaves gaps but no duplicates.
+ */
+public class SequenceIdGenerator implements IdGenerator<Long> {
+
+    private final ConnectionSource connections;
+    private final String nextValueSql;
+    private final int allocationSize;
+    private volatile Block block = new Block(0, 0);
+
+    /**
+     * @param connections  where the sequence is read; a transaction's connection is fine, sequences ignore rollbacks
+     * @param nextValueSql query returning the next sequence value, e.g. {@code SELECT NEXT VALUE FOR posts_seq}
+     */
+    public SequenceIdGenerator(ConnectionSource connections, String nextValueSql, int allocationSize) {
+        if (allocationSize < 1) {
+            throw new IllegalArgumentException("allocationSize must be >= 1");
+        }
+        this.connections = connections;
+        this.nextValueSql = nextValueSql;
+        this.allocationSize = allocationSize;
+    }
+
+    @Override
+    public Long nextId() {
+        while (true) {
+            Block current = block;
+            long id = current.next.getAndIncrement();
+            if (id < current.limit) {
+                return id;
+            }
+            refill(current);
+        }
+    }
+
+    public int getAllocationSize() {
+        return allocationSize;
+    }
+
+    private synchronized void refill(Block exhausted) {
+        if (block != exhausted) {
+            return; // another thread already fetched a new block
+        }
+        long hi = fetchNextValue();
+        long first = hi * allocationSize;
+        // 0 means "not saved yet" for numeric ids, so it is never handed out
+        block = new Block(Math.max(first, 1), first + allocationSize);
+    }
+
+    private long fetchNextValue() {
+        try (Connection conn = connections.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(nextValueSql)) {
+            if (!rs.next()) {
+                throw new MiniOrmException("Sequence query returned no row: " + nextValueSql);
+            }
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new MiniOrmException("Failed to read sequence: " + nextValueSql, e);
+        }
+    }
+
+    private static final class Block {
+        final AtomicLong next;
+        final long limit; // exclusive
+
+        Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
+    }
+}
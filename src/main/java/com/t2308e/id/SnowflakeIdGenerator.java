@@ -0,0 +1,68 @@
+package com.t2308e.id;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Time-ordered 64-bit ids: 41 bits of milliseconds since {@link #EPOCH_MILLIS}, a 10-bit worker id and a 12-bit
+ * sequence within the millisecond. Generators with distinct worker ids never produce the same id, so each
+ * application instance needs its own worker id.
+ * <p>
+ * Generation is lock-free. More than 4096 ids in one millisecond, or a clock that moves backwards, carry on from the
+ * last timestamp used instead of blocking, so ids keep increasing.
+ */
+public class SnowflakeIdGenerator implements IdGenerator<Long> {
+
+    /** 2020-01-01T00:00:00Z; ids run out about 69 years later. */
+    public static final long EPOCH_MILLIS = 1_577_836_800_000L;
+    public static final int MAX_WORKER_ID = 1023;
+
+    private static final int SEQUENCE_BITS = 12;
+    private static final int WORKER_BITS = 10;
+
+    private final long workerId;
+    private final LongSupplier clock; // epoch milliseconds
+    private final AtomicLong lastState = new AtomicLong(); // (millis since epoch << 12) | sequence
+
+    public SnowflakeIdGenerator(int workerId) {
+        this(workerId, System::currentTimeMillis);
+    }
+
+    SnowflakeIdGenerator(int workerId, LongSupplier clock) {
+        if (workerId < 0 || workerId > MAX_WORKER_ID) {
+            throw new IllegalArgumentException("workerId must be between 0 and " + MAX_WORKER_ID);
+        }
+        this.workerId = workerId;
+        this.clock = clock;
+    }
+
+    @Override
+    public Long nextId() {
+        long state;
+        long next;
+        do {
+            state = lastState.get();
+            long now = clock.getAsLong() - EPOCH_MILLIS;
+            // A full sequence overflows into the next millisecond
+            next = now > state >>> SEQUENCE_BITS ? now << SEQUENCE_BITS : state + 1;
+        } while (!lastState.compareAndSet(state, next));
+        long millis = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (millis << (WORKER_BITS + SEQUENCE_BITS)) | (workerId << SEQUENCE_BITS) | sequence;
+    }
+
+    public int getWorkerId() {
+        return (int) workerId;
+    }
+
+    /**
+     * Epoch milliseconds at which {@code id} was generated.
+     */
+    public static long timestampOf(long id) {
+        return (id >>> (WORKER_BITS + SEQUENCE_BITS)) + EPOCH_MILLIS;
+    }
+
+    public static int workerIdOf(long id) {
+        return (int) ((id >>> SEQUENCE_BITS) & MAX_WORKER_ID);
+    }
+}
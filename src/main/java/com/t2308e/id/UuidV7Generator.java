@@ -0,0 +1,53 @@
+package com.t2308e.id;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Version 7 UUIDs (RFC 9562): 48 bits of Unix milliseconds, then random bits, so ids sort by creation time and keep
+ * B-tree inserts near the end of the index instead of scattering them as random UUIDs do.
+ * <p>
+ * The 12 bits after the timestamp count up within a millisecond, making ids from one generator strictly increasing.
+ * As in {@link SnowflakeIdGenerator}, generation is lock-free and a full counter or a clock that moves backwards
+ * carries on from the last timestamp used.
+ */
+public class UuidV7Generator implements IdGenerator<UUID> {
+
+    private static final int COUNTER_BITS = 12;
+
+    private final LongSupplier clock; // Unix milliseconds
+    private final AtomicLong lastState = new AtomicLong(); // (unix millis << 12) | counter
+
+    public UuidV7Generator() {
+        this(System::currentTimeMillis);
+    }
+
+    UuidV7Generator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public UUID nextId() {
+        long state;
+        long next;
+        do {
+            state = lastState.get();
+            long now = clock.getAsLong();
+            next = now > state >>> COUNTER_BITS ? now << COUNTER_BITS : state + 1;
+        } while (!lastState.compareAndSet(state, next));
+        long millis = next >>> COUNTER_BITS;
+        long counter = next & ((1L << COUNTER_BITS) - 1);
+        long mostSignificant = (millis << 16) | 0x7000L | counter;
+        long leastSignificant = (ThreadLocalRandom.current().nextLong() >>> 2) | 0x8000_0000_0000_0000L;
+        return new UUID(mostSignificant, leastSignificant);
+    }
+
+    /**
+     * Unix milliseconds at which a version 7 {@code uuid} was generated.
+     */
+    public static long timestampOf(UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
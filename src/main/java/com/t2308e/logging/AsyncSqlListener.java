@@ -0,0 +1,117 @@
+package com.t2308e.logging;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands events to a delegate listener on a single background thread through a fixed-size ring buffer.
+ * <p>
+ * Producers claim a slot with one CAS and never block or take a lock: when the buffer is full the event is dropped
+ * and counted in {@link #getDroppedCount()}. The consumer polls with a short park instead of being signalled, so
+ * producers make no system calls; events are delivered within about a millisecond. {@link #close()} drains what is
+ * left and stops the thread. Exceptions thrown by the delegate are logged as warnings through the
+ * {@link System.Logger} named after this class.
+ */
+public class AsyncSqlListener implements SqlListener, AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final System.Logger LOG = System.getLogger(AsyncSqlListener.class.getName());
+
+    private final SqlListener delegate;
+    private final AtomicReferenceArray<SqlEvent> slots;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong();  // next sequence producers will claim
+    private final AtomicLong consumed = new AtomicLong(); // next sequence the consumer will read
+    private final LongAdder dropped = new LongAdder();
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * @param capacity ring size, rounded up to a power of two
+     */
+    public AsyncSqlListener(SqlListener delegate, int capacity) {
+        if (capacity < 1 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        int size = Integer.highestOneBit(capacity - 1 == 0 ? 1 : (capacity - 1) << 1);
+        this.delegate = delegate;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+        this.worker = new Thread(this::drainLoop, "mini-orm-sql-logger");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    public AsyncSqlListener(SqlListener delegate) {
+        this(delegate, 8192);
+    }
+
+    @Override
+    public void onStatement(SqlEvent event) {
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed.get() > mask || !running) {
+                dropped.increment();
+                return;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+        slots.lazySet((int) seq & mask, event);
+    }
+
+    private void drainLoop() {
+        while (running) {
+            if (!drain()) {
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Delivers everything published so far; returns false if there was nothing to do.
+     */
+    private boolean drain() {
+        boolean delivered = false;
+        long seq = consumed.get();
+        while (seq < claimed.get()) {
+            int index = (int) seq & mask;
+            SqlEvent event = slots.get(index);
+            if (event == null) {
+                // Slot claimed but not written yet
+                Thread.onSpinWait();
+                continue;
+            }
+            slots.lazySet(index, null);
+            consumed.lazySet(++seq);
+            try {
+                delegate.onStatement(event);
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "SqlListener " + delegate.getClass().getName() + " failed", e);
+            }
+            delivered = true;
+        }
+        return delivered;
+    }
+
+    /**
+     * Events discarded because the buffer was full (or the listener closed).
+     */
+    public long getDroppedCount() {
+        return dropped.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(worker);
+        try {
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
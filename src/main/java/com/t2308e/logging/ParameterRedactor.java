@@ -0,0 +1,33 @@
+package com.t2308e.logging;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replaces bound parameter values before they are logged.
+ */
+@FunctionalInterface
+public interface ParameterRedactor {
+
+    String MASK = "****";
+
+    ParameterRedactor NONE = (column, value) -> value;
+
+    ParameterRedactor ALL = (column, value) -> value == null ? null : MASK;
+
+    /**
+     * @param column column the parameter is bound to, or {@code null} if it is not known
+     * @return the value to log
+     */
+    Object redact(String column, Object value);
+
+    /**
+     * Masks the values bound to the given columns (case-insensitive) and leaves the others as they are.
+     */
+    static ParameterRedactor columns(String... columnNames) {
+        Set<String> masked = Stream.of(columnNames).map(c -> c.toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+        return (column, value) -> value != null && column != null && masked.contains(column.toLowerCase(Locale.ROOT)) ? MASK : value;
+    }
+}
@@ -0,0 +1,21 @@
+package com.t2308e.logging;
+
+import java.io.PrintStream;
+
+/**
+ * Prints each event on its own line, e.g. {@code new PrintStreamSqlListener(System.out)}. Writes synchronously;
+ * wrap it in an {@link AsyncSqlListener} to keep the I/O off the calling threads.
+ */
+public class PrintStreamSqlListener implements SqlListener {
+
+    private final PrintStream out;
+
+    public PrintStreamSqlListener(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void onStatement(SqlEvent event) {
+        out.println(event);
+    }
+}
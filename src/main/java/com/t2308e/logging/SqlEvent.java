@@ -0,0 +1,65 @@
+package com.t2308e.logging;
+
+import java.util.List;
+
+/**
+ * One executed statement (or JDBC batch) as reported to a {@link SqlListener}.
+ */
+public final class SqlEvent {
+
+    private final String sql;
+    private final List<Object> parameters;
+    private final int batchSize;
+    private final long elapsedNanos;
+    private final boolean slow;
+    private final long timestampMillis;
+    private final String threadName;
+
+    SqlEvent(String sql, List<Object> parameters, int batchSize, long elapsedNanos, boolean slow) {
+        this.sql = sql;
+        this.parameters = parameters;
+        this.batchSize = batchSize;
+        this.elapsedNanos = elapsedNanos;
+        this.slow = slow;
+        this.timestampMillis = System.currentTimeMillis();
+        this.threadName = Thread.currentThread().getName();
+    }
+
+    public String getSql() { return sql; }
+
+    /**
+     * Bound values after redaction; empty unless parameter logging is on or for batches.
+     */
+    public List<Object> getParameters() { return parameters; }
+
+    /**
+     * Number of rows sent in the batch, 1 for a single statement.
+     */
+    public int getBatchSize() { return batchSize; }
+    public long getElapsedNanos() { return elapsedNanos; }
+    public double getElapsedMillis() { return elapsedNanos / 1_000_000.0; }
+
+    /**
+     * Whether the statement took at least the logger's slow-query threshold.
+     */
+    public boolean isSlow() { return slow; }
+    public long getTimestampMillis() { return timestampMillis; }
+    public String getThreadName() { return threadName; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(sql.length() + 64);
+        if (slow) {
+            sb.append("[SLOW] ");
+        }
+        sb.append("Executing SQL");
+        if (batchSize > 1) {
+            sb.append(" (batch of ").append(batchSize).append(')');
+        }
+        sb.append(String.format(" [%.3f ms]: ", getElapsedMillis())).append(sql);
+        if (!parameters.isEmpty()) {
+            sb.append(" -- params ").append(parameters);
+        }
+        return sb.toString();
+    }
+}
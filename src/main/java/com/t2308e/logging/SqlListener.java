@@ -0,0 +1,11 @@
+package com.t2308e.logging;
+
+/**
+ * Receives the statements reported by a {@link SqlLogger}. Called on the thread that ran the statement, so
+ * implementations should be fast or hand the event off, as {@link AsyncSqlListener} does.
+ */
+@FunctionalInterface
+public interface SqlListener {
+
+    void onStatement(SqlEvent event);
+}
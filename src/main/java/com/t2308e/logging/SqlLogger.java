@@ -0,0 +1,152 @@
+package com.t2308e.logging;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides which executed statements are reported to a {@link SqlListener}, set with
+ * {@code factory.getSettings().setSqlLogger(...)}.
+ * <p>
+ * Call sites check {@link #isEnabled()} before building anything, so the default {@link #disabled()} logger costs a
+ * field read per statement and allocates nothing. When enabled, a statement is reported if it is sampled (see
+ * {@link #setSampleRate(double)}) or if it ran for at least the slow-query threshold; use a sample rate of 0 with a
+ * threshold to log only slow statements. Bound values are only captured with {@link #setLogParameters(boolean)},
+ * after passing through the {@link ParameterRedactor}.
+ * <p>
+ * A listener that throws does not fail the statement; the exception is logged as a warning through the
+ * {@link System.Logger} named after this class.
+ */
+public final class SqlLogger {
+
+    private static final SqlLogger DISABLED = new SqlLogger();
+    private static final System.Logger LOG = System.getLogger(SqlLogger.class.getName());
+
+    private final SqlListener listener;
+    private final boolean enabled;
+    private volatile double sampleRate = 1.0;
+    private volatile long slowQueryThresholdNanos; // 0 = no threshold
+    private volatile boolean logParameters;
+    private volatile ParameterRedactor redactor = ParameterRedactor.NONE;
+
+    private SqlLogger() {
+        this.listener = null;
+        this.enabled = false;
+    }
+
+    public SqlLogger(SqlListener listener) {
+        this.listener = Objects.requireNonNull(listener, "listener");
+        this.enabled = true;
+    }
+
+    /**
+     * The shared logger that reports nothing.
+     */
+    public static SqlLogger disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Synchronous logging to {@code System.out}, the old behaviour.
+     */
+    public static SqlLogger console() {
+        return new SqlLogger(new PrintStreamSqlListener(System.out));
+    }
+
+    public boolean isEnabled() { return enabled; }
+    public double getSampleRate() { return sampleRate; }
+    public long getSlowQueryThresholdNanos() { return slowQueryThresholdNanos; }
+    public boolean isLogParameters() { return logParameters; }
+    public ParameterRedactor getRedactor() { return redactor; }
+
+    /**
+     * Fraction of statements reported, from 0 (only slow ones) to 1 (all, the default).
+     */
+    public SqlLogger setSampleRate(double sampleRate) {
+        if (sampleRate < 0.0 || sampleRate > 1.0) {
+            throw new IllegalArgumentException("sampleRate must be between 0 and 1");
+        }
+        this.sampleRate = sampleRate;
+        return this;
+    }
+
+    /**
+     * Statements taking at least this long are always reported and flagged {@link SqlEvent#isSlow()}; 0 disables.
+     */
+    public SqlLogger setSlowQueryThresholdMillis(long thresholdMillis) {
+        if (thresholdMillis < 0) {
+            throw new IllegalArgumentException("thresholdMillis must be >= 0");
+        }
+        this.slowQueryThresholdNanos = thresholdMillis * 1_000_000L;
+        return this;
+    }
+
+    public SqlLogger setLogParameters(boolean logParameters) {
+        this.logParameters = logParameters;
+        return this;
+    }
+
+    public SqlLogger setRedactor(ParameterRedactor redactor) {
+        this.redactor = Objects.requireNonNull(redactor, "redactor");
+        return this;
+    }
+
+    /**
+     * Start timestamp to pass to {@link #log}; 0 without reading the clock when disabled.
+     */
+    public long start() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Reports a single statement that was started at {@code startNanos}.
+     *
+     * @param parameterColumns column of each parameter for redaction, or null; entries may be null
+     * @param parameters       bound values, or null
+     */
+    public void log(String sql, long startNanos, List<String> parameterColumns, Object[] parameters) {
+        report(sql, startNanos, 1, parameterColumns, parameters);
+    }
+
+    /**
+     * Reports a JDBC batch of {@code batchSize} rows. Parameters are never captured for batches.
+     */
+    public void logBatch(String sql, long startNanos, int batchSize) {
+        report(sql, startNanos, batchSize, null, null);
+    }
+
+    private void report(String sql, long startNanos, int batchSize, List<String> parameterColumns, Object[] parameters) {
+        if (!enabled) {
+            return;
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        long threshold = slowQueryThresholdNanos;
+        boolean slow = threshold > 0 && elapsed >= threshold;
+        if (!slow && !sampled()) {
+            return;
+        }
+        List<Object> logged = Collections.emptyList();
+        if (logParameters && parameters != null && parameters.length > 0) {
+            ParameterRedactor r = redactor;
+            Object[] values = new Object[parameters.length];
+            for (int i = 0; i < values.length; i++) {
+                String column = parameterColumns != null && i < parameterColumns.size() ? parameterColumns.get(i) : null;
+                values[i] = r.redact(column, parameters[i]);
+            }
+            logged = Collections.unmodifiableList(Arrays.asList(values));
+        }
+        try {
+            listener.onStatement(new SqlEvent(sql, logged, batchSize, elapsed, slow));
+        } catch (RuntimeException e) {
+            // A broken listener must not fail the statement that was being logged
+            LOG.log(System.Logger.Level.WARNING, "SqlListener " + listener.getClass().getName() + " failed", e);
+        }
+    }
+
+    private boolean sampled() {
+        double rate = sampleRate;
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+}
@@ -0,0 +1,49 @@
+package com.t2308e.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Live counters and latency histogram for one repository method. Updated by the repository proxy; read through
+ * {@link #snapshot()}.
+ */
+public final class MethodMetrics {
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder rowsRead = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final Histogram latencyNanos = new Histogram();
+
+    MethodMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void recordCall(long elapsedNanos, boolean failed) {
+        calls.increment();
+        if (failed) {
+            errors.increment();
+        }
+        latencyNanos.record(elapsedNanos);
+    }
+
+    public void addRowsRead(long rows) {
+        rowsRead.add(rows);
+    }
+
+    public void addRowsWritten(long rows) {
+        rowsWritten.add(rows);
+    }
+
+    long getRowsRead() { return rowsRead.sum(); }
+    long getRowsWritten() { return rowsWritten.sum(); }
+
+    public MethodMetricsSnapshot snapshot() {
+        return new MethodMetricsSnapshot(name, calls.sum(), errors.sum(), rowsRead.sum(), rowsWritten.sum(),
+                latencyNanos.snapshot());
+    }
+}
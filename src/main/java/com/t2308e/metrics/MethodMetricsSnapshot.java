@@ -0,0 +1,37 @@
+package com.t2308e.metrics;
+
+/**
+ * Immutable view of {@link MethodMetrics}. Streaming methods count their rows when the stream or iterator is closed.
+ */
+public final class MethodMetricsSnapshot {
+
+    private final String method;
+    private final long calls;
+    private final long errors;
+    private final long rowsRead;
+    private final long rowsWritten;
+    private final HistogramSnapshot latencyNanos;
+
+    MethodMetricsSnapshot(String method, long calls, long errors, long rowsRead, long rowsWritten,
+                          HistogramSnapshot latencyNanos) {
+        this.method = method;
+        this.calls = calls;
+        this.errors = errors;
+        this.rowsRead = rowsRead;
+        this.rowsWritten = rowsWritten;
+        this.latencyNanos = latencyNanos;
+    }
+
+    public String getMethod() { return method; }
+    public long getCalls() { return calls; }
+    public long getErrors() { return errors; }
+    public long getRowsRead() { return rowsRead; }
+    public long getRowsWritten() { return rowsWritten; }
+    public HistogramSnapshot getLatencyNanos() { return latencyNanos; }
+
+    @Override
+    public String toString() {
+        return method + "{calls=" + calls + ", errors=" + errors + ", rowsRead=" + rowsRead
+                + ", rowsWritten=" + rowsWritten + ", latency[" + latencyNanos.toMillisString() + "]}";
+    }
+}
@@ -0,0 +1,124 @@
+package com.t2308e.metrics;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolStats;
+import com.t2308e.exception.MiniOrmException;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * All metrics of one {@code MyRepositoryFactory}: a {@link RepositoryMetrics} per repository interface plus the
+ * connection pool of its data source. Read them with {@link #snapshot()}, or expose them over JMX with
+ * {@link #registerMBeans()} under {@value #JMX_DOMAIN}.
+ */
+public final class MetricsRegistry {
+
+    public static final String JMX_DOMAIN = "com.t2308e.miniorm";
+
+    private static final AtomicInteger FACTORY_IDS = new AtomicInteger();
+
+    private final int factoryId = FACTORY_IDS.incrementAndGet();
+    private final DataSourceConfig dataSourceConfig;
+    private final Map<Class<?>, RepositoryMetrics> repositories = new ConcurrentHashMap<>();
+    private final Set<ObjectName> registeredNames = ConcurrentHashMap.newKeySet();
+    private volatile boolean jmxEnabled;
+
+    public MetricsRegistry(DataSourceConfig dataSourceConfig) {
+        this.dataSourceConfig = dataSourceConfig;
+    }
+
+    /**
+     * The metrics of {@code repositoryInterface}, created (and registered with JMX if enabled) on first use.
+     */
+    public RepositoryMetrics repository(Class<?> repositoryInterface, Class<?> entityClass) {
+        return repositories.computeIfAbsent(repositoryInterface, iface -> {
+            RepositoryMetrics metrics = new RepositoryMetrics(iface.getSimpleName(), entityClass.getSimpleName());
+            if (jmxEnabled) {
+                register(metrics, repositoryName(iface));
+            }
+            return metrics;
+        });
+    }
+
+    public Optional<RepositoryMetrics> find(Class<?> repositoryInterface) {
+        return Optional.ofNullable(repositories.get(repositoryInterface));
+    }
+
+    /**
+     * Current values of every repository's metrics.
+     */
+    public List<RepositoryMetricsSnapshot> snapshot() {
+        List<RepositoryMetricsSnapshot> snapshots = new ArrayList<>();
+        for (RepositoryMetrics metrics : repositories.values()) {
+            snapshots.add(metrics.snapshot());
+        }
+        return snapshots;
+    }
+
+    public Optional<PoolStats> getPoolStats() {
+        return dataSourceConfig.getPoolStats();
+    }
+
+    /**
+     * Registers an MXBean per repository (existing and future) and one for the connection pool, if pooled, with
+     * the platform MBean server.
+     */
+    public synchronized MetricsRegistry registerMBeans() {
+        if (jmxEnabled) {
+            return this;
+        }
+        jmxEnabled = true;
+        if (dataSourceConfig.isPooled()) {
+            register(new PoolMetrics(dataSourceConfig), name("type=ConnectionPool,factory=" + factoryId));
+        }
+        repositories.forEach((iface, metrics) -> register(metrics, repositoryName(iface)));
+        return this;
+    }
+
+    public synchronized void unregisterMBeans() {
+        jmxEnabled = false;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registeredNames) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (InstanceNotFoundException e) {
+                // already gone
+            } catch (JMException e) {
+                throw new MiniOrmException("Failed to unregister " + objectName, e);
+            }
+        }
+        registeredNames.clear();
+    }
+
+    private ObjectName repositoryName(Class<?> repositoryInterface) {
+        return name("type=Repository,factory=" + factoryId + ",name=" + ObjectName.quote(repositoryInterface.getName()));
+    }
+
+    private void register(Object mbean, ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+            registeredNames.add(objectName);
+        } catch (JMException e) {
+            throw new MiniOrmException("Failed to register " + objectName, e);
+        }
+    }
+
+    private static ObjectName name(String properties) {
+        try {
+            return new ObjectName(JMX_DOMAIN + ":" + properties);
+        } catch (JMException e) {
+            throw new MiniOrmException("Invalid JMX name " + properties, e);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.t2308e.metrics;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolStats;
+
+/**
+ * {@link PoolMetricsMXBean} that reads a fresh {@link PoolStats} on every attribute access.
+ */
+final class PoolMetrics implements PoolMetricsMXBean {
+
+    private final DataSourceConfig dataSourceConfig;
+
+    PoolMetrics(DataSourceConfig dataSourceConfig) {
+        this.dataSourceConfig = dataSourceConfig;
+    }
+
+    private PoolStats stats() {
+        return dataSourceConfig.getPoolStats().orElseThrow(() -> new IllegalStateException("Pool is closed"));
+    }
+
+    @Override
+    public int getActive() { return stats().getActive(); }
+
+    @Override
+    public int getIdle() { return stats().getIdle(); }
+
+    @Override
+    public int getWaiting() { return stats().getWaiting(); }
+
+    @Override
+    public long getAcquireCount() { return stats().getAcquireCount(); }
+
+    @Override
+    public long getTimeoutCount() { return stats().getTimeoutCount(); }
+
+    @Override
+    public long getLeakCount() { return stats().getLeakCount(); }
+
+    @Override
+    public long getConnectionFailureCount() { return stats().getConnectionFailureCount(); }
+
+    @Override
+    public HistogramSnapshot getAcquireTimeNanos() { return stats().getAcquireTimeNanos(); }
+
+    @Override
+    public double getStatementCacheHitRate() {
+        PoolStats stats = stats();
+        long total = stats.getStatementCacheHits() + stats.getStatementCacheMisses();
+        return total == 0 ? 0.0 : stats.getStatementCacheHits() / (double) total;
+    }
+}
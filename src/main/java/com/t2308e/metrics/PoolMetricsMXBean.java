@@ -0,0 +1,25 @@
+package com.t2308e.metrics;
+
+/**
+ * JMX view of a pooled {@link com.t2308e.config.DataSourceConfig}, registered by {@link MetricsRegistry#registerMBeans()}.
+ */
+public interface PoolMetricsMXBean {
+
+    int getActive();
+
+    int getIdle();
+
+    int getWaiting();
+
+    long getAcquireCount();
+
+    long getTimeoutCount();
+
+    long getLeakCount();
+
+    long getConnectionFailureCount();
+
+    HistogramSnapshot getAcquireTimeNanos();
+
+    double getStatementCacheHitRate();
+}
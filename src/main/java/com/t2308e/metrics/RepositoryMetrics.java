@@ -0,0 +1,101 @@
+package com.t2308e.metrics;
+
+import com.t2308e.config.StatementCacheStats;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Metrics of one repository interface, shared by every proxy created for it by the same factory.
+ * <p>
+ * {@link MethodMetrics} are created when the proxy's dispatch table is built and captured by the executors, so the
+ * hot path never looks them up by name.
+ */
+public final class RepositoryMetrics implements RepositoryMetricsMXBean {
+
+    private final String repository;
+    private final String entity;
+    private final Map<String, MethodMetrics> methods = new ConcurrentHashMap<>();
+    private final Histogram batchSizes = new Histogram();
+    private final StatementCacheStats statementCacheStats = new StatementCacheStats();
+
+    public RepositoryMetrics(String repository, String entity) {
+        this.repository = repository;
+        this.entity = entity;
+    }
+
+    /**
+     * Metrics for the method with the given display name, created on first request.
+     */
+    public MethodMetrics method(String name) {
+        return methods.computeIfAbsent(name, MethodMetrics::new);
+    }
+
+    public Histogram getBatchSizeHistogram() {
+        return batchSizes;
+    }
+
+    /**
+     * Statement cache counters shared by all proxies of this repository.
+     */
+    public StatementCacheStats getStatementCacheStats() {
+        return statementCacheStats;
+    }
+
+    public RepositoryMetricsSnapshot snapshot() {
+        List<MethodMetricsSnapshot> methodSnapshots = new ArrayList<>();
+        long read = 0;
+        long written = 0;
+        for (MethodMetrics method : methods.values()) {
+            MethodMetricsSnapshot snapshot = method.snapshot();
+            if (snapshot.getCalls() > 0) {
+                methodSnapshots.add(snapshot);
+            }
+            read += snapshot.getRowsRead();
+            written += snapshot.getRowsWritten();
+        }
+        methodSnapshots.sort((a, b) -> Long.compare(b.getCalls(), a.getCalls()));
+        return new RepositoryMetricsSnapshot(repository, entity, List.copyOf(methodSnapshots), read, written,
+                batchSizes.snapshot(), statementCacheStats.getHits(), statementCacheStats.getMisses());
+    }
+
+    @Override
+    public String getRepository() { return repository; }
+
+    @Override
+    public String getEntity() { return entity; }
+
+    @Override
+    public Map<String, MethodMetricsSnapshot> getMethods() {
+        Map<String, MethodMetricsSnapshot> result = new LinkedHashMap<>();
+        for (MethodMetricsSnapshot method : snapshot().getMethods()) {
+            result.put(method.getMethod(), method);
+        }
+        return result;
+    }
+
+    @Override
+    public long getRowsRead() {
+        return methods.values().stream().mapToLong(MethodMetrics::getRowsRead).sum();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return methods.values().stream().mapToLong(MethodMetrics::getRowsWritten).sum();
+    }
+
+    @Override
+    public HistogramSnapshot getBatchSizes() { return batchSizes.snapshot(); }
+
+    @Override
+    public long getStatementCacheHits() { return statementCacheStats.getHits(); }
+
+    @Override
+    public long getStatementCacheMisses() { return statementCacheStats.getMisses(); }
+
+    @Override
+    public double getStatementCacheHitRate() { return statementCacheStats.getHitRate(); }
+}
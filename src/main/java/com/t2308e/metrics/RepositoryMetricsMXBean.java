@@ -0,0 +1,27 @@
+package com.t2308e.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of one repository, registered by {@link MetricsRegistry#registerMBeans()}.
+ */
+public interface RepositoryMetricsMXBean {
+
+    String getRepository();
+
+    String getEntity();
+
+    Map<String, MethodMetricsSnapshot> getMethods();
+
+    long getRowsRead();
+
+    long getRowsWritten();
+
+    HistogramSnapshot getBatchSizes();
+
+    long getStatementCacheHits();
+
+    long getStatementCacheMisses();
+
+    double getStatementCacheHitRate();
+}
@@ -0,0 +1,61 @@
+package com.t2308e.metrics;
+
+import java.util.List;
+
+/**
+ * Immutable view of {@link RepositoryMetrics}: totals plus one entry per method that has been called.
+ */
+public final class RepositoryMetricsSnapshot {
+
+    private final String repository;
+    private final String entity;
+    private final List<MethodMetricsSnapshot> methods;
+    private final long rowsRead;
+    private final long rowsWritten;
+    private final HistogramSnapshot batchSizes;
+    private final long statementCacheHits;
+    private final long statementCacheMisses;
+
+    RepositoryMetricsSnapshot(String repository, String entity, List<MethodMetricsSnapshot> methods, long rowsRead,
+                              long rowsWritten, HistogramSnapshot batchSizes, long statementCacheHits,
+                              long statementCacheMisses) {
+        this.repository = repository;
+        this.entity = entity;
+        this.methods = methods;
+        this.rowsRead = rowsRead;
+        this.rowsWritten = rowsWritten;
+        this.batchSizes = batchSizes;
+        this.statementCacheHits = statementCacheHits;
+        this.statementCacheMisses = statementCacheMisses;
+    }
+
+    public String getRepository() { return repository; }
+    public String getEntity() { return entity; }
+    public List<MethodMetricsSnapshot> getMethods() { return methods; }
+    public long getRowsRead() { return rowsRead; }
+    public long getRowsWritten() { return rowsWritten; }
+
+    /**
+     * Rows per {@code executeBatch()} sent by {@code saveAll} and {@code deleteAllById}.
+     */
+    public HistogramSnapshot getBatchSizes() { return batchSizes; }
+    public long getStatementCacheHits() { return statementCacheHits; }
+    public long getStatementCacheMisses() { return statementCacheMisses; }
+
+    public double getStatementCacheHitRate() {
+        long total = statementCacheHits + statementCacheMisses;
+        return total == 0 ? 0.0 : statementCacheHits / (double) total;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(repository).append(" (").append(entity).append("): rowsRead=")
+                .append(rowsRead).append(", rowsWritten=").append(rowsWritten)
+                .append(", batchSizes[").append(batchSizes).append(']')
+                .append(String.format(", stmtCacheHitRate=%.3f", getStatementCacheHitRate()));
+        for (MethodMetricsSnapshot method : methods) {
+            sb.append("\n  ").append(method);
+        }
+        return sb.toString();
+    }
+}
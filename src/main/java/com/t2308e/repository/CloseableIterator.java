@@ -0,0 +1,12 @@
+package com.t2308e.repository;
+
+import java.util.Iterator;
+
+/**
+ * Iterator over an open database cursor. Close it (ideally with try-with-resources) to release the
+ * underlying connection; it also closes itself once the last row has been read.
+ */
+public interface CloseableIterator<T> extends Iterator<T>, AutoCloseable {
+    @Override
+    void close();
+}
@@ -2,13 +2,35 @@ package com.t2308e.repository;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
 
 public interface MyCrudRepository<T, ID> {
     T save(T entity);
+    // Inserts and updates are sent as JDBC batches in a single transaction; generated ids are written back.
+    List<T> saveAll(Iterable<T> entities);
     Optional<T> findById(ID id);
     List<T> findAll();
+    // One page in keyset or offset order (see PageRequest); no COUNT(*) is run.
+    Slice<T> findAll(PageRequest pageRequest);
+    // Like findAll(PageRequest), plus the total row count from one extra COUNT(*) query.
+    Page<T> findPage(PageRequest pageRequest);
+    // Lazily mapped rows over an open cursor; close the stream/iterator to release the connection.
+    Stream<T> streamAll();
+    CloseableIterator<T> iterateAll();
     void deleteById(ID id);
+    void deleteAllById(Iterable<? extends ID> ids);
     long count();
+    // Loads many new entities through the database's bulk path (H2: CSVREAD) in chunks, each committed on its own;
+    // ids from the database are not written back. Returns the number of rows inserted.
+    long bulkInsert(Stream<T> entities);
+    // Like bulkInsert(Stream), calling progress with the total rows loaded so far after each chunk.
+    long bulkInsert(Stream<T> entities, LongConsumer progress);
+    // Inserts the entity, or updates the row with its id, using the database's native upsert (MERGE, ON CONFLICT, ...).
+    // Not available for @MyVersion entities.
+    T upsert(T entity);
+    // Like upsert(T) for many entities, many rows per statement in a single transaction.
+    List<T> upsertAll(Iterable<T> entities);
     // Optional: boolean existsById(ID id);
     // Optional: void deleteAll();
 }
\ No newline at end of file
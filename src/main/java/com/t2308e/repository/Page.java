@@ -0,0 +1,29 @@
+package com.t2308e.repository;
+
+import java.util.List;
+
+/**
+ * A {@link Slice} plus the total number of matching rows, which costs an extra {@code COUNT(*)} query.
+ */
+public class Page<T> extends Slice<T> {
+
+    private final long totalElements;
+
+    public Page(List<T> content, PageRequest pageRequest, PageRequest next, long totalElements) {
+        super(content, pageRequest, next);
+        this.totalElements = totalElements;
+    }
+
+    public long getTotalElements() { return totalElements; }
+
+    public int getTotalPages() {
+        int size = getPageRequest().getPageSize();
+        return (int) ((totalElements + size - 1) / size);
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" + getPageRequest() + ", elements=" + getNumberOfElements() + ", total=" + totalElements
+                + ", hasNext=" + hasNext() + '}';
+    }
+}
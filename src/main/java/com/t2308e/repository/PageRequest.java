@@ -0,0 +1,109 @@
+package com.t2308e.repository;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Which page of a query to fetch: a size, a {@link Sort} and a position.
+ * <p>
+ * The position is either a keyset or an offset. A keyset request ({@link #ofSize}) continues after the sort values
+ * of the last row already seen, using a condition such as {@code a >= ? AND (a > ? OR (a = ? AND id > ?))} that
+ * seeks into an index on the leading sort column. It is spelled out column by column rather than as a row value
+ * comparison, so ascending and descending columns can be mixed. Page 10,000 therefore costs the same as page 1. Get the next request from {@link Slice#nextPageRequest()}, or resume a saved
+ * position with {@link #after}. Sort on indexed, non-null properties.
+ * An offset request ({@link #of}) uses {@code OFFSET page * size}. That allows jumping to any page, but the database
+ * still reads and discards every skipped row, so keep it for small tables.
+ */
+public final class PageRequest {
+
+    private final int page;
+    private final int size;
+    private final Sort sort;
+    private final boolean keyset;
+    private final List<Object> after; // keyset mode: sort values of the previous page's last row, null on the first page
+
+    private PageRequest(int page, int size, Sort sort, boolean keyset, List<Object> after) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size must be >= 1");
+        }
+        if (page < 0) {
+            throw new IllegalArgumentException("page must be >= 0");
+        }
+        this.page = page;
+        this.size = size;
+        this.sort = Objects.requireNonNull(sort, "sort");
+        this.keyset = keyset;
+        this.after = after;
+    }
+
+    /**
+     * First page of a keyset-paginated query, ordered by id unless {@link #withSort} says otherwise.
+     */
+    public static PageRequest ofSize(int size) {
+        return new PageRequest(0, size, Sort.unsorted(), true, null);
+    }
+
+    /**
+     * Page {@code page} (0-based) of an offset-paginated query.
+     */
+    public static PageRequest of(int page, int size) {
+        return new PageRequest(page, size, Sort.unsorted(), false, null);
+    }
+
+    public static PageRequest of(int page, int size, Sort sort) {
+        return new PageRequest(page, size, sort, false, null);
+    }
+
+    public PageRequest withSort(Sort sort) {
+        return new PageRequest(page, size, sort, keyset, keyset ? null : after);
+    }
+
+    /**
+     * Keyset request continuing after a row whose sort values, followed by its id, are {@code values}. Use this to
+     * resume from {@link #getKeysetValues()} of a request sent to a client.
+     */
+    public PageRequest after(Object... values) {
+        if (!keyset) {
+            throw new IllegalStateException("after() needs a keyset PageRequest (PageRequest.ofSize)");
+        }
+        for (Object value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("Keyset values must not be null; sort on non-null properties");
+            }
+        }
+        return new PageRequest(page, size, sort, true, List.of(values));
+    }
+
+    /**
+     * Request for the following page number. In keyset mode it has no position yet; follow it with {@link #after}
+     * (or use {@link Slice#nextPageRequest()}, which does both).
+     */
+    public PageRequest next() {
+        return new PageRequest(page + 1, size, sort, keyset, null);
+    }
+
+    /**
+     * 0-based page number; in keyset mode counted from the first request of the sequence.
+     */
+    public int getPageNumber() { return page; }
+    public int getPageSize() { return size; }
+    public Sort getSort() { return sort; }
+    public boolean isKeyset() { return keyset; }
+
+    /**
+     * Sort values followed by the id of the row this keyset request continues after; empty on the first page.
+     */
+    public List<Object> getKeysetValues() {
+        return after != null ? after : List.of();
+    }
+
+    public long getOffset() {
+        return (long) page * size;
+    }
+
+    @Override
+    public String toString() {
+        return "PageRequest{" + (keyset ? "keyset" + (after != null ? ", after=" + after : "") : "page=" + page)
+                + ", size=" + size + ", sort=" + sort + '}';
+    }
+}
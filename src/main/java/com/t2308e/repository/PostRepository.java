@@ -0,0 +1,16 @@
+package com.t2308e.repository;
+
+import com.t2308e.annotations.MyJoinFetch;
+import com.t2308e.entity.Post;
+import com.t2308e.entity.User;
+
+import java.util.List;
+
+public interface PostRepository extends MyCrudRepository<Post, Long> {
+    // Tham số có thể là entity User hoặc id của nó; so sánh trên cột author_id
+    List<Post> findByAuthor(User author);
+
+    // Lấy luôn tác giả bằng LEFT JOIN trong cùng một câu lệnh thay vì truy vấn IN sau đó
+    @MyJoinFetch("author")
+    List<Post> findByTitleContaining(String keyword);
+}
@@ -0,0 +1,52 @@
+package com.t2308e.repository;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * One page of results without a total count. Whether there is a next page is known because one row more than the
+ * page size is fetched, so no {@code COUNT(*)} query runs.
+ */
+public class Slice<T> implements Iterable<T> {
+
+    private final List<T> content;
+    private final PageRequest pageRequest;
+    private final PageRequest next; // null on the last page
+
+    public Slice(List<T> content, PageRequest pageRequest, PageRequest next) {
+        this.content = List.copyOf(content);
+        this.pageRequest = pageRequest;
+        this.next = next;
+    }
+
+    public List<T> getContent() { return content; }
+    public int getNumberOfElements() { return content.size(); }
+    public PageRequest getPageRequest() { return pageRequest; }
+    public int getNumber() { return pageRequest.getPageNumber(); }
+    public boolean hasContent() { return !content.isEmpty(); }
+    public boolean hasNext() { return next != null; }
+    public boolean isLast() { return next == null; }
+
+    /**
+     * Request for the following page, carrying the last row's keys in keyset mode.
+     *
+     * @throws NoSuchElementException if this is the last page
+     */
+    public PageRequest nextPageRequest() {
+        if (next == null) {
+            throw new NoSuchElementException("No page after " + pageRequest);
+        }
+        return next;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return content.iterator();
+    }
+
+    @Override
+    public String toString() {
+        return "Slice{" + pageRequest + ", elements=" + content.size() + ", hasNext=" + hasNext() + '}';
+    }
+}
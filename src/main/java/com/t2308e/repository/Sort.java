@@ -0,0 +1,102 @@
+package com.t2308e.repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Ordering for paged queries, by entity property (Java field name, not column name).
+ * <p>
+ * {@code Sort.desc("age").and(Sort.asc("userName"))}. Paged queries always add the id as a final tie-breaker, so
+ * rows with equal sort values still come back in a stable order.
+ */
+public final class Sort {
+
+    private static final Sort UNSORTED = new Sort(Collections.emptyList());
+
+    private final List<Order> orders;
+
+    private Sort(List<Order> orders) {
+        this.orders = orders;
+    }
+
+    public static Sort unsorted() {
+        return UNSORTED;
+    }
+
+    public static Sort asc(String property) {
+        return new Sort(List.of(new Order(property, true)));
+    }
+
+    public static Sort desc(String property) {
+        return new Sort(List.of(new Order(property, false)));
+    }
+
+    /**
+     * This sort followed by {@code next}.
+     */
+    public Sort and(Sort next) {
+        List<Order> combined = new ArrayList<>(orders);
+        combined.addAll(next.orders);
+        return new Sort(List.copyOf(combined));
+    }
+
+    public List<Order> getOrders() {
+        return orders;
+    }
+
+    public boolean isUnsorted() {
+        return orders.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Sort && orders.equals(((Sort) o).orders);
+    }
+
+    @Override
+    public int hashCode() {
+        return orders.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return orders.isEmpty() ? "UNSORTED" : orders.toString().replaceAll("[\\[\\]]", "");
+    }
+
+    /**
+     * One property and its direction.
+     */
+    public static final class Order {
+        private final String property;
+        private final boolean ascending;
+
+        Order(String property, boolean ascending) {
+            this.property = Objects.requireNonNull(property, "property");
+            this.ascending = ascending;
+        }
+
+        public String getProperty() { return property; }
+        public boolean isAscending() { return ascending; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Order)) {
+                return false;
+            }
+            Order other = (Order) o;
+            return property.equals(other.property) && ascending == other.ascending;
+        }
+
+        @Override
+        public int hashCode() {
+            return property.hashCode() * 31 + (ascending ? 1 : 0);
+        }
+
+        @Override
+        public String toString() {
+            return property + (ascending ? " ASC" : " DESC");
+        }
+    }
+}
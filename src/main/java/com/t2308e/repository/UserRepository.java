@@ -1,10 +1,37 @@
 package com.t2308e.repository;
 
 import com.t2308e.entity.User;
+import com.t2308e.entity.UserSummary;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 // Không cần thêm annotation gì ở đây
 public interface UserRepository extends MyCrudRepository<User, Long> {
-    // Có thể định nghĩa thêm các phương thức truy vấn tùy chỉnh ở đây (ngoài phạm vi bài tập này)
-    // Ví dụ: Optional<User> findByUserName(String userName);
-    // Việc implement các phương thức này sẽ phức tạp hơn, cần parse tên phương thức để sinh SQL.
-}
\ No newline at end of file
+    // Các phương thức truy vấn tùy chỉnh: SQL được sinh từ tên phương thức một lần khi tạo repository
+    Optional<User> findByUserName(String userName);
+    Optional<User> findByEmail(String email);
+    List<User> findByEmailAndAgeGreaterThan(String email, int age);
+    List<User> findByAgeBetween(int minAge, int maxAge);
+    List<User> findByUserNameStartingWithIgnoreCase(String prefix);
+    List<User> findByIdIn(Collection<Long> ids);
+    List<User> findTop10ByAgeOrderByUserNameDesc(int age);
+    long countByAge(int age);
+    boolean existsByEmail(String email);
+    long deleteByAgeLessThan(int age);
+
+    // Projection: chỉ lấy các cột mà UserSummary cần, không tạo entity User
+    Optional<UserSummary> findSummaryById(Long id);
+    List<UserSummary> findSummaryByAgeGreaterThan(int age);
+
+    // Phân trang: tham số cuối là PageRequest (keyset hoặc offset), Slice không chạy COUNT(*), Page thì có
+    Slice<User> findByAgeGreaterThan(int age, PageRequest pageRequest);
+    Page<User> findByUserNameStartingWith(String prefix, PageRequest pageRequest);
+
+    // Bất đồng bộ: chạy trên virtual thread (JDK 21+), số lệnh chạy song song giới hạn bằng kích thước pool
+    CompletableFuture<Optional<User>> findByIdAsync(Long id);
+    CompletableFuture<Optional<User>> findByEmailAsync(String email);
+    CompletableFuture<List<User>> findByAgeBetweenAsync(int minAge, int maxAge);
+}
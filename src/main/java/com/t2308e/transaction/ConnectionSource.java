@@ -0,0 +1,12 @@
+package com.t2308e.transaction;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Where a {@link TransactionManager} gets the connections it binds, bypassing any transaction already bound.
+ */
+@FunctionalInterface
+public interface ConnectionSource {
+    Connection getConnection() throws SQLException;
+}
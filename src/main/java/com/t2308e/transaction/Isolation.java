@@ -0,0 +1,24 @@
+package com.t2308e.transaction;
+
+import java.sql.Connection;
+
+/**
+ * Transaction isolation levels, mapped to the JDBC constants. {@link #DEFAULT} keeps the connection's own level.
+ */
+public enum Isolation {
+    DEFAULT(-1),
+    READ_UNCOMMITTED(Connection.TRANSACTION_READ_UNCOMMITTED),
+    READ_COMMITTED(Connection.TRANSACTION_READ_COMMITTED),
+    REPEATABLE_READ(Connection.TRANSACTION_REPEATABLE_READ),
+    SERIALIZABLE(Connection.TRANSACTION_SERIALIZABLE);
+
+    private final int jdbcLevel;
+
+    Isolation(int jdbcLevel) {
+        this.jdbcLevel = jdbcLevel;
+    }
+
+    public int getJdbcLevel() {
+        return jdbcLevel;
+    }
+}
@@ -0,0 +1,14 @@
+package com.t2308e.transaction;
+
+/**
+ * What {@link TransactionManager#inTransaction(TransactionDefinition, TransactionCallback)} does when the thread
+ * already has a transaction.
+ */
+public enum Propagation {
+    /** Join the current transaction, or start one if there is none. */
+    REQUIRED,
+    /** Suspend the current transaction and run in a new one on its own connection. */
+    REQUIRES_NEW,
+    /** Run inside a savepoint of the current transaction, so a failure only undoes this part; start one if there is none. */
+    NESTED
+}
@@ -0,0 +1,327 @@
+package com.t2308e.transaction;
+
+import com.t2308e.exception.MiniOrmException;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Savepoint;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * A transaction started by a {@link TransactionManager} and bound to the thread that started it.
+ * <p>
+ * While it is bound, {@link com.t2308e.config.DataSourceConfig#getConnection()} on that thread returns
+ * {@link #getConnection()}: a view of the transaction's connection on which {@code close()}, {@code commit()} and
+ * {@code setAutoCommit()} do nothing, so code written for its own auto-commit connection simply joins in. A
+ * {@code rollback()} on that view marks the transaction (or the innermost nested scope) rollback-only; the rollback
+ * then happens when the owner completes it.
+ * <p>
+ * Closing a transaction that was neither committed nor rolled back rolls it back, so
+ * {@code try (Transaction tx = manager.begin()) { ...; tx.commit(); }} never leaves one open.
+ */
+public final class Transaction implements AutoCloseable {
+
+    private final TransactionManager manager;
+    private final Connection connection;
+    private final Connection participantView;
+    private final TransactionDefinition definition;
+    private final Transaction suspended; // transaction this one replaced on the thread, restored on completion
+    private final boolean restoreAutoCommit;
+    private final boolean restoreReadOnly;
+    private final int restoreIsolation; // -1: unchanged
+    private final Deque<NestedScope> nestedScopes = new ArrayDeque<>();
+    private final List<Runnable> completionCallbacks = new ArrayList<>();
+    private boolean rollbackOnly;
+    private boolean active = true;
+
+    Transaction(TransactionManager manager, Connection connection, TransactionDefinition definition, Transaction suspended)
+            throws SQLException {
+        this.manager = manager;
+        this.connection = connection;
+        this.definition = definition;
+        this.suspended = suspended;
+        this.restoreAutoCommit = connection.getAutoCommit();
+        this.restoreReadOnly = connection.isReadOnly();
+        int isolation = definition.getIsolation().getJdbcLevel();
+        int currentIsolation = connection.getTransactionIsolation();
+        this.restoreIsolation = isolation != -1 && isolation != currentIsolation ? currentIsolation : -1;
+        if (restoreIsolation != -1) {
+            connection.setTransactionIsolation(isolation);
+        }
+        if (definition.isReadOnly() != restoreReadOnly) {
+            connection.setReadOnly(definition.isReadOnly());
+        }
+        if (restoreAutoCommit) {
+            connection.setAutoCommit(false);
+        }
+        this.participantView = (Connection) Proxy.newProxyInstance(
+                Transaction.class.getClassLoader(), new Class<?>[]{Connection.class}, new ParticipantHandler());
+    }
+
+    /**
+     * The transaction's connection as handed to repositories: closing or committing it has no effect.
+     */
+    public Connection getConnection() {
+        return participantView;
+    }
+
+    public TransactionDefinition getDefinition() { return definition; }
+    public boolean isActive() { return active; }
+    public boolean isReadOnly() { return definition.isReadOnly(); }
+
+    /**
+     * True if the transaction, or the innermost nested scope, can only be rolled back.
+     */
+    public boolean isRollbackOnly() {
+        return nestedScopes.isEmpty() ? rollbackOnly : nestedScopes.peek().rollbackOnly;
+    }
+
+    /**
+     * Marks the transaction, or inside {@link Propagation#NESTED} work just that scope, so that it is rolled back
+     * instead of committed.
+     */
+    public void setRollbackOnly() {
+        checkActive();
+        if (nestedScopes.isEmpty()) {
+            rollbackOnly = true;
+        } else {
+            nestedScopes.peek().rollbackOnly = true;
+        }
+    }
+
+    /**
+     * Commits and releases the connection.
+     *
+     * @throws MiniOrmException if the commit fails, or the transaction was marked rollback-only (it is rolled back)
+     */
+    public void commit() {
+        checkCompletable();
+        if (rollbackOnly) {
+            rollback();
+            throw new MiniOrmException("Transaction was rolled back because it was marked rollback-only");
+        }
+        try {
+            connection.commit();
+        } catch (SQLException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new MiniOrmException("Transaction commit failed", e);
+        } finally {
+            complete();
+        }
+    }
+
+    /**
+     * Rolls back and releases the connection.
+     */
+    public void rollback() {
+        checkCompletable();
+        try {
+            connection.rollback();
+        } catch (SQLException e) {
+            throw new MiniOrmException("Transaction rollback failed", e);
+        } finally {
+            complete();
+        }
+    }
+
+    public Savepoint createSavepoint() {
+        checkActive();
+        try {
+            return connection.setSavepoint();
+        } catch (SQLException e) {
+            throw new MiniOrmException("Failed to create savepoint", e);
+        }
+    }
+
+    public Savepoint createSavepoint(String name) {
+        checkActive();
+        try {
+            return connection.setSavepoint(name);
+        } catch (SQLException e) {
+            throw new MiniOrmException("Failed to create savepoint " + name, e);
+        }
+    }
+
+    /**
+     * Undoes everything done since {@code savepoint}; the transaction stays active.
+     */
+    public void rollbackToSavepoint(Savepoint savepoint) {
+        checkActive();
+        try {
+            connection.rollback(savepoint);
+        } catch (SQLException e) {
+            throw new MiniOrmException("Failed to roll back to savepoint", e);
+        }
+    }
+
+    /**
+     * Frees {@code savepoint}; a no-op on databases that cannot release savepoints.
+     */
+    public void releaseSavepoint(Savepoint savepoint) {
+        checkActive();
+        try {
+            connection.releaseSavepoint(savepoint);
+        } catch (SQLFeatureNotSupportedException e) {
+            // released with the transaction instead
+        } catch (SQLException e) {
+            throw new MiniOrmException("Failed to release savepoint", e);
+        }
+    }
+
+    /**
+     * Runs {@code callback} once the transaction has committed or rolled back, e.g. to evict cache entries that
+     * another thread may have reloaded from the pre-transaction state in the meantime.
+     */
+    public void afterCompletion(Runnable callback) {
+        checkActive();
+        completionCallbacks.add(callback);
+    }
+
+    /**
+     * Rolls back if the transaction is still active.
+     */
+    @Override
+    public void close() {
+        if (active) {
+            rollback();
+        }
+    }
+
+    /**
+     * Runs {@code callback} inside a savepoint: a failure, or a {@link #setRollbackOnly()} inside it, undoes only
+     * the callback's work.
+     */
+    <R> R runNested(TransactionCallback<R> callback) throws Exception {
+        NestedScope scope = new NestedScope(createSavepoint());
+        nestedScopes.push(scope);
+        boolean success = false;
+        try {
+            R result = callback.doInTransaction(this);
+            success = !scope.rollbackOnly;
+            if (!success) {
+                throw new MiniOrmException("Nested transaction was rolled back because it was marked rollback-only");
+            }
+            return result;
+        } finally {
+            nestedScopes.pop();
+            if (active) {
+                if (success) {
+                    releaseSavepoint(scope.savepoint);
+                } else {
+                    rollbackToSavepoint(scope.savepoint);
+                }
+            }
+        }
+    }
+
+    Transaction getSuspended() {
+        return suspended;
+    }
+
+    private void complete() {
+        active = false;
+        try {
+            if (restoreAutoCommit) {
+                connection.setAutoCommit(true);
+            }
+            if (definition.isReadOnly() != restoreReadOnly) {
+                connection.setReadOnly(restoreReadOnly);
+            }
+            if (restoreIsolation != -1) {
+                connection.setTransactionIsolation(restoreIsolation);
+            }
+        } catch (SQLException e) {
+            // the pool resets connection state on return anyway
+        } finally {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {
+                // nothing left to release
+            }
+            manager.unbind(this);
+            for (Runnable callback : completionCallbacks) {
+                callback.run();
+            }
+        }
+    }
+
+    private void checkActive() {
+        if (!active) {
+            throw new IllegalStateException("Transaction has already completed");
+        }
+    }
+
+    private void checkCompletable() {
+        checkActive();
+        if (!manager.isCurrent(this)) {
+            throw new IllegalStateException("Only the innermost transaction on this thread can be completed");
+        }
+        if (!nestedScopes.isEmpty()) {
+            throw new IllegalStateException("Cannot complete a transaction from inside nested work");
+        }
+    }
+
+    private static final class NestedScope {
+        final Savepoint savepoint;
+        boolean rollbackOnly;
+
+        NestedScope(Savepoint savepoint) {
+            this.savepoint = savepoint;
+        }
+    }
+
+    /**
+     * The participant view: transaction boundaries belong to the owner of the transaction, not to its users.
+     */
+    private final class ParticipantHandler implements InvocationHandler {
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                case "commit":
+                case "setAutoCommit":
+                    return null;
+                case "getAutoCommit":
+                    return false;
+                case "rollback":
+                    if (args == null) {
+                        if (active) {
+                            setRollbackOnly();
+                        }
+                        return null;
+                    }
+                    break;
+                case "isClosed":
+                    return !active || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "TransactionConnection[" + connection + "]";
+                default:
+                    break;
+            }
+            if (!active) {
+                throw new SQLException("Transaction has already completed");
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.t2308e.transaction;
+
+/**
+ * Work to run inside a transaction. Checked exceptions are wrapped in a
+ * {@link com.t2308e.exception.MiniOrmException}; either way the transaction is rolled back.
+ */
+@FunctionalInterface
+public interface TransactionCallback<R> {
+    R doInTransaction(Transaction tx) throws Exception;
+}
@@ -0,0 +1,44 @@
+package com.t2308e.transaction;
+
+import java.util.Objects;
+
+/**
+ * How a transaction is started: propagation, isolation level and read-only hint.
+ * Setters return {@code this} so a definition can be built inline.
+ */
+public class TransactionDefinition {
+    private Propagation propagation = Propagation.REQUIRED;
+    private Isolation isolation = Isolation.DEFAULT;
+    private boolean readOnly;
+
+    public Propagation getPropagation() { return propagation; }
+    public Isolation getIsolation() { return isolation; }
+    public boolean isReadOnly() { return readOnly; }
+
+    public TransactionDefinition setPropagation(Propagation propagation) {
+        this.propagation = Objects.requireNonNull(propagation, "propagation");
+        return this;
+    }
+
+    /**
+     * Isolation level of a new transaction; ignored when joining an existing one.
+     */
+    public TransactionDefinition setIsolation(Isolation isolation) {
+        this.isolation = Objects.requireNonNull(isolation, "isolation");
+        return this;
+    }
+
+    /**
+     * Passed to {@link java.sql.Connection#setReadOnly}, which lets some drivers and databases skip locking or route
+     * to a replica. Ignored when joining an existing transaction.
+     */
+    public TransactionDefinition setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "TransactionDefinition{" + propagation + ", " + isolation + (readOnly ? ", readOnly" : "") + '}';
+    }
+}
@@ -0,0 +1,165 @@
+package com.t2308e.transaction;
+
+import com.t2308e.exception.MiniOrmException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Runs several repository calls in one database transaction by binding a connection to the current thread.
+ * <p>
+ * Obtain it from {@link com.t2308e.config.DataSourceConfig#getTransactionManager()} (or the repository factory).
+ * While a transaction is bound, every repository and {@link com.t2308e.core.Session} using that data source on the
+ * same thread runs on its connection, and their own commits are deferred to the end of the transaction:
+ * <pre>
+ * txManager.inTransaction(tx -&gt; {
+ *     accounts.save(from);
+ *     accounts.save(to);
+ *     return null;
+ * });
+ * </pre>
+ * Methods returning {@code CompletableFuture} run on other threads and therefore outside the transaction.
+ * Repositories update in-memory state (ids, {@code @MyVersion} values, session snapshots) as soon as their statement
+ * succeeds, so after a rollback reload the entities involved instead of saving them again.
+ */
+public class TransactionManager {
+
+    private final ConnectionSource connectionSource;
+    private final ThreadLocal<Transaction> current = new ThreadLocal<>();
+
+    /**
+     * @param connectionSource where new transactions get their connection; it must not return the bound one
+     */
+    public TransactionManager(ConnectionSource connectionSource) {
+        this.connectionSource = connectionSource;
+    }
+
+    /**
+     * Starts a transaction with the default definition; see {@link #begin(TransactionDefinition)}.
+     */
+    public Transaction begin() {
+        return begin(new TransactionDefinition());
+    }
+
+    /**
+     * Starts a new transaction on its own connection and binds it to this thread. A transaction already bound is
+     * suspended until the new one completes; the definition's propagation is not consulted.
+     */
+    public Transaction begin(TransactionDefinition definition) {
+        Connection connection;
+        try {
+            connection = connectionSource.getConnection();
+        } catch (SQLException e) {
+            throw new MiniOrmException("Failed to get a connection for a transaction", e);
+        }
+        Transaction tx;
+        try {
+            tx = new Transaction(this, connection, definition, current.get());
+        } catch (SQLException e) {
+            try {
+                connection.close();
+            } catch (SQLException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw new MiniOrmException("Failed to begin transaction", e);
+        }
+        current.set(tx);
+        return tx;
+    }
+
+    /**
+     * Runs {@code callback} in a transaction with the default definition ({@link Propagation#REQUIRED}).
+     */
+    public <R> R inTransaction(TransactionCallback<R> callback) {
+        return inTransaction(new TransactionDefinition(), callback);
+    }
+
+    /**
+     * Runs {@code callback} in a transaction and returns its result. A transaction started here is committed when
+     * the callback returns and rolled back when it throws. Joined transactions ({@link Propagation#REQUIRED} with one
+     * already bound) are marked rollback-only on failure, and {@link Propagation#NESTED} work is undone back to its
+     * savepoint. The callback's exception is rethrown, with checked exceptions wrapped in {@link MiniOrmException}.
+     */
+    public <R> R inTransaction(TransactionDefinition definition, TransactionCallback<R> callback) {
+        Transaction existing = current.get();
+        if (existing != null && definition.getPropagation() == Propagation.REQUIRED) {
+            try {
+                return callback.doInTransaction(existing);
+            } catch (Throwable e) {
+                if (existing.isActive()) {
+                    existing.setRollbackOnly();
+                }
+                throw rethrow(e);
+            }
+        }
+        if (existing != null && definition.getPropagation() == Propagation.NESTED) {
+            try {
+                return existing.runNested(callback);
+            } catch (Throwable e) {
+                throw rethrow(e);
+            }
+        }
+
+        Transaction tx = begin(definition);
+        try {
+            R result = callback.doInTransaction(tx);
+            if (tx.isActive()) {
+                tx.commit();
+            }
+            return result;
+        } catch (Throwable e) {
+            if (tx.isActive()) {
+                try {
+                    tx.rollback();
+                } catch (RuntimeException suppressed) {
+                    e.addSuppressed(suppressed);
+                }
+            }
+            throw rethrow(e);
+        }
+    }
+
+    /**
+     * The transaction bound to this thread, if any.
+     */
+    public Optional<Transaction> currentTransaction() {
+        return Optional.ofNullable(current.get());
+    }
+
+    public boolean isTransactionActive() {
+        return current.get() != null;
+    }
+
+    /**
+     * Connection of the transaction bound to this thread, or null; closing or committing it has no effect.
+     */
+    public Connection getBoundConnection() {
+        Transaction tx = current.get();
+        return tx != null ? tx.getConnection() : null;
+    }
+
+    boolean isCurrent(Transaction tx) {
+        return current.get() == tx;
+    }
+
+    void unbind(Transaction tx) {
+        if (current.get() == tx) {
+            if (tx.getSuspended() != null) {
+                current.set(tx.getSuspended());
+            } else {
+                current.remove();
+            }
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException) {
+            return (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new MiniOrmException("Transaction callback failed: " + e.getMessage(), e);
+    }
+}
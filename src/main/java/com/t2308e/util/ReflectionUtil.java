@@ -3,11 +3,17 @@ package com.t2308e.util;
 import com.t2308e.annotations.MyColumn;
 import com.t2308e.annotations.MyEntity;
 import com.t2308e.annotations.MyId;
+import com.t2308e.annotations.MyManyToOne;
+import com.t2308e.annotations.MyOneToMany;
 import com.t2308e.annotations.MyTransient;
+import com.t2308e.annotations.MyVersion;
 import com.t2308e.exception.MiniOrmException;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,7 +39,38 @@ public class ReflectionUtil {
         throw new MiniOrmException("No @MyId field found in entity " + entityClass.getSimpleName());
     }
 
+    /**
+     * The {@code @MyVersion} field, or null if the entity is not versioned.
+     */
+    public static Field getVersionField(Class<?> entityClass) {
+        Field versionField = null;
+        for (Field field : entityClass.getDeclaredFields()) {
+            if (!field.isAnnotationPresent(MyVersion.class)) {
+                continue;
+            }
+            if (versionField != null) {
+                throw new MiniOrmException("Entity " + entityClass.getSimpleName() + " has more than one @MyVersion field");
+            }
+            Class<?> type = field.getType();
+            if (type != int.class && type != long.class && type != Integer.class && type != Long.class) {
+                throw new MiniOrmException("@MyVersion field " + entityClass.getSimpleName() + "." + field.getName()
+                        + " must be int, long, Integer or Long");
+            }
+            if (field.isAnnotationPresent(MyId.class) || field.isAnnotationPresent(MyTransient.class)) {
+                throw new MiniOrmException("@MyVersion field " + entityClass.getSimpleName() + "." + field.getName()
+                        + " cannot also be @MyId or @MyTransient");
+            }
+            field.setAccessible(true);
+            versionField = field;
+        }
+        return versionField;
+    }
+
     public static String getColumnName(Field field) {
+        MyManyToOne manyToOne = field.getAnnotation(MyManyToOne.class);
+        if (manyToOne != null) {
+            return manyToOne.joinColumn().isEmpty() ? field.getName() + "_id" : manyToOne.joinColumn();
+        }
         MyColumn columnAnnotation = field.getAnnotation(MyColumn.class);
         if (columnAnnotation != null && !columnAnnotation.name().isEmpty()) {
             return columnAnnotation.name();
@@ -44,8 +81,13 @@ public class ReflectionUtil {
     public static Map<String, Field> getColumnFields(Class<?> entityClass) {
         Map<String, Field> columnFields = new LinkedHashMap<>(); // Use LinkedHashMap to preserve order
         for (Field field : entityClass.getDeclaredFields()) {
-            if (field.isAnnotationPresent(MyTransient.class) || field.isAnnotationPresent(MyId.class)) {
-                continue; // Skip transient fields and ID field (handled separately)
+            if (field.isAnnotationPresent(MyTransient.class) || field.isAnnotationPresent(MyId.class)
+                    || field.isAnnotationPresent(MyOneToMany.class)) {
+                continue; // Skip transient fields, ID field (handled separately) and collections stored in other tables
+            }
+            if (field.isAnnotationPresent(MyManyToOne.class) && !field.getType().isAnnotationPresent(MyEntity.class)) {
+                throw new MiniOrmException("@MyManyToOne field " + entityClass.getSimpleName() + "." + field.getName()
+                        + " must have an @MyEntity type");
             }
             field.setAccessible(true);
             columnFields.put(getColumnName(field), field);
@@ -53,13 +95,53 @@ public class ReflectionUtil {
         return columnFields;
     }
 
+    /**
+     * The {@code @MyOneToMany} fields of {@code entityClass}; each must be a {@code List} or {@code Collection}
+     * of an {@code @MyEntity} type.
+     */
+    public static List<Field> getOneToManyFields(Class<?> entityClass) {
+        List<Field> fields = new ArrayList<>();
+        for (Field field : entityClass.getDeclaredFields()) {
+            if (!field.isAnnotationPresent(MyOneToMany.class)) {
+                continue;
+            }
+            if (field.getType() != List.class && field.getType() != Collection.class) {
+                throw new MiniOrmException("@MyOneToMany field " + entityClass.getSimpleName() + "." + field.getName()
+                        + " must be declared as List or Collection");
+            }
+            Class<?> elementType = getElementType(field);
+            if (elementType == null || !elementType.isAnnotationPresent(MyEntity.class)) {
+                throw new MiniOrmException("@MyOneToMany field " + entityClass.getSimpleName() + "." + field.getName()
+                        + " must be a collection of an @MyEntity type");
+            }
+            field.setAccessible(true);
+            fields.add(field);
+        }
+        return fields;
+    }
+
+    /**
+     * Element class of a {@code List<E>}/{@code Collection<E>} field, or null if it is raw or not a class.
+     */
+    public static Class<?> getElementType(Field field) {
+        Type type = field.getGenericType();
+        if (type instanceof ParameterizedType) {
+            Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+            if (argument instanceof Class) {
+                return (Class<?>) argument;
+            }
+        }
+        return null;
+    }
+
     public static List<Field> getAllPersistableFields(Class<?> entityClass) {
         List<Field> fields = new ArrayList<>();
         Field idField = getIdField(entityClass);
         fields.add(idField); // Add ID field first
 
         for (Field field : entityClass.getDeclaredFields()) {
-            if (!field.isAnnotationPresent(MyTransient.class) && !field.isAnnotationPresent(MyId.class)) {
+            if (!field.isAnnotationPresent(MyTransient.class) && !field.isAnnotationPresent(MyId.class)
+                    && !field.isAnnotationPresent(MyOneToMany.class)) {
                 field.setAccessible(true);
                 fields.add(field);
             }
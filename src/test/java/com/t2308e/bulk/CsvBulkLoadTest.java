@@ -0,0 +1,127 @@
+package com.t2308e.bulk;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * CSV written by {@link CsvWriter} and read back by H2's {@code CSVREAD} through {@link H2CsvBulkLoader}.
+ */
+class CsvBulkLoadTest {
+
+    private static final List<String> COLUMNS = List.of("id", "text", "amount", "flag");
+
+    private enum Colour { RED }
+
+    private DataSourceConfig dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:csv_bulk;DB_CLOSE_DELAY=-1", "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE items (id BIGINT PRIMARY KEY, text VARCHAR(200), amount DECIMAL(10, 2), "
+                    + "flag BOOLEAN)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE items");
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void writerQuotesTextAndLeavesNullEmpty() throws IOException {
+        StringWriter out = new StringWriter();
+        CsvWriter csv = new CsvWriter(out);
+        csv.writeHeader(List.of("a", "b\"c"));
+        csv.writeRow(new Object[]{1, "say \"hi\", bye", null, "", true, Colour.RED, "two\nlines"});
+
+        assertEquals("\"a\",\"b\"\"c\"\n"
+                + "1,\"say \"\"hi\"\", bye\",,\"\",true,\"RED\",\"two\nlines\"\n", out.toString());
+    }
+
+    @Test
+    void writerRejectsBinaryValues() {
+        CsvWriter csv = new CsvWriter(new StringWriter());
+        assertThrows(IllegalArgumentException.class, () -> csv.writeRow(new Object[]{new byte[]{1}}));
+    }
+
+    @Test
+    void awkwardTextSurvivesCsvRead() throws SQLException {
+        List<Object[]> rows = List.of(
+                new Object[]{1L, "plain", 1.5, true},
+                new Object[]{2L, "comma, inside", 2, false},
+                new Object[]{3L, "\"quoted\" and \"\"doubled\"\"", 3, null},
+                new Object[]{4L, "line one\nline two\r\nline three", null, true},
+                new Object[]{5L, "", 0, false},
+                new Object[]{6L, null, -4.25, null},
+                new Object[]{7L, "trailing quote\"", 7, true},
+                new Object[]{8L, "  spaces  ,\"mixed\"\n", 8, false},
+                new Object[]{9L, "ünïcødé ✓", 9, true});
+
+        long loaded;
+        try (Connection conn = dataSource.getConnection()) {
+            loaded = new H2CsvBulkLoader().load(conn, "items", COLUMNS, rows.iterator());
+        }
+
+        assertEquals(rows.size(), loaded);
+        List<Object[]> stored = readBack();
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] expected = rows.get(i);
+            Object[] actual = stored.get(i);
+            assertEquals(expected[1], actual[1], "text of row " + expected[0]);
+            assertEquals(expected[2] == null ? null : new BigDecimal(expected[2].toString()).setScale(2),
+                    actual[2], "amount of row " + expected[0]);
+            assertEquals(expected[3], actual[3], "flag of row " + expected[0]);
+        }
+    }
+
+    @Test
+    void noRowsInsertsNothingAndRemovesTheFile(@TempDir Path directory)
+            throws SQLException, IOException {
+        try (Connection conn = dataSource.getConnection()) {
+            assertEquals(0, new H2CsvBulkLoader(directory).load(conn, "items", COLUMNS,
+                    List.<Object[]>of().iterator()));
+            assertEquals(1, new H2CsvBulkLoader(directory).load(conn, "items", COLUMNS,
+                    List.<Object[]>of(new Object[]{1L, "x", 1, true}).iterator()));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertArrayEquals(new Path[0], files.toArray(Path[]::new));
+        }
+    }
+
+    private List<Object[]> readBack() throws SQLException {
+        List<Object[]> rows = new ArrayList<>();
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, text, amount, flag FROM items ORDER BY id")) {
+            while (rs.next()) {
+                rows.add(new Object[]{rs.getLong(1), rs.getString(2), rs.getBigDecimal(3), rs.getObject(4)});
+            }
+        }
+        return rows;
+    }
+}
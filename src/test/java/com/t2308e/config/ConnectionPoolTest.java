@@ -0,0 +1,287 @@
+package com.t2308e.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The built-in pool over a single in-memory H2 connection, so every borrow gets the same physical connection back.
+ */
+class ConnectionPoolTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+
+    private DataSourceConfig dataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:pool_" + RUN.incrementAndGet() + ";DB_CLOSE_DELAY=-1",
+                "sa", "", "org.h2.Driver", new PoolConfig().setMinIdle(0).setMaxSize(1));
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE SCHEMA other");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void returnedConnectionGetsDefaultSchemaBack() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setSchema("OTHER");
+            assertEquals("OTHER", conn.getSchema());
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            assertEquals("PUBLIC", conn.getSchema());
+        }
+    }
+
+    @Test
+    void returnedConnectionGetsDefaultSessionStateBack() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            conn.setReadOnly(true);
+            conn.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+        }
+        try (Connection conn = dataSource.getConnection()) {
+            assertTrue(conn.getAutoCommit());
+            assertFalse(conn.isReadOnly());
+            assertEquals(Connection.TRANSACTION_READ_COMMITTED, conn.getTransactionIsolation());
+        }
+    }
+
+    @Test
+    void laterChangesToPoolConfigDoNotReachThePool() throws SQLException {
+        PoolConfig config = new PoolConfig().setMinIdle(0).setMaxSize(1).setAcquireTimeoutMillis(50);
+        DataSourceConfig single = new DataSourceConfig("jdbc:h2:mem:pool_" + RUN.incrementAndGet(),
+                "sa", "", "org.h2.Driver", config);
+        config.setMaxSize(2);
+        try (Connection held = single.getConnection()) {
+            assertThrows(SQLTimeoutException.class, single::getConnection);
+        } finally {
+            single.close();
+        }
+    }
+
+    @Test
+    void uncachedStatementsReportTheBorrowedHandle() throws SQLException {
+        String sql = "SELECT 1";
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement cached = conn.prepareStatement(sql);
+             PreparedStatement nested = conn.prepareStatement(sql);
+             PreparedStatement withColumns = conn.prepareStatement(sql, new String[]{"ID"});
+             Statement plain = conn.createStatement()) {
+            assertNotSame(cached, nested);
+            assertSame(conn, cached.getConnection());
+            assertSame(conn, nested.getConnection());
+            assertSame(conn, withColumns.getConnection());
+            assertSame(conn, plain.getConnection());
+        }
+    }
+
+    @Test
+    void statementCacheEvictsTheLeastRecentlyUsedStatement() throws SQLException {
+        DataSourceConfig small = new DataSourceConfig("jdbc:h2:mem:pool_" + RUN.incrementAndGet(), "sa", "",
+                "org.h2.Driver", new PoolConfig().setMinIdle(0).setMaxSize(1).setStatementCacheSize(2));
+        StatementCacheStats stats = new StatementCacheStats();
+        try (Connection conn = small.getConnection()) {
+            PreparedStatement a = physical(conn, "SELECT 1", stats);
+            PreparedStatement b = physical(conn, "SELECT 2", stats);
+            assertSame(a, physical(conn, "SELECT 1", stats)); // now b is the least recently used
+            PreparedStatement c = physical(conn, "SELECT 3", stats);
+
+            assertTrue(b.isClosed(), "evicted statement is closed");
+            assertFalse(a.isClosed());
+            assertSame(a, physical(conn, "SELECT 1", stats));
+            assertSame(c, physical(conn, "SELECT 3", stats));
+            assertNotSame(b, physical(conn, "SELECT 2", stats));
+            assertTrue(a.isClosed(), "SELECT 1 was least recently used");
+        } finally {
+            small.close();
+        }
+
+        assertEquals(3, stats.getHits());
+        assertEquals(4, stats.getMisses());
+        assertEquals(3 / 7.0, stats.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void statementCacheCountsHitsAndMissesPerKey() throws SQLException {
+        PoolStats before = dataSource.getPoolStats().orElseThrow();
+        try (Connection conn = dataSource.getConnection()) {
+            for (int i = 0; i < 3; i++) {
+                conn.prepareStatement("SELECT 1").close();
+                conn.prepareStatement("SELECT 1", Statement.RETURN_GENERATED_KEYS).close(); // cached separately
+            }
+            try (PreparedStatement open = conn.prepareStatement("SELECT 1");
+                 PreparedStatement nested = conn.prepareStatement("SELECT 1")) {
+                assertTrue(nested.unwrap(PreparedStatement.class) != open.unwrap(PreparedStatement.class));
+            }
+            conn.prepareStatement("SELECT 1", new String[]{"ID"}).close(); // not cacheable, not counted
+        }
+
+        PoolStats after = dataSource.getPoolStats().orElseThrow();
+        assertEquals(5, after.getStatementCacheHits() - before.getStatementCacheHits());
+        assertEquals(3, after.getStatementCacheMisses() - before.getStatementCacheMisses());
+    }
+
+    @Test
+    void checkedInStatementIsResetForItsNextUser() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE items (id INT)");
+        }
+        String sql = "INSERT INTO items VALUES (?)";
+        int defaultFetchSize;
+        ResultSet leftOpen;
+        try (Connection conn = dataSource.getConnection()) {
+            PreparedStatement first = conn.prepareStatement(sql);
+            defaultFetchSize = first.getFetchSize();
+            first.setFetchSize(defaultFetchSize + 7);
+            first.setMaxRows(3);
+            first.setQueryTimeout(9);
+            first.setInt(1, 1);
+            first.addBatch();
+            first.setInt(1, 2);
+            first.close();
+            assertTrue(first.isClosed());
+            assertThrows(SQLException.class, () -> first.setInt(1, 3));
+
+            PreparedStatement query = conn.prepareStatement("SELECT COUNT(*) FROM items");
+            leftOpen = query.executeQuery();
+            query.close();
+        }
+        assertTrue(leftOpen.isClosed(), "result sets are closed with their statement");
+
+        try (Connection conn = dataSource.getConnection(); PreparedStatement second = conn.prepareStatement(sql)) {
+            assertEquals(defaultFetchSize, second.getFetchSize());
+            assertEquals(0, second.getMaxRows());
+            assertEquals(0, second.getQueryTimeout());
+            assertEquals(0, second.executeBatch().length, "batch of the previous user was cleared");
+            assertThrows(SQLException.class, second::executeUpdate, "parameters of the previous user were cleared");
+        }
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement count = conn.prepareStatement("SELECT COUNT(*) FROM items");
+             ResultSet rs = count.executeQuery()) {
+            rs.next();
+            assertEquals(0, rs.getInt(1));
+        }
+    }
+
+    @Test
+    void statementWhoseResetFailsIsReplaced() throws SQLException {
+        try (Connection conn = dataSource.getConnection()) {
+            PreparedStatement broken = conn.prepareStatement("SELECT 1");
+            PreparedStatement closedBehindTheCache = broken.unwrap(PreparedStatement.class);
+            closedBehindTheCache.close();
+            broken.close(); // clearParameters() fails on the closed statement
+
+            try (PreparedStatement replacement = conn.prepareStatement("SELECT 1");
+                 ResultSet rs = replacement.executeQuery()) {
+                assertNotSame(closedBehindTheCache, replacement.unwrap(PreparedStatement.class));
+                assertTrue(rs.next());
+            }
+        }
+    }
+
+    /**
+     * The driver's statement behind a statement prepared through the cache, which is closed again right away.
+     */
+    private static PreparedStatement physical(Connection conn, String sql, StatementCacheStats stats)
+            throws SQLException {
+        try (PreparedStatement stmt = StatementCaching.prepare(conn, sql, Statement.NO_GENERATED_KEYS, stats)) {
+            return stmt.unwrap(PreparedStatement.class);
+        }
+    }
+
+    @Test
+    void leakIsCountedAndLoggedWithBorrowSite() throws Exception {
+        List<LogRecord> warnings = captureWarnings();
+        DataSourceConfig leaky = new DataSourceConfig("jdbc:h2:mem:pool_" + RUN.incrementAndGet(),
+                "sa", "", "org.h2.Driver", new PoolConfig().setMinIdle(0).setLeakDetectionThresholdMillis(100));
+        try (Connection held = leaky.getConnection()) {
+            await(() -> leaky.getPoolStats().orElseThrow().getLeakCount() == 1);
+            await(() -> !warnings.isEmpty());
+        } finally {
+            leaky.close();
+        }
+        LogRecord leak = warnings.get(0);
+        assertTrue(leak.getMessage().startsWith("Possible connection leak"));
+        assertNotNull(leak.getThrown());
+    }
+
+    @Test
+    void failedRefillIsCountedAndLogged() throws Exception {
+        List<LogRecord> warnings = captureWarnings();
+        DataSourceConfig unreachable = new DataSourceConfig(
+                "jdbc:h2:mem:missing_" + RUN.incrementAndGet() + ";IFEXISTS=TRUE",
+                "sa", "", "org.h2.Driver", new PoolConfig().setMinIdle(1).setHousekeepingIntervalMillis(50));
+        try {
+            await(() -> unreachable.getPoolStats().orElseThrow().getConnectionFailureCount() >= 2);
+        } finally {
+            unreachable.close();
+        }
+        assertTrue(warnings.stream().anyMatch(r -> r.getMessage().startsWith("Connection pool could not open")
+                && r.getThrown() instanceof SQLException));
+    }
+
+    private static List<LogRecord> captureWarnings() {
+        List<LogRecord> records = new CopyOnWriteArrayList<>();
+        Logger logger = Logger.getLogger(ConnectionPool.class.getName());
+        for (Handler handler : logger.getHandlers()) {
+            logger.removeHandler(handler);
+        }
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.WARNING) {
+                    records.add(record);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return records;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within 5s");
+            Thread.sleep(20);
+        }
+    }
+}
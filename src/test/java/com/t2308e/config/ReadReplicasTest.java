@@ -0,0 +1,147 @@
+package com.t2308e.config;
+
+import com.t2308e.core.MyRepositoryFactory;
+import com.t2308e.entity.User;
+import com.t2308e.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Read routing between a primary and two replicas, each its own in-memory H2 database. Replication is not simulated:
+ * every database is written directly, which makes a replica that has not caught up easy to set up.
+ */
+class ReadReplicasTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+
+    private DataSourceConfig primary;
+    private DataSourceConfig replica1;
+    private DataSourceConfig replica2;
+    private ReadReplicas replicas;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        int run = RUN.incrementAndGet();
+        primary = database("primary_" + run);
+        replica1 = database("replica1_" + run);
+        replica2 = database("replica2_" + run);
+        replicas = new ReadReplicas(List.of(replica1, replica2));
+        primary.setReadReplicas(replicas);
+    }
+
+    @AfterEach
+    void tearDown() {
+        primary.close();
+    }
+
+    @Test
+    void roundRobinAlternatesReplicas() throws SQLException {
+        assertEquals(List.of("replica1", "replica2", "replica1", "replica2"),
+                List.of(readNode(), readNode(), readNode(), readNode()));
+        assertEquals(2, replicas.getStats().get(0).getBorrowCount());
+        assertEquals(2, replicas.getStats().get(1).getBorrowCount());
+    }
+
+    @Test
+    void leastInFlightAvoidsBusyReplica() throws SQLException {
+        replicas.setSelection(ReplicaSelection.LEAST_IN_FLIGHT);
+        try (Connection busy = primary.getReadConnection()) {
+            assertEquals("replica1", node(busy));
+            assertEquals(1, replicas.getStats().get(0).getInFlight());
+            assertEquals(List.of("replica2", "replica2", "replica2"), List.of(readNode(), readNode(), readNode()));
+        }
+        assertEquals(0, replicas.getStats().get(0).getInFlight());
+    }
+
+    @Test
+    void failingReplicaIsEjectedThenPrimaryTakesOver() throws SQLException {
+        replica1.close(); // its pool now refuses connections
+        assertEquals(List.of("replica2", "replica2", "replica2"), List.of(readNode(), readNode(), readNode()));
+        ReplicaStats ejected = replicas.getStats().get(0);
+        assertFalse(ejected.isAvailable());
+        assertEquals(1, ejected.getEjectionCount());
+        assertEquals(0, replicas.getPrimaryFallbackCount());
+
+        replica2.close();
+        assertEquals("primary", readNode());
+        assertEquals(1, replicas.getPrimaryFallbackCount());
+        assertFalse(replicas.getStats().get(1).isAvailable());
+    }
+
+    @Test
+    void ejectedReplicaIsRetriedAfterEjectionTime() throws SQLException {
+        replicas.setEjectionMillis(0);
+        replica1.close();
+        assertEquals("replica2", readNode());
+        assertEquals("replica2", readNode());
+        assertEquals(1, replicas.getStats().get(0).getEjectionCount());
+        assertEquals("replica2", readNode()); // replica1's turn again: retried, failed again
+        assertEquals(2, replicas.getStats().get(0).getEjectionCount());
+    }
+
+    @Test
+    void transactionReadsStayOnPrimary() throws SQLException {
+        assertEquals("primary", primary.getTransactionManager().inTransaction(tx -> {
+            try (Connection conn = primary.getReadConnection()) {
+                return node(conn);
+            }
+        }));
+        assertEquals(0, replicas.getStats().get(0).getBorrowCount() + replicas.getStats().get(1).getBorrowCount());
+        assertEquals("replica1", readNode());
+    }
+
+    @Test
+    void cacheIsNotFilledFromLaggingReplica() throws SQLException {
+        for (DataSourceConfig db : List.of(primary, replica1, replica2)) {
+            execute(db, "INSERT INTO users (id, user_name, email, age) VALUES (1, 'ann', 'old@x', 30)");
+        }
+        UserRepository users = new MyRepositoryFactory(primary).createRepository(UserRepository.class);
+        User ann = users.findById(1L).orElseThrow();
+        ann.setEmail("new@x");
+        users.save(ann); // the replicas have not applied this yet
+
+        assertEquals("new@x", users.findById(1L).orElseThrow().getEmail());
+        execute(replica1, "UPDATE users SET email = 'new@x' WHERE id = 1");
+        execute(replica2, "UPDATE users SET email = 'new@x' WHERE id = 1");
+        assertEquals("new@x", users.findById(1L).orElseThrow().getEmail());
+    }
+
+    private String readNode() throws SQLException {
+        try (Connection conn = primary.getReadConnection()) {
+            return node(conn);
+        }
+    }
+
+    private static String node(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery("SELECT name FROM node")) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static DataSourceConfig database(String name) throws SQLException {
+        DataSourceConfig db = new DataSourceConfig("jdbc:h2:mem:" + name, "sa", "", "org.h2.Driver", new PoolConfig());
+        execute(db, "CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), "
+                + "email VARCHAR(50), age INT)");
+        execute(db, "CREATE TABLE node (name VARCHAR(20))");
+        execute(db, "INSERT INTO node VALUES ('" + name.substring(0, name.indexOf('_')) + "')");
+        return db;
+    }
+
+    private static void execute(DataSourceConfig db, String sql) throws SQLException {
+        try (Connection conn = db.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
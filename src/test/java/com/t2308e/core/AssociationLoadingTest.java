@@ -0,0 +1,207 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyColumn;
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import com.t2308e.annotations.MyJoinFetch;
+import com.t2308e.annotations.MyManyToOne;
+import com.t2308e.annotations.MyOneToMany;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.logging.SqlLogger;
+import com.t2308e.repository.MyCrudRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@code @MyManyToOne} and {@code @MyOneToMany} are loaded with one {@code IN} query per batch of owners, not one
+ * query per owner.
+ */
+class AssociationLoadingTest {
+
+    private static final int AUTHORS = 6;
+    private static final int BOOKS_PER_AUTHOR = 3;
+
+    @MyEntity(tableName = "authors")
+    public static class Author {
+        @MyId
+        public Long id;
+        public String name;
+        @MyOneToMany(mappedBy = "author")
+        public List<Book> books;
+
+        public Author() {
+        }
+
+        Author(String name) {
+            this.name = name;
+        }
+    }
+
+    @MyEntity(tableName = "books")
+    public static class Book {
+        @MyId
+        public Long id;
+        public String title;
+        @MyManyToOne
+        @MyColumn(name = "author_id")
+        public Author author;
+
+        public Book() {
+        }
+
+        Book(String title, Author author) {
+            this.title = title;
+            this.author = author;
+        }
+    }
+
+    public interface AuthorRepository extends MyCrudRepository<Author, Long> {
+    }
+
+    public interface BookRepository extends MyCrudRepository<Book, Long> {
+        List<Book> findByTitleStartingWith(String prefix);
+
+        @MyJoinFetch("author")
+        List<Book> findByTitleEndingWith(String suffix);
+    }
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private DataSourceConfig dataSource;
+    private MyRepositoryFactory factory;
+    private AuthorRepository authors;
+    private BookRepository books;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:associations;DB_CLOSE_DELAY=-1", "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE authors (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50))");
+            stmt.execute("CREATE TABLE books (id BIGINT AUTO_INCREMENT PRIMARY KEY, title VARCHAR(50), "
+                    + "author_id BIGINT REFERENCES authors(id))");
+        }
+        factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setSqlLogger(new SqlLogger(event -> statements.add(event.getSql())));
+        authors = factory.createRepository(AuthorRepository.class);
+        books = factory.createRepository(BookRepository.class);
+
+        List<Author> savedAuthors = new ArrayList<>();
+        for (int a = 0; a < AUTHORS; a++) {
+            savedAuthors.add(new Author("author" + a));
+        }
+        authors.saveAll(savedAuthors);
+        List<Book> savedBooks = new ArrayList<>();
+        for (int b = 0; b < BOOKS_PER_AUTHOR; b++) {
+            for (Author author : savedAuthors) {
+                savedBooks.add(new Book("book" + b + "-" + author.name, author));
+            }
+        }
+        books.saveAll(savedBooks);
+        statements.clear();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE books");
+            stmt.execute("DROP TABLE authors");
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void referencesOfManyRowsAreLoadedWithOneQuery() {
+        List<Book> all = books.findAll();
+
+        assertEquals(AUTHORS * BOOKS_PER_AUTHOR, all.size());
+        assertEquals(1, queriesOf("books"));
+        assertEquals(1, queriesOf("authors"));
+        for (Book book : all) {
+            assertTrue(book.title.endsWith("-" + book.author.name), book.title);
+        }
+    }
+
+    @Test
+    void rowsPointingAtTheSameTargetShareOneInstance() {
+        List<Book> all = books.findByTitleStartingWith("book");
+
+        for (Book book : all) {
+            Book first = all.stream().filter(b -> b.author.id.equals(book.author.id)).findFirst().orElseThrow();
+            assertSame(first.author, book.author);
+        }
+        assertEquals(1, queriesOf("authors"));
+    }
+
+    @Test
+    void collectionsOfManyOwnersAreLoadedWithOneQuery() {
+        List<Author> all = authors.findAll();
+        assertEquals(0, queriesOf("books"));
+
+        for (Author author : all) {
+            assertEquals(BOOKS_PER_AUTHOR, author.books.size());
+            for (Book book : author.books) {
+                assertSame(author, book.author);
+            }
+        }
+        assertEquals(1, queriesOf("books"));
+    }
+
+    @Test
+    void ownersBeyondBatchSizeTakeOneQueryPerBatch() {
+        factory.getSettings().setBatchSize(4);
+        AuthorRepository batched = factory.createRepository(AuthorRepository.class);
+        BookRepository batchedBooks = factory.createRepository(BookRepository.class);
+
+        for (Author author : batched.findAll()) {
+            assertEquals(BOOKS_PER_AUTHOR, author.books.size());
+        }
+        assertEquals((AUTHORS + 3) / 4, queriesOf("books"));
+
+        statements.clear();
+        batchedBooks.findAll();
+        assertEquals((AUTHORS + 3) / 4, queriesOf("authors"));
+    }
+
+    @Test
+    void joinFetchLoadsReferencesInTheSameStatement() {
+        List<Book> found = books.findByTitleEndingWith("-author2");
+
+        assertEquals(BOOKS_PER_AUTHOR, found.size());
+        assertEquals(1, statements.size());
+        assertTrue(statements.get(0).contains("JOIN"), statements.get(0));
+        for (Book book : found) {
+            assertNotNull(book.author);
+            assertEquals("author2", book.author.name);
+            assertSame(found.get(0).author, book.author);
+        }
+    }
+
+    @Test
+    void nullReferenceStaysNull() {
+        books.save(new Book("orphan", null));
+        statements.clear();
+
+        Book orphan = books.findByTitleStartingWith("orphan").get(0);
+
+        assertNull(orphan.author);
+        assertEquals(0, queriesOf("authors"));
+    }
+
+    private long queriesOf(String table) {
+        return statements.stream().filter(sql -> sql.startsWith("SELECT") && sql.contains(" FROM " + table)).count();
+    }
+}
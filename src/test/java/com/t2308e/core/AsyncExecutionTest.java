@@ -0,0 +1,186 @@
+package com.t2308e.core;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.entity.User;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Permits, executors and failures of {@link AsyncExecution}, directly and through {@code CompletableFuture} repository
+ * methods.
+ */
+class AsyncExecutionTest {
+
+    @Test
+    void permitsBoundConcurrentTasks() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        Semaphore permits = new Semaphore(2);
+        AsyncExecution async = new AsyncExecution(executor, permits);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                int n = i;
+                futures.add(async.submit(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    release.await();
+                    running.decrementAndGet();
+                    return n;
+                }));
+            }
+            while (permits.getQueueLength() < 6) {
+                Thread.sleep(5); // until two tasks run and the other six wait for a permit
+            }
+            assertEquals(2, running.get());
+            release.countDown();
+
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i, futures.get(i).get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(2, maxRunning.get());
+            awaitPermits(permits, 2);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void failuresCompleteTheFutureAndReleaseThePermit() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Semaphore permits = new Semaphore(1);
+        AsyncExecution async = new AsyncExecution(executor, permits);
+        try {
+            IllegalStateException unchecked = new IllegalStateException("boom");
+            IOException checked = new IOException("io");
+            assertSame(unchecked, failureOf(async.submit(() -> {
+                throw unchecked;
+            })));
+            assertSame(checked, failureOf(async.submit(() -> {
+                throw checked;
+            })));
+            awaitPermits(permits, 1);
+            assertEquals("ok", async.submit(() -> "ok").get(5, TimeUnit.SECONDS));
+
+            // a task interrupted while waiting for a permit fails instead of running
+            permits.acquire();
+            AtomicInteger ran = new AtomicInteger();
+            CompletableFuture<Object> waiting = async.submit(() -> ran.incrementAndGet());
+            while (!permits.hasQueuedThreads()) {
+                Thread.sleep(5);
+            }
+            executor.shutdownNow();
+            assertTrue(failureOf(waiting) instanceof InterruptedException);
+            assertEquals(0, ran.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void rejectedTaskCompletesExceptionallyInsteadOfThrowing() {
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("full");
+        };
+
+        CompletableFuture<String> future = new AsyncExecution(rejecting, null).submit(() -> "never");
+
+        assertTrue(future.isCompletedExceptionally());
+        assertTrue(failureOf(future) instanceof RejectedExecutionException);
+    }
+
+    @Test
+    void defaultExecutorUsesVirtualThreadsWhenAvailable() throws Exception {
+        Executor executor = AsyncExecution.defaultExecutor(3);
+        try {
+            Thread thread = CompletableFuture.supplyAsync(Thread::currentThread, executor).get(5, TimeUnit.SECONDS);
+            if (Runtime.version().feature() >= 21) {
+                assertEquals(true, Thread.class.getMethod("isVirtual").invoke(thread));
+            } else {
+                ThreadPoolExecutor pool = (ThreadPoolExecutor) executor;
+                assertEquals(3, pool.getCorePoolSize());
+                assertEquals(3, pool.getMaximumPoolSize());
+                assertTrue(pool.allowsCoreThreadTimeOut());
+                assertTrue(thread.isDaemon());
+                assertTrue(thread.getName().startsWith("mini-orm-async-"), thread.getName());
+            }
+        } finally {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    @Test
+    void asyncRepositoryMethodsCompleteWithTheirResultOrFailure() throws Exception {
+        DataSourceConfig dataSource = new DataSourceConfig("jdbc:h2:mem:async_execution", "sa", "", "org.h2.Driver",
+                new PoolConfig().setMinIdle(0).setMaxSize(2));
+        try {
+            try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), "
+                        + "email VARCHAR(50), age INT)");
+            }
+            MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+            factory.getSettings().setCacheProvider(null);
+            UserRepository users = factory.createRepository(UserRepository.class);
+            Long id = users.save(new User("ann", "ann@x", 30)).getId();
+
+            assertEquals("ann", users.findByIdAsync(id).get(5, TimeUnit.SECONDS).orElseThrow().getUserName());
+            assertEquals(1, users.findByAgeBetweenAsync(20, 40).get(5, TimeUnit.SECONDS).size());
+            assertFalse(users.findByEmailAsync("bob@x").get(5, TimeUnit.SECONDS).isPresent());
+
+            try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP TABLE users");
+            }
+            CompletableFuture<Optional<User>> failed = users.findByEmailAsync("ann@x");
+            Throwable failure = failureOf(failed);
+            assertTrue(failure instanceof MiniOrmException, String.valueOf(failure));
+            assertTrue(failure.getCause() instanceof SQLException, String.valueOf(failure.getCause()));
+            assertTrue(failed.isCompletedExceptionally());
+        } finally {
+            dataSource.close();
+        }
+    }
+
+    /**
+     * Waits for the permits to come back, which happens just after the task's future completes.
+     */
+    private static void awaitPermits(Semaphore permits, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (permits.availablePermits() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(expected, permits.availablePermits());
+    }
+
+    private static Throwable failureOf(CompletableFuture<?> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return e.getCause();
+    }
+}
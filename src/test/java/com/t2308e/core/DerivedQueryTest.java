@@ -0,0 +1,250 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.dialect.MySqlDialect;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.MyCrudRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Derived query methods parsed by {@link QueryMethodParser} and run against H2 in MySQL mode with
+ * {@link MySqlDialect}.
+ */
+class DerivedQueryTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+
+    @MyEntity(tableName = "products")
+    public static class Product {
+        @MyId
+        public Long id;
+        public String name;
+
+        public Product() {
+        }
+
+        Product(String name) {
+            this.name = name;
+        }
+    }
+
+    public interface ProductRepository extends MyCrudRepository<Product, Long> {
+        List<Product> findByNameStartingWith(String prefix);
+        List<Product> findByNameEndingWith(String suffix);
+        List<Product> findByNameContaining(String part);
+    }
+
+    @MyEntity(tableName = "members")
+    public static class Member {
+        @MyId
+        public Long id;
+        public String name;
+        public String email;
+        public int age;
+
+        public Member() {
+        }
+
+        Member(String name, String email, int age) {
+            this.name = name;
+            this.email = email;
+            this.age = age;
+        }
+    }
+
+    public interface MemberRepository extends MyCrudRepository<Member, Long> {
+        List<Member> findByEmailAndAgeGreaterThan(String email, int age);
+        long countByAgeGreaterThan(int age);
+        boolean existsByEmail(String email);
+        List<Member> findTop10ByAgeGreaterThanOrderByAgeDesc(int age);
+        List<Member> findByAgeIn(Collection<Integer> ages);
+        List<Member> findByAgeNotIn(Collection<Integer> ages);
+        List<Member> findByEmailOrAgeLessThanAndNameStartingWith(String email, int age, String prefix);
+    }
+
+    public interface NoByRepository extends MyCrudRepository<Member, Long> {
+        List<Member> findEmail(String email);
+    }
+
+    public interface UnknownPropertyRepository extends MyCrudRepository<Member, Long> {
+        List<Member> findByNickname(String nickname);
+    }
+
+    public interface MissingArgumentRepository extends MyCrudRepository<Member, Long> {
+        List<Member> findByEmailAndAge(String email);
+    }
+
+    public interface ExtraArgumentRepository extends MyCrudRepository<Member, Long> {
+        List<Member> findByAgeBetween(int from, int to, int extra);
+    }
+
+    public interface EmptyOrderByRepository extends MyCrudRepository<Member, Long> {
+        List<Member> findByEmailOrderBy(String email);
+    }
+
+    public interface CountAsStringRepository extends MyCrudRepository<Member, Long> {
+        String countByEmail(String email);
+    }
+
+    private DataSourceConfig dataSource;
+    private ProductRepository products;
+    private MemberRepository members;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:derived_" + RUN.incrementAndGet() + ";MODE=MySQL", "sa", "",
+                "org.h2.Driver", new PoolConfig()).setDialect(new MySqlDialect());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE products (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50))");
+            stmt.execute("CREATE TABLE members (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50), "
+                    + "email VARCHAR(50), age INT)");
+        }
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+        products = factory.createRepository(ProductRepository.class);
+        members = factory.createRepository(MemberRepository.class);
+        for (String name : List.of("50% off", "500 off", "a_b", "axb", "a!b", "back\\slash")) {
+            products.save(new Product(name));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void likeConditionsTreatWildcardsInArgumentsLiterally() {
+        assertEquals(Set.of("50% off"), names(products.findByNameStartingWith("50%")));
+        assertEquals(Set.of("a_b"), names(products.findByNameContaining("_")));
+        assertEquals(Set.of("a!b"), names(products.findByNameContaining("!")));
+        assertEquals(Set.of("back\\slash"), names(products.findByNameEndingWith("\\slash")));
+        assertEquals(Set.of("50% off", "500 off"), names(products.findByNameEndingWith(" off")));
+    }
+
+    @Test
+    void likeEscapeNeedsNoBackslash() throws NoSuchMethodException {
+        DerivedQuery query = QueryMethodParser.parse(ProductRepository.class.getMethod("findByNameContaining", String.class),
+                EntityMetadata.of(Product.class), new MySqlDialect());
+        // MySQL's default sql_mode reads ESCAPE '\' as an unterminated string
+        assertFalse(query.getSql(new Object[]{"x"}).contains("\\"), query.getSql(new Object[]{"x"}));
+    }
+
+    @Test
+    void andConditionsBindArgumentsInDeclarationOrder() throws NoSuchMethodException {
+        members.saveAll(List.of(new Member("ann", "a@x", 30), new Member("bob", "a@x", 18), new Member("cid", "c@x", 40)));
+
+        assertEquals("SELECT id, name, email, age FROM members WHERE email = ? AND age > ?",
+                sql("findByEmailAndAgeGreaterThan", new Object[]{"a@x", 20}, String.class, int.class));
+        assertEquals(Set.of("ann"), memberNames(members.findByEmailAndAgeGreaterThan("a@x", 20)));
+        assertEquals(Set.of(), memberNames(members.findByEmailAndAgeGreaterThan("c@x", 40)));
+    }
+
+    @Test
+    void countAndExistsQueriesSelectNoColumns() throws NoSuchMethodException {
+        members.saveAll(List.of(new Member("ann", "a@x", 30), new Member("bob", "b@x", 18)));
+
+        assertEquals("SELECT COUNT(*) FROM members WHERE age > ?",
+                sql("countByAgeGreaterThan", new Object[]{20}, int.class));
+        assertEquals("SELECT 1 FROM members WHERE email = ? LIMIT 1", sql("existsByEmail", new Object[]{"a@x"}, String.class));
+        assertEquals(1L, members.countByAgeGreaterThan(20));
+        assertEquals(0L, members.countByAgeGreaterThan(30));
+        assertTrue(members.existsByEmail("b@x"));
+        assertFalse(members.existsByEmail("z@x"));
+    }
+
+    @Test
+    void topLimitsRowsAfterOrderBy() throws NoSuchMethodException {
+        List<Member> all = new ArrayList<>();
+        for (int age = 1; age <= 15; age++) {
+            all.add(new Member("m" + age, "m" + age + "@x", age));
+        }
+        members.saveAll(all);
+
+        assertTrue(sql("findTop10ByAgeGreaterThanOrderByAgeDesc", new Object[]{2}, int.class)
+                .endsWith(" WHERE age > ? ORDER BY age DESC LIMIT 10"));
+        List<Member> top = members.findTop10ByAgeGreaterThanOrderByAgeDesc(2);
+        assertEquals(10, top.size());
+        for (int i = 0; i < top.size(); i++) {
+            assertEquals(15 - i, top.get(i).age);
+        }
+        assertEquals(3, members.findTop10ByAgeGreaterThanOrderByAgeDesc(12).size());
+    }
+
+    @Test
+    void emptyInMatchesNothingAndEmptyNotInMatchesEverything() throws NoSuchMethodException {
+        members.saveAll(List.of(new Member("ann", "a@x", 30), new Member("bob", "b@x", 18)));
+
+        assertTrue(sql("findByAgeIn", new Object[]{List.of()}, Collection.class).endsWith(" WHERE 1 = 0"));
+        assertTrue(sql("findByAgeNotIn", new Object[]{List.of()}, Collection.class).endsWith(" WHERE 1 = 1"));
+        assertTrue(sql("findByAgeIn", new Object[]{List.of(1, 2, 3)}, Collection.class).endsWith(" WHERE age IN (?, ?, ?)"));
+        assertEquals(Set.of(), memberNames(members.findByAgeIn(List.of())));
+        assertEquals(Set.of("ann", "bob"), memberNames(members.findByAgeNotIn(List.of())));
+        assertEquals(Set.of("bob"), memberNames(members.findByAgeIn(List.of(18, 99))));
+        assertEquals(Set.of("ann"), memberNames(members.findByAgeNotIn(Set.of(18))));
+    }
+
+    @Test
+    void orSeparatesGroupsOfAndConditions() throws NoSuchMethodException {
+        members.saveAll(List.of(new Member("ann", "a@x", 30), new Member("bob", "b@x", 18),
+                new Member("bea", "c@x", 40), new Member("cid", "d@x", 10)));
+
+        assertTrue(sql("findByEmailOrAgeLessThanAndNameStartingWith", new Object[]{"a@x", 20, "b"},
+                String.class, int.class, String.class)
+                .endsWith(" WHERE email = ? OR age < ? AND name LIKE ? ESCAPE '!'"));
+        // ann by email; bob by age and name; not bea (too old) nor cid (wrong name)
+        assertEquals(Set.of("ann", "bob"), memberNames(members.findByEmailOrAgeLessThanAndNameStartingWith("a@x", 20, "b")));
+    }
+
+    @Test
+    void malformedMethodsAreRejectedWhenTheRepositoryIsCreated() {
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+
+        assertRejected(factory, NoByRepository.class, "findEmail");
+        assertRejected(factory, UnknownPropertyRepository.class, "'Nickname'");
+        assertRejected(factory, MissingArgumentRepository.class, "take 2 argument(s) but the method declares 1");
+        assertRejected(factory, ExtraArgumentRepository.class, "take 2 argument(s) but the method declares 3");
+        assertRejected(factory, EmptyOrderByRepository.class, "OrderBy without a property");
+        assertRejected(factory, CountAsStringRepository.class, "count queries must return long or int");
+    }
+
+    private static void assertRejected(MyRepositoryFactory factory,
+                                       Class<? extends MyCrudRepository<Member, Long>> repository, String reason) {
+        MiniOrmException e = assertThrows(MiniOrmException.class, () -> factory.createRepository(repository));
+        assertTrue(e.getMessage().startsWith("Cannot derive a query from " + repository.getSimpleName() + "."),
+                e.getMessage());
+        assertTrue(e.getMessage().contains(reason), e.getMessage());
+    }
+
+    private static String sql(String methodName, Object[] args, Class<?>... parameterTypes) throws NoSuchMethodException {
+        return QueryMethodParser.parse(MemberRepository.class.getMethod(methodName, parameterTypes),
+                EntityMetadata.of(Member.class), new MySqlDialect()).getSql(args);
+    }
+
+    private static Set<String> memberNames(List<Member> found) {
+        return found.stream().map(m -> m.name).collect(Collectors.toSet());
+    }
+
+    private static Set<String> names(List<Product> found) {
+        return found.stream().map(p -> p.name).collect(Collectors.toSet());
+    }
+}
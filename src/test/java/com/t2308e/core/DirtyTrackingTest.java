@@ -0,0 +1,203 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.entity.User;
+import com.t2308e.logging.SqlLogger;
+import com.t2308e.repository.MyCrudRepository;
+import com.t2308e.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * With dirty tracking on, {@code save} of an entity the repository has seen writes only the columns changed since.
+ */
+class DirtyTrackingTest {
+
+    private static final String FULL_UPDATE = "UPDATE users SET user_name = ?, email = ?, age = ? WHERE id = ?";
+
+    @MyEntity(tableName = "wide")
+    public static class Wide {
+        @MyId
+        public Long id;
+        public int c00, c01, c02, c03, c04, c05, c06, c07;
+        public int c08, c09, c10, c11, c12, c13, c14, c15;
+        public int c16, c17, c18, c19, c20, c21, c22, c23;
+        public int c24, c25, c26, c27, c28, c29, c30, c31;
+        public int c32, c33, c34, c35, c36, c37, c38, c39;
+        public int c40, c41, c42, c43, c44, c45, c46, c47;
+        public int c48, c49, c50, c51, c52, c53, c54, c55;
+        public int c56, c57, c58, c59, c60, c61, c62, c63;
+
+        public Wide() {
+        }
+    }
+
+    public interface WideRepository extends MyCrudRepository<Wide, Long> {
+    }
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private DataSourceConfig dataSource;
+    private MyRepositoryFactory factory;
+    private UserRepository users;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:dirty_tracking;DB_CLOSE_DELAY=-1", "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), "
+                    + "email VARCHAR(50), age INT)");
+            stmt.execute("CREATE TABLE wide (id BIGINT AUTO_INCREMENT PRIMARY KEY, " + IntStream.range(0, 64)
+                    .mapToObj(i -> String.format("c%02d INT", i)).collect(Collectors.joining(", ")) + ")");
+        }
+        factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings()
+                .setDirtyTracking(true)
+                .setCacheProvider(null)
+                .setSqlLogger(new SqlLogger(event -> statements.add(event.getSql())));
+        users = factory.createRepository(UserRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE users");
+            stmt.execute("DROP TABLE wide");
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void onlyChangedColumnsAreSet() throws SQLException {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        User user = users.findById(id).orElseThrow();
+        execute("UPDATE users SET user_name = 'changed elsewhere' WHERE id = " + id);
+
+        user.setEmail("ann@y");
+        statements.clear();
+        users.save(user);
+
+        assertEquals(List.of("UPDATE users SET email = ? WHERE id = ?"), updates());
+        User stored = users.findById(id).orElseThrow();
+        assertEquals("ann@y", stored.getEmail());
+        assertEquals("changed elsewhere", stored.getUserName());
+        assertEquals(30, stored.getAge());
+    }
+
+    @Test
+    void unchangedEntityIssuesNoUpdate() {
+        User saved = users.save(new User("ann", "ann@x", 30));
+        User loaded = users.findById(saved.getId()).orElseThrow();
+        statements.clear();
+
+        users.save(saved);
+        users.save(loaded);
+        users.saveAll(List.of(saved, loaded));
+
+        assertEquals(List.of(), updates());
+    }
+
+    @Test
+    void savedEntityIsTrackedFromItsNewState() {
+        User user = users.save(new User("ann", "ann@x", 30));
+        user.setAge(31);
+        users.save(user);
+        user.setUserName("anna");
+        statements.clear();
+
+        users.save(user);
+
+        assertEquals(List.of("UPDATE users SET user_name = ? WHERE id = ?"), updates());
+        assertEquals(31, users.findById(user.getId()).orElseThrow().getAge());
+    }
+
+    @Test
+    void saveAllBatchesEachChangedColumnSet() {
+        List<User> saved = users.saveAll(List.of(new User("a", "a@x", 1), new User("b", "b@x", 2),
+                new User("c", "c@x", 3)));
+        saved.get(0).setAge(10);
+        saved.get(1).setEmail("b@y");
+        saved.get(2).setAge(30);
+        statements.clear();
+
+        users.saveAll(saved);
+
+        assertEquals(List.of("UPDATE users SET age = ? WHERE id = ?", "UPDATE users SET email = ? WHERE id = ?"),
+                updates());
+        assertEquals(10, users.findById(saved.get(0).getId()).orElseThrow().getAge());
+        assertEquals("b@y", users.findById(saved.get(1).getId()).orElseThrow().getEmail());
+        assertEquals(30, users.findById(saved.get(2).getId()).orElseThrow().getAge());
+    }
+
+    @Test
+    void entityNeverSeenUpdatesAllColumns() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        User detached = new User("ann", "ann@y", 30);
+        detached.setId(id);
+        statements.clear();
+
+        users.save(detached);
+
+        assertEquals(List.of(FULL_UPDATE), updates());
+        assertEquals("ann@y", users.findById(id).orElseThrow().getEmail());
+    }
+
+    @Test
+    void trackingOffUpdatesAllColumns() {
+        factory.getSettings().setDirtyTracking(false);
+        UserRepository untracked = factory.createRepository(UserRepository.class);
+        User user = untracked.save(new User("ann", "ann@x", 30));
+        statements.clear();
+
+        untracked.save(user);
+
+        assertEquals(List.of(FULL_UPDATE), updates());
+    }
+
+    @Test
+    void entityWithSixtyFourColumnsUpdatesAllColumns() throws SQLException {
+        WideRepository wides = factory.createRepository(WideRepository.class);
+        Wide wide = wides.save(new Wide());
+        execute("UPDATE wide SET c00 = 7 WHERE id = " + wide.id);
+        statements.clear();
+
+        wides.save(wide);
+        assertEquals(List.of(), updates());
+
+        wide.c63 = 1;
+        wides.save(wide);
+
+        List<String> updates = updates();
+        assertEquals(1, updates.size());
+        assertTrue(updates.get(0).startsWith("UPDATE wide SET c00 = ?, c01 = ?"), updates.get(0));
+        assertTrue(updates.get(0).endsWith("c63 = ? WHERE id = ?"), updates.get(0));
+        Wide stored = wides.findById(wide.id).orElseThrow();
+        assertEquals(1, stored.c63);
+        assertEquals(0, stored.c00);
+    }
+
+    private List<String> updates() {
+        return statements.stream().filter(sql -> sql.startsWith("UPDATE")).collect(Collectors.toList());
+    }
+
+    private void execute(String sql) throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute(sql);
+        }
+    }
+}
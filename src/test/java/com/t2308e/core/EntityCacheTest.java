@@ -0,0 +1,181 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.cache.EntityCache;
+import com.t2308e.cache.LruEntityCache;
+import com.t2308e.cache.LruEntityCacheProvider;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.entity.User;
+import com.t2308e.logging.SqlLogger;
+import com.t2308e.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Second-level cache of {@code @MyEntity(cacheable = true)} entities: filled by {@code findById}, invalidated by
+ * writes.
+ */
+class EntityCacheTest {
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private DataSourceConfig dataSource;
+    private MyRepositoryFactory factory;
+    private EntityCache cache;
+    private UserRepository users;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:entity_cache;DB_CLOSE_DELAY=-1", "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), "
+                    + "email VARCHAR(50), age INT)");
+        }
+        LruEntityCacheProvider provider = new LruEntityCacheProvider();
+        cache = provider.getCache(User.class, User.class.getAnnotation(MyEntity.class));
+        factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings()
+                .setCacheProvider(provider)
+                .setSqlLogger(new SqlLogger(event -> statements.add(event.getSql())));
+        users = factory.createRepository(UserRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE users");
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void secondFindByIdIsServedFromCache() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        statements.clear();
+
+        User first = users.findById(id).orElseThrow();
+        User second = users.findById(id).orElseThrow();
+
+        assertEquals(1, selects());
+        assertNotSame(first, second); // the cache holds values, not instances
+        assertEquals("ann@x", second.getEmail());
+        assertEquals(1, cache.getStats().getHits());
+        assertEquals(1, cache.getStats().getMisses());
+    }
+
+    @Test
+    void updateEvictsCachedRow() {
+        User user = users.save(new User("ann", "ann@x", 30));
+        users.findById(user.getId());
+        assertNotNull(cache.get(user.getId()));
+
+        user.setEmail("ann@y");
+        users.save(user);
+
+        assertNull(cache.get(user.getId()));
+        assertEquals("ann@y", users.findById(user.getId()).orElseThrow().getEmail());
+    }
+
+    @Test
+    void deleteEvictsCachedRow() {
+        Long a = users.save(new User("ann", "ann@x", 30)).getId();
+        Long b = users.save(new User("bob", "bob@x", 40)).getId();
+        Long c = users.save(new User("cid", "cid@x", 50)).getId();
+        users.findById(a);
+        users.findById(b);
+        users.findById(c);
+
+        users.deleteById(a);
+        users.deleteAllById(List.of(b));
+
+        assertTrue(users.findById(a).isEmpty());
+        assertTrue(users.findById(b).isEmpty());
+        assertNotNull(cache.get(c));
+    }
+
+    @Test
+    void derivedDeleteClearsCache() {
+        Long young = users.save(new User("ann", "ann@x", 10)).getId();
+        Long old = users.save(new User("bob", "bob@x", 40)).getId();
+        users.findById(young);
+        users.findById(old);
+
+        assertEquals(1L, users.deleteByAgeLessThan(18));
+
+        assertEquals(0, cache.getStats().getSize());
+        assertTrue(users.findById(young).isEmpty());
+        assertEquals("bob", users.findById(old).orElseThrow().getUserName());
+    }
+
+    @Test
+    void readsInsideTransactionDoNotFillCache() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+
+        factory.getTransactionManager().inTransaction(tx -> {
+            User user = users.findById(id).orElseThrow();
+            user.setAge(31);
+            users.save(user);
+            return users.findById(id).orElseThrow();
+        });
+        assertNull(cache.get(id));
+
+        assertEquals(31, users.findById(id).orElseThrow().getAge());
+        assertNotNull(cache.get(id));
+    }
+
+    @Test
+    void rolledBackUpdateLeavesNoStaleRow() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        users.findById(id);
+
+        assertThrows(IllegalStateException.class, () -> factory.getTransactionManager().inTransaction(tx -> {
+            User user = users.findById(id).orElseThrow();
+            user.setAge(31);
+            users.save(user);
+            throw new IllegalStateException("roll back");
+        }));
+
+        assertEquals(30, users.findById(id).orElseThrow().getAge());
+    }
+
+    @Test
+    void lruEvictsLeastRecentlyUsedEntry() {
+        LruEntityCache lru = new LruEntityCache(1, 0);
+        lru.put(1L, new Object[]{"a"});
+        lru.put(2L, new Object[]{"b"});
+
+        assertNull(lru.get(1L));
+        assertArrayEquals(new Object[]{"b"}, lru.get(2L));
+        assertEquals(1, lru.getStats().getEvictions());
+        assertEquals(1, lru.getStats().getSize());
+    }
+
+    @Test
+    void entriesExpireAfterTtl() throws InterruptedException {
+        LruEntityCache lru = new LruEntityCache(10, 1_000_000L);
+        lru.put(1L, new Object[]{"a"});
+        Thread.sleep(5);
+
+        assertNull(lru.get(1L));
+        assertEquals(1, lru.getStats().getExpirations());
+    }
+
+    private long selects() {
+        return statements.stream().filter(sql -> sql.startsWith("SELECT")).count();
+    }
+}
@@ -0,0 +1,170 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Rows mapped by the compiled row mapper of {@link EntityMapper}, with and without getters and setters, in both
+ * {@link AccessorMode}s.
+ */
+class EntityMapperTest {
+
+    @MyEntity(tableName = "samples")
+    public static class Sample {
+        @MyId
+        private Long id;
+        private int count;
+        private Long total;
+        private Double ratio;
+        private Boolean active;
+        private short small;
+        private String label;
+        private UUID token;
+
+        public Long getId() { return id; }
+        public void setId(Long id) { this.id = id; }
+        public int getCount() { return count; }
+        public void setCount(int count) { this.count = count; }
+        public Long getTotal() { return total; }
+        public void setTotal(Long total) { this.total = total; }
+        public Double getRatio() { return ratio; }
+        public void setRatio(Double ratio) { this.ratio = ratio; }
+        public Boolean getActive() { return active; }
+        public void setActive(Boolean active) { this.active = active; }
+        public short getSmall() { return small; }
+        public void setSmall(short small) { this.small = small; }
+        public String getLabel() { return label; }
+        public void setLabel(String label) { this.label = label; }
+        public UUID getToken() { return token; }
+        public void setToken(UUID token) { this.token = token; }
+    }
+
+    /**
+     * Same columns as public fields without accessor methods, so GENERATED mode falls back to field handles.
+     */
+    @MyEntity(tableName = "samples")
+    public static class PlainSample {
+        @MyId
+        public Long id;
+        public int count;
+        public Long total;
+        public Double ratio;
+        public Boolean active;
+        public short small;
+        public String label;
+        public UUID token;
+    }
+
+    private static final UUID TOKEN = UUID.fromString("0189b7a2-0000-7000-8000-000000000001");
+
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:entity_mapper", "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE samples (id BIGINT PRIMARY KEY, count INT, total BIGINT, ratio DOUBLE, "
+                    + "active BOOLEAN, small SMALLINT, label VARCHAR(20), token UUID)");
+            stmt.execute("INSERT INTO samples VALUES (1, 7, 9000000000, 0.5, TRUE, 3, 'a', '"
+                    + TOKEN + "')");
+            stmt.execute("INSERT INTO samples VALUES (2, NULL, NULL, NULL, NULL, NULL, NULL, NULL)");
+            stmt.execute("INSERT INTO samples VALUES (3, 0, 0, 0, FALSE, 0, '', NULL)");
+        }
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    @Test
+    void mapsValuesThroughSetters() throws SQLException {
+        for (AccessorMode mode : AccessorMode.values()) {
+            assertSetterMapping(EntityMapper.of(Sample.class, mode));
+        }
+    }
+
+    @Test
+    void mapsValuesIntoFieldsAfterOffset() throws SQLException {
+        for (AccessorMode mode : AccessorMode.values()) {
+            assertFieldMapping(EntityMapper.of(PlainSample.class, mode));
+        }
+    }
+
+    private void assertSetterMapping(EntityMapper<Sample> mapper) throws SQLException {
+        Sample full = row(mapper, 1, rs -> mapper.mapRow(rs));
+        assertEquals(1L, full.getId());
+        assertEquals(7, full.getCount());
+        assertEquals(9_000_000_000L, full.getTotal());
+        assertEquals(0.5, full.getRatio());
+        assertEquals(Boolean.TRUE, full.getActive());
+        assertEquals((short) 3, full.getSmall());
+        assertEquals("a", full.getLabel());
+        assertEquals(TOKEN, full.getToken());
+
+        Sample nulls = row(mapper, 2, rs -> mapper.mapRow(rs));
+        assertEquals(0, nulls.getCount());
+        assertNull(nulls.getTotal());
+        assertNull(nulls.getRatio());
+        assertNull(nulls.getActive());
+        assertNull(nulls.getLabel());
+        assertNull(nulls.getToken());
+
+        Sample zeros = row(mapper, 3, rs -> mapper.mapRow(rs));
+        assertEquals(0L, zeros.getTotal());
+        assertEquals(0.0, zeros.getRatio());
+        assertFalse(zeros.getActive());
+        assertEquals("", zeros.getLabel());
+    }
+
+    private void assertFieldMapping(EntityMapper<PlainSample> mapper) throws SQLException {
+        PlainSample full = row(mapper, 1, "'x', 'y', ", rs -> mapper.mapRow(rs, 2));
+        assertEquals(1L, full.id);
+        assertEquals(7, full.count);
+        assertEquals(9_000_000_000L, full.total);
+        assertEquals(Boolean.TRUE, full.active);
+        assertEquals("a", full.label);
+        assertEquals(TOKEN, full.token);
+
+        PlainSample nulls = row(mapper, 2, "'x', 'y', ", rs -> mapper.mapRow(rs, 2));
+        assertEquals(2L, nulls.id);
+        assertNull(nulls.total);
+        assertNull(nulls.active);
+    }
+
+    private <E> E row(EntityMapper<E> mapper, long id, RowFunction<E> mapping) throws SQLException {
+        return row(mapper, id, "", mapping);
+    }
+
+    /**
+     * Runs the mapper's own SELECT for one row, with {@code leadingColumns} in front of the entity's columns.
+     */
+    private <E> E row(EntityMapper<E> mapper, long id, String leadingColumns, RowFunction<E> mapping)
+            throws SQLException {
+        String sql = mapper.getMetadata().getSelectAllSql().replaceFirst("SELECT ", "SELECT " + leadingColumns);
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql + " WHERE id = " + id)) {
+            rs.next();
+            return mapping.apply(rs);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowFunction<E> {
+        E apply(ResultSet rs) throws SQLException;
+    }
+}
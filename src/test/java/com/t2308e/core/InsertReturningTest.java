@@ -0,0 +1,173 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyColumn;
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.config.PoolStats;
+import com.t2308e.dialect.Dialect;
+import com.t2308e.dialect.H2Dialect;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.MyCrudRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Multi-row inserts that read generated ids back with {@link Dialect#insertReturningSql}, against dialects that
+ * return the rows in an order other than the VALUES list, or too few of them.
+ */
+class InsertReturningTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+    private static final LocalDateTime NOON = LocalDateTime.of(2024, 1, 1, 12, 0);
+
+    @MyEntity(tableName = "notes")
+    public static class Note {
+        @MyId
+        public Long id;
+        public String text;
+        @MyColumn(name = "created_at")
+        public LocalDateTime createdAt;
+
+        public Note() {
+        }
+
+        Note(String text, LocalDateTime createdAt) {
+            this.text = text;
+            this.createdAt = createdAt;
+        }
+    }
+
+    public interface NoteRepository extends MyCrudRepository<Note, Long> {
+    }
+
+    private DataSourceConfig dataSource;
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void idsReturnedOutOfOrderGoToTheirRows() throws SQLException {
+        NoteRepository notes = repository(new H2Dialect(true) {
+            @Override
+            public String insertReturningSql(String table, String idColumn, List<String> columns, int rows) {
+                return super.insertReturningSql(table, idColumn, columns, rows) + " ORDER BY " + idColumn + " DESC";
+            }
+        });
+        List<Note> saved = notes.saveAll(IntStream.range(0, 5).mapToObj(i -> new Note("n" + i, NOON.plusMinutes(i)))
+                .collect(Collectors.toList()));
+
+        for (Note note : saved) {
+            assertEquals(note.text, textOf(note.id));
+        }
+    }
+
+    @Test
+    void entitiesAlikeInComparedColumnsAreInsertedAsBatch() throws SQLException {
+        NoteRepository notes = repository(new H2Dialect(true) {
+            @Override
+            public String insertReturningSql(String table, String idColumn, List<String> columns, int rows) {
+                return super.insertReturningSql(table, idColumn, columns, rows) + " ORDER BY " + idColumn + " DESC";
+            }
+        });
+        // text is the only column compared; created_at could read back with less precision
+        List<Note> saved = notes.saveAll(IntStream.range(0, 4).mapToObj(i -> new Note("same", NOON.plusMinutes(i)))
+                .collect(Collectors.toList()));
+
+        for (Note note : saved) {
+            assertEquals(note.createdAt, createdAtOf(note.id));
+        }
+    }
+
+    @Test
+    void missingIdsFailTheInsert() {
+        NoteRepository notes = repository(new H2Dialect(true) {
+            @Override
+            public String insertReturningSql(String table, String idColumn, List<String> columns, int rows) {
+                return super.insertReturningSql(table, idColumn, columns, rows) + " FETCH FIRST 1 ROWS ONLY";
+            }
+        });
+        Note a = new Note("a", NOON);
+        Note b = new Note("b", NOON);
+
+        MiniOrmException e = assertThrows(MiniOrmException.class, () -> notes.saveAll(List.of(a, b)));
+        assertTrue(e.getMessage().contains("got 1 generated ids back"), e.getMessage());
+        assertNull(a.id);
+        assertNull(b.id);
+        assertEquals(0, notes.count());
+    }
+
+    @Test
+    void onlyFullChunksUseTheStatementCache() {
+        MyRepositoryFactory factory = factory(new H2Dialect(true));
+        factory.getSettings().setBatchSize(2);
+        NoteRepository notes = factory.createRepository(NoteRepository.class);
+
+        for (int round = 0; round < 2; round++) {
+            // two full chunks of two rows, then a tail chunk of one
+            notes.saveAll(IntStream.range(0, 5).mapToObj(i -> new Note("n" + i, NOON))
+                    .collect(Collectors.toList()));
+        }
+
+        PoolStats stats = dataSource.getPoolStats().orElseThrow();
+        assertEquals(1, stats.getStatementCacheMisses());
+        assertEquals(3, stats.getStatementCacheHits());
+        assertEquals(10, notes.count());
+    }
+
+    private NoteRepository repository(Dialect dialect) {
+        return factory(dialect).createRepository(NoteRepository.class);
+    }
+
+    private MyRepositoryFactory factory(Dialect dialect) {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:returning_" + RUN.incrementAndGet() + ";DB_CLOSE_DELAY=-1",
+                "sa", "", "org.h2.Driver", new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE notes (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "text VARCHAR(50), created_at TIMESTAMP)");
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+        dataSource.setDialect(dialect);
+        return new MyRepositoryFactory(dataSource);
+    }
+
+    private String textOf(long id) throws SQLException {
+        return (String) column("text", id);
+    }
+
+    private LocalDateTime createdAtOf(long id) throws SQLException {
+        return ((Timestamp) column("created_at", id)).toLocalDateTime();
+    }
+
+    private Object column(String column, long id) throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT " + column + " FROM notes WHERE id = ?")) {
+            stmt.setLong(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                rs.next();
+                return rs.getObject(1);
+            }
+        }
+    }
+}
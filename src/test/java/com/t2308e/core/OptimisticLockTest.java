@@ -0,0 +1,152 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import com.t2308e.annotations.MyVersion;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.exception.OptimisticLockException;
+import com.t2308e.repository.MyCrudRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * UPDATEs of {@code @MyVersion} entities only succeed against the version they were read with.
+ */
+class OptimisticLockTest {
+
+    @MyEntity(tableName = "accounts")
+    public static class Account {
+        @MyId
+        public Long id;
+        public String owner;
+        public long balance;
+        @MyVersion
+        public Long version;
+
+        public Account() {
+        }
+
+        Account(String owner, long balance) {
+            this.owner = owner;
+            this.balance = balance;
+        }
+    }
+
+    public interface AccountRepository extends MyCrudRepository<Account, Long> {
+    }
+
+    private DataSourceConfig dataSource;
+    private AccountRepository accounts;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:optimistic_lock;DB_CLOSE_DELAY=-1", "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE accounts (id BIGINT AUTO_INCREMENT PRIMARY KEY, owner VARCHAR(50), "
+                    + "balance BIGINT, version BIGINT)");
+        }
+        accounts = new MyRepositoryFactory(dataSource).createRepository(AccountRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE accounts");
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void insertStartsAtZeroAndUpdateIncrementsVersion() {
+        Account account = accounts.save(new Account("ann", 10));
+        assertEquals(0L, account.version);
+
+        account.balance = 20;
+        accounts.save(account);
+        assertEquals(1L, account.version);
+
+        Account stored = accounts.findById(account.id).orElseThrow();
+        assertEquals(1L, stored.version);
+        assertEquals(20, stored.balance);
+    }
+
+    @Test
+    void staleUpdateThrowsAndLeavesRowUnchanged() {
+        Account account = accounts.save(new Account("ann", 10));
+        Account first = accounts.findById(account.id).orElseThrow();
+        Account second = accounts.findById(account.id).orElseThrow();
+
+        first.balance = 20;
+        accounts.save(first);
+
+        second.balance = 30;
+        OptimisticLockException e = assertThrows(OptimisticLockException.class, () -> accounts.save(second));
+        assertEquals(Account.class, e.getEntityClass());
+        assertEquals(account.id, e.getId());
+        assertEquals(0L, e.getExpectedVersion());
+        assertEquals(0L, second.version);
+
+        Account stored = accounts.findById(account.id).orElseThrow();
+        assertEquals(1L, stored.version);
+        assertEquals(20, stored.balance);
+    }
+
+    @Test
+    void updateOfDeletedRowThrows() {
+        Account account = accounts.save(new Account("ann", 10));
+        accounts.deleteById(account.id);
+
+        account.balance = 20;
+        assertThrows(OptimisticLockException.class, () -> accounts.save(account));
+    }
+
+    @Test
+    void staleEntityInSaveAllRollsBackTheBatch() {
+        Account a = accounts.save(new Account("ann", 10));
+        Account b = accounts.save(new Account("bob", 10));
+        Account staleB = accounts.findById(b.id).orElseThrow();
+        b.balance = 15;
+        accounts.save(b);
+
+        a.balance = 11;
+        staleB.balance = 12;
+        Account c = new Account("cid", 10);
+        assertThrows(OptimisticLockException.class, () -> accounts.saveAll(List.of(a, staleB, c)));
+
+        assertEquals(0L, a.version);
+        assertNull(c.id);
+        assertEquals(2, accounts.count());
+        assertEquals(10, accounts.findById(a.id).orElseThrow().balance);
+        assertEquals(0L, accounts.findById(a.id).orElseThrow().version);
+
+        accounts.saveAll(List.of(a));
+        assertEquals(1L, a.version);
+        assertEquals(1L, accounts.findById(a.id).orElseThrow().version);
+    }
+
+    @Test
+    void upsertRejectsVersionedEntities() {
+        Account account = new Account("ann", 10);
+        MiniOrmException e = assertThrows(MiniOrmException.class, () -> accounts.upsert(account));
+        assertFalse(e instanceof OptimisticLockException);
+        assertTrue(e.getMessage().contains("@MyVersion"), e.getMessage());
+        assertEquals(0, accounts.count());
+
+        assertThrows(MiniOrmException.class, () -> accounts.upsertAll(List.of(new Account("bob", 1))));
+        assertEquals(0, accounts.count());
+    }
+}
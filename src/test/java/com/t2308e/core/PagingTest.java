@@ -0,0 +1,215 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.MyCrudRepository;
+import com.t2308e.repository.Page;
+import com.t2308e.repository.PageRequest;
+import com.t2308e.repository.Slice;
+import com.t2308e.repository.Sort;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Keyset and offset pages over rows with many equal sort values, compared against the same rows sorted in memory.
+ */
+class PagingTest {
+
+    private static final int ROWS = 41;
+    private static final int[] PAGE_SIZES = {1, 3, 7, 50};
+
+    @MyEntity(tableName = "scores")
+    public static class Score {
+        @MyId
+        public Long id;
+        public int grp;
+        public String name;
+        public int points;
+
+        public Score() {
+        }
+
+        Score(int grp, String name, int points) {
+            this.grp = grp;
+            this.name = name;
+            this.points = points;
+        }
+    }
+
+    public interface ScoreRepository extends MyCrudRepository<Score, Long> {
+        Slice<Score> findByPointsGreaterThan(int points, PageRequest pageRequest);
+    }
+
+    private DataSourceConfig dataSource;
+    private ScoreRepository scores;
+    private List<Score> all;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:paging;DB_CLOSE_DELAY=-1", "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE scores (id BIGINT AUTO_INCREMENT PRIMARY KEY, grp INT, name VARCHAR(20), "
+                    + "points INT)");
+        }
+        scores = new MyRepositoryFactory(dataSource).createRepository(ScoreRepository.class);
+        List<Score> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            // few distinct values per column, so most pages start in the middle of a run of equal keys
+            rows.add(new Score(i % 3, "n" + (i * 7 % 4), i * 5 % 6));
+        }
+        all = scores.saveAll(rows);
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE scores");
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void keysetOrderedByIdOnly() {
+        assertKeysetPages(Sort.unsorted(), byId());
+        assertKeysetPages(Sort.desc("id"), byId().reversed());
+    }
+
+    @Test
+    void keysetWithDuplicateValuesAscending() {
+        assertKeysetPages(Sort.asc("grp"), Comparator.<Score>comparingInt(s -> s.grp).thenComparing(byId()));
+    }
+
+    @Test
+    void keysetWithDuplicateValuesDescending() {
+        assertKeysetPages(Sort.desc("grp"),
+                Comparator.<Score>comparingInt(s -> s.grp).reversed().thenComparing(byId()));
+    }
+
+    @Test
+    void keysetWithMixedDirections() {
+        assertKeysetPages(Sort.desc("grp").and(Sort.asc("name")),
+                Comparator.<Score>comparingInt(s -> s.grp).reversed()
+                        .thenComparing(s -> s.name)
+                        .thenComparing(byId()));
+        assertKeysetPages(Sort.asc("points").and(Sort.desc("name")).and(Sort.desc("grp")),
+                Comparator.<Score>comparingInt(s -> s.points)
+                        .thenComparing(Comparator.<Score, String>comparing(s -> s.name).reversed())
+                        .thenComparing(Comparator.<Score>comparingInt(s -> s.grp).reversed())
+                        .thenComparing(byId()));
+    }
+
+    @Test
+    void sortEndingInDescendingIdNeedsNoTieBreaker() {
+        assertKeysetPages(Sort.asc("name").and(Sort.desc("id")).and(Sort.asc("points")),
+                Comparator.<Score, String>comparing(s -> s.name).thenComparing(byId().reversed()));
+    }
+
+    @Test
+    void keysetCombinesWithDerivedCondition() {
+        Sort sort = Sort.desc("points").and(Sort.asc("grp"));
+        List<Long> expected = expected(s -> s.points > 2, Comparator.<Score>comparingInt(s -> s.points).reversed()
+                .thenComparingInt(s -> s.grp).thenComparing(byId()));
+        for (int size : PAGE_SIZES) {
+            assertEquals(expected, collect(PageRequest.ofSize(size).withSort(sort),
+                    request -> scores.findByPointsGreaterThan(2, request), size), "page size " + size);
+        }
+    }
+
+    @Test
+    void nextRequestCarriesLastRowKeys() {
+        Sort sort = Sort.desc("grp").and(Sort.asc("name"));
+        Slice<Score> first = scores.findAll(PageRequest.ofSize(5).withSort(sort));
+        Score last = first.getContent().get(4);
+
+        PageRequest next = first.nextPageRequest();
+        assertEquals(List.of(last.grp, last.name, last.id), next.getKeysetValues());
+        assertEquals(1, next.getPageNumber());
+
+        // A request rebuilt from the saved keys returns the same page
+        PageRequest resumed = PageRequest.ofSize(5).withSort(sort).after(next.getKeysetValues().toArray());
+        assertEquals(ids(scores.findAll(next).getContent()), ids(scores.findAll(resumed).getContent()));
+    }
+
+    @Test
+    void keysetOfWrongLengthIsRejected() {
+        PageRequest request = PageRequest.ofSize(5).withSort(Sort.asc("grp")).after(1);
+        assertThrows(MiniOrmException.class, () -> scores.findAll(request));
+    }
+
+    @Test
+    void offsetPagesWithTotal() {
+        Comparator<Score> order = Comparator.<Score>comparingInt(s -> s.grp).reversed().thenComparing(byId());
+        List<Long> expected = expected(s -> true, order);
+        List<Long> seen = new ArrayList<>();
+        PageRequest request = PageRequest.of(0, 6, Sort.desc("grp"));
+        while (true) {
+            Page<Score> page = scores.findPage(request);
+            assertEquals(ROWS, page.getTotalElements());
+            assertEquals((ROWS + 5) / 6, page.getTotalPages());
+            seen.addAll(ids(page.getContent()));
+            if (page.isLast()) {
+                break;
+            }
+            request = page.nextPageRequest();
+        }
+        assertEquals(expected, seen);
+    }
+
+    private void assertKeysetPages(Sort sort, Comparator<Score> order) {
+        List<Long> expected = expected(s -> true, order);
+        for (int size : PAGE_SIZES) {
+            assertEquals(expected, collect(PageRequest.ofSize(size).withSort(sort), scores::findAll, size),
+                    sort + ", page size " + size);
+        }
+    }
+
+    /**
+     * Ids of every page from {@code request} on, checking that only the last page is short.
+     */
+    private static List<Long> collect(PageRequest request, Function<PageRequest, Slice<Score>> fetch, int size) {
+        List<Long> seen = new ArrayList<>();
+        while (true) {
+            Slice<Score> slice = fetch.apply(request);
+            seen.addAll(ids(slice.getContent()));
+            if (slice.isLast()) {
+                assertTrue(slice.getNumberOfElements() <= size);
+                return seen;
+            }
+            assertEquals(size, slice.getNumberOfElements());
+            assertFalse(seen.size() > ROWS, "paging does not terminate");
+            request = slice.nextPageRequest();
+        }
+    }
+
+    private List<Long> expected(Predicate<Score> filter, Comparator<Score> order) {
+        return ids(all.stream().filter(filter).sorted(order).collect(Collectors.toList()));
+    }
+
+    private static Comparator<Score> byId() {
+        return Comparator.comparingLong(s -> s.id);
+    }
+
+    private static List<Long> ids(List<Score> rows) {
+        return rows.stream().map(s -> s.id).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,186 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.logging.SqlLogger;
+import com.t2308e.repository.MyCrudRepository;
+import com.t2308e.repository.Page;
+import com.t2308e.repository.PageRequest;
+import com.t2308e.repository.Slice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Find queries returning interface and record projections select only the projected columns.
+ */
+class ProjectionTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+
+    @MyEntity(tableName = "people")
+    public static class Person {
+        @MyId
+        public Long id;
+        public String name;
+        public String email;
+        public int age;
+        public String bio;
+
+        public Person() {
+        }
+
+        Person(String name, String email, int age, String bio) {
+            this.name = name;
+            this.email = email;
+            this.age = age;
+            this.bio = bio;
+        }
+    }
+
+    public interface NameAndAge {
+        String getName();
+        int getAge();
+
+        default String label() {
+            return getName() + " (" + getAge() + ")";
+        }
+    }
+
+    public interface PersonRepository extends MyCrudRepository<Person, Long> {
+        List<NameAndAge> findByAgeGreaterThanOrderByAgeAsc(int age);
+        Optional<NameAndAge> findByEmail(String email);
+    }
+
+    public interface PagedProjectionRepository extends MyCrudRepository<Person, Long> {
+        Page<NameAndAge> findByAgeGreaterThan(int age, PageRequest page);
+    }
+
+    public interface SlicedProjectionRepository extends MyCrudRepository<Person, Long> {
+        Slice<NameAndAge> findByAgeGreaterThan(int age, PageRequest page);
+    }
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private DataSourceConfig dataSource;
+    private MyRepositoryFactory factory;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:projection_" + RUN.incrementAndGet(), "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE people (id BIGINT AUTO_INCREMENT PRIMARY KEY, name VARCHAR(50), "
+                    + "email VARCHAR(50), age INT, bio VARCHAR(200))");
+        }
+        factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setSqlLogger(new SqlLogger(event -> statements.add(event.getSql())));
+        factory.createRepository(PersonRepository.class).saveAll(List.of(
+                new Person("ann", "ann@x", 30, "long text"),
+                new Person("bob", "bob@x", 18, "more text"),
+                new Person("cid", "cid@x", 45, null)));
+        statements.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void interfaceProjectionSelectsOnlyItsColumns() {
+        PersonRepository people = factory.createRepository(PersonRepository.class);
+
+        List<NameAndAge> adults = people.findByAgeGreaterThanOrderByAgeAsc(20);
+        NameAndAge bob = people.findByEmail("bob@x").orElseThrow();
+
+        assertEquals(List.of("SELECT name, age FROM people WHERE age > ? ORDER BY age ASC",
+                "SELECT name, age FROM people WHERE email = ?"), statements);
+        assertEquals(2, adults.size());
+        assertEquals("ann", adults.get(0).getName());
+        assertEquals(45, adults.get(1).getAge());
+        assertEquals("cid (45)", adults.get(1).label());
+        assertEquals("bob (18)", bob.label());
+        assertTrue(people.findByEmail("zed@x").isEmpty());
+    }
+
+    @Test
+    void recordProjectionSelectsOnlyItsComponents(@TempDir Path sources) throws Exception {
+        assumeTrue(Runtime.version().feature() >= 16, "records need Java 16");
+        // Tests compile for Java 11, so the record and a repository returning it are compiled here, in this package
+        // since Person is only accessible from it
+        ClassLoader loader = compile(sources, "NameEmail",
+                "public record NameEmail(String email, String name) {}",
+                "RecordRepository",
+                "public interface RecordRepository extends com.t2308e.repository.MyCrudRepository<"
+                        + "ProjectionTest.Person, Long> {"
+                        + " java.util.List<NameEmail> findByAgeLessThanOrderByNameAsc(int age); }");
+        @SuppressWarnings("unchecked")
+        Class<? extends MyCrudRepository<Person, Long>> repositoryType =
+                (Class<? extends MyCrudRepository<Person, Long>>) loader.loadClass("com.t2308e.core.RecordRepository");
+        Object repository = factory.createRepository(repositoryType);
+
+        List<?> found = (List<?>) repositoryType.getMethod("findByAgeLessThanOrderByNameAsc", int.class)
+                .invoke(repository, 40);
+
+        assertEquals(List.of("SELECT email, name FROM people WHERE age < ? ORDER BY name ASC"), statements);
+        assertEquals(2, found.size());
+        Object ann = found.get(0);
+        assertEquals(loader.loadClass("com.t2308e.core.NameEmail"), ann.getClass());
+        assertEquals("ann", ann.getClass().getMethod("name").invoke(ann));
+        assertEquals("ann@x", ann.getClass().getMethod("email").invoke(ann));
+        assertEquals("NameEmail[email=bob@x, name=bob]", found.get(1).toString());
+    }
+
+    @Test
+    void pagedQueriesCannotReturnProjections() {
+        for (Class<? extends MyCrudRepository<Person, Long>> repository
+                : List.of(PagedProjectionRepository.class, SlicedProjectionRepository.class)) {
+            MiniOrmException e = assertThrows(MiniOrmException.class, () -> factory.createRepository(repository));
+            assertTrue(e.getMessage().contains("paged queries return entities"), e.getMessage());
+        }
+    }
+
+    /**
+     * Compiles {@code name -> source} pairs into this package under {@code dir} and loads them.
+     */
+    private static ClassLoader compile(Path dir, String... namesAndSources) throws Exception {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeTrue(compiler != null, "no system Java compiler");
+        Path pkg = Files.createDirectories(dir.resolve("com/t2308e/core"));
+        String[] args = new String[4 + namesAndSources.length / 2];
+        args[0] = "-classpath";
+        args[1] = System.getProperty("java.class.path");
+        args[2] = "-d";
+        args[3] = dir.toString();
+        for (int i = 0; i < namesAndSources.length; i += 2) {
+            Path file = pkg.resolve(namesAndSources[i] + ".java");
+            Files.writeString(file, "package com.t2308e.core;\n" + namesAndSources[i + 1]);
+            args[4 + i / 2] = file.toString();
+        }
+        assertEquals(0, compiler.run(null, null, null, args));
+        return new URLClassLoader(new URL[]{dir.toUri().toURL()}, ProjectionTest.class.getClassLoader());
+    }
+}
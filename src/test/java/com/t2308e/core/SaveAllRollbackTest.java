@@ -0,0 +1,86 @@
+package com.t2308e.core;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.entity.User;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * A {@code saveAll} whose later insert chunk fails must leave every new entity without an id, so a retry inserts it.
+ */
+class SaveAllRollbackTest {
+
+    private DataSourceConfig dataSource;
+    private UserRepository users;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:saveall_rollback;DB_CLOSE_DELAY=-1", "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), "
+                    + "email VARCHAR(50) UNIQUE, age INT)");
+        }
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setBatchSize(2);
+        users = factory.createRepository(UserRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE users");
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void failedChunkResetsIdsOfEarlierChunks() {
+        User a = new User("a", "a@x", 1);
+        User b = new User("b", "b@x", 2);
+        User c = new User("c", "c@x", 3);
+        User duplicate = new User("a2", "a@x", 4);
+
+        assertThrows(MiniOrmException.class, () -> users.saveAll(List.of(a, b, c, duplicate)));
+
+        assertEquals(0, users.count());
+        assertNull(a.getId());
+        assertNull(b.getId());
+        assertNull(c.getId());
+        assertNull(duplicate.getId());
+
+        users.saveAll(List.of(a, b, c));
+        assertEquals(3, users.count());
+        assertEquals("b@x", users.findById(b.getId()).orElseThrow().getEmail());
+    }
+
+    @Test
+    void failedSessionFlushResetsIds() {
+        User a = new User("a", "a@x", 1);
+        User b = new User("b", "b@x", 2);
+        User duplicate = new User("a2", "a@x", 3);
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setBatchSize(2);
+        try (Session session = factory.openSession()) {
+            session.persist(a);
+            session.persist(b);
+            session.persist(duplicate);
+            assertThrows(MiniOrmException.class, session::flush);
+        }
+        assertNull(a.getId());
+        assertNull(b.getId());
+        assertEquals(0, users.count());
+    }
+}
@@ -0,0 +1,166 @@
+package com.t2308e.core;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.entity.User;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.logging.SqlLogger;
+import com.t2308e.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Identity map and flush of a {@link Session}.
+ */
+class SessionTest {
+
+    private final List<String> statements = new CopyOnWriteArrayList<>();
+    private DataSourceConfig dataSource;
+    private MyRepositoryFactory factory;
+    private UserRepository users;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:session;DB_CLOSE_DELAY=-1", "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), "
+                    + "email VARCHAR(50), age INT)");
+        }
+        factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings()
+                .setCacheProvider(null)
+                .setSqlLogger(new SqlLogger(event -> statements.add(event.getSql())));
+        users = factory.createRepository(UserRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP TABLE users");
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void sameIdReturnsSameInstanceWithOneQuery() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        statements.clear();
+
+        try (Session session = factory.openSession()) {
+            User first = session.find(User.class, id).orElseThrow();
+            User second = session.find(User.class, id).orElseThrow();
+            User byIntId = session.find(User.class, id.intValue()).orElseThrow();
+
+            assertSame(first, second);
+            assertSame(first, byIntId);
+            assertTrue(session.contains(first));
+            assertEquals(1, selects());
+        }
+    }
+
+    @Test
+    void findAllReturnsManagedInstancesWithTheirUnflushedChanges() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        users.save(new User("bob", "bob@x", 40));
+
+        try (Session session = factory.openSession()) {
+            User ann = session.find(User.class, id).orElseThrow();
+            ann.setAge(31);
+
+            List<User> all = session.findAll(User.class);
+
+            assertEquals(2, all.size());
+            assertSame(ann, all.stream().filter(u -> u.getId().equals(id)).findFirst().orElseThrow());
+            assertEquals(31, ann.getAge());
+        }
+    }
+
+    @Test
+    void separateSessionsHaveSeparateInstances() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        try (Session a = factory.openSession(); Session b = factory.openSession()) {
+            assertNotSame(a.find(User.class, id).orElseThrow(), b.find(User.class, id).orElseThrow());
+        }
+    }
+
+    @Test
+    void flushWritesChangedColumnsInsertsAndDeletes() {
+        Long annId = users.save(new User("ann", "ann@x", 30)).getId();
+        Long bobId = users.save(new User("bob", "bob@x", 40)).getId();
+        Long cidId = users.save(new User("cid", "cid@x", 50)).getId();
+
+        User dan = new User("dan", "dan@x", 60);
+        try (Session session = factory.openSession()) {
+            session.find(User.class, annId).orElseThrow().setEmail("ann@y");
+            session.find(User.class, bobId).orElseThrow(); // unchanged
+            session.remove(session.find(User.class, cidId).orElseThrow());
+            session.persist(dan);
+            assertTrue(session.find(User.class, cidId).isEmpty());
+            statements.clear();
+
+            session.flush();
+
+            assertEquals(List.of("UPDATE users SET email = ? WHERE id = ?"), updates());
+            assertNotNull(dan.getId());
+            assertSame(dan, session.find(User.class, dan.getId()).orElseThrow());
+
+            statements.clear();
+            session.flush();
+            assertEquals(List.of(), statements);
+        }
+
+        assertEquals("ann@y", users.findById(annId).orElseThrow().getEmail());
+        assertEquals(40, users.findById(bobId).orElseThrow().getAge());
+        assertTrue(users.findById(cidId).isEmpty());
+        assertEquals("dan@x", users.findById(dan.getId()).orElseThrow().getEmail());
+    }
+
+    @Test
+    void closeDiscardsUnflushedChanges() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        User ann;
+        try (Session session = factory.openSession()) {
+            ann = session.find(User.class, id).orElseThrow();
+            ann.setAge(99);
+            session.persist(new User("bob", "bob@x", 40));
+        }
+        assertEquals(30, users.findById(id).orElseThrow().getAge());
+        assertEquals(1, users.count());
+        Session closed = factory.openSession();
+        closed.close();
+        assertThrows(MiniOrmException.class, () -> closed.find(User.class, id));
+    }
+
+    @Test
+    void secondInstanceWithManagedIdIsRejected() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        try (Session session = factory.openSession()) {
+            session.find(User.class, id).orElseThrow();
+            User copy = users.findById(id).orElseThrow();
+            assertThrows(MiniOrmException.class, () -> session.persist(copy));
+        }
+    }
+
+    private long selects() {
+        return statements.stream().filter(sql -> sql.startsWith("SELECT")).count();
+    }
+
+    private List<String> updates() {
+        return statements.stream().filter(sql -> sql.startsWith("UPDATE")).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,267 @@
+package com.t2308e.core;
+
+import com.t2308e.annotations.MyColumn;
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.annotations.MyId;
+import com.t2308e.annotations.MyShardKey;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.config.ShardingConfig;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.MyCrudRepository;
+import com.t2308e.repository.PageRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Sharded repositories over several in-memory H2 databases.
+ */
+class ShardedRepositoryTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+
+    @MyEntity(tableName = "orders", cacheable = true)
+    public static class Order {
+        @MyId
+        public Long id;
+        @MyShardKey
+        @MyColumn(name = "customer_id")
+        public long customerId;
+        public String item;
+
+        public Order() {
+        }
+
+        Order(long customerId, String item) {
+            this.customerId = customerId;
+            this.item = item;
+        }
+    }
+
+    public interface OrderRepository extends MyCrudRepository<Order, Long> {
+        List<Order> findByCustomerId(long customerId);
+        List<Order> findByCustomerIdOrderByIdAsc(long customerId);
+        List<Order> findByItem(String item);
+        long countByItem(String item);
+        List<Order> findByItemOrderByIdAsc(String item);
+        Optional<Order> findFirstByItemOrderByIdAsc(String item);
+        CompletableFuture<List<Order>> saveAllAsync(Iterable<Order> orders);
+        CompletableFuture<Optional<Order>> findByIdAsync(Long id);
+    }
+
+    @MyEntity(tableName = "accounts")
+    public static class Account {
+        @MyId
+        public Long id;
+        public String name;
+
+        public Account() {
+        }
+
+        Account(String name) {
+            this.name = name;
+        }
+    }
+
+    public interface AccountRepository extends MyCrudRepository<Account, Long> {
+    }
+
+    @MyEntity(tableName = "tickets")
+    public static class Ticket {
+        @MyId
+        public Integer id;
+        public String name;
+    }
+
+    public interface TicketRepository extends MyCrudRepository<Ticket, Integer> {
+    }
+
+    private final List<DataSourceConfig> shards = new ArrayList<>();
+    private ShardingConfig sharding;
+    private MyRepositoryFactory factory;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        int run = RUN.incrementAndGet();
+        sharding = new ShardingConfig();
+        for (int i = 0; i < 3; i++) {
+            DataSourceConfig shard = new DataSourceConfig("jdbc:h2:mem:sharded_" + run + "_" + i, "sa", "",
+                    "org.h2.Driver", new PoolConfig());
+            try (Connection conn = shard.getConnection(); Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_id BIGINT, item VARCHAR(50))");
+                stmt.execute("CREATE TABLE accounts (id BIGINT PRIMARY KEY, name VARCHAR(50))");
+            }
+            shards.add(shard);
+            sharding.addShard("shard" + i, shard);
+        }
+        factory = new MyRepositoryFactory(shards.get(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        shards.forEach(DataSourceConfig::close);
+    }
+
+    @Test
+    void routesById() throws SQLException {
+        AccountRepository accounts = factory.createShardedRepository(AccountRepository.class, sharding);
+        List<Account> saved = accounts.saveAll(IntStream.range(0, 60).mapToObj(i -> new Account("a" + i))
+                .collect(Collectors.toList()));
+
+        for (Account account : saved) {
+            assertEquals(1, shardsHolding("accounts", "id", account.id));
+            assertEquals(account.name, accounts.findById(account.id).orElseThrow().name);
+        }
+        for (DataSourceConfig shard : shards) {
+            assertTrue(rowCount(shard, "accounts") > 0, "every shard gets some of 60 rows");
+        }
+
+        Account renamed = saved.get(7);
+        renamed.name = "renamed";
+        accounts.save(renamed);
+        assertEquals("renamed", accounts.findById(renamed.id).orElseThrow().name);
+        accounts.deleteById(renamed.id);
+        assertTrue(accounts.findById(renamed.id).isEmpty());
+        assertEquals(59, accounts.count());
+    }
+
+    @Test
+    void routesByShardKey() throws SQLException {
+        OrderRepository orders = factory.createShardedRepository(OrderRepository.class, sharding);
+        for (long customer = 1; customer <= 12; customer++) {
+            for (int i = 0; i < 3; i++) {
+                orders.save(new Order(customer, "item" + i));
+            }
+        }
+
+        for (long customer = 1; customer <= 12; customer++) {
+            assertEquals(1, shardsHolding("orders", "customer_id", customer), "customer " + customer);
+            assertEquals(3, orders.findByCustomerId(customer).size());
+            List<Order> ordered = orders.findByCustomerIdOrderByIdAsc(customer);
+            assertTrue(ordered.get(0).id < ordered.get(1).id && ordered.get(1).id < ordered.get(2).id);
+        }
+    }
+
+    @Test
+    void scattersAndGathersReads() {
+        OrderRepository orders = factory.createShardedRepository(OrderRepository.class, sharding);
+        orders.saveAll(IntStream.range(0, 30).mapToObj(i -> new Order(i, i % 2 == 0 ? "even" : "odd"))
+                .collect(Collectors.toList()));
+
+        assertEquals(30, orders.count());
+        assertEquals(30, orders.findAll().size());
+        try (Stream<Order> stream = orders.streamAll()) {
+            assertEquals(30, stream.count());
+        }
+        assertEquals(15, orders.findByItem("even").size());
+        assertEquals(15, orders.countByItem("odd"));
+        assertTrue(orders.findByItem("none").isEmpty());
+    }
+
+    @Test
+    void rejectsPagedAndOrderedQueriesWithoutShardKey() {
+        OrderRepository orders = factory.createShardedRepository(OrderRepository.class, sharding);
+        orders.save(new Order(1, "book"));
+
+        assertThrows(MiniOrmException.class, () -> orders.findAll(PageRequest.of(0, 10)));
+        assertThrows(MiniOrmException.class, () -> orders.findPage(PageRequest.of(0, 10)));
+        assertThrows(MiniOrmException.class, () -> orders.findByItemOrderByIdAsc("book"));
+        assertThrows(MiniOrmException.class, () -> orders.findFirstByItemOrderByIdAsc("book"));
+        assertThrows(MiniOrmException.class, () -> orders.bulkInsert(Stream.of(new Order(2, "pen"))));
+        assertFalse(orders.findByCustomerIdOrderByIdAsc(1).isEmpty());
+    }
+
+    @Test
+    void findByIdOfCacheableShardKeyedEntityAnswersFromCacheOnce() {
+        OrderRepository orders = factory.createShardedRepository(OrderRepository.class, sharding);
+        Order order = orders.save(new Order(42, "book"));
+
+        // the first call fills the cache every shard handler shares; the second must not find it on every shard
+        assertEquals("book", orders.findById(order.id).orElseThrow().item);
+        assertEquals("book", orders.findById(order.id).orElseThrow().item);
+        assertTrue(factory.getCacheStats(Order.class).orElseThrow().getHits() >= 1);
+        assertTrue(orders.findById(order.id + 1).isEmpty());
+    }
+
+    @Test
+    void concurrentAsyncWritesComplete() throws Exception {
+        // with one scatter thread per shard, async writes queued behind each other must not wait on that executor
+        OrderRepository orders = factory.createShardedRepository(OrderRepository.class,
+                new ShardingConfig().addShard("shard0", shards.get(0)).addShard("shard1", shards.get(1)));
+        List<CompletableFuture<List<Order>>> saves = new ArrayList<>();
+        for (int call = 0; call < 8; call++) {
+            int base = call * 10;
+            saves.add(orders.saveAllAsync(IntStream.range(base, base + 10).mapToObj(i -> new Order(i, "async"))
+                    .collect(Collectors.toList())));
+        }
+        CompletableFuture.allOf(saves.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        assertEquals(80, orders.countByItem("async"));
+
+        List<CompletableFuture<Optional<Order>>> finds = new ArrayList<>();
+        for (CompletableFuture<List<Order>> save : saves) {
+            save.join().forEach(order -> finds.add(orders.findByIdAsync(order.id)));
+        }
+        CompletableFuture.allOf(finds.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+        finds.forEach(find -> assertTrue(find.join().isPresent()));
+    }
+
+    @Test
+    void defaultSnowflakeIdsNeedLongIdField() {
+        MiniOrmException e = assertThrows(MiniOrmException.class,
+                () -> factory.createShardedRepository(TicketRepository.class, sharding));
+        assertTrue(e.getMessage().contains("Long id field"), e.getMessage());
+
+        // a configured generator is used as it is
+        AtomicInteger next = new AtomicInteger();
+        sharding.setIdGenerator(next::incrementAndGet);
+        assertDoesNotThrow(() -> factory.createShardedRepository(TicketRepository.class, sharding));
+    }
+
+    /**
+     * How many shards have a row with {@code column = value}.
+     */
+    private int shardsHolding(String table, String column, long value) throws SQLException {
+        int holding = 0;
+        for (DataSourceConfig shard : shards) {
+            try (Connection conn = shard.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM " + table + " WHERE " + column + " = ?")) {
+                stmt.setLong(1, value);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    holding += rs.getLong(1) > 0 ? 1 : 0;
+                }
+            }
+        }
+        return holding;
+    }
+
+    private static long rowCount(DataSourceConfig shard, String table) throws SQLException {
+        try (Connection conn = shard.getConnection(); Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+}
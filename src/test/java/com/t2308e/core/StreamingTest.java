@@ -0,0 +1,176 @@
+package com.t2308e.core;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.config.PoolStats;
+import com.t2308e.entity.User;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.CloseableIterator;
+import com.t2308e.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@code streamAll} and {@code iterateAll} over a pool of a single connection: a cursor that kept its connection
+ * would make the next borrow time out.
+ */
+class StreamingTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+    private static final int FETCH_SIZE = 37;
+
+    private final List<Integer> fetchSizes = new CopyOnWriteArrayList<>();
+    private DataSourceConfig dataSource;
+    private UserRepository users;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:streaming_" + RUN.incrementAndGet(), "sa", "",
+                "org.h2.Driver", new PoolConfig().setMinIdle(0).setMaxSize(1).setAcquireTimeoutMillis(200)) {
+            @Override
+            public Connection getReadConnection() throws SQLException {
+                return recordingFetchSizes(super.getReadConnection());
+            }
+        };
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            // VARCHAR so a row can hold an age that does not map to the int field
+            stmt.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), "
+                    + "email VARCHAR(50), age VARCHAR(10))");
+        }
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setCacheProvider(null).setFetchSize(FETCH_SIZE);
+        users = factory.createRepository(UserRepository.class);
+        for (User user : List.of(new User("ann", "ann@x", 30), new User("bob", "bob@x", 40),
+                new User("cid", "cid@x", 50))) {
+            users.save(user); // one by one: saveAll matches read-back rows to entities, which the VARCHAR age breaks
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void closingPartlyReadStreamReturnsTheConnection() throws SQLException {
+        try (Stream<User> stream = users.streamAll()) {
+            assertEquals("ann", stream.findFirst().orElseThrow().getUserName());
+            assertEquals(1, pool().getActive());
+        }
+
+        assertReturnedWithAutoCommit();
+        assertEquals(List.of(FETCH_SIZE), fetchSizes);
+    }
+
+    @Test
+    void exhaustedIteratorReturnsTheConnectionBeforeClose() throws SQLException {
+        CloseableIterator<User> iterator = users.iterateAll();
+        assertEquals(1, pool().getActive());
+        List<String> names = new ArrayList<>();
+        iterator.forEachRemaining(user -> names.add(user.getUserName()));
+
+        assertEquals(List.of("ann", "bob", "cid"), names);
+        assertReturnedWithAutoCommit();
+        assertFalse(iterator.hasNext());
+        iterator.close(); // still allowed
+        assertEquals(List.of(FETCH_SIZE), fetchSizes);
+    }
+
+    @Test
+    void failureWhileIteratingReturnsTheConnection() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO users (user_name, email, age) VALUES ('old', 'old@x', 'very')");
+        }
+
+        // the cursor closes itself when a row cannot be mapped, even if the caller never closes it
+        Iterator<User> iterator = users.iterateAll();
+        MiniOrmException e = assertThrows(MiniOrmException.class, () -> {
+            while (iterator.hasNext()) {
+                iterator.next();
+            }
+        });
+        assertTrue(e.getCause() instanceof SQLException, String.valueOf(e.getCause()));
+        assertFalse(iterator.hasNext());
+        assertReturnedWithAutoCommit();
+
+        // an exception from the stream's own pipeline leaves closing to try-with-resources
+        IllegalStateException failure = new IllegalStateException("consumer failed");
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> {
+            try (Stream<User> stream = users.streamAll()) {
+                stream.forEach(user -> {
+                    throw failure;
+                });
+            }
+        });
+        assertSame(failure, thrown);
+        assertReturnedWithAutoCommit();
+        assertEquals(List.of(FETCH_SIZE, FETCH_SIZE), fetchSizes);
+    }
+
+    private PoolStats pool() {
+        return dataSource.getPoolStats().orElseThrow();
+    }
+
+    private void assertReturnedWithAutoCommit() throws SQLException {
+        assertEquals(0, pool().getActive());
+        assertEquals(1, pool().getIdle());
+        try (Connection conn = dataSource.getConnection()) {
+            assertTrue(conn.getAutoCommit());
+        }
+        assertTrue(users.existsByEmail("ann@x")); // and the pool can still lend it out
+    }
+
+    /**
+     * {@code conn} with its statement cache hidden, so statements are prepared through it and their
+     * {@code setFetchSize} calls can be recorded.
+     */
+    private Connection recordingFetchSizes(Connection conn) {
+        return (Connection) Proxy.newProxyInstance(StreamingTest.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("isWrapperFor")) {
+                        return false;
+                    }
+                    Object result = invoke(method, conn, args);
+                    if (result instanceof PreparedStatement) {
+                        PreparedStatement stmt = (PreparedStatement) result;
+                        return Proxy.newProxyInstance(StreamingTest.class.getClassLoader(),
+                                new Class<?>[]{PreparedStatement.class}, (p, m, a) -> {
+                                    if (m.getName().equals("setFetchSize")) {
+                                        fetchSizes.add((Integer) a[0]);
+                                    }
+                                    return invoke(m, stmt, a);
+                                });
+                    }
+                    return result;
+                });
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package com.t2308e.dialect;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs each dialect's SQL against H2 in the matching compatibility mode ({@code MODE=}). H2 emulates only part of
+ * each database, so a dialect is checked for the statements its mode accepts: Oracle's {@code MERGE ... USING
+ * (SELECT ? AS id ... FROM DUAL)} fails because H2 cannot type a bare parameter in a select list, the PostgreSQL
+ * mode has neither {@code ON CONFLICT DO UPDATE} nor {@code RETURNING}, and the MySQL mode lacks MariaDB's
+ * {@code NEXTVAL(seq)}.
+ */
+class DialectTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+    private static final List<String> COLUMNS = List.of("name", "qty");
+
+    private Connection conn;
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        if (conn != null) {
+            conn.close();
+        }
+    }
+
+    @Test
+    void h2() throws SQLException {
+        Dialect dialect = new H2Dialect(true);
+        open(null);
+        assertInsertReturning(dialect);
+        assertUpsert(dialect);
+        assertPaging(dialect);
+        assertSequence(dialect);
+    }
+
+    @Test
+    void standardOnH2() throws SQLException {
+        Dialect dialect = new StandardDialect();
+        open(null);
+        assertUpsert(dialect);
+        assertNull(dialect.insertReturningSql("items", "id", COLUMNS, 2));
+        assertPaging(dialect);
+        assertSequence(dialect);
+    }
+
+    @Test
+    void sqlServerOnSqlServerMode() throws SQLException {
+        Dialect dialect = new SqlServerDialect();
+        open("MSSQLServer");
+        assertUpsert(dialect);
+        assertPaging(dialect);
+        assertSequence(dialect);
+        // H2 accepts FETCH FIRST in every mode; T-SQL only takes FETCH after ORDER BY ... OFFSET
+        assertEquals(" ORDER BY (SELECT NULL) OFFSET 0 ROWS FETCH NEXT 3 ROWS ONLY", dialect.limit(3, false));
+        assertEquals(" OFFSET 0 ROWS FETCH NEXT ? ROWS ONLY", dialect.pageClause(false));
+        assertTrue(dialect.upsertSql("items", "id", COLUMNS, 1).endsWith(";"));
+    }
+
+    @Test
+    void mySqlOnMySqlMode() throws SQLException {
+        Dialect dialect = new MySqlDialect();
+        open("MySQL");
+        assertUpsert(dialect);
+        assertNull(dialect.insertReturningSql("items", "id", COLUMNS, 2));
+        assertPaging(dialect);
+    }
+
+    @Test
+    void oracleOnOracleMode() throws SQLException {
+        Dialect dialect = new OracleDialect();
+        open("Oracle");
+        assertPaging(dialect);
+        assertSequence(dialect);
+    }
+
+    @Test
+    void postgreSqlOnPostgreSqlMode() throws SQLException {
+        Dialect dialect = new PostgreSqlDialect();
+        open("PostgreSQL");
+        assertPaging(dialect);
+        assertSequence(dialect);
+    }
+
+    private void open(String mode) throws SQLException {
+        conn = DriverManager.getConnection("jdbc:h2:mem:dialect_" + RUN.incrementAndGet()
+                + (mode == null ? "" : ";MODE=" + mode), "sa", "");
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE items (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, "
+                    + "name VARCHAR(50), qty INT)");
+            stmt.execute("CREATE TABLE tags (id BIGINT PRIMARY KEY)");
+            stmt.execute("CREATE SEQUENCE items_seq");
+        }
+    }
+
+    /**
+     * Inserts ids 101 and 102, then upserts 102 and 103: row 102 must be updated in place and row 103 added.
+     */
+    private void assertUpsert(Dialect dialect) throws SQLException {
+        upsert(dialect, "items", COLUMNS, new Object[][]{{101L, "a", 1}, {102L, "b", 2}});
+        assertEquals(List.of("101:a:1", "102:b:2"), rows());
+        upsert(dialect, "items", COLUMNS, new Object[][]{{102L, "b2", 20}, {103L, "c", 3}});
+        assertEquals(List.of("101:a:1", "102:b2:20", "103:c:3"), rows());
+
+        // a table with nothing but the id: existing rows are kept, new ones added
+        upsert(dialect, "tags", List.of(), new Object[][]{{1L}, {2L}});
+        upsert(dialect, "tags", List.of(), new Object[][]{{2L}, {3L}});
+        List<Long> tags = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id FROM tags ORDER BY id")) {
+            while (rs.next()) {
+                tags.add(rs.getLong(1));
+            }
+        }
+        assertEquals(List.of(1L, 2L, 3L), tags);
+    }
+
+    private void upsert(Dialect dialect, String table, List<String> columns, Object[][] rows) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(dialect.upsertSql(table, "id", columns, rows.length))) {
+            bind(stmt, rows);
+            stmt.executeUpdate();
+        }
+    }
+
+    private void assertInsertReturning(Dialect dialect) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(dialect.insertReturningSql("items", "id", COLUMNS, 2))) {
+            bind(stmt, new Object[][]{{"x", 7}, {"y", 8}});
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        assertEquals(2, ids.size());
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT name FROM items WHERE id = ?")) {
+            for (int i = 0; i < ids.size(); i++) {
+                stmt.setLong(1, ids.get(i));
+                try (ResultSet rs = stmt.executeQuery()) {
+                    rs.next();
+                    assertEquals(i == 0 ? "x" : "y", rs.getString(1), "ids come back in row order");
+                }
+            }
+        }
+    }
+
+    private void assertPaging(Dialect dialect) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO items (id, name, qty) VALUES (11, 'p1', 1), (12, 'p2', 2), (13, 'p3', 3), "
+                    + "(14, 'p4', 4), (15, 'p5', 5)");
+        }
+        String unordered = "SELECT id FROM items WHERE id BETWEEN 11 AND 15";
+        assertEquals(3, ids(unordered + dialect.limit(3, false), dialect, -1, 0, false).size());
+        String query = unordered + " ORDER BY id";
+        assertEquals(List.of(11L, 12L, 13L), ids(query + dialect.limit(3, true), dialect, -1, 0, false));
+        assertEquals(List.of(11L, 12L), ids(query + dialect.pageClause(false), dialect, 2, 0, false));
+        assertEquals(List.of(13L, 14L), ids(query + dialect.pageClause(true), dialect, 2, 2, true));
+        assertEquals(List.of(15L), ids(query + dialect.pageClause(true), dialect, 2, 4, true));
+    }
+
+    private List<Long> ids(String sql, Dialect dialect, int limit, long offset, boolean withOffset) throws SQLException {
+        List<Long> ids = new ArrayList<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            if (limit >= 0) {
+                assertEquals(withOffset ? 3 : 2, dialect.bindPage(stmt, 1, limit, offset, withOffset));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    ids.add(rs.getLong(1));
+                }
+            }
+        }
+        return ids;
+    }
+
+    private void assertSequence(Dialect dialect) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (long expected = 1; expected <= 2; expected++) {
+                try (ResultSet rs = stmt.executeQuery(dialect.sequenceNextValueSql("items_seq"))) {
+                    rs.next();
+                    assertEquals(expected, rs.getLong(1));
+                }
+            }
+        }
+    }
+
+    private List<String> rows() throws SQLException {
+        List<String> rows = new ArrayList<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name, qty FROM items WHERE id > 100 ORDER BY id")) {
+            while (rs.next()) {
+                rows.add(rs.getLong(1) + ":" + rs.getString(2) + ":" + rs.getInt(3));
+            }
+        }
+        return rows;
+    }
+
+    private static void bind(PreparedStatement stmt, Object[][] rows) throws SQLException {
+        int position = 1;
+        for (Object[] row : rows) {
+            for (Object value : row) {
+                stmt.setObject(position++, value);
+            }
+        }
+    }
+}
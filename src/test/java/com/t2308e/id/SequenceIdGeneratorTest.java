@@ -0,0 +1,120 @@
+package com.t2308e.id;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.dialect.H2Dialect;
+import com.t2308e.transaction.ConnectionSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Hi-lo blocks read from an H2 sequence.
+ */
+class SequenceIdGeneratorTest {
+
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 500;
+
+    private final AtomicInteger sequenceCalls = new AtomicInteger();
+    private DataSourceConfig dataSource;
+    private ConnectionSource counting;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:sequence_ids;DB_CLOSE_DELAY=-1", "sa", "", "org.h2.Driver",
+                new PoolConfig());
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE SEQUENCE ids_seq START WITH 1");
+            stmt.execute("CREATE SEQUENCE zero_seq START WITH 0 MINVALUE 0");
+        }
+        counting = () -> {
+            sequenceCalls.incrementAndGet();
+            return dataSource.getConnection();
+        };
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP SEQUENCE ids_seq");
+            stmt.execute("DROP SEQUENCE zero_seq");
+        }
+        dataSource.close();
+    }
+
+    @Test
+    void threadsShareBlocksWithoutDuplicatesOrGaps() throws Exception {
+        SequenceIdGenerator generator = generator("ids_seq", 50);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    List<Long> ids = new ArrayList<>();
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids.add(generator.nextId());
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+            TreeSet<Long> all = new TreeSet<>();
+            for (Future<List<Long>> future : futures) {
+                all.addAll(future.get());
+            }
+
+            int total = THREADS * IDS_PER_THREAD;
+            assertEquals(total, all.size());
+            // blocks are used up before the next is fetched, so the ids are one contiguous range
+            assertEquals(50L, all.first());
+            assertEquals(50L + total - 1, all.last());
+            assertEquals(total / 50, sequenceCalls.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void blockOfSequenceValueZeroSkipsIdZero() {
+        SequenceIdGenerator generator = generator("zero_seq", 10);
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            ids.add(generator.nextId());
+        }
+
+        assertEquals(1L, ids.get(0));
+        assertEquals(9L, ids.get(8));
+        assertEquals(10L, ids.get(9));
+        assertEquals(12, new TreeSet<>(ids).size());
+        assertEquals(2, sequenceCalls.get());
+        assertEquals(ids, sorted(ids));
+    }
+
+    private SequenceIdGenerator generator(String sequence, int allocationSize) {
+        return new SequenceIdGenerator(counting, new H2Dialect(true).sequenceNextValueSql(sequence), allocationSize);
+    }
+
+    private static List<Long> sorted(List<Long> ids) {
+        List<Long> copy = new ArrayList<>(ids);
+        Collections.sort(copy);
+        return copy;
+    }
+}
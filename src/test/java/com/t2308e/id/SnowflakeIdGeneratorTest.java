@@ -0,0 +1,104 @@
+package com.t2308e.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Snowflake ids against a clock the test controls.
+ */
+class SnowflakeIdGeneratorTest {
+
+    private static final long NOW = SnowflakeIdGenerator.EPOCH_MILLIS + 1_000_000L;
+
+    @Test
+    void idsEncodeTimestampAndWorker() {
+        long id = new SnowflakeIdGenerator(42, () -> NOW).nextId();
+
+        assertEquals(NOW, SnowflakeIdGenerator.timestampOf(id));
+        assertEquals(42, SnowflakeIdGenerator.workerIdOf(id));
+        assertNotEquals(id, (long) new SnowflakeIdGenerator(43, () -> NOW).nextId());
+    }
+
+    @Test
+    void fullSequenceOverflowsIntoNextMillisecond() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, () -> NOW);
+
+        long previous = generator.nextId();
+        for (int i = 1; i < 5000; i++) {
+            long id = generator.nextId();
+            assertTrue(id > previous, "ids must increase");
+            previous = id;
+        }
+        // 4096 ids per millisecond
+        assertEquals(NOW + 1, SnowflakeIdGenerator.timestampOf(previous));
+        assertEquals(1, SnowflakeIdGenerator.workerIdOf(previous));
+    }
+
+    @Test
+    void clockMovingBackwardsKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(NOW);
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7, clock::get);
+
+        long before = generator.nextId();
+        clock.set(NOW - 5_000);
+        long during = generator.nextId();
+        long during2 = generator.nextId();
+        clock.set(NOW + 10);
+        long after = generator.nextId();
+
+        assertTrue(during > before);
+        assertTrue(during2 > during);
+        assertEquals(NOW, SnowflakeIdGenerator.timestampOf(during)); // carries on from the last timestamp used
+        assertTrue(after > during2);
+        assertEquals(NOW + 10, SnowflakeIdGenerator.timestampOf(after));
+    }
+
+    @Test
+    void concurrentIdsAreUnique() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(3);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<List<Long>>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    List<Long> ids = new ArrayList<>();
+                    long previous = Long.MIN_VALUE;
+                    for (int i = 0; i < 20_000; i++) {
+                        long id = generator.nextId();
+                        assertTrue(id > previous, "ids seen by one thread must increase");
+                        previous = id;
+                        ids.add(id);
+                    }
+                    return ids;
+                }));
+            }
+            Set<Long> all = new HashSet<>();
+            for (Future<List<Long>> future : futures) {
+                all.addAll(future.get());
+            }
+            assertEquals(80_000, all.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void workerIdOutOfRangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_WORKER_ID + 1));
+    }
+}
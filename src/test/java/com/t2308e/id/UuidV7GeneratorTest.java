@@ -0,0 +1,67 @@
+package com.t2308e.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Layout and ordering of version 7 UUIDs.
+ */
+class UuidV7GeneratorTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+
+    @Test
+    void versionVariantAndTimestamp() {
+        UUID uuid = new UuidV7Generator(() -> NOW).nextId();
+
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant()); // RFC 9562 variant, 0b10
+        assertEquals(NOW, UuidV7Generator.timestampOf(uuid));
+    }
+
+    @Test
+    void idsIncreaseWithinAndAcrossMilliseconds() {
+        AtomicLong clock = new AtomicLong(NOW);
+        UuidV7Generator generator = new UuidV7Generator(clock::get);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 3_000 == 0) {
+                clock.addAndGet(1);
+            }
+            ids.add(generator.nextId());
+        }
+        for (int i = 1; i < ids.size(); i++) {
+            UUID previous = ids.get(i - 1);
+            UUID current = ids.get(i);
+            assertTrue(current.compareTo(previous) > 0, previous + " then " + current);
+            // the text form sorts the same way, as databases storing it as a string see it
+            assertTrue(current.toString().compareTo(previous.toString()) > 0, previous + " then " + current);
+            assertEquals(7, current.version());
+            assertEquals(2, current.variant());
+        }
+    }
+
+    @Test
+    void clockMovingBackwardsKeepsIdsIncreasing() {
+        AtomicLong clock = new AtomicLong(NOW);
+        UuidV7Generator generator = new UuidV7Generator(clock::get);
+
+        UUID before = generator.nextId();
+        clock.set(NOW - 60_000);
+        UUID during = generator.nextId();
+        clock.set(NOW + 1);
+        UUID after = generator.nextId();
+
+        assertTrue(during.compareTo(before) > 0);
+        assertEquals(NOW, UuidV7Generator.timestampOf(during));
+        assertTrue(after.compareTo(during) > 0);
+        assertEquals(NOW + 1, UuidV7Generator.timestampOf(after));
+    }
+}
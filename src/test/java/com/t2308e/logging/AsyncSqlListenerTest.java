@@ -0,0 +1,102 @@
+package com.t2308e.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.LogRecord;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Ring buffer between statement threads and the listener thread of an {@link AsyncSqlListener}.
+ */
+class AsyncSqlListenerTest {
+
+    private final List<SqlEvent> delivered = new CopyOnWriteArrayList<>();
+
+    @Test
+    void fullBufferDropsNewEventsInsteadOfBlocking() throws InterruptedException {
+        CountDownLatch firstTaken = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncSqlListener async = new AsyncSqlListener(event -> {
+            if (event.getSql().equals("SELECT 0")) {
+                firstTaken.countDown();
+                await(release);
+            }
+            delivered.add(event);
+        }, 4);
+
+        async.onStatement(event("SELECT 0"));
+        assertTrue(firstTaken.await(5, TimeUnit.SECONDS));
+        // the consumer is stuck in the first event, so four slots are free
+        for (int i = 1; i <= 6; i++) {
+            async.onStatement(event("SELECT " + i));
+        }
+        assertEquals(2, async.getDroppedCount());
+
+        release.countDown();
+        async.close();
+        assertEquals(List.of("SELECT 0", "SELECT 1", "SELECT 2", "SELECT 3", "SELECT 4"),
+                SqlLoggerTest.sqlOf(delivered));
+    }
+
+    @Test
+    void closeDeliversEverythingPublishedBeforeIt() {
+        AsyncSqlListener async = new AsyncSqlListener(delivered::add, 1024);
+        List<String> sql = IntStream.range(0, 500).mapToObj(i -> "SELECT " + i).collect(Collectors.toList());
+
+        sql.forEach(s -> async.onStatement(event(s)));
+        async.close();
+
+        assertEquals(sql, SqlLoggerTest.sqlOf(delivered));
+        assertEquals(0, async.getDroppedCount());
+    }
+
+    @Test
+    void eventsAfterCloseAreDropped() {
+        AsyncSqlListener async = new AsyncSqlListener(delivered::add, 16);
+        async.close();
+
+        async.onStatement(event("SELECT 1"));
+
+        assertEquals(1, async.getDroppedCount());
+        assertEquals(List.of(), delivered);
+    }
+
+    @Test
+    void failingDelegateIsLoggedAndLaterEventsStillArrive() {
+        List<LogRecord> warnings = SqlLoggerTest.captureWarnings(AsyncSqlListener.class);
+        AsyncSqlListener async = new AsyncSqlListener(event -> {
+            if (event.getSql().equals("bad")) {
+                throw new IllegalStateException("listener down");
+            }
+            delivered.add(event);
+        }, 16);
+
+        async.onStatement(event("bad"));
+        async.onStatement(event("good"));
+        async.close();
+
+        assertEquals(List.of("good"), SqlLoggerTest.sqlOf(delivered));
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).getThrown() instanceof IllegalStateException);
+    }
+
+    private static SqlEvent event(String sql) {
+        return new SqlEvent(sql, List.of(), 1, 0L, false);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.t2308e.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Which statements a {@link SqlLogger} reports, and what it reports of their parameters.
+ */
+class SqlLoggerTest {
+
+    private static final long SLOW_START_OFFSET = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final List<SqlEvent> events = new CopyOnWriteArrayList<>();
+
+    @Test
+    void sampleRateDecidesShareOfReportedStatements() {
+        SqlLogger all = new SqlLogger(events::add);
+        logTimes(all, 100);
+        assertEquals(100, events.size());
+
+        events.clear();
+        logTimes(new SqlLogger(events::add).setSampleRate(0.0), 100);
+        assertEquals(0, events.size());
+
+        events.clear();
+        logTimes(new SqlLogger(events::add).setSampleRate(0.5), 4000);
+        assertTrue(events.size() > 1600 && events.size() < 2400, "sampled " + events.size() + " of 4000");
+    }
+
+    @Test
+    void slowStatementsAreReportedEvenWhenNotSampled() {
+        SqlLogger logger = new SqlLogger(events::add).setSampleRate(0.0).setSlowQueryThresholdMillis(50);
+
+        logger.log("SELECT fast", logger.start(), null, null);
+        logger.log("SELECT slow", System.nanoTime() - SLOW_START_OFFSET, null, null);
+        logger.logBatch("INSERT slow", System.nanoTime() - SLOW_START_OFFSET, 20);
+
+        assertEquals(List.of("SELECT slow", "INSERT slow"), sqlOf(events));
+        assertTrue(events.get(0).isSlow());
+        assertTrue(events.get(0).getElapsedNanos() >= SLOW_START_OFFSET);
+        assertEquals(20, events.get(1).getBatchSize());
+    }
+
+    @Test
+    void sampledStatementsUnderThresholdAreNotFlaggedSlow() {
+        SqlLogger logger = new SqlLogger(events::add).setSlowQueryThresholdMillis(60_000);
+
+        logger.log("SELECT 1", logger.start(), null, null);
+
+        assertEquals(1, events.size());
+        assertFalse(events.get(0).isSlow());
+    }
+
+    @Test
+    void parametersAreOnlyCapturedWhenEnabledAndPassThroughRedactor() {
+        List<String> columns = Arrays.asList("user_name", "email", null);
+        Object[] values = {"ann", "ann@x", "secret"};
+        SqlLogger logger = new SqlLogger(events::add);
+
+        logger.log("SELECT 1", logger.start(), columns, values);
+        assertEquals(List.of(), events.get(0).getParameters());
+
+        logger.setLogParameters(true);
+        logger.log("SELECT 1", logger.start(), columns, values);
+        assertEquals(List.of("ann", "ann@x", "secret"), events.get(1).getParameters());
+
+        logger.setRedactor(ParameterRedactor.columns("EMAIL"));
+        logger.log("SELECT 1", logger.start(), columns, values);
+        assertEquals(List.of("ann", ParameterRedactor.MASK, "secret"), events.get(2).getParameters());
+
+        logger.setRedactor(ParameterRedactor.ALL);
+        logger.log("SELECT 1", logger.start(), columns, new Object[]{"ann", null, "secret"});
+        assertEquals(Arrays.asList(ParameterRedactor.MASK, null, ParameterRedactor.MASK), events.get(3).getParameters());
+        assertEquals("ann", values[0]); // the bound values themselves are left alone
+
+        logger.logBatch("INSERT 1", logger.start(), 5);
+        assertEquals(List.of(), events.get(4).getParameters());
+    }
+
+    @Test
+    void disabledLoggerDoesNotReadTheClock() {
+        SqlLogger disabled = SqlLogger.disabled();
+
+        assertFalse(disabled.isEnabled());
+        assertEquals(0L, disabled.start());
+        disabled.log("SELECT 1", 0L, null, null);
+    }
+
+    @Test
+    void failingListenerIsLoggedAndDoesNotThrow() {
+        List<LogRecord> warnings = captureWarnings(SqlLogger.class);
+        SqlLogger logger = new SqlLogger(event -> {
+            throw new IllegalStateException("listener down");
+        });
+
+        logger.log("SELECT 1", logger.start(), null, null);
+
+        assertEquals(1, warnings.size());
+        assertTrue(warnings.get(0).getThrown() instanceof IllegalStateException);
+    }
+
+    private static void logTimes(SqlLogger logger, int times) {
+        for (int i = 0; i < times; i++) {
+            logger.log("SELECT " + i, logger.start(), null, null);
+        }
+    }
+
+    static List<String> sqlOf(List<SqlEvent> events) {
+        return events.stream().map(SqlEvent::getSql).collect(Collectors.toList());
+    }
+
+    static List<LogRecord> captureWarnings(Class<?> source) {
+        List<LogRecord> records = new CopyOnWriteArrayList<>();
+        Logger logger = Logger.getLogger(source.getName());
+        for (Handler handler : logger.getHandlers()) {
+            logger.removeHandler(handler);
+        }
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.WARNING) {
+                    records.add(record);
+                }
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        return records;
+    }
+}
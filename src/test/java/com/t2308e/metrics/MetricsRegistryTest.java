@@ -0,0 +1,179 @@
+package com.t2308e.metrics;
+
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.config.PoolStats;
+import com.t2308e.core.MyRepositoryFactory;
+import com.t2308e.entity.User;
+import com.t2308e.repository.MyCrudRepository;
+import com.t2308e.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Counters reported by a factory's {@link MetricsRegistry}, directly and over JMX.
+ */
+class MetricsRegistryTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+
+    public interface OtherUserRepository extends MyCrudRepository<User, Long> {
+    }
+
+    private DataSourceConfig dataSource;
+    private MyRepositoryFactory factory;
+    private MetricsRegistry metrics;
+    private UserRepository users;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        dataSource = new DataSourceConfig("jdbc:h2:mem:metrics_" + RUN.incrementAndGet(), "sa", "", "org.h2.Driver",
+                new PoolConfig().setMinIdle(0).setMaxSize(2));
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), "
+                    + "email VARCHAR(50), age INT)");
+        }
+        factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setCacheProvider(null).setBatchSize(2);
+        metrics = factory.getMetrics();
+        users = factory.createRepository(UserRepository.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        metrics.unregisterMBeans();
+        dataSource.close();
+    }
+
+    @Test
+    void snapshotCountsRowsBatchesAndStatementCacheUse() {
+        List<User> saved = users.saveAll(List.of(new User("ann", "ann@x", 30), new User("bob", "bob@x", 40),
+                new User("cid", "cid@x", 50), new User("dan", "dan@x", 60), new User("eve", "eve@x", 70)));
+        assertEquals(3, users.findByAgeBetween(35, 65).size());
+        users.findById(saved.get(0).getId()).orElseThrow();
+        users.findById(saved.get(1).getId()).orElseThrow();
+        users.findById(-1L);
+
+        RepositoryMetricsSnapshot snapshot = metrics.find(UserRepository.class).orElseThrow().snapshot();
+
+        assertEquals(List.of(snapshot.getRepository()), names(metrics.snapshot()));
+        assertEquals("UserRepository", snapshot.getRepository());
+        assertEquals("User", snapshot.getEntity());
+        assertEquals(5, snapshot.getRowsWritten());
+        assertEquals(3 + 2, snapshot.getRowsRead());
+        Map<String, MethodMetricsSnapshot> methods = metrics.find(UserRepository.class).orElseThrow().getMethods();
+        assertEquals(3, methods.get("findById").getCalls());
+        assertEquals(2, methods.get("findById").getRowsRead());
+        assertEquals(3, methods.get("findById").getLatencyNanos().getCount());
+        assertEquals(1, methods.get("saveAll").getCalls());
+        assertEquals(5, methods.get("saveAll").getRowsWritten());
+        assertEquals("findById", snapshot.getMethods().get(0).getMethod(), "most called first");
+
+        // five rows in batches of at most two
+        HistogramSnapshot batches = snapshot.getBatchSizes();
+        assertEquals(3, batches.getCount());
+        assertEquals(2, batches.getMax());
+        assertEquals(5.0 / 3, batches.getMean(), 0.01);
+
+        // the two later findById calls reuse the first one's statement
+        assertTrue(snapshot.getStatementCacheHits() >= 2, snapshot.toString());
+        assertEquals(snapshot.getStatementCacheHits()
+                        / (double) (snapshot.getStatementCacheHits() + snapshot.getStatementCacheMisses()),
+                snapshot.getStatementCacheHitRate(), 1e-9);
+    }
+
+    @Test
+    void poolRecordsAcquireTimeOfEveryBorrow() throws SQLException {
+        long before = metrics.getPoolStats().orElseThrow().getAcquireCount();
+
+        for (int i = 0; i < 5; i++) {
+            users.count();
+        }
+        try (Connection first = dataSource.getConnection(); Connection second = dataSource.getConnection()) {
+            assertEquals(2, metrics.getPoolStats().orElseThrow().getActive());
+        }
+
+        PoolStats stats = metrics.getPoolStats().orElseThrow();
+        assertEquals(before + 7, stats.getAcquireCount());
+        HistogramSnapshot acquireTime = stats.getAcquireTimeNanos();
+        assertEquals(stats.getAcquireCount(), acquireTime.getCount());
+        assertTrue(acquireTime.getP50() <= acquireTime.getP99() && acquireTime.getP99() <= acquireTime.getMax(),
+                acquireTime.toString());
+        assertEquals(0, stats.getActive());
+    }
+
+    @Test
+    void mbeansAreRegisteredForPoolAndRepositoriesUntilUnregistered() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName all = new ObjectName(MetricsRegistry.JMX_DOMAIN + ":*");
+        Set<ObjectName> before = server.queryNames(all, null);
+        users.save(new User("ann", "ann@x", 30));
+
+        metrics.registerMBeans();
+        factory.createRepository(OtherUserRepository.class); // created after registration
+        Set<ObjectName> added = new HashSet<>(server.queryNames(all, null));
+        added.removeAll(before);
+
+        ObjectName pool = only(added, "ConnectionPool");
+        assertEquals(metrics.getPoolStats().orElseThrow().getAcquireCount(), server.getAttribute(pool, "AcquireCount"));
+        assertTrue(server.getAttribute(pool, "AcquireTimeNanos") instanceof CompositeData);
+        List<String> repositories = new ArrayList<>();
+        for (ObjectName name : added) {
+            if (name.getKeyProperty("type").equals("Repository")) {
+                repositories.add(ObjectName.unquote(name.getKeyProperty("name")));
+                assertEquals("User", server.getAttribute(name, "Entity"));
+            }
+        }
+        repositories.sort(null);
+        assertEquals(List.of(OtherUserRepository.class.getName(), UserRepository.class.getName()), repositories);
+        ObjectName userRepository = added.stream()
+                .filter(name -> name.getKeyProperty("type").equals("Repository")
+                        && ObjectName.unquote(name.getKeyProperty("name")).equals(UserRepository.class.getName()))
+                .findFirst().orElseThrow();
+        assertEquals(1L, server.getAttribute(userRepository, "RowsWritten"));
+
+        metrics.unregisterMBeans();
+        for (ObjectName name : added) {
+            assertFalse(server.isRegistered(name), name + " still registered");
+        }
+        assertEquals(before, server.queryNames(all, null));
+    }
+
+    private static ObjectName only(Set<ObjectName> names, String type) {
+        List<ObjectName> matching = new ArrayList<>();
+        for (ObjectName name : names) {
+            if (name.getKeyProperty("type").equals(type)) {
+                matching.add(name);
+            }
+        }
+        assertEquals(1, matching.size(), names.toString());
+        return matching.get(0);
+    }
+
+    private static List<String> names(List<RepositoryMetricsSnapshot> snapshots) {
+        List<String> names = new ArrayList<>();
+        for (RepositoryMetricsSnapshot snapshot : snapshots) {
+            names.add(snapshot.getRepository());
+        }
+        return names;
+    }
+}
@@ -0,0 +1,237 @@
+package com.t2308e.transaction;
+
+import com.t2308e.annotations.MyEntity;
+import com.t2308e.cache.EntityCache;
+import com.t2308e.cache.LruEntityCacheProvider;
+import com.t2308e.config.DataSourceConfig;
+import com.t2308e.config.PoolConfig;
+import com.t2308e.core.MyRepositoryFactory;
+import com.t2308e.entity.User;
+import com.t2308e.exception.MiniOrmException;
+import com.t2308e.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Transactions over a pool of a single connection: a repository call that borrowed a connection of its own instead of
+ * joining the bound one would time out.
+ */
+class TransactionManagerTest {
+
+    private static final AtomicInteger RUN = new AtomicInteger();
+
+    private String url;
+    private DataSourceConfig dataSource;
+    private TransactionManager transactions;
+    private EntityCache cache;
+    private UserRepository users;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        url = "jdbc:h2:mem:transactions_" + RUN.incrementAndGet() + ";DB_CLOSE_DELAY=-1";
+        dataSource = new DataSourceConfig(url, "sa", "", "org.h2.Driver",
+                new PoolConfig().setMinIdle(0).setMaxSize(1).setAcquireTimeoutMillis(500));
+        try (Connection conn = dataSource.getConnection(); Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE users (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_name VARCHAR(50), "
+                    + "email VARCHAR(50), age INT)");
+        }
+        LruEntityCacheProvider provider = new LruEntityCacheProvider();
+        cache = provider.getCache(User.class, User.class.getAnnotation(MyEntity.class));
+        MyRepositoryFactory factory = new MyRepositoryFactory(dataSource);
+        factory.getSettings().setCacheProvider(provider);
+        users = factory.createRepository(UserRepository.class);
+        transactions = factory.getTransactionManager();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void returningCallbackCommits() throws SQLException {
+        User saved = transactions.inTransaction(tx -> {
+            User user = users.save(new User("ann", "ann@x", 30));
+            assertEquals(0, committedRows(), "visible before commit");
+            return user;
+        });
+
+        assertEquals(1, committedRows());
+        assertFalse(transactions.isTransactionActive());
+        assertEquals("ann", users.findById(saved.getId()).orElseThrow().getUserName());
+    }
+
+    @Test
+    void throwingCallbackRollsBackAndRethrows() throws SQLException {
+        IllegalStateException failure = new IllegalStateException("boom");
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> transactions.inTransaction(tx -> {
+            users.save(new User("ann", "ann@x", 30));
+            throw failure;
+        }));
+
+        assertSame(failure, thrown);
+        assertEquals(0, committedRows());
+        assertFalse(transactions.isTransactionActive());
+
+        MiniOrmException wrapped = assertThrows(MiniOrmException.class, () -> transactions.inTransaction(tx -> {
+            users.save(new User("bob", "bob@x", 40));
+            throw new IOException("checked");
+        }));
+        assertTrue(wrapped.getCause() instanceof IOException);
+        assertEquals(0, committedRows());
+    }
+
+    @Test
+    void failedRequiredParticipantMarksOuterTransactionRollbackOnly() throws SQLException {
+        MiniOrmException e = assertThrows(MiniOrmException.class, () -> transactions.inTransaction(outer -> {
+            users.save(new User("ann", "ann@x", 30));
+            assertThrows(IllegalStateException.class, () -> transactions.inTransaction(inner -> {
+                assertSame(outer, inner);
+                users.save(new User("bob", "bob@x", 40));
+                throw new IllegalStateException("participant failed");
+            }));
+            assertTrue(outer.isRollbackOnly());
+            return null;
+        }));
+
+        assertTrue(e.getMessage().contains("rollback-only"), e.getMessage());
+        assertEquals(0, committedRows());
+    }
+
+    @Test
+    void failedNestedWorkRollsBackToItsSavepointOnly() throws SQLException {
+        TransactionDefinition nested = new TransactionDefinition().setPropagation(Propagation.NESTED);
+
+        transactions.inTransaction(outer -> {
+            users.save(new User("ann", "ann@x", 30));
+            assertThrows(IllegalStateException.class, () -> transactions.inTransaction(nested, inner -> {
+                users.save(new User("bob", "bob@x", 40));
+                throw new IllegalStateException("nested failed");
+            }));
+            transactions.inTransaction(nested, inner -> users.save(new User("cid", "cid@x", 50)));
+            assertFalse(outer.isRollbackOnly());
+            return null;
+        });
+
+        assertEquals(2, committedRows());
+        assertTrue(users.findByEmail("ann@x").isPresent());
+        assertTrue(users.findByEmail("bob@x").isEmpty());
+        assertTrue(users.findByEmail("cid@x").isPresent());
+    }
+
+    @Test
+    void readOnlyAndIsolationAreRestoredOnThePooledConnection() {
+        // H2 ignores the read-only hint, so the session state set on the connection is tracked by a wrapper
+        Map<String, Object> state = new HashMap<>();
+        TransactionManager manager = new TransactionManager(() -> tracking(dataSource.getConnection(), state));
+        TransactionDefinition definition = new TransactionDefinition()
+                .setReadOnly(true)
+                .setIsolation(Isolation.SERIALIZABLE);
+
+        manager.inTransaction(definition, tx -> {
+            assertEquals(true, state.get("setReadOnly"));
+            assertEquals(false, state.get("setAutoCommit"));
+            assertEquals(Connection.TRANSACTION_SERIALIZABLE, tx.getConnection().getTransactionIsolation());
+            assertEquals(0, dataSource.getPoolStats().orElseThrow().getIdle());
+            return null;
+        });
+
+        assertEquals(false, state.get("setReadOnly"));
+        assertEquals(true, state.get("setAutoCommit"));
+        assertEquals(Connection.TRANSACTION_READ_COMMITTED, state.get("setTransactionIsolation"));
+        assertEquals(true, state.get("close"));
+        assertEquals(1, dataSource.getPoolStats().orElseThrow().getIdle());
+    }
+
+    @Test
+    void repositoryCallsRunOnTheBoundConnection() throws SQLException {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+        long acquiredBefore = dataSource.getPoolStats().orElseThrow().getAcquireCount();
+
+        transactions.inTransaction(tx -> {
+            assertSame(tx.getConnection(), dataSource.getConnection());
+            User ann = users.findById(id).orElseThrow();
+            ann.setAge(31);
+            users.save(ann);
+            users.save(new User("bob", "bob@x", 40));
+            assertEquals(31, users.findById(id).orElseThrow().getAge());
+            assertEquals(2, users.count());
+            assertTrue(users.existsByEmail("bob@x"));
+            return null;
+        });
+
+        assertEquals(acquiredBefore + 1, dataSource.getPoolStats().orElseThrow().getAcquireCount());
+        assertEquals(2, committedRows());
+    }
+
+    @Test
+    void readsInsideTransactionLeaveTheCacheEmpty() {
+        Long id = users.save(new User("ann", "ann@x", 30)).getId();
+
+        transactions.inTransaction(tx -> {
+            users.findById(id).orElseThrow();
+            users.findById(id).orElseThrow();
+            assertNull(cache.get(id));
+            return null;
+        });
+        assertNull(cache.get(id));
+        assertEquals(0, cache.getStats().getHits());
+
+        users.findById(id).orElseThrow();
+        assertNotNull(cache.get(id));
+    }
+
+    /**
+     * {@code conn} recording the last argument of each setter call, and {@code close} once closed, in {@code state}.
+     */
+    private static Connection tracking(Connection conn, Map<String, Object> state) {
+        return (Connection) Proxy.newProxyInstance(TransactionManagerTest.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if (name.startsWith("set") && args != null && args.length == 1) {
+                        state.put(name, args[0]);
+                    } else if (name.equals("close")) {
+                        state.put(name, true);
+                    }
+                    try {
+                        return method.invoke(conn, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Rows seen by a separate session outside the pool, i.e. only committed ones.
+     */
+    private int committedRows() throws SQLException {
+        try (Connection conn = DriverManager.getConnection(url, "sa", "");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM users")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+}